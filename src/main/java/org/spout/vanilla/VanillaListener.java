@@ -36,13 +36,17 @@ import org.spout.api.event.Listener;
 import org.spout.api.event.Order;
 import org.spout.api.event.Result;
 import org.spout.api.event.block.BlockChangeEvent;
+import org.spout.api.event.chunk.ChunkLoadEvent;
 import org.spout.api.event.engine.EngineStartEvent;
 import org.spout.api.event.entity.EntityHiddenEvent;
 import org.spout.api.event.entity.EntityShownEvent;
 import org.spout.api.event.player.PlayerJoinEvent;
 import org.spout.api.event.server.permissions.PermissionNodeEvent;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.plugin.Platform;
+import org.spout.api.scheduler.TaskPriority;
 
 import org.spout.vanilla.component.entity.inventory.PlayerInventory;
 import org.spout.vanilla.component.entity.inventory.WindowHolder;
@@ -61,10 +65,15 @@ import org.spout.vanilla.component.entity.player.hud.VanillaDrowning;
 import org.spout.vanilla.component.entity.player.hud.VanillaExpBar;
 import org.spout.vanilla.component.entity.player.hud.VanillaQuickbar;
 import org.spout.vanilla.component.entity.player.hud.VanillaHunger;
+import org.spout.vanilla.component.world.ChunkScan;
+import org.spout.vanilla.component.world.LiquidSimulator;
+import org.spout.vanilla.component.world.RandomTicker;
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.component.world.sky.Sky;
 import org.spout.vanilla.data.configuration.VanillaConfiguration;
 import org.spout.vanilla.event.block.RedstoneChangeEvent;
 import org.spout.vanilla.input.VanillaInputExecutor;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.block.redstone.RedstoneSource;
 import org.spout.vanilla.protocol.ClientAuthentification;
 import org.spout.vanilla.protocol.PasteExceptionHandler;
@@ -175,6 +184,50 @@ public class VanillaListener implements Listener {
 		}
 	}
 
+	@EventHandler(order = Order.MONITOR)
+	public void onTickableChange(BlockChangeEvent event) {
+		if (event.isCancelled()) {
+			return;
+		}
+		//Keep the count of random tickable blocks of the chunk up to date
+		boolean wasTickable = event.getBlock().getMaterial() instanceof RandomTickable;
+		boolean isTickable = event.getSnapshot().getMaterial() instanceof RandomTickable;
+		if (wasTickable != isTickable) {
+			RandomTicker ticker = event.getBlock().getWorld().get(RandomTicker.class);
+			if (ticker != null) {
+				ticker.onTickableChange(event.getBlock(), isTickable);
+			}
+		}
+	}
+
+	@EventHandler
+	public void onChunkLoad(ChunkLoadEvent event) {
+		final Chunk chunk = event.getChunk();
+		// The chunk is read once, in its region, for all world components that keep track of its blocks
+		chunk.getRegion().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), new Runnable() {
+			@Override
+			public void run() {
+				if (!chunk.isLoaded()) {
+					return;
+				}
+				World world = chunk.getWorld();
+				ChunkScan scan = ChunkScan.scan(chunk);
+				LiquidSimulator liquids = world.get(LiquidSimulator.class);
+				if (liquids != null) {
+					liquids.onChunkLoad(scan);
+				}
+				RedstoneScheduler redstone = world.get(RedstoneScheduler.class);
+				if (redstone != null) {
+					redstone.onChunkLoad(scan);
+				}
+				RandomTicker ticker = world.get(RandomTicker.class);
+				if (ticker != null) {
+					ticker.onChunkLoad(scan);
+				}
+			}
+		}, TaskPriority.NORMAL);
+	}
+
 	@EventHandler
 	public void onEntityHide(EntityHiddenEvent event) {
 		//TODO maps, sounds, etc.
@@ -67,6 +67,11 @@ import org.spout.vanilla.command.AdministrationCommands;
 import org.spout.vanilla.command.AdministrationCommands.TPSMonitor;
 import org.spout.vanilla.command.InputCommandExecutor;
 import org.spout.vanilla.command.TestCommands;
+import org.spout.vanilla.component.world.ExplosionQueue;
+import org.spout.vanilla.component.world.LiquidSimulator;
+import org.spout.vanilla.component.world.RandomTicker;
+import org.spout.vanilla.component.world.RedstoneNetwork;
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.component.world.sky.NetherSky;
 import org.spout.vanilla.component.world.sky.NormalSky;
 import org.spout.vanilla.component.world.sky.TheEndSky;
@@ -85,6 +90,8 @@ import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.enchantment.VanillaEnchantments;
 import org.spout.vanilla.protocol.LANThread;
 import org.spout.vanilla.protocol.VanillaProtocol;
+import org.spout.vanilla.protocol.chunk.ChunkCompressor;
+import org.spout.vanilla.protocol.chunk.ChunkPayloadCache;
 import org.spout.vanilla.protocol.rcon.RemoteConnectionCore;
 import org.spout.vanilla.protocol.rcon.RemoteConnectionServer;
 import org.spout.vanilla.service.VanillaProtectionService;
@@ -112,6 +119,7 @@ public class VanillaPlugin extends CommonPlugin {
 
 	@Override
 	public void onDisable() {
+		ChunkCompressor.shutdown();
 		instance = null;
 		getLogger().info("disabled");
 	}
@@ -177,6 +185,8 @@ public class VanillaPlugin extends CommonPlugin {
 		//Configuration
 		VanillaBlockMaterial.REDSTONE_POWER_MAX = (short) VanillaConfiguration.REDSTONE_MAX_RANGE.getInt();
 		VanillaBlockMaterial.REDSTONE_POWER_MIN = (short) VanillaConfiguration.REDSTONE_MIN_RANGE.getInt();
+		VanillaMaterials.invalidateMinecraftStates();
+		ChunkPayloadCache.getInstance().setCapacity(VanillaConfiguration.CHUNK_PAYLOAD_CACHE_SIZE.getInt() * 1024L * 1024L);
 
 		//TODO: Remove this check when the null world bug is fixed
 		for (World world : Spout.getEngine().getWorlds()) {
@@ -310,6 +320,11 @@ public class VanillaPlugin extends CommonPlugin {
 			} else {
 				world.add(NormalSky.class);
 			}
+			world.add(LiquidSimulator.class);
+			world.add(ExplosionQueue.class);
+			world.add(RedstoneNetwork.class);
+			world.add(RedstoneScheduler.class);
+			world.add(RandomTicker.class);
 		}
 	}
 
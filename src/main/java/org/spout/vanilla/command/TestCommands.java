@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.spout.api.Client;
+import org.spout.api.Server;
 import org.spout.api.Spout;
 import org.spout.api.chat.style.ChatStyle;
 import org.spout.api.command.CommandContext;
@@ -72,6 +73,10 @@ import org.spout.vanilla.component.entity.substance.FallingBlock;
 import org.spout.vanilla.component.entity.substance.Item;
 import org.spout.vanilla.component.entity.substance.Substance;
 import org.spout.vanilla.component.entity.substance.test.ForceMessages;
+import org.spout.vanilla.component.world.LiquidSimulator;
+import org.spout.vanilla.component.world.RandomTicker;
+import org.spout.vanilla.component.world.RedstoneNetwork;
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.data.effect.store.GeneralEffects;
 import org.spout.vanilla.inventory.block.BrewingStandInventory;
@@ -92,8 +97,12 @@ import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.item.VanillaItemMaterial;
 import org.spout.vanilla.material.map.Map;
 import org.spout.vanilla.protocol.VanillaNetworkSynchronizer;
+import org.spout.vanilla.protocol.VanillaProtocol;
+import org.spout.vanilla.protocol.chunk.ChunkPayloadCache;
 import org.spout.vanilla.protocol.entity.creature.CreatureType;
 import org.spout.vanilla.protocol.entity.object.ObjectType;
+import org.spout.vanilla.protocol.netcache.ChunkNetCache;
+import org.spout.vanilla.protocol.netcache.PartitionHashSet;
 import org.spout.vanilla.render.LightRenderEffect;
 import org.spout.vanilla.render.SkyRenderEffect;
 import org.spout.vanilla.util.explosion.ExplosionModels;
@@ -198,6 +207,72 @@ public class TestCommands {
 		((Player) source).getNetworkSynchronizer().setRespawned();
 	}
 
+	@Command(aliases = "chunkcache", usage = "", desc = "Shows the statistics of the shared chunk payload cache", max = 0)
+	@CommandPermissions("vanilla.command.debug")
+	public void chunkCache(CommandContext args, CommandSource source) throws CommandException {
+		ChunkPayloadCache cache = ChunkPayloadCache.getInstance();
+		source.sendMessage("Columns: " + cache.getColumnCount() + ", size: " + (cache.getSize() >> 10) + " KB");
+		source.sendMessage("Hits: " + cache.getHits() + ", misses: " + cache.getMisses() + ", evictions: " + cache.getEvictions());
+
+		if (Spout.getPlatform() != Platform.SERVER) {
+			return;
+		}
+		int players = 0;
+		long memory = 0;
+		for (Player player : ((Server) Spout.getEngine()).getOnlinePlayers()) {
+			ChunkNetCache netCache = player.getSession().getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+			if (netCache != null && netCache.isCacheEnabled()) {
+				players++;
+				memory += netCache.getHashSet().getMemoryUsage();
+			}
+		}
+		source.sendMessage("Net cache clients: " + players + ", size: " + (memory >> 10) + " KB");
+		if (source instanceof Player) {
+			ChunkNetCache netCache = ((Player) source).getSession().getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+			if (netCache != null && netCache.isCacheEnabled()) {
+				PartitionHashSet hashSet = netCache.getHashSet();
+				source.sendMessage("Your net cache: " + hashSet.size() + "/" + hashSet.getMaxSize() + " partitions, evictions: " + hashSet.getEvictions());
+			}
+		}
+	}
+
+	@Command(aliases = "liquids", usage = "", desc = "Shows the liquid blocks waiting to flow in every world", max = 0)
+	@CommandPermissions("vanilla.command.debug")
+	public void liquids(CommandContext args, CommandSource source) throws CommandException {
+		for (World world : Spout.getEngine().getWorlds()) {
+			LiquidSimulator simulator = world.get(LiquidSimulator.class);
+			if (simulator != null) {
+				source.sendMessage(world.getName() + ": " + simulator.getActiveCells() + " liquid blocks in " + simulator.getActiveChunks() + " chunks");
+			}
+		}
+	}
+
+	@Command(aliases = "redstone", usage = "", desc = "Shows the redstone wires and components updated during the last tick in every world", max = 0)
+	@CommandPermissions("vanilla.command.debug")
+	public void redstone(CommandContext args, CommandSource source) throws CommandException {
+		for (World world : Spout.getEngine().getWorlds()) {
+			RedstoneNetwork network = world.get(RedstoneNetwork.class);
+			if (network != null) {
+				source.sendMessage(world.getName() + ": " + network.getUpdatesPerTick() + " wires updated, " + network.getChangesPerTick() + " changed in " + network.getGraphsPerTick() + " graphs");
+			}
+			RedstoneScheduler scheduler = world.get(RedstoneScheduler.class);
+			if (scheduler != null) {
+				source.sendMessage(world.getName() + ": " + scheduler.getDuePerTick() + " components updated, " + scheduler.getDroppedPerTick() + " repeated updates dropped, " + scheduler.getPending() + " pending");
+			}
+		}
+	}
+
+	@Command(aliases = "randomticks", usage = "", desc = "Shows the blocks ticked at random during the last tick in every world", max = 0)
+	@CommandPermissions("vanilla.command.debug")
+	public void randomTicks(CommandContext args, CommandSource source) throws CommandException {
+		for (World world : Spout.getEngine().getWorlds()) {
+			RandomTicker ticker = world.get(RandomTicker.class);
+			if (ticker != null) {
+				source.sendMessage(world.getName() + ": " + ticker.getTickedPerTick() + " blocks ticked, " + ticker.getSkippedPerTick() + " chunks skipped, " + ticker.getCountedChunks() + " chunks counted");
+			}
+		}
+	}
+
 	@Command(aliases = "sun", usage = "<x> <y> <z>", desc = "Sets the sun direction.", max = 3)
 	@CommandPermissions("vanilla.command.debug")
 	public void setSunDirection(CommandContext args, CommandSource source) throws CommandException {
@@ -26,18 +26,21 @@
  */
 package org.spout.vanilla.component.entity.substance;
 
-import com.bulletphysics.collision.shapes.BoxShape;
+import java.util.Collections;
 
+import com.bulletphysics.collision.shapes.BoxShape;
 
 import org.spout.api.entity.Entity;
+import org.spout.api.geo.discrete.Point;
 
 import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.component.world.ExplosionQueue;
 import org.spout.vanilla.data.VanillaData;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.protocol.entity.object.ObjectEntityProtocol;
 import org.spout.vanilla.protocol.entity.object.ObjectType;
-import org.spout.vanilla.util.explosion.ExplosionModel;
-import org.spout.vanilla.util.explosion.ExplosionModelSpherical;
+import org.spout.vanilla.util.explosion.Explosion;
+import org.spout.vanilla.util.explosion.ExplosionModels;
 
 public class Tnt extends Substance {
 	private Entity holder;
@@ -83,8 +86,14 @@ public class Tnt extends Substance {
 	public void onTick(float dt) {
 		pulse(dt);
 		if (getFuse() <= 0) {
-			ExplosionModel explosion = new ExplosionModelSpherical();
-			explosion.execute(holder.getScene().getPosition(), getExplosionSize(), makesFire(), VanillaMaterials.TNT.toCause(holder.getScene().getPosition()));
+			Point position = holder.getScene().getPosition();
+			Explosion explosion = new Explosion(position, getExplosionSize(), makesFire(), VanillaMaterials.TNT.toCause(position));
+			ExplosionQueue queue = position.getWorld().get(ExplosionQueue.class);
+			if (queue != null) {
+				queue.queue(explosion);
+			} else {
+				ExplosionModels.SPHERICAL.execute(Collections.singletonList(explosion), true, false);
+			}
 			holder.remove();
 		}
 	}
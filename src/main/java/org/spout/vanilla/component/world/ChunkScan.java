@@ -0,0 +1,174 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.world;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import org.spout.api.geo.cuboid.BlockContainer;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.cuboid.ContainerFillOrder;
+import org.spout.api.material.Material;
+import org.spout.api.material.MaterialRegistry;
+import org.spout.api.material.block.BlockFullState;
+
+import org.spout.vanilla.material.RandomTickable;
+import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.material.block.redstone.RedstoneComponent;
+
+/**
+ * Reads the blocks of a chunk in one bulk copy and keeps the ones the world components track: flowing liquids for the
+ * {@link LiquidSimulator}, redstone components for the {@link RedstoneScheduler} and the number of tickable blocks for the
+ * {@link RandomTicker}.<br>
+ * The material of a full state is only looked up when the state differs from the one before, so runs of the same block,
+ * such as the air filling most sections, cost nothing but the copy.
+ */
+public class ChunkScan implements BlockContainer {
+	private static final int LIQUID = 0x1;
+	private static final int REDSTONE = 0x2;
+	private static final int TICKABLE = 0x4;
+	private final Chunk chunk;
+	private final TIntArrayList liquids = new TIntArrayList();
+	private final TIntArrayList components = new TIntArrayList();
+	private int tickable = 0;
+	private int index = 0;
+	private int lastState = 0;
+	private int lastKind = 0;
+
+	private ChunkScan(Chunk chunk) {
+		this.chunk = chunk;
+	}
+
+	/**
+	 * Scans the blocks of a chunk
+	 * @param chunk to scan
+	 * @return the scan
+	 */
+	public static ChunkScan scan(Chunk chunk) {
+		ChunkScan scan = new ChunkScan(chunk);
+		chunk.fillBlockContainer(scan);
+		return scan;
+	}
+
+	@Override
+	public ContainerFillOrder getOrder() {
+		return ContainerFillOrder.XZY;
+	}
+
+	@Override
+	public void setBlockFullState(int state) {
+		if (state != lastState) {
+			lastState = state;
+			lastKind = getKind(state);
+		}
+		if (lastKind != 0) {
+			if ((lastKind & LIQUID) != 0) {
+				liquids.add(index);
+			}
+			if ((lastKind & REDSTONE) != 0) {
+				components.add(index);
+			}
+			if ((lastKind & TICKABLE) != 0) {
+				tickable++;
+			}
+		}
+		index++;
+	}
+
+	private static int getKind(int state) {
+		Material material = MaterialRegistry.get(BlockFullState.getId(state));
+		if (material == null) {
+			return 0;
+		}
+		material = material.getSubMaterial(BlockFullState.getData(state));
+		int kind = 0;
+		if (material instanceof Liquid && ((Liquid) material).isFlowing()) {
+			kind |= LIQUID;
+		}
+		if (material instanceof RedstoneComponent) {
+			kind |= REDSTONE;
+		}
+		if (material instanceof RandomTickable) {
+			kind |= TICKABLE;
+		}
+		return kind;
+	}
+
+	public Chunk getChunk() {
+		return chunk;
+	}
+
+	/**
+	 * Gets the flowing liquid blocks of the chunk
+	 * @return the block indices, see {@link #getX(int)}
+	 */
+	public TIntArrayList getLiquids() {
+		return liquids;
+	}
+
+	/**
+	 * Gets the redstone component blocks of the chunk
+	 * @return the block indices, see {@link #getX(int)}
+	 */
+	public TIntArrayList getComponents() {
+		return components;
+	}
+
+	/**
+	 * Gets the number of tickable blocks of the chunk
+	 * @return the tickable block count
+	 */
+	public int getTickableCount() {
+		return tickable;
+	}
+
+	/**
+	 * Gets the world x-coordinate of a block index of this scan
+	 * @param index of the block
+	 * @return the x-coordinate
+	 */
+	public int getX(int index) {
+		return (chunk.getX() << Chunk.BLOCKS.BITS) + (index & Chunk.BLOCKS.MASK);
+	}
+
+	/**
+	 * Gets the world y-coordinate of a block index of this scan
+	 * @param index of the block
+	 * @return the y-coordinate
+	 */
+	public int getY(int index) {
+		return (chunk.getY() << Chunk.BLOCKS.BITS) + (index >> (Chunk.BLOCKS.BITS << 1));
+	}
+
+	/**
+	 * Gets the world z-coordinate of a block index of this scan
+	 * @param index of the block
+	 * @return the z-coordinate
+	 */
+	public int getZ(int index) {
+		return (chunk.getZ() << Chunk.BLOCKS.BITS) + ((index >> Chunk.BLOCKS.BITS) & Chunk.BLOCKS.MASK);
+	}
+}
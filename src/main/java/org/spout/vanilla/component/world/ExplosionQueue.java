@@ -0,0 +1,139 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.scheduler.TaskPriority;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.util.explosion.Explosion;
+import org.spout.vanilla.util.explosion.ExplosionModel;
+import org.spout.vanilla.util.explosion.ExplosionModels;
+
+/**
+ * Collects the explosions of a world during a tick and executes them together.<br>
+ * Explosions that overlap, such as a chain of TNT, are executed in a single pass of the explosion model.
+ * Explosions that do not overlap are executed separately in their own region, so they can run at the same time.
+ */
+public class ExplosionQueue extends VanillaWorldComponent {
+	private final Queue<Explosion> pending = new ConcurrentLinkedQueue<Explosion>();
+	private final ExplosionModel model = ExplosionModels.SPHERICAL;
+
+	@Override
+	public boolean canTick() {
+		return true;
+	}
+
+	/**
+	 * Queues an explosion to be executed at the next tick of this world
+	 * @param explosion to queue
+	 */
+	public void queue(Explosion explosion) {
+		pending.add(explosion);
+	}
+
+	@Override
+	public void onTick(float dt) {
+		if (pending.isEmpty()) {
+			return;
+		}
+		List<Explosion> explosions = new ArrayList<Explosion>();
+		Explosion explosion;
+		while ((explosion = pending.poll()) != null) {
+			explosions.add(explosion);
+		}
+
+		// Join overlapping explosions
+		int count = explosions.size();
+		int[] parents = new int[count];
+		float[] radii = new float[count];
+		for (int i = 0; i < count; i++) {
+			parents[i] = i;
+			radii[i] = model.getRadius(explosions.get(i).getSize());
+		}
+		for (int i = 0; i < count; i++) {
+			Point a = explosions.get(i).getPosition();
+			for (int j = i + 1; j < count; j++) {
+				float reach = radii[i] + radii[j];
+				if (a.distanceSquared(explosions.get(j).getPosition()) < reach * reach) {
+					parents[getRoot(parents, j)] = getRoot(parents, i);
+				}
+			}
+		}
+
+		World world = getOwner();
+		for (int i = 0; i < count; i++) {
+			if (parents[i] != i) {
+				continue;
+			}
+			List<Explosion> group = new ArrayList<Explosion>();
+			for (int j = 0; j < count; j++) {
+				if (getRoot(parents, j) == i) {
+					group.add(explosions.get(j));
+				}
+			}
+			Point position = group.get(0).getPosition();
+			Chunk chunk = world.getChunk(position.getChunkX(), position.getChunkY(), position.getChunkZ(), LoadOption.NO_LOAD);
+			if (chunk == null) {
+				// Try again once the chunk is loaded
+				pending.addAll(group);
+				continue;
+			}
+			chunk.getRegion().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), new ExplosionTask(model, group), TaskPriority.NORMAL);
+		}
+	}
+
+	private static int getRoot(int[] parents, int index) {
+		while (parents[index] != index) {
+			index = parents[index] = parents[parents[index]];
+		}
+		return index;
+	}
+
+	private static class ExplosionTask implements Runnable {
+		private final ExplosionModel model;
+		private final List<Explosion> explosions;
+
+		public ExplosionTask(ExplosionModel model, List<Explosion> explosions) {
+			this.model = model;
+			this.explosions = explosions;
+		}
+
+		@Override
+		public void run() {
+			model.execute(explosions, true, false);
+		}
+	}
+}
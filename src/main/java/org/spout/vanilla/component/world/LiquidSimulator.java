@@ -0,0 +1,166 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.world;
+
+import gnu.trove.list.array.TIntArrayList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.cuboid.Region;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.scheduler.TaskPriority;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.util.flowing.ActiveLiquids;
+import org.spout.vanilla.util.flowing.ActiveLiquids.Step;
+
+/**
+ * Lets the liquids of a world flow in batches.<br>
+ * Liquid blocks that have to flow are collected per chunk, and once every flow delay all of them flow together in a single task of their region.
+ * Blocks of chunks that are unloaded when they are due wait until their chunk loads again. The waiting blocks are only kept in memory,
+ * so every chunk that loads also lets its flowing liquid blocks flow again.
+ */
+public class LiquidSimulator extends VanillaWorldComponent {
+	private final ActiveLiquids active = new ActiveLiquids();
+
+	@Override
+	public boolean canTick() {
+		return true;
+	}
+
+	/**
+	 * Schedules a liquid block to flow after the flow delay of its liquid
+	 * @param block containing the liquid
+	 * @param liquid of the block
+	 */
+	public void schedule(Block block, Liquid liquid) {
+		active.add(block.getX(), block.getY(), block.getZ(), liquid.getFlowDelay(), getOwner().getAge());
+	}
+
+	/**
+	 * Lets the liquids of a chunk that was just loaded flow again, which includes all blocks that were due while it was unloaded.<br>
+	 * Has to be called from the region thread of the chunk.
+	 * @param scan of the chunk that was loaded
+	 */
+	public void onChunkLoad(ChunkScan scan) {
+		Chunk chunk = scan.getChunk();
+		long age = getOwner().getAge();
+		Step parked = active.unpark(chunk.getX(), chunk.getY(), chunk.getZ());
+		if (parked != null) {
+			for (int i = 0; i < parked.getSize(); i++) {
+				restore(chunk, parked.getX(i), parked.getY(i), parked.getZ(i), age);
+			}
+		}
+		TIntArrayList liquids = scan.getLiquids();
+		for (int i = 0; i < liquids.size(); i++) {
+			int index = liquids.getQuick(i);
+			restore(chunk, scan.getX(index), scan.getY(index), scan.getZ(index), age);
+		}
+	}
+
+	private void restore(Chunk chunk, int x, int y, int z, long age) {
+		BlockMaterial material = chunk.getBlockMaterial(x, y, z);
+		if (material instanceof Liquid) {
+			active.add(x, y, z, ((Liquid) material).getFlowDelay(), age);
+		}
+	}
+
+	/**
+	 * Gets the number of liquid blocks waiting to flow
+	 * @return the block count
+	 */
+	public int getActiveCells() {
+		return active.getActiveCells();
+	}
+
+	/**
+	 * Gets the number of chunks with liquid blocks waiting to flow
+	 * @return the chunk count
+	 */
+	public int getActiveChunks() {
+		return active.getActiveChunks();
+	}
+
+	@Override
+	public void onTick(float dt) {
+		World world = getOwner();
+		long age = world.getAge();
+		List<Step> steps = active.pollDue(age);
+		if (steps.isEmpty()) {
+			return;
+		}
+		Map<Region, FlowTask> tasks = new HashMap<Region, FlowTask>();
+		for (Step step : steps) {
+			Chunk chunk = world.getChunk(step.getChunkX(), step.getChunkY(), step.getChunkZ(), LoadOption.NO_LOAD);
+			if (chunk == null) {
+				active.park(step);
+				continue;
+			}
+			Region region = chunk.getRegion();
+			FlowTask task = tasks.get(region);
+			if (task == null) {
+				task = new FlowTask(world, age);
+				tasks.put(region, task);
+			}
+			task.steps.add(step);
+		}
+		for (Map.Entry<Region, FlowTask> entry : tasks.entrySet()) {
+			entry.getKey().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), entry.getValue(), TaskPriority.NORMAL);
+		}
+	}
+
+	private static class FlowTask implements Runnable {
+		private final World world;
+		private final long age;
+		private final List<Step> steps = new ArrayList<Step>();
+
+		public FlowTask(World world, long age) {
+			this.world = world;
+			this.age = age;
+		}
+
+		@Override
+		public void run() {
+			for (Step step : steps) {
+				for (int i = 0; i < step.getSize(); i++) {
+					Block block = world.getBlock(step.getX(i), step.getY(i), step.getZ(i));
+					BlockMaterial material = block.getMaterial();
+					if (material instanceof Liquid) {
+						((Liquid) material).onDynamicUpdate(block, age, 0);
+					}
+				}
+			}
+		}
+	}
+}
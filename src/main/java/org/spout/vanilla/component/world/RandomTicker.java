@@ -0,0 +1,275 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+import org.spout.api.entity.Player;
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.cuboid.Region;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.math.GenericMath;
+import org.spout.api.scheduler.TaskPriority;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.material.RandomTickable;
+
+/**
+ * Picks random blocks in the chunks around the players every tick and ticks the ones that are {@link RandomTickable}.<br>
+ * The number of tickable blocks of every chunk is counted once and kept up to date as blocks change, so chunks without
+ * any tickable block are skipped without reading a single block.
+ */
+public class RandomTicker extends VanillaWorldComponent {
+	/**
+	 * The number of blocks picked in every chunk each tick
+	 */
+	public static final int BLOCKS_PER_CHUNK = 3;
+	/**
+	 * The horizontal distance in chunks from a player within chunks are ticked
+	 */
+	public static final int RADIUS = 7;
+	/**
+	 * The vertical distance in chunks from a player within chunks are ticked
+	 */
+	public static final int HEIGHT = 4;
+	/**
+	 * The average time in milliseconds after which the tickable blocks of a chunk are counted again.<br>
+	 * Every chunk picks its own time between half and one and a half times this, so chunks loaded together are not all
+	 * counted again in the same tick.
+	 */
+	public static final long RECOUNT_TIME = 60000;
+	private static final int SWEEP_INTERVAL = 200;
+	private final ConcurrentMap<Long, Section> sections = new ConcurrentHashMap<Long, Section>();
+	private final AtomicInteger ticked = new AtomicInteger(), skipped = new AtomicInteger();
+	private volatile int lastTicked, lastSkipped;
+	private int sweepCounter = 0;
+
+	@Override
+	public boolean canTick() {
+		return true;
+	}
+
+	/**
+	 * Gets the number of blocks ticked during the last tick
+	 * @return the ticked block count
+	 */
+	public int getTickedPerTick() {
+		return lastTicked;
+	}
+
+	/**
+	 * Gets the number of chunks skipped during the last tick because they had no tickable blocks
+	 * @return the skipped chunk count
+	 */
+	public int getSkippedPerTick() {
+		return lastSkipped;
+	}
+
+	/**
+	 * Gets the number of chunks of which the tickable blocks are counted
+	 * @return the counted chunk count
+	 */
+	public int getCountedChunks() {
+		return sections.size();
+	}
+
+	/**
+	 * Updates the tickable block count of the chunk containing a block that changed material
+	 * @param block that changed
+	 * @param tickable whether the block is tickable now
+	 */
+	public void onTickableChange(Block block, boolean tickable) {
+		Section section = sections.get(getKey(block.getX() >> Chunk.BLOCKS.BITS, block.getY() >> Chunk.BLOCKS.BITS, block.getZ() >> Chunk.BLOCKS.BITS));
+		if (section != null) {
+			section.count.addAndGet(tickable ? 1 : -1);
+		}
+	}
+
+	@Override
+	public void onTick(float dt) {
+		lastTicked = ticked.getAndSet(0);
+		lastSkipped = skipped.getAndSet(0);
+		World world = getOwner();
+		long age = world.getAge();
+		if (++sweepCounter >= SWEEP_INTERVAL) {
+			sweepCounter = 0;
+			Iterator<Section> i = sections.values().iterator();
+			while (i.hasNext()) {
+				if (age - i.next().lastTicked > RECOUNT_TIME) {
+					i.remove();
+				}
+			}
+		}
+
+		// Collect every chunk around the players once, grouped by region
+		Map<Region, TickTask> tasks = new HashMap<Region, TickTask>();
+		TLongHashSet visited = new TLongHashSet();
+		for (Player player : world.getPlayers()) {
+			if (!player.isOnline()) {
+				continue;
+			}
+			Point position = player.getScene().getPosition();
+			int pcx = GenericMath.floor(position.getX()) >> Chunk.BLOCKS.BITS;
+			int pcy = GenericMath.floor(position.getY()) >> Chunk.BLOCKS.BITS;
+			int pcz = GenericMath.floor(position.getZ()) >> Chunk.BLOCKS.BITS;
+			for (int cx = pcx - RADIUS; cx <= pcx + RADIUS; cx++) {
+				for (int cy = pcy - HEIGHT; cy <= pcy + HEIGHT; cy++) {
+					for (int cz = pcz - RADIUS; cz <= pcz + RADIUS; cz++) {
+						if (!visited.add(getKey(cx, cy, cz))) {
+							continue;
+						}
+						Chunk chunk = world.getChunk(cx, cy, cz, LoadOption.NO_LOAD);
+						if (chunk == null) {
+							continue;
+						}
+						Region region = chunk.getRegion();
+						TickTask task = tasks.get(region);
+						if (task == null) {
+							task = new TickTask(age);
+							tasks.put(region, task);
+						}
+						task.chunks.add(chunk);
+					}
+				}
+			}
+		}
+		for (Map.Entry<Region, TickTask> entry : tasks.entrySet()) {
+			entry.getKey().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), entry.getValue(), TaskPriority.NORMAL);
+		}
+	}
+
+	/**
+	 * Gets the key of a chunk in the tickable count map
+	 * @param cx chunk x-coordinate
+	 * @param cy chunk y-coordinate
+	 * @param cz chunk z-coordinate
+	 * @return the key
+	 */
+	public static long getKey(int cx, int cy, int cz) {
+		return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (long) (cz & 0x1FFFFF);
+	}
+
+	/**
+	 * Counts the tickable blocks in a chunk
+	 * @param chunk to count in
+	 * @return the tickable block count
+	 */
+	public static int countTickable(Chunk chunk) {
+		return ChunkScan.scan(chunk).getTickableCount();
+	}
+
+	/**
+	 * Keeps the tickable block count of a chunk that was just loaded, so it is not counted again when it is first ticked
+	 * @param scan of the chunk that was loaded
+	 */
+	public void onChunkLoad(ChunkScan scan) {
+		Chunk chunk = scan.getChunk();
+		Section section = createSection(getOwner().getAge(), GenericMath.getRandom());
+		section.count.set(scan.getTickableCount());
+		sections.put(getKey(chunk.getX(), chunk.getY(), chunk.getZ()), section);
+	}
+
+	/**
+	 * Creates the count of a chunk, to be counted again at a random time around {@link #RECOUNT_TIME} from now
+	 */
+	private static Section createSection(long age, Random rand) {
+		return new Section(age, age + RECOUNT_TIME / 2 + (long) rand.nextInt((int) RECOUNT_TIME));
+	}
+
+	private static class Section {
+		private final AtomicInteger count = new AtomicInteger();
+		private final long recountTime;
+		private volatile long lastTicked;
+
+		private Section(long countTime, long recountTime) {
+			this.recountTime = recountTime;
+			this.lastTicked = countTime;
+		}
+	}
+
+	private class TickTask implements Runnable {
+		private final List<Chunk> chunks = new ArrayList<Chunk>();
+		private final long age;
+
+		private TickTask(long age) {
+			this.age = age;
+		}
+
+		@Override
+		public void run() {
+			final Random rand = GenericMath.getRandom();
+			int ticks = 0, skips = 0;
+			for (Chunk chunk : chunks) {
+				if (!chunk.isLoaded()) {
+					continue;
+				}
+				Long key = getKey(chunk.getX(), chunk.getY(), chunk.getZ());
+				Section section = sections.get(key);
+				if (section == null || age > section.recountTime) {
+					// Count from scratch now and then, in case a change was missed
+					section = createSection(age, rand);
+					sections.put(key, section);
+					section.count.set(countTickable(chunk));
+				}
+				section.lastTicked = age;
+				if (section.count.get() <= 0) {
+					skips++;
+					continue;
+				}
+				int bx = chunk.getX() << Chunk.BLOCKS.BITS;
+				int by = chunk.getY() << Chunk.BLOCKS.BITS;
+				int bz = chunk.getZ() << Chunk.BLOCKS.BITS;
+				for (int i = 0; i < BLOCKS_PER_CHUNK; i++) {
+					int x = bx + rand.nextInt(Chunk.BLOCKS.SIZE);
+					int y = by + rand.nextInt(Chunk.BLOCKS.SIZE);
+					int z = bz + rand.nextInt(Chunk.BLOCKS.SIZE);
+					BlockMaterial material = chunk.getBlockMaterial(x, y, z);
+					if (material instanceof RandomTickable) {
+						((RandomTickable) material).onRandomTick(chunk.getBlock(x, y, z));
+						ticks++;
+					}
+				}
+			}
+			ticked.addAndGet(ticks);
+			skipped.addAndGet(skips);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.cuboid.Region;
+import org.spout.api.scheduler.TaskPriority;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.material.VanillaBlockMaterial;
+import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.material.block.redstone.RedstoneWire;
+import org.spout.vanilla.util.redstone.WireGraph;
+
+/**
+ * Powers the redstone wires of a world as connected graphs.<br>
+ * Wires that received an update are collected until the next tick. Then the graph of every updated wire is built once in a task of its
+ * region, the power of all its wires is computed in a single pass, and only the wires of which the power changed are set.
+ */
+public class RedstoneNetwork extends VanillaWorldComponent {
+	/**
+	 * The most wires in a single graph, wires beyond it power the graph with the power they have now
+	 */
+	public static final int MAX_GRAPH_SIZE = 4096;
+	private final ConcurrentMap<Long, Block> dirty = new ConcurrentHashMap<Long, Block>();
+	private final AtomicInteger updates = new AtomicInteger(), changes = new AtomicInteger(), graphs = new AtomicInteger();
+	private volatile int lastUpdates, lastChanges, lastGraphs;
+
+	@Override
+	public boolean canTick() {
+		return true;
+	}
+
+	/**
+	 * Marks a wire to be powered at the next tick, together with all wires connected to it
+	 * @param block of the wire
+	 */
+	public void markDirty(Block block) {
+		dirty.put(WireGraph.getKey(block.getX(), block.getY(), block.getZ()), block);
+	}
+
+	/**
+	 * Gets the number of wires of which the power was computed during the last tick
+	 * @return the wire update count
+	 */
+	public int getUpdatesPerTick() {
+		return lastUpdates;
+	}
+
+	/**
+	 * Gets the number of wires of which the power changed during the last tick
+	 * @return the changed wire count
+	 */
+	public int getChangesPerTick() {
+		return lastChanges;
+	}
+
+	/**
+	 * Gets the number of wire graphs built during the last tick
+	 * @return the graph count
+	 */
+	public int getGraphsPerTick() {
+		return lastGraphs;
+	}
+
+	@Override
+	public void onTick(float dt) {
+		lastUpdates = updates.getAndSet(0);
+		lastChanges = changes.getAndSet(0);
+		lastGraphs = graphs.getAndSet(0);
+		if (dirty.isEmpty()) {
+			return;
+		}
+		World world = getOwner();
+		Map<Region, PowerTask> tasks = new HashMap<Region, PowerTask>();
+		Iterator<Block> i = dirty.values().iterator();
+		while (i.hasNext()) {
+			Block block = i.next();
+			i.remove();
+			Chunk chunk = world.getChunkFromBlock(block.getX(), block.getY(), block.getZ(), LoadOption.NO_LOAD);
+			if (chunk == null) {
+				continue;
+			}
+			Region region = chunk.getRegion();
+			PowerTask task = tasks.get(region);
+			if (task == null) {
+				task = new PowerTask();
+				tasks.put(region, task);
+			}
+			task.wires.add(block);
+		}
+		for (Map.Entry<Region, PowerTask> entry : tasks.entrySet()) {
+			entry.getKey().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), entry.getValue(), TaskPriority.NORMAL);
+		}
+	}
+
+	private class PowerTask implements Runnable {
+		private final List<Block> wires = new ArrayList<Block>();
+
+		@Override
+		public void run() {
+			RedstoneWire material = VanillaMaterials.REDSTONE_WIRE;
+			WireGraph graph = new WireGraph();
+			TLongHashSet powered = new TLongHashSet();
+			List<Block> blocks = new ArrayList<Block>();
+			List<Block> linked = new ArrayList<Block>(WireGraph.MAX_LINKS);
+			for (Block wire : wires) {
+				if (powered.contains(WireGraph.getKey(wire.getX(), wire.getY(), wire.getZ())) || !wire.isMaterial(material)) {
+					continue;
+				}
+
+				// Build the graph of all wires connected to the updated wire
+				graph.clear();
+				blocks.clear();
+				graph.add(wire.getX(), wire.getY(), wire.getZ(), material.getRedstonePower(wire));
+				blocks.add(wire);
+				for (int node = 0; node < blocks.size(); node++) {
+					Block block = blocks.get(node);
+					graph.addSource(node, material.getSourcePower(block));
+					linked.clear();
+					material.getLinkedWires(block, linked);
+					for (Block next : linked) {
+						int nextNode = graph.indexOf(next.getX(), next.getY(), next.getZ());
+						if (nextNode == -1) {
+							if (graph.size() >= MAX_GRAPH_SIZE) {
+								graph.addSource(node, material.getRedstonePower(next) - 1);
+								continue;
+							}
+							nextNode = graph.add(next.getX(), next.getY(), next.getZ(), material.getRedstonePower(next));
+							blocks.add(next);
+						}
+						graph.link(node, nextNode);
+					}
+				}
+
+				// Power all wires of the graph at once and set the ones that changed
+				int changed = graph.propagate(VanillaBlockMaterial.REDSTONE_POWER_MAX);
+				for (int node = 0; node < graph.size(); node++) {
+					powered.add(WireGraph.getKey(graph.getX(node), graph.getY(node), graph.getZ(node)));
+					if (graph.isChanged(node)) {
+						blocks.get(node).setData(graph.getPower(node));
+					}
+				}
+				updates.addAndGet(graph.size());
+				changes.addAndGet(changed);
+				graphs.incrementAndGet();
+			}
+		}
+	}
+}
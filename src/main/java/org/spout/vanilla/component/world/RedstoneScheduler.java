@@ -0,0 +1,394 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.component.world;
+
+import gnu.trove.list.array.TIntArrayList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.spout.api.geo.LoadOption;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.cuboid.Region;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.scheduler.TaskPriority;
+
+import org.spout.vanilla.VanillaPlugin;
+import org.spout.vanilla.material.block.redstone.RedstoneComponent;
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
+import org.spout.vanilla.util.redstone.WireGraph;
+
+/**
+ * Schedules the updates of the redstone components of a world in a single queue ordered by time.<br>
+ * An update scheduled again for the same block, time and data is dropped, and an exclusive update replaces all updates of its block.
+ * Every tick the due updates are run in a task of their region: all components read their power through one
+ * {@link RedstonePowerMap} first, and change their state after.<br>
+ * Updates of chunks that are unloaded when they are due wait until their chunk loads again. The queue is only kept in memory,
+ * so every chunk that loads also schedules the components that still {@link RedstoneComponent#needsUpdate(Block) need an update}.
+ */
+public class RedstoneScheduler extends VanillaWorldComponent {
+	private final PriorityQueue<Update> queue = new PriorityQueue<Update>();
+	private final Map<Long, List<Update>> pending = new HashMap<Long, List<Update>>();
+	private final Map<Long, List<Update>> parked = new HashMap<Long, List<Update>>();
+	private long sequence = 0;
+	private volatile int lastDue, lastDropped;
+	private int dropped;
+
+	/**
+	 * Schedules an update of a redstone component, using the scheduler of its world if it has one, or else a dynamic update of the block
+	 * @param block of the component
+	 * @param time the update is due at, in world age
+	 * @param data to update with
+	 * @param exclusive True to replace all other updates of the block
+	 */
+	public static void schedule(Block block, long time, int data, boolean exclusive) {
+		RedstoneScheduler scheduler = block.getWorld().get(RedstoneScheduler.class);
+		if (scheduler == null) {
+			block.dynamicUpdate(time, data, exclusive);
+		} else {
+			scheduler.add(block.getX(), block.getY(), block.getZ(), time, data, exclusive);
+		}
+	}
+
+	/**
+	 * Cancels all updates of a redstone component and resets its dynamic state, so it schedules itself again from its first update
+	 * @param block of the component
+	 */
+	public static void cancel(Block block) {
+		RedstoneScheduler scheduler = block.getWorld().get(RedstoneScheduler.class);
+		if (scheduler != null) {
+			scheduler.remove(block.getX(), block.getY(), block.getZ());
+		}
+		block.resetDynamic();
+	}
+
+	@Override
+	public boolean canTick() {
+		return true;
+	}
+
+	/**
+	 * Adds an update of the redstone component at a position
+	 * @param x coordinate of the component
+	 * @param y coordinate of the component
+	 * @param z coordinate of the component
+	 * @param time the update is due at, in world age
+	 * @param data to update with
+	 * @param exclusive True to replace all other updates of the component
+	 * @return True if added, False if the same update was already scheduled
+	 */
+	public synchronized boolean add(int x, int y, int z, long time, int data, boolean exclusive) {
+		Long key = WireGraph.getKey(x, y, z);
+		List<Update> updates = pending.get(key);
+		if (updates == null) {
+			updates = new ArrayList<Update>(1);
+			pending.put(key, updates);
+		} else if (exclusive) {
+			for (Update update : updates) {
+				update.cancelled = true;
+			}
+			updates.clear();
+		} else {
+			for (Update update : updates) {
+				if (update.time == time && update.data == data) {
+					dropped++;
+					return false;
+				}
+			}
+		}
+		Update update = new Update(x, y, z, time, data, sequence++);
+		updates.add(update);
+		queue.add(update);
+		return true;
+	}
+
+	/**
+	 * Removes all updates of the redstone component at a position
+	 * @param x coordinate of the component
+	 * @param y coordinate of the component
+	 * @param z coordinate of the component
+	 */
+	public synchronized void remove(int x, int y, int z) {
+		List<Update> updates = pending.remove(WireGraph.getKey(x, y, z));
+		if (updates != null) {
+			for (Update update : updates) {
+				update.cancelled = true;
+			}
+		}
+	}
+
+	/**
+	 * Keeps a due update whose chunk is not loaded, until {@link #unpark(int, int, int)} is called for the chunk
+	 * @param update to park
+	 */
+	public synchronized void park(Update update) {
+		Long key = WireGraph.getKey(update.x, update.y, update.z);
+		List<Update> updates = pending.get(key);
+		if (updates == null) {
+			updates = new ArrayList<Update>(1);
+			pending.put(key, updates);
+		}
+		updates.add(update);
+		Long chunkKey = getChunkKey(update.x >> Chunk.BLOCKS.BITS, update.y >> Chunk.BLOCKS.BITS, update.z >> Chunk.BLOCKS.BITS);
+		List<Update> chunkUpdates = parked.get(chunkKey);
+		if (chunkUpdates == null) {
+			chunkUpdates = new ArrayList<Update>();
+			parked.put(chunkKey, chunkUpdates);
+		}
+		chunkUpdates.add(update);
+	}
+
+	/**
+	 * Puts the parked updates of a chunk back in the queue, so they run at the next tick
+	 * @param cx chunk x-coordinate
+	 * @param cy chunk y-coordinate
+	 * @param cz chunk z-coordinate
+	 * @return the number of updates put back
+	 */
+	public synchronized int unpark(int cx, int cy, int cz) {
+		List<Update> updates = parked.remove(getChunkKey(cx, cy, cz));
+		int count = 0;
+		if (updates != null) {
+			for (Update update : updates) {
+				if (!update.cancelled) {
+					queue.add(update);
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Schedules an update of a component for the next tick, unless it already has an update
+	 * @param x coordinate of the component
+	 * @param y coordinate of the component
+	 * @param z coordinate of the component
+	 * @param age of the world
+	 */
+	private synchronized void restore(int x, int y, int z, long age) {
+		if (!pending.containsKey(WireGraph.getKey(x, y, z))) {
+			add(x, y, z, age, 0, false);
+		}
+	}
+
+	/**
+	 * Puts back the updates of a chunk that was just loaded, and schedules its components that were left waiting for an update.<br>
+	 * Has to be called from the region thread of the chunk.
+	 * @param scan of the chunk that was loaded
+	 */
+	public void onChunkLoad(ChunkScan scan) {
+		Chunk chunk = scan.getChunk();
+		unpark(chunk.getX(), chunk.getY(), chunk.getZ());
+		TIntArrayList components = scan.getComponents();
+		if (components.isEmpty()) {
+			return;
+		}
+		long age = getOwner().getAge();
+		for (int i = 0; i < components.size(); i++) {
+			int index = components.getQuick(i);
+			Block block = chunk.getBlock(scan.getX(index), scan.getY(index), scan.getZ(index));
+			BlockMaterial material = block.getMaterial();
+			if (material instanceof RedstoneComponent && ((RedstoneComponent) material).needsUpdate(block)) {
+				restore(block.getX(), block.getY(), block.getZ(), age);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of updates waiting to be run
+	 * @return the update count
+	 */
+	public synchronized int getPending() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of updates run during the last tick
+	 * @return the update count
+	 */
+	public int getDuePerTick() {
+		return lastDue;
+	}
+
+	/**
+	 * Gets the number of updates dropped during the last tick, because the same update was already scheduled
+	 * @return the dropped update count
+	 */
+	public int getDroppedPerTick() {
+		return lastDropped;
+	}
+
+	/**
+	 * Removes all updates due at or before a time from the queue
+	 * @param age of the world
+	 * @return the due updates, in the order they are due
+	 */
+	public synchronized List<Update> pollDue(long age) {
+		List<Update> due = new ArrayList<Update>();
+		Update update;
+		while ((update = queue.peek()) != null && update.time <= age) {
+			queue.poll();
+			if (update.cancelled) {
+				continue;
+			}
+			Long key = WireGraph.getKey(update.x, update.y, update.z);
+			List<Update> updates = pending.get(key);
+			updates.remove(update);
+			if (updates.isEmpty()) {
+				pending.remove(key);
+			}
+			due.add(update);
+		}
+		lastDropped = dropped;
+		dropped = 0;
+		return due;
+	}
+
+	@Override
+	public void onTick(float dt) {
+		World world = getOwner();
+		List<Update> due = pollDue(world.getAge());
+		lastDue = due.size();
+		if (due.isEmpty()) {
+			return;
+		}
+		Map<Region, UpdateTask> tasks = new HashMap<Region, UpdateTask>();
+		for (Update update : due) {
+			Chunk chunk = world.getChunkFromBlock(update.x, update.y, update.z, LoadOption.NO_LOAD);
+			if (chunk == null) {
+				park(update);
+				continue;
+			}
+			Region region = chunk.getRegion();
+			UpdateTask task = tasks.get(region);
+			if (task == null) {
+				task = new UpdateTask(world);
+				tasks.put(region, task);
+			}
+			task.updates.add(update);
+		}
+		for (Map.Entry<Region, UpdateTask> entry : tasks.entrySet()) {
+			entry.getKey().getTaskManager().scheduleSyncDelayedTask(VanillaPlugin.getInstance(), entry.getValue(), TaskPriority.NORMAL);
+		}
+	}
+
+	private static long getChunkKey(int cx, int cy, int cz) {
+		return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (long) (cz & 0x1FFFFF);
+	}
+
+	/**
+	 * A single scheduled update of a redstone component
+	 */
+	public static class Update implements Comparable<Update> {
+		private final int x, y, z;
+		private final long time;
+		private final int data;
+		private final long sequence;
+		private boolean cancelled = false;
+
+		public Update(int x, int y, int z, long time, int data, long sequence) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.time = time;
+			this.data = data;
+			this.sequence = sequence;
+		}
+
+		public int getX() {
+			return x;
+		}
+
+		public int getY() {
+			return y;
+		}
+
+		public int getZ() {
+			return z;
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		public int getData() {
+			return data;
+		}
+
+		@Override
+		public int compareTo(Update other) {
+			if (time != other.time) {
+				return time < other.time ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	private static class UpdateTask implements Runnable {
+		private final World world;
+		private final List<Update> updates = new ArrayList<Update>();
+
+		public UpdateTask(World world) {
+			this.world = world;
+		}
+
+		@Override
+		public void run() {
+			// Read the power of all components before any of them changes
+			RedstonePowerMap powers = new RedstonePowerMap();
+			List<Block> blocks = new ArrayList<Block>(updates.size());
+			boolean[] receiving = new boolean[updates.size()];
+			Iterator<Update> i = updates.iterator();
+			while (i.hasNext()) {
+				Update update = i.next();
+				Block block = world.getBlock(update.x, update.y, update.z);
+				BlockMaterial material = block.getMaterial();
+				if (!(material instanceof RedstoneComponent)) {
+					i.remove();
+					continue;
+				}
+				receiving[blocks.size()] = ((RedstoneComponent) material).isReceivingPower(block, powers);
+				blocks.add(block);
+			}
+
+			for (int index = 0; index < blocks.size(); index++) {
+				Block block = blocks.get(index);
+				Update update = updates.get(index);
+				BlockMaterial material = block.getMaterial();
+				if (material instanceof RedstoneComponent) {
+					((RedstoneComponent) material).onRedstoneTick(block, update.time, update.data, receiving[index]);
+				}
+			}
+		}
+	}
+}
@@ -45,6 +45,8 @@ public class VanillaConfiguration extends ConfigurationHolderConfiguration {
 	public static final ConfigurationHolder SPAWN_RADIUS = new ConfigurationHolder(4, "general", "spawn-radius");
 	public static final ConfigurationHolder SPAWN_PROTECTION_RADIUS = new ConfigurationHolder(10, "general", "spawn-protection-radius");
 	public static final ConfigurationHolder CHUNK_INIT = new ConfigurationHolder("client", "general", "chunk-init");
+	public static final ConfigurationHolder CHUNK_SEND_KB_PER_TICK = new ConfigurationHolder(256, "general", "chunk-send-kb-per-tick");
+	public static final ConfigurationHolder CHUNK_SEND_KB_PER_SECOND = new ConfigurationHolder(2048, "general", "chunk-send-kb-per-second");
 	public static final ConfigurationHolder HARDCORE_MODE = new ConfigurationHolder(false, "general", "hardcore-mode");
 	// Messages
 	public static final ConfigurationHolder MOTD = new ConfigurationHolder("A Spout Server", "message", "motd");
@@ -84,6 +86,8 @@ public class VanillaConfiguration extends ConfigurationHolderConfiguration {
 	public static final ConfigurationHolder ENCRYPT_STREAM_WRAPPER = new ConfigurationHolder("CFB8", "encrypt", "stream-wrapper");
 	// Chunk Cache
 	public static final ConfigurationHolder USE_CHUNK_CACHE = new ConfigurationHolder(true, "cache", "chunks");
+	public static final ConfigurationHolder CHUNK_NET_CACHE_SIZE = new ConfigurationHolder(1024, "cache", "chunk-net-cache-size-kb");
+	public static final ConfigurationHolder CHUNK_PAYLOAD_CACHE_SIZE = new ConfigurationHolder(64, "cache", "chunk-payload-size-mb");
 	// sub-configs
 	public static final OpConfiguration OPS = new OpConfiguration(VanillaPlugin.getInstance().getDataFolder());
 	public static final WorldConfiguration WORLDS = new WorldConfiguration(VanillaPlugin.getInstance().getDataFolder());
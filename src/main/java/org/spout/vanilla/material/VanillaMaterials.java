@@ -29,6 +29,7 @@ package org.spout.vanilla.material;
 import gnu.trove.map.hash.TShortObjectHashMap;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.spout.api.Spout;
 import org.spout.api.material.BlockMaterial;
@@ -593,6 +594,7 @@ public final class VanillaMaterials {
 	private static boolean initialized = false;
 	private final static AtomicShortArray conversionTable = new AtomicShortArray(Short.MAX_VALUE);
 	private final static TShortObjectHashMap<Material> reverseTable = new TShortObjectHashMap<Material>(500);
+	private final static AtomicReferenceArray<StateEntry> stateTable = new AtomicReferenceArray<StateEntry>(Short.MAX_VALUE);
 	//Special
 	private static final VanillaIceCreamBlock VANILLA_ICE_CREAM_BLOCK = new VanillaIceCreamBlock("Vanilla Ice Cream", 1); //Stone ID so people don't kill Official clients spawning this.
 
@@ -676,10 +678,66 @@ public final class VanillaMaterials {
 		return minecraftId;
 	}
 
+	/**
+	 * Gets the minecraft id and data of a Spout block state, packed as (id << 4) | data.<br>
+	 * States with a data value that fits in a nibble are read from a table, which is filled on first use of each id.
+	 * @param id of the Spout material
+	 * @param data of the block
+	 * @return the packed minecraft id and data
+	 */
+	public static int getMinecraftState(short id, short data) {
+		if ((data & ~0xF) == 0) {
+			short[] states = getMinecraftStates(id);
+			if (states != null) {
+				return states[data] & 0xFFFF;
+			}
+		}
+		return getMinecraftState(BlockMaterial.get(id, data), data);
+	}
+
+	/**
+	 * Gets the packed minecraft id and data of all states of a Spout material id with a data value from 0 to 15.<br>
+	 * The states of an id are built again when a different material is registered for it than the one they were built from,
+	 * so ids looked up before their material is registered are not stuck with the fallback conversion.
+	 * @param id of the Spout material
+	 * @return the packed states, indexed by data, or null if the id is out of range. The array must not be modified.
+	 */
+	public static short[] getMinecraftStates(short id) {
+		if (id < 0) {
+			return null;
+		}
+		final BlockMaterial material = BlockMaterial.get(id);
+		StateEntry entry = stateTable.get(id);
+		if (entry == null || entry.material != material) {
+			final short[] states = new short[16];
+			for (short data = 0; data < states.length; data++) {
+				states[data] = (short) getMinecraftState(BlockMaterial.get(id, data), data);
+			}
+			entry = new StateEntry(material, states);
+			stateTable.set(id, entry);
+		}
+		return entry.states;
+	}
+
+	/**
+	 * Clears the minecraft state table, so it is built again from the current materials.<br>
+	 * This has to be called when the conversion of a material changes, for example when the redstone power range is configured.
+	 */
+	public static void invalidateMinecraftStates() {
+		for (int i = 0; i < stateTable.length(); i++) {
+			stateTable.set(i, null);
+		}
+	}
+
+	private static int getMinecraftState(BlockMaterial material, short data) {
+		return (getMinecraftId(material) & 0xFFF) << 4 | (getMinecraftData(material, data) & 0xF);
+	}
+
 	public static void initialize() {
 		if (initialized) {
 			return;
 		}
+		invalidateMinecraftStates();
 		for (Field field : VanillaMaterials.class.getFields()) {
 			try {
 				if (field == null || ((field.getModifiers() & (Modifier.STATIC | Modifier.PUBLIC)) != (Modifier.STATIC | Modifier.PUBLIC)) || !VanillaMaterial.class.isAssignableFrom(field.getType())) {
@@ -690,6 +748,9 @@ public final class VanillaMaterials {
 					Spout.getLogger().severe("Vanilla Material field '" + field.getName() + "' is not yet initialized");
 					continue;
 				}
+				if (material instanceof BlockMaterial) {
+					getMinecraftStates(((BlockMaterial) material).getId());
+				}
 				if (material instanceof InitializableMaterial) {
 					InitializableMaterial initializableMaterial = (InitializableMaterial) material;
 					initializableMaterial.initialize();
@@ -706,4 +767,17 @@ public final class VanillaMaterials {
 		}
 		initialized = true;
 	}
+
+	/**
+	 * The minecraft states of a Spout material id, along with the material registered for the id when they were built
+	 */
+	private static final class StateEntry {
+		private final BlockMaterial material;
+		private final short[] states;
+
+		private StateEntry(BlockMaterial material, short[] states) {
+			this.material = material;
+			this.states = states;
+		}
+	}
 }
@@ -35,6 +35,7 @@ import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.EffectRange;
 
+import org.spout.vanilla.component.world.LiquidSimulator;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.block.solid.Ice;
 import org.spout.vanilla.util.flowing.LiquidModel;
@@ -62,8 +63,13 @@ public abstract class Liquid extends VanillaBlockMaterial implements DynamicMate
 	@Override
 	public void onUpdate(BlockMaterial oldMaterial, Block block) {
 		super.onUpdate(oldMaterial, block);
-		block.syncResetDynamic();
-		block.dynamicUpdate(block.getWorld().getAge() + this.getFlowDelay(), true);
+		LiquidSimulator simulator = block.getWorld().get(LiquidSimulator.class);
+		if (simulator != null) {
+			simulator.schedule(block, this);
+		} else {
+			block.syncResetDynamic();
+			block.dynamicUpdate(block.getWorld().getAge() + this.getFlowDelay(), true);
+		}
 	}
 
 	/**
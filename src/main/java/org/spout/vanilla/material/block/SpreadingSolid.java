@@ -31,19 +31,19 @@ import java.util.Random;
 import org.spout.api.event.Cause;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.range.CubicEffectRange;
 import org.spout.api.material.range.EffectRange;
 import org.spout.api.math.GenericMath;
 import org.spout.api.math.IntVector3;
 
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 
 /**
  * A solid material that can spread to other materials nearby
  */
-public abstract class SpreadingSolid extends Solid implements Spreading, DynamicMaterial {
+public abstract class SpreadingSolid extends Solid implements Spreading, RandomTickable {
 	private BlockMaterial replacedMaterial;
 	private static final EffectRange DEFAULT_SPREAD_RANGE = new CubicEffectRange(2);
 
@@ -59,12 +59,6 @@ public abstract class SpreadingSolid extends Solid implements Spreading, Dynamic
 		super(name, id, model);
 	}
 
-	@Override
-	public void onUpdate(BlockMaterial oldMaterial, Block block) {
-		super.onUpdate(oldMaterial, block);
-		block.resetDynamic();
-	}
-
 	@Override
 	public boolean hasPhysics() {
 		return true;
@@ -156,27 +150,12 @@ public abstract class SpreadingSolid extends Solid implements Spreading, Dynamic
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return getSpreadRange();
-	}
-
-	public abstract long getSpreadingTime(Block b);
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(currentTime + getSpreadingTime(b), true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
-		long nextUpdate = block.getWorld().getAge() + getSpreadingTime(block);
+	public void onRandomTick(Block block) {
 		// Attempt to decay or spread this material
 		if (canDecayAt(block)) {
 			onDecay(block, this.toCause(block));
 			return;
 		}
-		if (onSpread(block, canSpreadFrom(block))) {
-			block.dynamicUpdate(nextUpdate, true);
-		}
+		onSpread(block, canSpreadFrom(block));
 	}
 }
@@ -27,21 +27,18 @@
 package org.spout.vanilla.material.block.misc;
 
 import org.spout.api.geo.cuboid.Block;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
-import org.spout.api.material.range.EffectRange;
-import org.spout.api.math.GenericMath;
 
 import org.spout.vanilla.data.effect.store.SoundEffects;
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.data.tool.ToolLevel;
 import org.spout.vanilla.data.tool.ToolType;
 import org.spout.vanilla.material.InitializableMaterial;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.attachable.GroundAttachable;
 
-public class Snow extends GroundAttachable implements DynamicMaterial, InitializableMaterial {
-	private static final long POLL_TIME = 60000;
+public class Snow extends GroundAttachable implements RandomTickable, InitializableMaterial {
 	private static final byte MIN_MELT_LIGHT = 11;
 	public static final Snow[] SNOW = new Snow[8];
 
@@ -94,18 +91,7 @@ public class Snow extends GroundAttachable implements DynamicMaterial, Initializ
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : Delay before next check ?
-		b.dynamicUpdate(60000 + currentTime, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		if (willMeltAt(block)) {
 			short dataBlock = block.getData();
 			if (dataBlock > 0) {
@@ -113,14 +99,6 @@ public class Snow extends GroundAttachable implements DynamicMaterial, Initializ
 			} else {
 				block.setMaterial(VanillaMaterials.AIR);
 			}
-		} else { // not warm enough to melt the snow and last poll was a long time ago, might as well skip repeated polls
-			long age = block.getWorld().getAge();
-			if (age - updateTime > POLL_TIME) {
-				block.dynamicUpdate(age + GenericMath.getRandom().nextInt((int) POLL_TIME), true);
-				return;
-			}
 		}
-		block.dynamicUpdate(updateTime + POLL_TIME, true);
-		//TODO : Delay before next check ?
 	}
 }
@@ -35,14 +35,17 @@ import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.EffectRange;
 import org.spout.api.material.range.PlusEffectRange;
 
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.data.RedstonePowerMode;
 import org.spout.vanilla.data.effect.store.GeneralEffects;
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.material.Toggleable;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.AttachedRedstoneSource;
+import org.spout.vanilla.material.block.redstone.RedstoneComponent;
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
 
-public class TripWireHook extends AttachedRedstoneSource implements Toggleable, DynamicMaterial {
+public class TripWireHook extends AttachedRedstoneSource implements Toggleable, RedstoneComponent, DynamicMaterial {
 	private static final EffectRange dynamicRange = new PlusEffectRange(TripWire.MAX_DISTANCE, false);
 	private static final long TICK_DELAY = 500;
 
@@ -74,7 +77,7 @@ public class TripWireHook extends AttachedRedstoneSource implements Toggleable,
 			block.setDataBits(0x8, toggled);
 			GeneralEffects.BLOCK_PRESS.playGlobal(block.getPosition(), toggled);
 		}
-		block.resetDynamic();
+		RedstoneScheduler.cancel(block);
 	}
 
 	@Override
@@ -106,11 +109,26 @@ public class TripWireHook extends AttachedRedstoneSource implements Toggleable,
 
 	@Override
 	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(currentTime + TICK_DELAY, true);
+		RedstoneScheduler.schedule(b, currentTime + TICK_DELAY, 0, true);
 	}
 
 	@Override
 	public void onDynamicUpdate(Block block, long updateTime, int data) {
+		this.onRedstoneTick(block, updateTime, data, false);
+	}
+
+	@Override
+	public boolean isReceivingPower(Block block, RedstonePowerMap powers) {
+		return false;
+	}
+
+	@Override
+	public boolean needsUpdate(Block block) {
+		return this.isToggled(block);
+	}
+
+	@Override
+	public void onRedstoneTick(Block block, long updateTime, int data, boolean receiving) {
 		if (this.isToggled(block)) {
 			BlockFace direction = getAttachedFace(block).getOpposite();
 			this.setToggled(block, false);
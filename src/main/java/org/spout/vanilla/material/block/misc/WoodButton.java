@@ -36,6 +36,7 @@ import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.EffectRange;
 
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.data.GameMode;
 import org.spout.vanilla.data.RedstonePowerMode;
 import org.spout.vanilla.data.VanillaData;
@@ -43,8 +44,10 @@ import org.spout.vanilla.data.effect.store.GeneralEffects;
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.material.block.AttachedRedstoneSource;
 import org.spout.vanilla.material.block.attachable.PointAttachable;
+import org.spout.vanilla.material.block.redstone.RedstoneComponent;
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
 
-public class WoodButton extends AttachedRedstoneSource implements PointAttachable, DynamicMaterial {
+public class WoodButton extends AttachedRedstoneSource implements PointAttachable, RedstoneComponent, DynamicMaterial {
 	public static final int TICK_DELAY = 1000;
 
 	public WoodButton(String name, int id) {
@@ -71,7 +74,7 @@ public class WoodButton extends AttachedRedstoneSource implements PointAttachabl
 	public void onUpdate(BlockMaterial oldMaterial, Block block) {
 		super.onUpdate(oldMaterial, block);
 		if (oldMaterial == this && this.isPressed(block)) {
-			block.dynamicUpdate(block.getWorld().getAge() + TICK_DELAY, true);
+			RedstoneScheduler.schedule(block, block.getWorld().getAge() + TICK_DELAY, 0, true);
 		}
 	}
 
@@ -110,6 +113,21 @@ public class WoodButton extends AttachedRedstoneSource implements PointAttachabl
 
 	@Override
 	public void onDynamicUpdate(Block block, long updateTime, int data) {
+		this.onRedstoneTick(block, updateTime, data, false);
+	}
+
+	@Override
+	public boolean isReceivingPower(Block block, RedstonePowerMap powers) {
+		return false;
+	}
+
+	@Override
+	public boolean needsUpdate(Block block) {
+		return this.isPressed(block);
+	}
+
+	@Override
+	public void onRedstoneTick(Block block, long updateTime, int data, boolean receiving) {
 		this.setPressed(block, false);
 	}
 
@@ -34,7 +34,6 @@ import org.spout.api.event.player.PlayerInteractEvent;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.range.CuboidEffectRange;
 import org.spout.api.material.range.EffectRange;
@@ -42,6 +41,7 @@ import org.spout.api.math.GenericMath;
 import org.spout.api.math.IntVector3;
 import org.spout.api.inventory.Slot;
 
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Spreading;
 import org.spout.vanilla.material.block.attachable.GroundAttachable;
@@ -51,7 +51,7 @@ import org.spout.vanilla.world.generator.normal.object.HugeMushroomObject;
 import org.spout.vanilla.world.generator.normal.object.HugeMushroomObject.HugeMushroomType;
 import org.spout.vanilla.world.generator.object.VariableHeightObject;
 
-public class Mushroom extends GroundAttachable implements Spreading, Plant, DynamicMaterial {
+public class Mushroom extends GroundAttachable implements Spreading, Plant, RandomTickable {
 	private static final EffectRange MUSHROOM_RANGE = new CuboidEffectRange(-4, -1, -4, 4, 1, 4);
 	private static final int MAX_PER_GROUP = 5;
 
@@ -104,18 +104,7 @@ public class Mushroom extends GroundAttachable implements Spreading, Plant, Dyna
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return MUSHROOM_RANGE;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : delay before update
-		b.dynamicUpdate(currentTime + getGrowthTime(b), true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		final Random rand = GenericMath.getRandom();
 		if (rand.nextInt(25) == 0) {
 			// can we spread?
@@ -139,12 +128,5 @@ public class Mushroom extends GroundAttachable implements Spreading, Plant, Dyna
 				this.onCreate(block, (short) 0, cause);
 			}
 		}
-
-		//TODO : delay before update
-		block.dynamicUpdate(updateTime + getGrowthTime(block), true);
-	}
-
-	private long getGrowthTime(Block block) {
-		return 120000L + GenericMath.getRandom().nextInt(120000);
 	}
 }
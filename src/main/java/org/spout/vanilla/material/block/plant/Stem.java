@@ -33,12 +33,11 @@ import org.spout.api.event.player.PlayerInteractEvent;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.inventory.Slot;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
-import org.spout.api.material.range.EffectRange;
 import org.spout.api.math.GenericMath;
 
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Crop;
@@ -47,7 +46,7 @@ import org.spout.vanilla.material.block.attachable.GroundAttachable;
 import org.spout.vanilla.material.item.misc.Dye;
 import org.spout.vanilla.util.PlayerUtil;
 
-public abstract class Stem extends GroundAttachable implements Growing, Crop, DynamicMaterial {
+public abstract class Stem extends GroundAttachable implements Growing, Crop, RandomTickable {
 	private BlockMaterial lastMaterial;
 
 	public Stem(String name, int id) {
@@ -117,19 +116,8 @@ public abstract class Stem extends GroundAttachable implements Growing, Crop, Dy
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS_AND_NEIGHBORS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(getGrowthTime(b) + currentTime, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		if (block.translate(BlockFace.TOP).getLight() < this.getMinimumLightToGrow()) {
-			block.dynamicUpdate(updateTime + getGrowthTime(block), true);
 			return;
 		}
 		int chance = VanillaBlockMaterial.getCropGrowthChance(block) + 1;
@@ -153,11 +141,5 @@ public abstract class Stem extends GroundAttachable implements Growing, Crop, Dy
 				block.addData(1);
 			}
 		}
-
-		block.dynamicUpdate(updateTime + getGrowthTime(block), true);
-	}
-
-	protected long getGrowthTime(Block block) {
-		return 10000L + GenericMath.getRandom().nextInt(60000);
 	}
 }
@@ -34,7 +34,6 @@ import org.spout.api.event.Cause;
 import org.spout.api.event.cause.EntityCause;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.CuboidEffectRange;
@@ -49,13 +48,14 @@ import org.spout.vanilla.component.entity.misc.Head;
 import org.spout.vanilla.data.drops.flag.ToolTypeFlags;
 import org.spout.vanilla.data.resources.VanillaMaterialModels;
 import org.spout.vanilla.material.Burnable;
+import org.spout.vanilla.material.RandomTickable;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Spreading;
 import org.spout.vanilla.protocol.VanillaNetworkSynchronizer;
 import org.spout.vanilla.render.VanillaEffects;
 
-public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Burnable, DynamicMaterial {
+public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Burnable, RandomTickable {
 	private static final EffectRange VINE_RANGE = new CuboidEffectRange(-4, -1, -4, 4, 1, 4);
 	private static final int MAX_PER_GROUP = 5;
 
@@ -246,18 +246,7 @@ public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Bur
 	}
 
 	@Override
-	public EffectRange getDynamicRange() {
-		return EffectRange.THIS_AND_NEIGHBORS;
-	}
-
-	@Override
-	public void onFirstUpdate(Block b, long currentTime) {
-		//TODO : Delay before first grow
-		b.dynamicUpdate(10000 + currentTime, true);
-	}
-
-	@Override
-	public void onDynamicUpdate(Block block, long updateTime, int data) {
+	public void onRandomTick(Block block) {
 		final Random rand = GenericMath.getRandom();
 		if (rand.nextInt(4) != 0) {
 			return;
@@ -370,7 +359,5 @@ public class Vines extends VanillaBlockMaterial implements Spreading, Plant, Bur
 				below.setDataBits(randomData);
 			}
 		}
-
-		block.dynamicUpdate(updateTime + 10000, true);
 	}
 }
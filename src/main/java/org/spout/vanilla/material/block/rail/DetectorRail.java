@@ -31,11 +31,14 @@ import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.range.EffectRange;
 
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.data.RailsState;
 import org.spout.vanilla.data.RedstonePowerMode;
+import org.spout.vanilla.material.block.redstone.RedstoneComponent;
 import org.spout.vanilla.material.block.redstone.RedstoneSource;
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
 
-public class DetectorRail extends RailBase implements RedstoneSource, DynamicMaterial {
+public class DetectorRail extends RailBase implements RedstoneSource, RedstoneComponent, DynamicMaterial {
 	public static final int TICK_DELAY = 1000;
 
 	public DetectorRail(String name, int id) {
@@ -49,7 +52,7 @@ public class DetectorRail extends RailBase implements RedstoneSource, DynamicMat
 
 	public void activate(Block block) {
 		this.setPowering(block, true);
-		block.dynamicUpdate(block.getWorld().getAge() + TICK_DELAY, true);
+		RedstoneScheduler.schedule(block, block.getWorld().getAge() + TICK_DELAY, 0, true);
 	}
 
 	/**
@@ -111,8 +114,23 @@ public class DetectorRail extends RailBase implements RedstoneSource, DynamicMat
 
 	@Override
 	public void onDynamicUpdate(Block block, long updateTime, int data) {
+		this.onRedstoneTick(block, updateTime, data, false);
+	}
+
+	@Override
+	public boolean isReceivingPower(Block block, RedstonePowerMap powers) {
+		return false;
+	}
+
+	@Override
+	public boolean needsUpdate(Block block) {
+		return this.isPowering(block);
+	}
+
+	@Override
+	public void onRedstoneTick(Block block, long updateTime, int data, boolean receiving) {
 		if (!this.isPowering(block)) {
-			block.dynamicUpdate(updateTime + TICK_DELAY, true);
+			RedstoneScheduler.schedule(block, updateTime + TICK_DELAY, 0, true);
 			return;
 		}
 
@@ -0,0 +1,62 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.material.block.redstone;
+
+import org.spout.api.geo.cuboid.Block;
+
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
+
+/**
+ * Represents a redstone component that changes its state some time after it is scheduled, such as repeaters, torches and buttons<br>
+ * All components due in a tick first read their power, then change their state, so they all see the power from before the tick.
+ */
+public interface RedstoneComponent {
+	/**
+	 * Checks if a component is receiving power, reading neighbouring blocks from the power map
+	 * @param block of the component
+	 * @param powers to read neighbouring blocks from
+	 * @return True if the component is receiving power
+	 */
+	public boolean isReceivingPower(Block block, RedstonePowerMap powers);
+
+	/**
+	 * Checks if a component is in a state only a scheduled update can settle, such as a pressed button that still has to be released<br>
+	 * Scheduled updates are not saved, so these components are scheduled again when their chunk loads.
+	 * @param block of the component
+	 * @return True if the component needs an update
+	 */
+	public boolean needsUpdate(Block block);
+
+	/**
+	 * Called when a scheduled update of the component is due
+	 * @param block of the component
+	 * @param updateTime the update was scheduled for
+	 * @param data the update was scheduled with
+	 * @param receiving whether the component was receiving power at the start of the tick
+	 */
+	public void onRedstoneTick(Block block, long updateTime, int data, boolean receiving);
+}
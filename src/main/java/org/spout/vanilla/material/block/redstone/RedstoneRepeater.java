@@ -41,6 +41,7 @@ import org.spout.api.material.range.EffectRange;
 import org.spout.api.material.range.ListEffectRange;
 import org.spout.api.math.Vector3;
 
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.data.RedstonePowerMode;
 import org.spout.vanilla.material.InitializableMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
@@ -48,8 +49,9 @@ import org.spout.vanilla.material.block.Directional;
 import org.spout.vanilla.material.block.attachable.GroundAttachable;
 import org.spout.vanilla.util.PlayerUtil;
 import org.spout.vanilla.util.RedstoneUtil;
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
 
-public class RedstoneRepeater extends GroundAttachable implements Directional, RedstoneSource, RedstoneTarget, DynamicMaterial, InitializableMaterial {
+public class RedstoneRepeater extends GroundAttachable implements Directional, RedstoneSource, RedstoneTarget, RedstoneComponent, DynamicMaterial, InitializableMaterial {
 	private static final int DIRECTION_MASK = 0x3;
 	private static final int TICK_DELAY_MASK = 0xC;
 	private static final int[] TICK_DELAYS = {100, 200, 300, 400};
@@ -119,7 +121,7 @@ public class RedstoneRepeater extends GroundAttachable implements Directional, R
 		super.onUpdate(oldMaterial, block);
 		boolean receiving = this.isReceivingPower(block);
 		if (this.isPowered() != receiving) {
-			block.dynamicUpdate(block.getWorld().getAge() + this.getTickDelay(block), receiving ? 1 : 0, false);
+			RedstoneScheduler.schedule(block, block.getWorld().getAge() + this.getTickDelay(block), receiving ? 1 : 0, false);
 		}
 	}
 
@@ -184,24 +186,39 @@ public class RedstoneRepeater extends GroundAttachable implements Directional, R
 		return RedstoneUtil.isEmittingPower(block.translate(face.getOpposite()), face);
 	}
 
+	@Override
+	public boolean isReceivingPower(Block block, RedstonePowerMap powers) {
+		final BlockFace face = this.getFacing(block);
+		return powers.isEmittingPower(block.translate(face.getOpposite()), face);
+	}
+
 	@Override
 	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(this.getTickDelay(b) + currentTime, false);
+		RedstoneScheduler.schedule(b, this.getTickDelay(b) + currentTime, 0, false);
 	}
 
 	@Override
 	public void onDynamicUpdate(Block block, long updateTime, int data) {
+		this.onRedstoneTick(block, updateTime, data, this.isReceivingPower(block));
+	}
+
+	@Override
+	public boolean needsUpdate(Block block) {
+		return !this.isLocked(block) && this.isPowered() != this.isReceivingPower(block);
+	}
+
+	@Override
+	public void onRedstoneTick(Block block, long updateTime, int data, boolean receiving) {
 		if (this.isLocked(block)) {
 			return;
 		}
-		boolean receiving = this.isReceivingPower(block);
 		if ((data & 1) == 1) {
 			// Was receiving and should power up
 			if (!this.isPowered()) {
 				this.setPowered(block, true);
 			}
 			if (!receiving) {
-				block.dynamicUpdate(updateTime + this.getTickDelay(block), false);
+				RedstoneScheduler.schedule(block, updateTime + this.getTickDelay(block), 0, false);
 			}
 		} else if (receiving != this.isPowered()) {
 			// Was not receiving and should update state
@@ -35,14 +35,16 @@ import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.EffectRange;
 import org.spout.api.material.range.ListEffectRange;
 
+import org.spout.vanilla.component.world.RedstoneScheduler;
 import org.spout.vanilla.data.RedstonePowerMode;
 import org.spout.vanilla.material.InitializableMaterial;
 import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.misc.Torch;
 import org.spout.vanilla.util.RedstoneUtil;
+import org.spout.vanilla.util.redstone.RedstonePowerMap;
 
-public class RedstoneTorch extends Torch implements RedstoneSource, RedstoneTarget, DynamicMaterial, InitializableMaterial {
+public class RedstoneTorch extends Torch implements RedstoneSource, RedstoneTarget, RedstoneComponent, DynamicMaterial, InitializableMaterial {
 	public static final int TICK_DELAY = 100;
 	private static final EffectRange physicsRange = new ListEffectRange(
 			new ListEffectRange(BlockFaces.NESWT).translate(BlockFace.TOP),
@@ -82,7 +84,7 @@ public class RedstoneTorch extends Torch implements RedstoneSource, RedstoneTarg
 		super.onUpdate(oldMaterial, block);
 		boolean receiving = this.isReceivingPower(block);
 		if (this.isPowered() == receiving) {
-			block.dynamicUpdate(block.getWorld().getAge() + TICK_DELAY, false);
+			RedstoneScheduler.schedule(block, block.getWorld().getAge() + TICK_DELAY, 0, false);
 		}
 	}
 
@@ -92,6 +94,12 @@ public class RedstoneTorch extends Torch implements RedstoneSource, RedstoneTarg
 		return RedstoneUtil.isEmittingPower(block.translate(attached), attached.getOpposite());
 	}
 
+	@Override
+	public boolean isReceivingPower(Block block, RedstonePowerMap powers) {
+		BlockFace attached = this.getAttachedFace(block);
+		return powers.isEmittingPower(block.translate(attached), attached.getOpposite());
+	}
+
 	@Override
 	public short getRedstonePower(Block block, RedstonePowerMode powerMode) {
 		return this.isPowered() ? VanillaBlockMaterial.REDSTONE_POWER_MAX : VanillaBlockMaterial.REDSTONE_POWER_MIN;
@@ -117,12 +125,21 @@ public class RedstoneTorch extends Torch implements RedstoneSource, RedstoneTarg
 
 	@Override
 	public void onFirstUpdate(Block b, long currentTime) {
-		b.dynamicUpdate(currentTime + TICK_DELAY, false);
+		RedstoneScheduler.schedule(b, currentTime + TICK_DELAY, 0, false);
 	}
 
 	@Override
 	public void onDynamicUpdate(Block block, long updateTime, int data) {
-		boolean receiving = this.isReceivingPower(block);
+		this.onRedstoneTick(block, updateTime, data, this.isReceivingPower(block));
+	}
+
+	@Override
+	public boolean needsUpdate(Block block) {
+		return this.isPowered() == this.isReceivingPower(block);
+	}
+
+	@Override
+	public void onRedstoneTick(Block block, long updateTime, int data, boolean receiving) {
 		if (this.isPowered() == receiving) {
 			this.setPowered(block, !receiving);
 		}
@@ -26,6 +26,9 @@
  */
 package org.spout.vanilla.material.block.redstone;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
@@ -35,6 +38,7 @@ import org.spout.api.material.range.EffectRange;
 import org.spout.api.material.range.ListEffectRange;
 import org.spout.api.material.range.PlusEffectRange;
 
+import org.spout.vanilla.component.world.RedstoneNetwork;
 import org.spout.vanilla.data.RedstonePowerMode;
 import org.spout.vanilla.data.configuration.VanillaConfiguration;
 import org.spout.vanilla.material.InitializableMaterial;
@@ -42,6 +46,7 @@ import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.attachable.GroundAttachable;
 import org.spout.vanilla.util.RedstoneUtil;
+import org.spout.vanilla.util.redstone.WireGraph;
 
 public class RedstoneWire extends GroundAttachable implements RedstoneSource, RedstoneTarget, InitializableMaterial {
 	private static final EffectRange physicsRange = new ListEffectRange(
@@ -97,6 +102,12 @@ public class RedstoneWire extends GroundAttachable implements RedstoneSource, Re
 		}
 
 		if (block.isMaterial(this)) {
+			RedstoneNetwork network = block.getWorld().get(RedstoneNetwork.class);
+			if (network != null) {
+				//Let the network power the whole wire graph at once
+				network.markDirty(block);
+				return;
+			}
 			short receiving = this.getReceivingPower(block);
 			short current = this.getRedstonePower(block);
 			if (current == receiving) {
@@ -155,27 +166,60 @@ public class RedstoneWire extends GroundAttachable implements RedstoneSource, Re
 	}
 
 	public short getReceivingPower(Block block) {
+		short maxPower = this.getSourcePower(block);
+		if (maxPower == REDSTONE_POWER_MAX) {
+			return maxPower;
+		}
+		List<Block> wires = new ArrayList<Block>(WireGraph.MAX_LINKS);
+		this.getLinkedWires(block, wires);
+		for (Block wire : wires) {
+			maxPower = (short) Math.max(maxPower, this.getRedstonePower(wire) - 1);
+		}
+		return maxPower;
+	}
+
+	/**
+	 * Gets the power a wire receives from all except other wires
+	 * @param block of the wire
+	 * @return the power received
+	 */
+	public short getSourcePower(Block block) {
 		short maxPower = 0;
-		Block rel, relvert;
+		Block rel;
 		BlockMaterial mat;
-		//detect power from direct neighbouring sources
-		boolean topIsConductor = false;
 		for (BlockFace face : BlockFaces.BTEWNS) {
 			rel = block.translate(face);
 			mat = rel.getMaterial();
-			if (mat.equals(this)) {
-				//handle neighbouring redstone wires
-				maxPower = (short) Math.max(maxPower, this.getRedstonePower(rel) - 1);
-			} else if (mat instanceof VanillaBlockMaterial) {
+			if (!mat.equals(this) && mat instanceof VanillaBlockMaterial) {
 				//handle solid blocks and redstone sources
 				maxPower = (short) Math.max(maxPower, ((VanillaBlockMaterial) mat).getRedstonePower(rel, RedstonePowerMode.ALLEXCEPTWIRE));
 				if (mat instanceof RedstoneSource) {
 					maxPower = (short) Math.max(maxPower, ((RedstoneSource) mat).getDirectRedstonePower(rel, face.getOpposite(), RedstonePowerMode.ALL));
 				}
+				//shortcut just in case the answer is simple
+				if (maxPower == REDSTONE_POWER_MAX) {
+					return maxPower;
+				}
 			}
-			//shortcut just in case the answer is simple
-			if (maxPower == REDSTONE_POWER_MAX) {
-				return maxPower;
+		}
+		return maxPower;
+	}
+
+	/**
+	 * Gets all wires a wire exchanges power with: the wires next to, straight above and below it,
+	 * and the wires one block up or down of a neighbour that are not cut off by a conductor
+	 * @param block of the wire
+	 * @param wires to add the linked wires to
+	 */
+	public void getLinkedWires(Block block, List<Block> wires) {
+		Block rel, relvert;
+		BlockMaterial mat;
+		boolean topIsConductor = false;
+		for (BlockFace face : BlockFaces.BTEWNS) {
+			rel = block.translate(face);
+			mat = rel.getMaterial();
+			if (mat.equals(this)) {
+				wires.add(rel);
 			}
 			//check relatively up and down faces
 			if (face == BlockFace.TOP) {
@@ -185,19 +229,18 @@ public class RedstoneWire extends GroundAttachable implements RedstoneSource, Re
 				if (!RedstoneUtil.isConductor(mat)) {
 					relvert = rel.translate(BlockFace.BOTTOM);
 					if (relvert.getMaterial().equals(this)) {
-						maxPower = (short) Math.max(maxPower, this.getRedstonePower(relvert) - 1);
+						wires.add(relvert);
 					}
 				}
 				//check above for wire
 				if (!topIsConductor) {
 					relvert = rel.translate(BlockFace.TOP);
 					if (relvert.getMaterial().equals(this)) {
-						maxPower = (short) Math.max(maxPower, this.getRedstonePower(relvert) - 1);
+						wires.add(relvert);
 					}
 				}
 			}
 		}
-		return maxPower;
 	}
 
 	/**
@@ -34,7 +34,6 @@ import org.spout.api.event.player.PlayerInteractEvent.Action;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.inventory.Slot;
 import org.spout.api.material.BlockMaterial;
-import org.spout.api.material.DynamicMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.math.GenericMath;
 import org.spout.api.plugin.Platform;
@@ -50,7 +49,7 @@ import org.spout.vanilla.material.item.misc.Dye;
 import org.spout.vanilla.render.VanillaEffects;
 import org.spout.vanilla.util.PlayerUtil;
 
-public class Grass extends SpreadingSolid implements DynamicMaterial, InitializableMaterial {
+public class Grass extends SpreadingSolid implements InitializableMaterial {
 	public Grass(String name, int id) {
 		super(name, id, VanillaMaterialModels.GRASS);
 		this.setHardness(0.6F).setResistance(0.8F).setStepSound(SoundEffects.STEP_GRASS);
@@ -86,11 +85,6 @@ public class Grass extends SpreadingSolid implements DynamicMaterial, Initializa
 		return false;
 	}
 
-	@Override
-	public long getSpreadingTime(Block b) {
-		return 60000L + GenericMath.getRandom().nextInt(60000) * 3;
-	}
-
 	@Override
 	public void onInteractBy(Entity entity, Block block, Action type, BlockFace clickedFace) {
 		super.onInteractBy(entity, block, type, clickedFace);
@@ -33,7 +33,6 @@ import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
 import org.spout.api.material.range.CubicEffectRange;
 import org.spout.api.material.range.EffectRange;
-import org.spout.api.math.GenericMath;
 
 import org.spout.vanilla.component.entity.living.neutral.Human;
 import org.spout.vanilla.data.Climate;
@@ -113,11 +112,6 @@ public class Ice extends SpreadingSolid implements InitializableMaterial {
 		return super.canSpreadTo(from, to) && VanillaMaterials.WATER.isSource(to) && to.isAtSurface();
 	}
 
-	@Override
-	public long getSpreadingTime(Block b) {
-		return 120000L + GenericMath.getRandom().nextInt(60000) * 5;
-	}
-
 	@Override
 	public boolean isFaceRendered(BlockFace face, BlockMaterial neighbor) {
 		return neighbor != this && !neighbor.isOpaque();
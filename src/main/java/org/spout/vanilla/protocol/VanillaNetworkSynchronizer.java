@@ -26,12 +26,18 @@
  */
 package org.spout.vanilla.protocol;
 
+import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.TIntSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.spout.api.Server;
@@ -49,6 +55,7 @@ import org.spout.api.geo.discrete.Transform;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.IntVector3;
 import org.spout.api.math.Quaternion;
+import org.spout.api.math.Vector3;
 import org.spout.api.protocol.EntityProtocol;
 import org.spout.api.protocol.Message;
 import org.spout.api.protocol.NetworkSynchronizer;
@@ -68,6 +75,7 @@ import org.spout.vanilla.component.entity.inventory.PlayerInventory;
 import org.spout.vanilla.component.entity.living.neutral.Human;
 import org.spout.vanilla.component.entity.misc.Hunger;
 import org.spout.vanilla.component.entity.misc.Level;
+import org.spout.vanilla.component.entity.player.Ping;
 import org.spout.vanilla.component.block.material.Sign;
 import org.spout.vanilla.component.entity.substance.test.ForceMessages;
 import org.spout.vanilla.component.world.sky.NetherSky;
@@ -114,10 +122,27 @@ import org.spout.vanilla.event.world.WeatherChangeEvent;
 import org.spout.vanilla.inventory.window.DefaultWindow;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.component.VanillaComplexMaterial;
+import org.spout.vanilla.protocol.chunk.BlockChangeBuffer;
+import org.spout.vanilla.protocol.chunk.BlockChangeBuffer.ChunkChanges;
+import org.spout.vanilla.protocol.chunk.ChunkPayloadCache;
+import org.spout.vanilla.protocol.chunk.ChunkCompressor;
+import org.spout.vanilla.protocol.chunk.ChunkSendBudget;
+import org.spout.vanilla.protocol.chunk.ChunkSendQueue;
+import org.spout.vanilla.protocol.chunk.ChunkSendQueue.QueuedColumn;
+import org.spout.vanilla.protocol.chunk.ColumnBatcher;
+import org.spout.vanilla.protocol.chunk.ColumnPayload;
+import org.spout.vanilla.protocol.chunk.ColumnSurface;
+import org.spout.vanilla.protocol.chunk.CompressionPipeline;
+import org.spout.vanilla.protocol.chunk.CompressionPipeline.PendingBatch;
+import org.spout.vanilla.protocol.chunk.SectionPayload;
 import org.spout.vanilla.protocol.container.VanillaContainer;
+import org.spout.vanilla.protocol.entity.EntityDestroyBuffer;
+import org.spout.vanilla.protocol.entity.EntityTracker;
+import org.spout.vanilla.protocol.entity.VanillaEntityProtocol;
 import org.spout.vanilla.protocol.entity.player.ExperienceChangeEvent;
 import org.spout.vanilla.protocol.msg.VanillaBlockDataChannelMessage;
 import org.spout.vanilla.protocol.msg.entity.EntityAnimationMessage;
+import org.spout.vanilla.protocol.msg.entity.EntityDestroyMessage;
 import org.spout.vanilla.protocol.msg.entity.EntityEquipmentMessage;
 import org.spout.vanilla.protocol.msg.entity.EntityItemDataMessage;
 import org.spout.vanilla.protocol.msg.entity.EntityMetadataMessage;
@@ -149,10 +174,13 @@ import org.spout.vanilla.protocol.msg.world.ExplosionMessage;
 import org.spout.vanilla.protocol.msg.world.SoundEffectMessage;
 import org.spout.vanilla.protocol.msg.world.block.BlockActionMessage;
 import org.spout.vanilla.protocol.msg.world.block.BlockBreakAnimationMessage;
+import org.spout.vanilla.protocol.msg.world.block.BlockBulkMessage;
 import org.spout.vanilla.protocol.msg.world.block.BlockChangeMessage;
 import org.spout.vanilla.protocol.msg.world.block.SignMessage;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+import org.spout.vanilla.protocol.netcache.ChunkNetCache;
 import org.spout.vanilla.protocol.reposition.VanillaRepositionManager;
+import org.spout.vanilla.util.PlayerUtil;
 import org.spout.vanilla.world.generator.biome.VanillaBiome;
 
 import static org.spout.vanilla.material.VanillaMaterials.getMinecraftData;
@@ -166,9 +194,23 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 	private static final int FORCE_MASK = 0xFF; // force an update to be sent every 5 seconds
 	private static final int HASH_SEED = 0xB346D76A;
 	public static final int WORLD_HEIGHT = 256;
+	/**
+	 * The number of block changes in a single section above which the whole section is sent again
+	 */
+	private static final int FULL_RESEND_THRESHOLD = 64;
 	private boolean first = true;
 	private final TSyncIntPairObjectHashMap<TSyncIntHashSet> initializedChunks = new TSyncIntPairObjectHashMap<TSyncIntHashSet>();
 	private final ConcurrentLinkedQueue<Long> emptyColumns = new ConcurrentLinkedQueue<Long>();
+	private final ConcurrentHashMap<Long, World> cachedColumns = new ConcurrentHashMap<Long, World>();
+	private final BlockChangeBuffer blockChanges = new BlockChangeBuffer();
+	private final ColumnBatcher columnBatcher = new ColumnBatcher();
+	private final ConcurrentLinkedQueue<ProtocolEvent> deferredEvents = new ConcurrentLinkedQueue<ProtocolEvent>();
+	private final CompressionPipeline compressionPipeline = new CompressionPipeline();
+	private final TLongObjectHashMap<QueuedColumn> batchedColumns = new TLongObjectHashMap<QueuedColumn>();
+	private final ChunkSendQueue sendQueue = new ChunkSendQueue();
+	private final ChunkSendBudget sendBudget;
+	private final EntityTracker entityTracker = new EntityTracker();
+	private final EntityDestroyBuffer destroyBuffer = new EntityDestroyBuffer();
 	private TSyncIntPairHashSet activeChunks = new TSyncIntPairHashSet();
 	private Object initChunkLock = new Object();
 	private final ChunkInit chunkInit;
@@ -206,6 +248,7 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		super(session, 2);
 		registerProtocolEvents(this);
 		chunkInit = ChunkInit.getChunkInit(VanillaConfiguration.CHUNK_INIT.getString("client"));
+		sendBudget = new ChunkSendBudget(VanillaConfiguration.CHUNK_SEND_KB_PER_TICK.getInt() * 1024, VanillaConfiguration.CHUNK_SEND_KB_PER_SECOND.getInt() * 1024);
 		setRepositionManager(vpm);
 	}
 
@@ -262,32 +305,6 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		column.add(y);
 	}
 
-	private static BlockMaterial[][] getColumnTopmostMaterials(Point p) {
-		BlockMaterial[][] materials = new BlockMaterial[Chunk.BLOCKS.SIZE][Chunk.BLOCKS.SIZE];
-
-		World w = p.getWorld();
-
-		for (int xx = 0; xx < Chunk.BLOCKS.SIZE; xx++) {
-			for (int zz = 0; zz < Chunk.BLOCKS.SIZE; zz++) {
-				materials[xx][zz] = w.getTopmostBlock(p.getBlockX() + xx, p.getBlockZ() + zz, true);
-			}
-		}
-		return materials;
-	}
-
-	private static int[][] getColumnHeights(Point p) {
-		int[][] heights = new int[Chunk.BLOCKS.SIZE][Chunk.BLOCKS.SIZE];
-
-		World w = p.getWorld();
-
-		for (int xx = 0; xx < Chunk.BLOCKS.SIZE; xx++) {
-			for (int zz = 0; zz < Chunk.BLOCKS.SIZE; zz++) {
-				heights[xx][zz] = w.getSurfaceHeight(p.getBlockX() + xx, p.getBlockZ() + zz, true);
-			}
-		}
-		return heights;
-	}
-
 	private static byte[] emptySkyChunkData;
 	private static byte[] emptyGroundChunkData;
 
@@ -364,42 +381,65 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 
 		if (activeChunks.add(x, z)) {
 			Point p = c.getBase();
-			int[][] heights = getColumnHeights(p);
-			BlockMaterial[][] materials = getColumnTopmostMaterials(p);
+			World world = c.getWorld();
+			ChunkPayloadCache cache = ChunkPayloadCache.getInstance();
+			if (cachedColumns.putIfAbsent(IntPairHashed.key(x, z), world) == null) {
+				cache.retain(world, x, z);
+			}
+
+			int baseY = rm.getInverse().convertChunkY(0);
+			int version = cache.getColumnVersion(world, x, z);
+			ColumnPayload payload = cache.getColumn(world, x, z, baseY);
+
+			if (payload == null || chunkInit.sendColumn()) {
+				// Complex materials need their update events even if the column data is cached
+				ColumnSurface surface = null;
+				if (chunkInit.usesSurface()) {
+					surface = cache.getSurface(world, x, z);
+					if (surface == null) {
+						surface = new ColumnSurface(world, x, z);
+					}
+				}
 
-			byte[][] packetChunkData = new byte[16][];
+				byte[][] packetChunkData = new byte[16][];
 
-			for (int cube = 0; cube < 16; cube++) {
-				int serverCube = rm.getInverse().convertChunkY(cube);
-				Point pp = new Point(c.getWorld(), x << Chunk.BLOCKS.BITS, serverCube << Chunk.BLOCKS.BITS, z << Chunk.BLOCKS.BITS);
-				packetChunkData[cube] = chunkInit.getChunkData(heights, materials, pp, events);
-			}
+				for (int cube = 0; cube < 16; cube++) {
+					int serverCube = rm.getInverse().convertChunkY(cube);
+					Point pp = new Point(world, x << Chunk.BLOCKS.BITS, serverCube << Chunk.BLOCKS.BITS, z << Chunk.BLOCKS.BITS);
+					packetChunkData[cube] = chunkInit.getChunkData(surface, pp, events);
+				}
+
+				if (payload == null) {
+					Chunk chunk = world.getChunkFromBlock(p);
+					byte[] biomeData = new byte[Chunk.BLOCKS.AREA];
+					for (int dx = x; dx < x + Chunk.BLOCKS.SIZE; ++dx) {
+						for (int dz = z; dz < z + Chunk.BLOCKS.SIZE; ++dz) {
+							Biome biome = chunk.getBiome(dx & Chunk.BLOCKS.MASK, 0, dz & Chunk.BLOCKS.MASK);
+							if (biome instanceof VanillaBiome) {
+								biomeData[(dz & Chunk.BLOCKS.MASK) << 4 | (dx & Chunk.BLOCKS.MASK)] = (byte) ((VanillaBiome) biome).getBiomeId();
+							}
+						}
+					}
 
-			Chunk chunk = p.getWorld().getChunkFromBlock(p);
-			byte[] biomeData = new byte[Chunk.BLOCKS.AREA];
-			for (int dx = x; dx < x + Chunk.BLOCKS.SIZE; ++dx) {
-				for (int dz = z; dz < z + Chunk.BLOCKS.SIZE; ++dz) {
-					Biome biome = chunk.getBiome(dx & Chunk.BLOCKS.MASK, 0, dz & Chunk.BLOCKS.MASK);
-					if (biome instanceof VanillaBiome) {
-						biomeData[(dz & Chunk.BLOCKS.MASK) << 4 | (dx & Chunk.BLOCKS.MASK)] = (byte) ((VanillaBiome) biome).getBiomeId();
+					payload = new ColumnPayload(version, baseY, packetChunkData, biomeData);
+					if (version != -1) {
+						cache.putColumn(world, x, z, payload);
 					}
 				}
 			}
 
-			ChunkDataMessage CCMsg = new ChunkDataMessage(x, z, true, new boolean[16], packetChunkData, biomeData, player.getSession(), getRepositionManager());
-			player.getSession().send(false, CCMsg);
+			if (chunkInit.sendColumn()) {
+				sendQueue.add(x, z, payload);
+			} else {
+				ChunkDataMessage CCMsg = new ChunkDataMessage(x, z, payload, player.getSession(), getRepositionManager());
+				player.getSession().send(false, CCMsg);
+			}
 
 			chunks = chunkInit.getChunks(c);
 		}
 
 		if (chunks == null || !chunks.contains(c)) {
-
-			byte[] fullChunkData = ChunkInit.getChunkFullData(c, events);
-
-			byte[][] packetChunkData = new byte[16][];
-			packetChunkData[cY] = fullChunkData;
-			ChunkDataMessage CCMsg = new ChunkDataMessage(x, z, false, new boolean[16], packetChunkData, null, player.getSession(), getRepositionManager());
-			player.getSession().send(false, CCMsg);
+			sendSection(c, cY, events);
 
 			if (chunks == null) {
 				chunks = new ArrayList<Chunk>(1);
@@ -407,13 +447,104 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 			chunks.add(c);
 		}
 
-		for (ProtocolEvent e : events) {
-			this.callProtocolEvent(e);
+		// Events of a queued column are called once the column has been sent
+		if (sendQueue.addEvents(x, z, events)) {
+			return chunks;
+		}
+		if (compressionPipeline.isInFlight(x, z)) {
+			// The events refer to blocks of a column the client does not have yet
+			deferredEvents.addAll(events);
+		} else {
+			for (ProtocolEvent e : events) {
+				this.callProtocolEvent(e);
+			}
 		}
 
 		return chunks;
 	}
 
+	private boolean isNetCacheEnabled() {
+		ChunkNetCache netCache = session.getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+		return netCache != null && netCache.isCacheEnabled();
+	}
+
+	/**
+	 * Sends the columns whose compression completed, followed by the events of their blocks.
+	 * The queued columns the send budget allows for are then handed to the compression threads, nearest first.
+	 */
+	private void flushColumns() {
+		for (PendingBatch batch : compressionPipeline.pollCompleted()) {
+			Message message = batch.getMessage();
+			if (message != null) {
+				session.send(false, message);
+			}
+			for (ProtocolEvent e : batch.getEvents()) {
+				this.callProtocolEvent(e);
+			}
+		}
+
+		List<ProtocolEvent> events = new ArrayList<ProtocolEvent>();
+		sendBudget.tick();
+		boolean batch = !isNetCacheEnabled();
+		// While the compression threads are saturated the columns wait in the queue, rather than being compressed on this thread
+		if (sendQueue.size() > 0 && (!batch || ChunkCompressor.hasCapacity())) {
+			Point position = player.getScene().getPosition();
+			Vector3 direction = PlayerUtil.getFacing(player).getOffset();
+			Ping ping = player.get(Ping.class);
+			int allowance = sendBudget.getAllowance(ping == null ? 0F : ping.getPing());
+			for (QueuedColumn column : sendQueue.poll(position.getChunkX(), position.getChunkZ(), direction.getX(), direction.getZ(), allowance)) {
+				if (batch) {
+					columnBatcher.add(column.getX(), column.getZ(), column.getPayload());
+					batchedColumns.put(IntPairHashed.key(column.getX(), column.getZ()), column);
+				} else {
+					sendBudget.consume(column.getEstimatedSize());
+					// The net cache makes the data depend on the session, so it is compressed while encoding
+					session.send(false, new ChunkDataMessage(column.getX(), column.getZ(), column.getPayload(), session, getRepositionManager()));
+					for (ProtocolEvent e : column.getEvents()) {
+						this.callProtocolEvent(e);
+					}
+				}
+			}
+		}
+
+		boolean saturated = false;
+		for (ColumnBatcher.Batch columns : columnBatcher.drain(session, getRepositionManager())) {
+			// Once a batch is refused, the batches after it wait as well so the nearest columns still go first
+			saturated = saturated || !compressionPipeline.submit(columns);
+			for (long key : columns.getColumns()) {
+				QueuedColumn column = batchedColumns.remove(key);
+				if (column == null) {
+					continue;
+				}
+				if (saturated) {
+					sendQueue.requeue(column);
+				} else {
+					sendBudget.consume(column.getEstimatedSize());
+					events.addAll(column.getEvents());
+				}
+			}
+		}
+
+		ProtocolEvent event;
+		while ((event = deferredEvents.poll()) != null) {
+			events.add(event);
+		}
+		if (!events.isEmpty() && !compressionPipeline.attach(events)) {
+			for (ProtocolEvent e : events) {
+				this.callProtocolEvent(e);
+			}
+		}
+	}
+
+	private void sendSection(Chunk c, int cY, List<ProtocolEvent> events) {
+		byte[] fullChunkData = ChunkInit.getChunkFullData(c, events);
+
+		byte[][] packetChunkData = new byte[16][];
+		packetChunkData[cY] = fullChunkData;
+		ChunkDataMessage CCMsg = new ChunkDataMessage(c.getX(), c.getZ(), false, new boolean[16], packetChunkData, null, player.getSession(), getRepositionManager());
+		player.getSession().send(false, CCMsg);
+	}
+
 	public void sendPosition() {
 		sendPosition(player.getScene().getPosition(), player.getScene().getRotation());
 	}
@@ -504,6 +635,23 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		this.emptyColumns.clear();
 		this.activeChunks.clear();
 		this.initializedChunks.clear();
+		this.blockChanges.clear();
+		this.columnBatcher.clear();
+		this.deferredEvents.clear();
+		this.compressionPipeline.clear();
+		this.sendQueue.clear();
+		releaseCachedColumns();
+	}
+
+	private void releaseCachedColumns() {
+		ChunkPayloadCache cache = ChunkPayloadCache.getInstance();
+		Iterator<Entry<Long, World>> i = cachedColumns.entrySet().iterator();
+		while (i.hasNext()) {
+			Entry<Long, World> entry = i.next();
+			i.remove();
+			long key = entry.getKey();
+			cache.release(entry.getValue(), IntPairHashed.key1(key), IntPairHashed.key2(key));
+		}
 	}
 
 	private int lastY = Integer.MIN_VALUE;
@@ -544,27 +692,135 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 	public void preSnapshot() {
 		super.preSnapshot();
 
+		flushDestroys();
+		flushColumns();
+		flushBlockChanges();
+
+		List<Long> inFlight = null;
 		Long key;
 		while ((key = this.emptyColumns.poll()) != null) {
 			int x = IntPairHashed.key1(key);
 			int z = IntPairHashed.key2(key);
+			if (compressionPipeline.isInFlight(x, z)) {
+				// The column has to reach the client before it can be unloaded
+				if (inFlight == null) {
+					inFlight = new ArrayList<Long>();
+				}
+				inFlight.add(key);
+				continue;
+			}
 			TIntSet column = initializedChunks.get(x, z);
 			if (column != null && column.isEmpty()) {
 				column = initializedChunks.remove(x, z);
 				activeChunks.remove(x, z);
-				session.send(false, new ChunkDataMessage(x, z, true, null, null, null, true, player.getSession(), getRepositionManager()));
+				World world = cachedColumns.remove(key);
+				if (world != null) {
+					ChunkPayloadCache.getInstance().release(world, x, z);
+				}
+				if (!sendQueue.remove(x, z)) {
+					session.send(false, new ChunkDataMessage(x, z, true, null, null, null, true, player.getSession(), getRepositionManager()));
+				}
 			}
 		}
+		if (inFlight != null) {
+			emptyColumns.addAll(inFlight);
+		}
 	}
 
 	@Override
 	public void updateBlock(Chunk chunk, int x, int y, int z, BlockMaterial material, short data) {
-		short id = getMinecraftId(material);
-		x += chunk.getBlockX();
-		y += chunk.getBlockY();
-		z += chunk.getBlockZ();
-		BlockChangeMessage BCM = new BlockChangeMessage(x, y, z, id, getMinecraftData(material, data), getRepositionManager());
-		session.send(false, BCM);
+		ChunkPayloadCache.getInstance().invalidate(chunk, x, z);
+		blockChanges.add(chunk, x, y, z, getMinecraftId(material), getMinecraftData(material, data));
+	}
+
+	/**
+	 * Sends the block changes of the tick, using one message per column.
+	 * A section that had more than {@link #FULL_RESEND_THRESHOLD} changes is sent again instead.
+	 * Changes to columns that are still queued or being compressed are kept for a later tick.
+	 */
+	private void flushBlockChanges() {
+		List<ChunkChanges> pending = blockChanges.drain();
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		RepositionManager rm = getRepositionManager();
+		Map<Long, List<ChunkChanges>> columns = new LinkedHashMap<Long, List<ChunkChanges>>();
+		List<ProtocolEvent> events = new ArrayList<ProtocolEvent>();
+
+		for (ChunkChanges changes : pending) {
+			Chunk c = changes.getChunk();
+			if (!activeChunks.contains(c.getX(), c.getZ())) {
+				continue;
+			}
+			if (sendQueue.contains(c.getX(), c.getZ()) || compressionPipeline.isInFlight(c.getX(), c.getZ())) {
+				blockChanges.requeue(changes);
+				continue;
+			}
+			if (changes.getCount() > FULL_RESEND_THRESHOLD) {
+				int cY = rm.convertChunkY(c.getY());
+				if (cY >= 0 && cY < WORLD_HEIGHT >> Chunk.BLOCKS.BITS) {
+					sendSection(c, cY, events);
+				}
+				continue;
+			}
+			long key = IntPairHashed.key(c.getX(), c.getZ());
+			List<ChunkChanges> column = columns.get(key);
+			if (column == null) {
+				column = new ArrayList<ChunkChanges>(1);
+				columns.put(key, column);
+			}
+			column.add(changes);
+		}
+
+		for (Entry<Long, List<ChunkChanges>> entry : columns.entrySet()) {
+			sendColumnChanges(IntPairHashed.key1(entry.getKey()), IntPairHashed.key2(entry.getKey()), entry.getValue());
+		}
+
+		for (ProtocolEvent e : events) {
+			this.callProtocolEvent(e);
+		}
+	}
+
+	private void sendColumnChanges(int chunkX, int chunkZ, List<ChunkChanges> column) {
+		RepositionManager rm = getRepositionManager();
+		int count = 0;
+		for (ChunkChanges changes : column) {
+			count += changes.getCount();
+		}
+
+		short[] coordinates = new short[count * 3];
+		short[] types = new short[count];
+		byte[] metadata = new byte[count];
+		int index = 0;
+		for (ChunkChanges changes : column) {
+			for (int i = 0; i < changes.getCount(); i++) {
+				int y = changes.getY(i);
+				int convertedY = rm.convertY(y);
+				if (convertedY < 0 || convertedY >= WORLD_HEIGHT) {
+					continue;
+				}
+				coordinates[index * 3] = (short) (changes.getX(i) & Chunk.BLOCKS.MASK);
+				coordinates[index * 3 + 1] = (short) y;
+				coordinates[index * 3 + 2] = (short) (changes.getZ(i) & Chunk.BLOCKS.MASK);
+				types[index] = changes.getId(i);
+				metadata[index] = changes.getData(i);
+				index++;
+			}
+		}
+
+		if (index == 1) {
+			int x = (chunkX << Chunk.BLOCKS.BITS) + coordinates[0];
+			int z = (chunkZ << Chunk.BLOCKS.BITS) + coordinates[2];
+			session.send(false, new BlockChangeMessage(x, coordinates[1], z, types[0], metadata[0], rm));
+		} else if (index > 1) {
+			if (index < count) {
+				coordinates = Arrays.copyOf(coordinates, index * 3);
+				types = Arrays.copyOf(types, index);
+				metadata = Arrays.copyOf(metadata, index);
+			}
+			session.send(false, new BlockBulkMessage(chunkX, chunkZ, coordinates, types, metadata, rm));
+		}
 	}
 
 	@Override
@@ -573,16 +829,33 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		EntityProtocol ep = e.getNetwork().getEntityProtocol(VanillaPlugin.VANILLA_PROTOCOL_ID);
 		if (ep != null) {
 			List<Message> messages = new ArrayList<Message>();
+			VanillaEntityProtocol vep = ep instanceof VanillaEntityProtocol ? (VanillaEntityProtocol) ep : null;
 			// Sync using vanilla protocol
 			if (destroy) {
-				messages.addAll(ep.getDestroyMessages(e));
+				if (vep != null) {
+					destroyBuffer.add(e.getId());
+				} else {
+					messages.addAll(ep.getDestroyMessages(e));
+				}
+				entityTracker.untrack(e.getId());
 			}
 			if (spawn) {
+				if (destroyBuffer.contains(e.getId())) {
+					// The client has to forget the old entity before it is spawned again
+					flushDestroys();
+				}
 				messages.addAll(ep.getSpawnMessages(e, getRepositionManager()));
+				if (vep != null) {
+					entityTracker.track(vep.getUpdate(e, liveTransform));
+				}
 			}
 			if (update) {
 				boolean force = shouldForce(e.getId());
-				messages.addAll(ep.getUpdateMessages(e, liveTransform, getRepositionManager(), force));
+				if (vep != null) {
+					vep.getUpdateMessages(e, liveTransform, getRepositionManager(), force, entityTracker, messages);
+				} else {
+					messages.addAll(ep.getUpdateMessages(e, liveTransform, getRepositionManager(), force));
+				}
 			}
 			for (Message message : messages) {
 				this.session.send(false, message);
@@ -590,6 +863,15 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 		}
 	}
 
+	private void flushDestroys() {
+		if (destroyBuffer.isEmpty()) {
+			return;
+		}
+		for (EntityDestroyMessage message : destroyBuffer.drain()) {
+			session.send(false, message);
+		}
+	}
+
 	private boolean shouldForce(int entityId) {
 		int hash = HASH_SEED;
 		hash += (hash << 5) + entityId;
@@ -852,41 +1134,56 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 			return this == CLIENT_SEL || this == FULL_COLUMN;
 		}
 
-		public byte[] getChunkData(int[][] heights, BlockMaterial[][] materials, Point p, List<ProtocolEvent> updateEvents) {
+		public boolean usesSurface() {
+			return this == HEIGHTMAP;
+		}
+
+		public byte[] getChunkData(ColumnSurface surface, Point p, List<ProtocolEvent> updateEvents) {
 			switch (this) {
 				case CLIENT_SEL:
-					return getChunkFullColumn(heights, materials, p, updateEvents);
+					return getChunkFullColumn(p, updateEvents);
 				case FULL_COLUMN:
-					return getChunkFullColumn(heights, materials, p, updateEvents);
+					return getChunkFullColumn(p, updateEvents);
 				case HEIGHTMAP:
-					return getChunkHeightMap(heights, materials, p);
+					return surface.getHeightMapSection(p.getChunkY());
 				case EMPTY_COLUMN:
-					return getEmptyChunk(heights, materials, p);
+					return getEmptyChunk(p);
 				default:
-					return getChunkFullColumn(heights, materials, p, updateEvents);
+					return getChunkFullColumn(p, updateEvents);
 			}
 		}
 
-		private static byte[] getChunkFullColumn(int[][] heights, BlockMaterial[][] materials, Point p, List<ProtocolEvent> updateEvents) {
+		private static byte[] getChunkFullColumn(Point p, List<ProtocolEvent> updateEvents) {
 			Chunk c = p.getWorld().getChunkFromBlock(p);
 			return getChunkFullData(c, updateEvents);
 		}
 
 		public static byte[] getChunkFullData(Chunk c, List<ProtocolEvent> updateEvents) {
+			ChunkPayloadCache cache = ChunkPayloadCache.getInstance();
+			SectionPayload payload = cache.getSection(c);
+
+			if (payload == null) {
+				int version = cache.getVersion(c);
+
+				VanillaContainer container = new VanillaContainer();
+				c.fillBlockContainer(container);
+				container.setLightMode(true);
+				c.fillBlockLightContainer(container);
+				container.setLightMode(false);
+				c.fillSkyLightContainer(container);
+				c.fillBlockComponentContainer(container);
+
+				payload = new SectionPayload(version, container.getChunkFullData(), container.getXArray(), container.getYArray(), container.getZArray());
+				if (version != -1) {
+					cache.putSection(c, payload);
+				}
+			}
 
-			VanillaContainer container = new VanillaContainer();
-			c.fillBlockContainer(container);
-			container.setLightMode(true);
-			c.fillBlockLightContainer(container);
-			container.setLightMode(false);
-			c.fillSkyLightContainer(container);
-			c.fillBlockComponentContainer(container);
-
-			int[] componentX = container.getXArray();
-			int[] componentY = container.getYArray();
-			int[] componentZ = container.getZArray();
+			int[] componentX = payload.getComponentX();
+			int[] componentY = payload.getComponentY();
+			int[] componentZ = payload.getComponentZ();
 
-			for (int i = 0; i < container.getBlockComponentCount(); i++) {
+			for (int i = 0; i < payload.getComponentCount(); i++) {
 				BlockMaterial bm = c.getBlockMaterial(componentX[i], componentY[i], componentZ[i]);
 				if (bm instanceof VanillaComplexMaterial) {
 					ProtocolEvent event = ((VanillaComplexMaterial) bm).getUpdate(c.getWorld(), componentX[i], componentY[i], componentZ[i]);
@@ -896,54 +1193,14 @@ public class VanillaNetworkSynchronizer extends NetworkSynchronizer implements P
 				}
 			}
 
-			return container.getChunkFullData();
+			return payload.getData();
 		}
 
-		private static byte[] getEmptyChunk(int[][] heights, BlockMaterial[][] materials, Point p) {
+		private static byte[] getEmptyChunk(Point p) {
 			int chunkY = p.getChunkY();
 			return chunkY <= 4 ? emptyGroundChunkData : emptySkyChunkData;
 		}
 
-		private static byte[] getChunkHeightMap(int[][] heights, BlockMaterial[][] materials, Point p) {
-			int chunkY = p.getChunkY();
-			byte[] packetChunkData = new byte[Chunk.BLOCKS.HALF_VOLUME * 5];
-			int baseY = chunkY << Chunk.BLOCKS.BITS;
-
-			for (int xx = 0; xx < Chunk.BLOCKS.SIZE; xx++) {
-				for (int zz = 0; zz < Chunk.BLOCKS.SIZE; zz++) {
-					int dataOffset = xx | (zz << Chunk.BLOCKS.BITS);
-					int threshold = heights[xx][zz] - baseY;
-					if (chunkY == 0 && threshold < 0) {
-						threshold = 0;
-					}
-					int yy;
-					// Set blocks below height to the solid block
-					for (yy = 0; yy < Chunk.BLOCKS.SIZE && yy <= threshold; yy++) {
-						if (yy == threshold) {
-							BlockMaterial bm = materials[xx][zz];
-							if (bm == null) {
-								bm = VanillaMaterials.STONE;
-							}
-							int converted = getMinecraftId(bm.getId());
-							packetChunkData[dataOffset] = (byte) converted;
-						} else {
-							packetChunkData[dataOffset] = SOLID_BLOCK_ID;
-						}
-						dataOffset += Chunk.BLOCKS.AREA;
-					}
-					// Set sky light of blocks above height to 15
-					// Use half of start offset and add the block id and data length (2 volumes)
-					byte mask = (xx & 0x1) == 0 ? (byte) 0x0F : (byte) 0xF0;
-					dataOffset = Chunk.BLOCKS.DOUBLE_VOLUME + (dataOffset >> 1);
-					for (; yy < Chunk.BLOCKS.SIZE; yy++) {
-						packetChunkData[dataOffset] |= mask;
-						dataOffset += Chunk.BLOCKS.HALF_AREA;
-					}
-				}
-			}
-			return packetChunkData;
-		}
-
 		private static boolean isEqual(String in, String... args) {
 
 			if (in == null) {
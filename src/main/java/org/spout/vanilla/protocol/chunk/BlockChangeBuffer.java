@@ -0,0 +1,170 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.map.hash.TIntIntHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.spout.api.geo.cuboid.Chunk;
+
+/**
+ * Collects the block changes a session has to send during a tick, so they can be sent together once the tick is complete.<br>
+ * Repeated changes of the same block only keep the most recent state.
+ */
+public class BlockChangeBuffer {
+	private Map<Chunk, TIntIntHashMap> changes = new LinkedHashMap<Chunk, TIntIntHashMap>();
+
+	/**
+	 * Adds a block change
+	 * @param chunk the chunk containing the block
+	 * @param x the x coordinate of the block, relative to the chunk
+	 * @param y the y coordinate of the block, relative to the chunk
+	 * @param z the z coordinate of the block, relative to the chunk
+	 * @param id the Minecraft id of the new block
+	 * @param data the Minecraft data of the new block
+	 */
+	public synchronized void add(Chunk chunk, int x, int y, int z, short id, short data) {
+		TIntIntHashMap chunkChanges = changes.get(chunk);
+		if (chunkChanges == null) {
+			chunkChanges = new TIntIntHashMap();
+			changes.put(chunk, chunkChanges);
+		}
+		int key = (y & Chunk.BLOCKS.MASK) << 8 | (z & Chunk.BLOCKS.MASK) << 4 | (x & Chunk.BLOCKS.MASK);
+		chunkChanges.put(key, (id & 0xFFF) << 4 | (data & 0xF));
+	}
+
+	/**
+	 * Puts back changes that could not be sent yet. Changes made since they were drained take precedence.
+	 * @param drained the changes to put back
+	 */
+	public synchronized void requeue(ChunkChanges drained) {
+		TIntIntHashMap chunkChanges = changes.get(drained.chunk);
+		if (chunkChanges == null) {
+			chunkChanges = new TIntIntHashMap();
+			changes.put(drained.chunk, chunkChanges);
+		}
+		for (int i = 0; i < drained.positions.length; i++) {
+			chunkChanges.putIfAbsent(drained.positions[i], drained.states[i]);
+		}
+	}
+
+	/**
+	 * Removes all buffered changes
+	 * @return the changes, grouped by chunk in the order the chunks were first changed
+	 */
+	public List<ChunkChanges> drain() {
+		Map<Chunk, TIntIntHashMap> drained;
+		synchronized (this) {
+			if (changes.isEmpty()) {
+				return Collections.emptyList();
+			}
+			drained = changes;
+			changes = new LinkedHashMap<Chunk, TIntIntHashMap>();
+		}
+		List<ChunkChanges> list = new ArrayList<ChunkChanges>(drained.size());
+		for (Map.Entry<Chunk, TIntIntHashMap> entry : drained.entrySet()) {
+			list.add(new ChunkChanges(entry.getKey(), entry.getValue()));
+		}
+		return list;
+	}
+
+	/**
+	 * Removes all buffered changes without returning them
+	 */
+	public synchronized void clear() {
+		changes.clear();
+	}
+
+	/**
+	 * The changes of a single chunk during a tick
+	 */
+	public static class ChunkChanges {
+		private final Chunk chunk;
+		private final int[] positions;
+		private final int[] states;
+
+		private ChunkChanges(Chunk chunk, TIntIntHashMap changes) {
+			this.chunk = chunk;
+			this.positions = new int[changes.size()];
+			this.states = new int[changes.size()];
+			TIntIntIterator i = changes.iterator();
+			for (int j = 0; i.hasNext(); j++) {
+				i.advance();
+				positions[j] = i.key();
+				states[j] = i.value();
+			}
+		}
+
+		public Chunk getChunk() {
+			return chunk;
+		}
+
+		public int getCount() {
+			return positions.length;
+		}
+
+		/**
+		 * Gets the world x coordinate of a change
+		 * @param index the index of the change
+		 * @return the x coordinate
+		 */
+		public int getX(int index) {
+			return chunk.getBlockX() + (positions[index] & Chunk.BLOCKS.MASK);
+		}
+
+		/**
+		 * Gets the world y coordinate of a change
+		 * @param index the index of the change
+		 * @return the y coordinate
+		 */
+		public int getY(int index) {
+			return chunk.getBlockY() + ((positions[index] >> 8) & Chunk.BLOCKS.MASK);
+		}
+
+		/**
+		 * Gets the world z coordinate of a change
+		 * @param index the index of the change
+		 * @return the z coordinate
+		 */
+		public int getZ(int index) {
+			return chunk.getBlockZ() + ((positions[index] >> 4) & Chunk.BLOCKS.MASK);
+		}
+
+		public short getId(int index) {
+			return (short) (states[index] >> 4);
+		}
+
+		public byte getData(int index) {
+			return (byte) (states[index] & 0xF);
+		}
+	}
+}
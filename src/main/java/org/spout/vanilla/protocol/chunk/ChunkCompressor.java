@@ -0,0 +1,227 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses chunk data for the network.<br>
+ * <br>
+ * Each thread keeps its own {@link Deflater}, {@link Inflater} and scratch buffers, so compressing does not allocate anything but the result.
+ * Chunk messages can be compressed ahead of time on a dedicated, bounded executor so the work does not happen on the tick threads.
+ * When the executor is saturated new tasks are refused rather than run by the caller, so the caller can hold its data back until a later tick.
+ */
+public class ChunkCompressor {
+	private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+	private static final int THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() >> 1);
+	private static final int QUEUE_SIZE = 256;
+	/**
+	 * One permit per task that is queued or running, so the executor queue never overflows
+	 */
+	private static final Semaphore SLOTS = new Semaphore(QUEUE_SIZE);
+	private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(COMPRESSION_LEVEL);
+		}
+	};
+	private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater();
+		}
+	};
+	private static final ThreadLocal<byte[][]> BUFFERS = new ThreadLocal<byte[][]>() {
+		@Override
+		protected byte[][] initialValue() {
+			return new byte[2][];
+		}
+	};
+	private static final int INPUT_BUFFER = 0;
+	private static final int OUTPUT_BUFFER = 1;
+	private static ThreadPoolExecutor executor;
+
+	private ChunkCompressor() {
+	}
+
+	/**
+	 * Gets a scratch buffer owned by the current thread, to assemble data before passing it to {@link #deflate(byte[], int, int)}.<br>
+	 * The buffer is reused by the next call on the same thread.
+	 * @param length the minimum length of the buffer
+	 * @return the buffer
+	 */
+	public static byte[] getInputBuffer(int length) {
+		return getBuffer(INPUT_BUFFER, length);
+	}
+
+	/**
+	 * Deflates the given data
+	 * @param data the array holding the data to compress
+	 * @param off the offset of the data
+	 * @param len the length of the data
+	 * @return the compressed data, trimmed to its exact length
+	 * @throws IOException if the deflater produced no output
+	 */
+	public static byte[] deflate(byte[] data, int off, int len) throws IOException {
+		Deflater deflater = DEFLATER.get();
+		deflater.reset();
+		deflater.setInput(data, off, len);
+		deflater.finish();
+
+		byte[] output = getBuffer(OUTPUT_BUFFER, (len >> 2) + 64);
+		int compressed = deflater.deflate(output);
+		if (compressed == 0) {
+			throw new IOException("No compressed data found");
+		}
+		while (!deflater.finished()) {
+			output = growBuffer(OUTPUT_BUFFER, compressed);
+			compressed += deflater.deflate(output, compressed, output.length - compressed);
+		}
+		return Arrays.copyOf(output, compressed);
+	}
+
+	/**
+	 * Inflates the given data into the target array
+	 * @param compressed the compressed data
+	 * @param target the array to fill
+	 * @return the number of bytes written to the target
+	 * @throws IOException if the compressed data is invalid
+	 */
+	public static int inflate(byte[] compressed, byte[] target) throws IOException {
+		Inflater inflater = INFLATER.get();
+		inflater.reset();
+		inflater.setInput(compressed);
+		int index = 0;
+		try {
+			while (index < target.length) {
+				int uncompressed = inflater.inflate(target, index, target.length - index);
+				index += uncompressed;
+				if (uncompressed == 0) {
+					break;
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Bad compressed data.", e);
+		}
+		return index;
+	}
+
+	/**
+	 * Schedules a compression task on the compression executor.<br>
+	 * If the executor is saturated the task is not scheduled, and the caller should try again during a later tick.
+	 * @param task the task
+	 * @return the future of the task, or null if the executor is saturated
+	 */
+	public static <T> Future<T> submit(Callable<T> task) {
+		if (!SLOTS.tryAcquire()) {
+			return null;
+		}
+		FutureTask<T> future = new FutureTask<T>(task) {
+			@Override
+			protected void done() {
+				SLOTS.release();
+			}
+		};
+		try {
+			getExecutor().execute(future);
+		} catch (RejectedExecutionException e) {
+			SLOTS.release();
+			return null;
+		}
+		return future;
+	}
+
+	/**
+	 * Checks if the compression executor can take another task
+	 * @return false if the executor is saturated
+	 */
+	public static boolean hasCapacity() {
+		return SLOTS.availablePermits() > 0;
+	}
+
+	/**
+	 * Stops the compression threads. Tasks submitted afterwards start a new executor.
+	 */
+	public static synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new CompressorThreadFactory());
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	private static byte[] getBuffer(int index, int length) {
+		byte[][] buffers = BUFFERS.get();
+		byte[] buffer = buffers[index];
+		if (buffer == null || buffer.length < length) {
+			buffer = new byte[length];
+			buffers[index] = buffer;
+		}
+		return buffer;
+	}
+
+	private static byte[] growBuffer(int index, int used) {
+		byte[][] buffers = BUFFERS.get();
+		byte[] buffer = buffers[index];
+		byte[] newBuffer = new byte[1 + buffer.length + (buffer.length >> 1)];
+		System.arraycopy(buffer, 0, newBuffer, 0, used);
+		buffers[index] = newBuffer;
+		return newBuffer;
+	}
+
+	private static class CompressorThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Vanilla Chunk Compressor - " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
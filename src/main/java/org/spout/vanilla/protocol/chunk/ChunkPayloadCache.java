@@ -0,0 +1,417 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+
+/**
+ * A server wide cache of the serialized chunk data sent to clients.<br>
+ * <br>
+ * Columns are kept in the cache for as long as at least one session has them loaded, which guarantees that every block change inside them is
+ * reported through {@link #invalidate(Chunk)} by one of those sessions. Light changes are reported by the light buffers of the chunk. Every invalidation increments the version of the section and of the
+ * column, and a payload is only handed out while its version is still current.
+ */
+public class ChunkPayloadCache {
+	private static final ChunkPayloadCache INSTANCE = new ChunkPayloadCache();
+	private static final long DEFAULT_CAPACITY = 64L * 1024L * 1024L;
+	private final ConcurrentMap<ColumnKey, ColumnEntry> columns = new ConcurrentHashMap<ColumnKey, ColumnEntry>();
+	private final LinkedHashMap<CachedPayload<?>, Boolean> lru = new LinkedHashMap<CachedPayload<?>, Boolean>(16, 0.75F, true);
+	private long cachedBytes = 0;
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong evictions = new AtomicLong(0);
+	private long capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * Gets the cache shared by all sessions of the server
+	 * @return the cache
+	 */
+	public static ChunkPayloadCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Sets the maximum number of payload bytes kept by the cache
+	 * @param capacity the capacity in bytes
+	 */
+	public void setCapacity(long capacity) {
+		synchronized (lru) {
+			this.capacity = capacity;
+			trim();
+		}
+	}
+
+	/**
+	 * Registers a session as a viewer of a column. Payloads are only cached for columns with at least one viewer.
+	 * @param world the world of the column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 */
+	public void retain(World world, int x, int z) {
+		ColumnKey key = new ColumnKey(world.getName(), x, z);
+		synchronized (columns) {
+			ColumnEntry entry = columns.get(key);
+			if (entry == null) {
+				entry = new ColumnEntry(new ColumnSurface(world, x, z));
+				columns.put(key, entry);
+			}
+			entry.viewers++;
+		}
+	}
+
+	/**
+	 * Unregisters a viewer of a column, dropping all payloads of the column once the last viewer is gone
+	 * @param world the world of the column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 */
+	public void release(World world, int x, int z) {
+		ColumnKey key = new ColumnKey(world.getName(), x, z);
+		ColumnEntry removed = null;
+		synchronized (columns) {
+			ColumnEntry entry = columns.get(key);
+			if (entry != null && --entry.viewers <= 0) {
+				removed = columns.remove(key);
+			}
+		}
+		if (removed != null) {
+			removed.column.clear();
+			for (SectionEntry section : removed.sections.values()) {
+				section.payload.clear();
+			}
+		}
+	}
+
+	/**
+	 * Invalidates all payloads that contain the given chunk
+	 * @param chunk the chunk that was modified
+	 */
+	public void invalidate(Chunk chunk) {
+		ColumnEntry entry = columns.get(new ColumnKey(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()));
+		if (entry == null) {
+			return;
+		}
+		SectionEntry section = entry.sections.get(chunk.getY());
+		if (section != null) {
+			section.version.incrementAndGet();
+			section.payload.clear();
+		}
+		entry.version.incrementAndGet();
+		entry.column.clear();
+	}
+
+	/**
+	 * Invalidates all payloads that contain the given block, along with the surface of its block column
+	 * @param chunk the chunk that was modified
+	 * @param x coordinate of the block
+	 * @param z coordinate of the block
+	 */
+	public void invalidate(Chunk chunk, int x, int z) {
+		ColumnEntry entry = columns.get(new ColumnKey(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()));
+		if (entry != null) {
+			entry.surface.markDirty(x, z);
+		}
+		invalidate(chunk);
+	}
+
+	/**
+	 * Gets the surface of a column
+	 * @param world the world of the column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @return the surface, or null if the column has no viewers
+	 */
+	public ColumnSurface getSurface(World world, int x, int z) {
+		ColumnEntry entry = columns.get(new ColumnKey(world.getName(), x, z));
+		return entry == null ? null : entry.surface;
+	}
+
+	/**
+	 * Gets the current version of a chunk. It has to be read before building a payload for the chunk.
+	 * @param chunk the chunk
+	 * @return the version, or -1 if the chunk can not be cached
+	 */
+	public int getVersion(Chunk chunk) {
+		SectionEntry section = getSectionEntry(chunk);
+		return section == null ? -1 : section.version.get();
+	}
+
+	/**
+	 * Gets the cached payload of a chunk
+	 * @param chunk the chunk
+	 * @return the payload, or null if no payload of the current version is cached
+	 */
+	public SectionPayload getSection(Chunk chunk) {
+		SectionEntry section = getSectionEntry(chunk);
+		SectionPayload payload = section == null ? null : section.payload.get();
+		if (payload != null && payload.getVersion() == section.version.get()) {
+			section.payload.touch();
+			hits.incrementAndGet();
+			return payload;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Caches the payload of a chunk. The payload is discarded if the chunk was modified since the version the payload was built from.
+	 * @param chunk the chunk
+	 * @param payload the payload
+	 */
+	public void putSection(Chunk chunk, SectionPayload payload) {
+		SectionEntry section = getSectionEntry(chunk);
+		if (section != null && payload.getVersion() == section.version.get()) {
+			store(section.payload, payload);
+		}
+	}
+
+	/**
+	 * Gets the current version of a column. It has to be read before building a payload for the column.
+	 * @param world the world of the column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @return the version, or -1 if the column can not be cached
+	 */
+	public int getColumnVersion(World world, int x, int z) {
+		ColumnEntry entry = columns.get(new ColumnKey(world.getName(), x, z));
+		return entry == null ? -1 : entry.version.get();
+	}
+
+	/**
+	 * Gets the cached payload of a column
+	 * @param world the world of the column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @param baseY the server chunk y coordinate sent as the lowest section of the column
+	 * @return the payload, or null if no payload of the current version is cached
+	 */
+	public ColumnPayload getColumn(World world, int x, int z, int baseY) {
+		ColumnEntry entry = columns.get(new ColumnKey(world.getName(), x, z));
+		ColumnPayload payload = entry == null ? null : entry.column.get();
+		if (payload != null && payload.getBaseY() == baseY && payload.getVersion() == entry.version.get()) {
+			entry.column.touch();
+			hits.incrementAndGet();
+			return payload;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Caches the payload of a column. The payload is discarded if the column was modified since the version the payload was built from.
+	 * @param world the world of the column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @param payload the payload
+	 */
+	public void putColumn(World world, int x, int z, ColumnPayload payload) {
+		ColumnEntry entry = columns.get(new ColumnKey(world.getName(), x, z));
+		if (entry != null && payload.getVersion() == entry.version.get()) {
+			store(entry.column, payload);
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Gets the approximate number of bytes currently held by the cache
+	 * @return the size in bytes
+	 */
+	public long getSize() {
+		synchronized (lru) {
+			return cachedBytes;
+		}
+	}
+
+	/**
+	 * Gets the number of columns currently viewed by at least one session
+	 * @return the column count
+	 */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	private SectionEntry getSectionEntry(Chunk chunk) {
+		ColumnEntry entry = columns.get(new ColumnKey(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()));
+		if (entry == null) {
+			return null;
+		}
+		Integer y = chunk.getY();
+		SectionEntry section = entry.sections.get(y);
+		if (section == null) {
+			section = new SectionEntry();
+			SectionEntry old = entry.sections.putIfAbsent(y, section);
+			if (old != null) {
+				section = old;
+			}
+		}
+		return section;
+	}
+
+	private <T> void store(CachedPayload<T> slot, T payload) {
+		synchronized (lru) {
+			slot.set(payload);
+			trim();
+		}
+	}
+
+	private void trim() {
+		synchronized (lru) {
+			Iterator<CachedPayload<?>> i = lru.keySet().iterator();
+			while (cachedBytes > capacity && i.hasNext()) {
+				CachedPayload<?> slot = i.next();
+				i.remove();
+				slot.evict();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * A reference to a cached payload which keeps the size and the access order of the cache up to date.<br>
+	 * The size of a payload can grow once it is compressed, so the size charged when it was stored is the one released again.
+	 */
+	private abstract class CachedPayload<T> {
+		private volatile T payload;
+		private int charged;
+
+		public T get() {
+			return payload;
+		}
+
+		public void touch() {
+			synchronized (lru) {
+				lru.get(this);
+			}
+		}
+
+		public void set(T value) {
+			synchronized (lru) {
+				evict();
+				payload = value;
+				charged = getSize(value);
+				cachedBytes += charged;
+				lru.put(this, Boolean.TRUE);
+			}
+		}
+
+		public void clear() {
+			synchronized (lru) {
+				evict();
+				lru.remove(this);
+			}
+		}
+
+		private void evict() {
+			if (payload != null) {
+				payload = null;
+				cachedBytes -= charged;
+				charged = 0;
+			}
+		}
+
+		protected abstract int getSize(T value);
+	}
+
+	private class CachedSection extends CachedPayload<SectionPayload> {
+		@Override
+		protected int getSize(SectionPayload value) {
+			return value.getSize();
+		}
+	}
+
+	private class CachedColumn extends CachedPayload<ColumnPayload> {
+		@Override
+		protected int getSize(ColumnPayload value) {
+			return value.getSize();
+		}
+	}
+
+	private class SectionEntry {
+		private final AtomicInteger version = new AtomicInteger(0);
+		private final CachedSection payload = new CachedSection();
+	}
+
+	private class ColumnEntry {
+		private final AtomicInteger version = new AtomicInteger(0);
+		private final ConcurrentMap<Integer, SectionEntry> sections = new ConcurrentHashMap<Integer, SectionEntry>();
+		private final CachedColumn column = new CachedColumn();
+		private final ColumnSurface surface;
+		private int viewers = 0;
+
+		public ColumnEntry(ColumnSurface surface) {
+			this.surface = surface;
+		}
+	}
+
+	private static final class ColumnKey {
+		private final String world;
+		private final int x;
+		private final int z;
+
+		public ColumnKey(String world, int x, int z) {
+			this.world = world;
+			this.x = x;
+			this.z = z;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = world.hashCode();
+			hash += (hash << 5) + x;
+			hash += (hash << 5) + z;
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ColumnKey)) {
+				return false;
+			}
+			ColumnKey other = (ColumnKey) obj;
+			return x == other.x && z == other.z && world.equals(other.world);
+		}
+	}
+}
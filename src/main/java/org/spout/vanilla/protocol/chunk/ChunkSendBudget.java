@@ -0,0 +1,104 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+/**
+ * Limits the amount of chunk data sent to a session, per tick and over the last second.<br>
+ * Both limits are scaled down for clients with a high ping, since their connection is unlikely to keep up with a full rate.
+ */
+public class ChunkSendBudget {
+	/**
+	 * The number of ticks in the sliding window of the per second limit
+	 */
+	public static final int WINDOW_TICKS = 20;
+	/**
+	 * The ping, in seconds, up to which the full rate is allowed
+	 */
+	public static final float LOW_PING = 0.15F;
+	/**
+	 * The lowest fraction of the full rate a client can be scaled down to
+	 */
+	public static final float MIN_SCALE = 0.25F;
+	private final int bytesPerTick;
+	private final int bytesPerSecond;
+	private final int[] window = new int[WINDOW_TICKS];
+	private int windowIndex = 0;
+	private int windowTotal = 0;
+
+	public ChunkSendBudget(int bytesPerTick, int bytesPerSecond) {
+		if (bytesPerTick <= 0 || bytesPerSecond <= 0) {
+			throw new IllegalArgumentException("Byte budgets must be positive");
+		}
+		this.bytesPerTick = bytesPerTick;
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Gets the number of bytes that may still be sent during the current tick
+	 * @param ping the ping of the client, in seconds
+	 * @return the number of bytes, may be zero
+	 */
+	public int getAllowance(float ping) {
+		float scale = getScale(ping);
+		int tick = (int) (bytesPerTick * scale) - window[windowIndex];
+		int second = (int) (bytesPerSecond * scale) - windowTotal;
+		return Math.max(0, Math.min(tick, second));
+	}
+
+	/**
+	 * Records bytes sent during the current tick
+	 * @param bytes the number of bytes
+	 */
+	public void consume(int bytes) {
+		window[windowIndex] += bytes;
+		windowTotal += bytes;
+	}
+
+	/**
+	 * Starts a new tick, dropping the oldest tick from the window
+	 */
+	public void tick() {
+		windowIndex = (windowIndex + 1) % WINDOW_TICKS;
+		windowTotal -= window[windowIndex];
+		window[windowIndex] = 0;
+	}
+
+	/**
+	 * Gets the number of bytes recorded over the last second
+	 * @return the number of bytes
+	 */
+	public int getWindowTotal() {
+		return windowTotal;
+	}
+
+	private static float getScale(float ping) {
+		if (ping <= LOW_PING) {
+			return 1F;
+		}
+		return Math.max(MIN_SCALE, LOW_PING / ping);
+	}
+}
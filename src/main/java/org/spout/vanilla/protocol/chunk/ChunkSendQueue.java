@@ -0,0 +1,234 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.spout.api.protocol.event.ProtocolEvent;
+import org.spout.api.util.hashing.IntPairHashed;
+
+/**
+ * Holds the columns of a session that are waiting to be sent.<br>
+ * Columns are handed out nearest first, with columns in front of the player preferred over columns behind it, as far as a {@link ChunkSendBudget} allows.
+ * Columns that leave the view distance before they are sent can be removed again, so they never reach the client.
+ */
+public class ChunkSendQueue {
+	/**
+	 * The distance, in chunks, within which the view direction is ignored
+	 */
+	private static final int NEAR_DISTANCE = 2;
+	/**
+	 * The weight of the distance of columns directly behind the player, relative to columns in front of it
+	 */
+	private static final double BEHIND_WEIGHT = 2.0;
+	/**
+	 * The ratio used to estimate the compressed size of a column that was not compressed yet
+	 */
+	private static final int ESTIMATED_COMPRESSION_SHIFT = 3;
+	private final TLongObjectHashMap<QueuedColumn> queued = new TLongObjectHashMap<QueuedColumn>();
+
+	/**
+	 * Queues a column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @param payload the column payload
+	 */
+	public synchronized void add(int x, int z, ColumnPayload payload) {
+		queued.put(IntPairHashed.key(x, z), new QueuedColumn(x, z, payload));
+	}
+
+	/**
+	 * Adds events to call once a queued column has been sent
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @param events the events
+	 * @return false if the column is not queued
+	 */
+	public synchronized boolean addEvents(int x, int z, Collection<ProtocolEvent> events) {
+		QueuedColumn column = queued.get(IntPairHashed.key(x, z));
+		if (column == null) {
+			return false;
+		}
+		column.events.addAll(events);
+		return true;
+	}
+
+	public synchronized boolean contains(int x, int z) {
+		return queued.containsKey(IntPairHashed.key(x, z));
+	}
+
+	/**
+	 * Cancels a queued column
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @return true if the column was queued, and was therefore never sent
+	 */
+	public synchronized boolean remove(int x, int z) {
+		return queued.remove(IntPairHashed.key(x, z)) != null;
+	}
+
+	/**
+	 * Puts a polled column back, to be sent during a later tick.<br>
+	 * If the column was queued again in the meantime, the newer column is kept and the events of the polled column are called after it instead.
+	 * @param column the column
+	 */
+	public synchronized void requeue(QueuedColumn column) {
+		long key = IntPairHashed.key(column.x, column.z);
+		QueuedColumn newer = queued.get(key);
+		if (newer == null) {
+			queued.put(key, column);
+		} else {
+			newer.events.addAll(0, column.events);
+		}
+	}
+
+	public synchronized int size() {
+		return queued.size();
+	}
+
+	public synchronized void clear() {
+		queued.clear();
+	}
+
+	/**
+	 * Removes the columns to send during this tick, in the order they should be sent.<br>
+	 * At least one column is returned if any is queued and the budget allows any data at all, so a column larger than the budget still gets sent.
+	 * @param chunkX the x coordinate of the chunk the player is in
+	 * @param chunkZ the z coordinate of the chunk the player is in
+	 * @param directionX the x component of the view direction of the player
+	 * @param directionZ the z component of the view direction of the player
+	 * @param allowance the number of bytes that may be sent
+	 * @return the columns
+	 */
+	public List<QueuedColumn> poll(int chunkX, int chunkZ, double directionX, double directionZ, int allowance) {
+		if (allowance <= 0) {
+			return Collections.emptyList();
+		}
+		QueuedColumn[] columns;
+		synchronized (this) {
+			if (queued.isEmpty()) {
+				return Collections.emptyList();
+			}
+			columns = queued.values(new QueuedColumn[queued.size()]);
+		}
+
+		double length = Math.sqrt(directionX * directionX + directionZ * directionZ);
+		if (length > 0) {
+			directionX /= length;
+			directionZ /= length;
+		}
+		for (QueuedColumn column : columns) {
+			column.priority = getPriority(column.x - chunkX, column.z - chunkZ, directionX, directionZ);
+		}
+		Arrays.sort(columns);
+
+		List<QueuedColumn> selected = new ArrayList<QueuedColumn>();
+		synchronized (this) {
+			for (QueuedColumn column : columns) {
+				int size = column.getEstimatedSize();
+				if (!selected.isEmpty() && size > allowance) {
+					break;
+				}
+				// The column may have been removed while the priorities were computed
+				if (queued.remove(IntPairHashed.key(column.x, column.z)) != column) {
+					continue;
+				}
+				selected.add(column);
+				allowance -= size;
+				if (allowance <= 0) {
+					break;
+				}
+			}
+		}
+		return selected;
+	}
+
+	private static double getPriority(int dx, int dz, double directionX, double directionZ) {
+		double distance = Math.sqrt(dx * dx + dz * dz);
+		if (distance <= NEAR_DISTANCE) {
+			return distance;
+		}
+		// 1 in front of the player, BEHIND_WEIGHT behind it
+		double cos = (dx * directionX + dz * directionZ) / distance;
+		return distance * (1.0 + (BEHIND_WEIGHT - 1.0) * (1.0 - cos) * 0.5);
+	}
+
+	/**
+	 * A column waiting to be sent
+	 */
+	public static class QueuedColumn implements Comparable<QueuedColumn> {
+		private final int x;
+		private final int z;
+		private final ColumnPayload payload;
+		private final List<ProtocolEvent> events = new ArrayList<ProtocolEvent>();
+		private double priority;
+
+		private QueuedColumn(int x, int z, ColumnPayload payload) {
+			this.x = x;
+			this.z = z;
+			this.payload = payload;
+		}
+
+		public int getX() {
+			return x;
+		}
+
+		public int getZ() {
+			return z;
+		}
+
+		public ColumnPayload getPayload() {
+			return payload;
+		}
+
+		public List<ProtocolEvent> getEvents() {
+			return events;
+		}
+
+		/**
+		 * Gets the number of bytes sending the column is expected to take
+		 * @return the compressed size if known, an estimate otherwise
+		 */
+		public int getEstimatedSize() {
+			int compressed = payload.getCompressedSize();
+			if (compressed != -1) {
+				return compressed;
+			}
+			return payload.getUncompressedSize() >> ESTIMATED_COMPRESSION_SHIFT;
+		}
+
+		@Override
+		public int compareTo(QueuedColumn other) {
+			return Double.compare(priority, other.priority);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.spout.api.protocol.Message;
+import org.spout.api.protocol.Session;
+import org.spout.api.protocol.reposition.RepositionManager;
+import org.spout.api.util.hashing.IntPairHashed;
+
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkBulkMessage;
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+
+/**
+ * Collects the full columns that become sendable during a tick, so they can be sent as {@link ChunkBulkMessage}s.<br>
+ * All columns of a bulk message are deflated as a single stream, which compresses better and needs fewer packets than one message per column.
+ */
+public class ColumnBatcher {
+	/**
+	 * The maximum number of columns in a single bulk message
+	 */
+	public static final int MAX_COLUMNS = 10;
+	/**
+	 * The maximum uncompressed size of a single bulk message
+	 */
+	public static final int MAX_BYTES = 1 << 20;
+	private final List<PendingColumn> pending = new ArrayList<PendingColumn>();
+
+	/**
+	 * Adds a column to the current batch
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @param payload the column payload
+	 */
+	public synchronized void add(int x, int z, ColumnPayload payload) {
+		pending.add(new PendingColumn(x, z, payload));
+	}
+
+	/**
+	 * Checks if there are columns waiting to be sent
+	 * @return true if the batch is empty
+	 */
+	public synchronized boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Removes all pending columns without sending them
+	 */
+	public synchronized void clear() {
+		pending.clear();
+	}
+
+	/**
+	 * Removes all pending columns and groups them into batches, in the order they were added
+	 * @param session the session the messages are sent to
+	 * @param rm the reposition manager of the session
+	 * @return the batches
+	 */
+	public List<Batch> drain(Session session, RepositionManager rm) {
+		List<PendingColumn> columns;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return Collections.emptyList();
+			}
+			columns = new ArrayList<PendingColumn>(pending);
+			pending.clear();
+		}
+
+		List<Batch> batches = new ArrayList<Batch>();
+		int start = 0;
+		while (start < columns.size()) {
+			int end = start;
+			int bytes = 0;
+			do {
+				bytes += columns.get(end).payload.getUncompressedSize();
+				end++;
+			} while (end < columns.size() && end - start < MAX_COLUMNS && bytes + columns.get(end).payload.getUncompressedSize() <= MAX_BYTES);
+			batches.add(getBatch(columns.subList(start, end), session, rm));
+			start = end;
+		}
+		return batches;
+	}
+
+	private static Batch getBatch(List<PendingColumn> columns, Session session, RepositionManager rm) {
+		int count = columns.size();
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = IntPairHashed.key(columns.get(i).x, columns.get(i).z);
+		}
+
+		if (count == 1) {
+			// A single column can reuse the shared compressed payload
+			PendingColumn column = columns.get(0);
+			return new Batch(new ChunkDataMessage(column.x, column.z, column.payload, session, rm), keys);
+		}
+
+		int[] x = new int[count];
+		int[] z = new int[count];
+		boolean[][] hasAdditionalData = new boolean[count][];
+		byte[][][] data = new byte[count][][];
+		byte[][] biomeData = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			PendingColumn column = columns.get(i);
+			x[i] = column.x;
+			z[i] = column.z;
+			hasAdditionalData[i] = new boolean[16];
+			data[i] = column.payload.getData();
+			biomeData[i] = column.payload.getBiomeData();
+		}
+		return new Batch(new ChunkBulkMessage(x, z, hasAdditionalData, data, biomeData, rm), keys);
+	}
+
+	/**
+	 * The message sending a group of columns
+	 */
+	public static class Batch {
+		private final Message message;
+		private final long[] columns;
+
+		private Batch(Message message, long[] columns) {
+			this.message = message;
+			this.columns = columns;
+		}
+
+		public Message getMessage() {
+			return message;
+		}
+
+		/**
+		 * Gets the columns sent by the message
+		 * @return the column keys, see {@link IntPairHashed#key(int, int)}
+		 */
+		public long[] getColumns() {
+			return columns;
+		}
+
+		/**
+		 * Compresses the data of the message, so encoding it only has to copy the result
+		 * @throws IOException if the data could not be compressed
+		 */
+		public void compress() throws IOException {
+			if (message instanceof ChunkBulkMessage) {
+				((ChunkBulkMessage) message).getCompressedData();
+			} else {
+				((ChunkDataMessage) message).getPayload().getCompressedData();
+			}
+		}
+	}
+
+	private static class PendingColumn {
+		private final int x;
+		private final int z;
+		private final ColumnPayload payload;
+
+		public PendingColumn(int x, int z, ColumnPayload payload) {
+			this.x = x;
+			this.z = z;
+			this.payload = payload;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.io.IOException;
+
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkDataCodec;
+
+/**
+ * The network form of a full chunk column. The compressed data is computed by the first session that encodes the column and is then reused by all others.
+ */
+public final class ColumnPayload {
+	private final int version;
+	private final int baseY;
+	private final byte[][] data;
+	private final byte[] biomeData;
+	private volatile byte[] compressedData;
+
+	public ColumnPayload(int version, int baseY, byte[][] data, byte[] biomeData) {
+		this.version = version;
+		this.baseY = baseY;
+		this.data = data;
+		this.biomeData = biomeData;
+	}
+
+	/**
+	 * Gets the column version this payload was built from
+	 * @return the version
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the server chunk y coordinate that was sent as the lowest section of the column
+	 * @return the base chunk y coordinate
+	 */
+	public int getBaseY() {
+		return baseY;
+	}
+
+	public byte[][] getData() {
+		return data;
+	}
+
+	public byte[] getBiomeData() {
+		return biomeData;
+	}
+
+	/**
+	 * Gets the deflated column data, compressing it on the first call
+	 * @return the compressed data
+	 * @throws IOException if the data could not be compressed
+	 */
+	public byte[] getCompressedData() throws IOException {
+		byte[] compressed = compressedData;
+		if (compressed == null) {
+			synchronized (this) {
+				compressed = compressedData;
+				if (compressed == null) {
+					compressed = ChunkDataCodec.compress(data, biomeData);
+					compressedData = compressed;
+				}
+			}
+		}
+		return compressed;
+	}
+
+	/**
+	 * Gets the size of the compressed column data, without compressing it
+	 * @return the size in bytes, or -1 if the data has not been compressed yet
+	 */
+	public int getCompressedSize() {
+		byte[] compressed = compressedData;
+		return compressed == null ? -1 : compressed.length;
+	}
+
+	/**
+	 * Gets the size of the column data before compression
+	 * @return the size in bytes
+	 */
+	public int getUncompressedSize() {
+		int size = biomeData.length;
+		for (byte[] section : data) {
+			if (section != null) {
+				size += section.length;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the approximate number of bytes this payload keeps alive, excluding the shared section data
+	 * @return the size in bytes
+	 */
+	public int getSize() {
+		byte[] compressed = compressedData;
+		return biomeData.length + (compressed == null ? 0 : compressed.length);
+	}
+}
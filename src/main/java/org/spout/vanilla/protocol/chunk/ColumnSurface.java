@@ -0,0 +1,187 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.spout.vanilla.material.VanillaMaterials.getMinecraftId;
+
+/**
+ * The surface heights and topmost materials of a column, used to build heightmap sections.<br>
+ * <br>
+ * Only the blocks marked through {@link #markDirty(int, int)} are read from the world again, and the heightmap sections built from the
+ * surface are shared until one of its blocks changes.
+ */
+public class ColumnSurface {
+	private static final byte SOLID_BLOCK_ID = 1;
+	private static final int SECTION_SIZE = Chunk.BLOCKS.HALF_VOLUME * 5;
+	private final World world;
+	private final int baseX;
+	private final int baseZ;
+	private final int[] heights = new int[Chunk.BLOCKS.AREA];
+	private final BlockMaterial[] materials = new BlockMaterial[Chunk.BLOCKS.AREA];
+	private final long[] dirty = new long[Chunk.BLOCKS.AREA >> 6];
+	private boolean anyDirty = true;
+	private final TIntObjectHashMap<byte[]> sections = new TIntObjectHashMap<byte[]>();
+
+	public ColumnSurface(World world, int x, int z) {
+		this.world = world;
+		this.baseX = x << Chunk.BLOCKS.BITS;
+		this.baseZ = z << Chunk.BLOCKS.BITS;
+		for (int i = 0; i < dirty.length; i++) {
+			dirty[i] = -1L;
+		}
+	}
+
+	/**
+	 * Marks the surface of a block column to be read again
+	 * @param x coordinate of the block, only the bits inside the chunk are used
+	 * @param z coordinate of the block, only the bits inside the chunk are used
+	 */
+	public synchronized void markDirty(int x, int z) {
+		int index = getIndex(x & Chunk.BLOCKS.MASK, z & Chunk.BLOCKS.MASK);
+		dirty[index >> 6] |= 1L << index;
+		anyDirty = true;
+	}
+
+	/**
+	 * Gets the surface height of a block column
+	 * @param x coordinate inside the chunk
+	 * @param z coordinate inside the chunk
+	 * @return the height
+	 */
+	public synchronized int getHeight(int x, int z) {
+		refresh();
+		return heights[getIndex(x, z)];
+	}
+
+	/**
+	 * Gets the topmost material of a block column
+	 * @param x coordinate inside the chunk
+	 * @param z coordinate inside the chunk
+	 * @return the material, or null if the column has none
+	 */
+	public synchronized BlockMaterial getTopmostMaterial(int x, int z) {
+		refresh();
+		return materials[getIndex(x, z)];
+	}
+
+	/**
+	 * Gets the heightmap data of a section of the column, in the layout expected by the client.<br>
+	 * Blocks below the surface are solid, the surface block is the topmost material and blocks above it have full sky light.<br>
+	 * This array is shared and must not be modified.
+	 * @param chunkY the server chunk y coordinate of the section
+	 * @return the section data
+	 */
+	public synchronized byte[] getHeightMapSection(int chunkY) {
+		refresh();
+		byte[] data = sections.get(chunkY);
+		if (data == null) {
+			data = buildHeightMapSection(chunkY);
+			sections.put(chunkY, data);
+		}
+		return data;
+	}
+
+	private void refresh() {
+		if (!anyDirty) {
+			return;
+		}
+		boolean changed = false;
+		for (int word = 0; word < dirty.length; word++) {
+			long bits = dirty[word];
+			while (bits != 0) {
+				int bit = Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				int index = (word << 6) | bit;
+				int x = baseX + (index & Chunk.BLOCKS.MASK);
+				int z = baseZ + (index >> Chunk.BLOCKS.BITS);
+				int height = world.getSurfaceHeight(x, z, true);
+				BlockMaterial material = world.getTopmostBlock(x, z, true);
+				if (heights[index] != height || materials[index] != material) {
+					heights[index] = height;
+					materials[index] = material;
+					changed = true;
+				}
+			}
+			dirty[word] = 0;
+		}
+		anyDirty = false;
+		if (changed) {
+			sections.clear();
+		}
+	}
+
+	private byte[] buildHeightMapSection(int chunkY) {
+		byte[] packetChunkData = new byte[SECTION_SIZE];
+		int baseY = chunkY << Chunk.BLOCKS.BITS;
+
+		for (int xx = 0; xx < Chunk.BLOCKS.SIZE; xx++) {
+			for (int zz = 0; zz < Chunk.BLOCKS.SIZE; zz++) {
+				int index = getIndex(xx, zz);
+				int dataOffset = xx | (zz << Chunk.BLOCKS.BITS);
+				int threshold = heights[index] - baseY;
+				if (chunkY == 0 && threshold < 0) {
+					threshold = 0;
+				}
+				int yy;
+				// Set blocks below height to the solid block
+				for (yy = 0; yy < Chunk.BLOCKS.SIZE && yy <= threshold; yy++) {
+					if (yy == threshold) {
+						BlockMaterial bm = materials[index];
+						if (bm == null) {
+							bm = VanillaMaterials.STONE;
+						}
+						packetChunkData[dataOffset] = (byte) getMinecraftId(bm.getId());
+					} else {
+						packetChunkData[dataOffset] = SOLID_BLOCK_ID;
+					}
+					dataOffset += Chunk.BLOCKS.AREA;
+				}
+				// Set sky light of blocks above height to 15
+				// Use half of start offset and add the block id and data length (2 volumes)
+				byte mask = (xx & 0x1) == 0 ? (byte) 0x0F : (byte) 0xF0;
+				dataOffset = Chunk.BLOCKS.DOUBLE_VOLUME + (dataOffset >> 1);
+				for (; yy < Chunk.BLOCKS.SIZE; yy++) {
+					packetChunkData[dataOffset] |= mask;
+					dataOffset += Chunk.BLOCKS.HALF_AREA;
+				}
+			}
+		}
+		return packetChunkData;
+	}
+
+	private static int getIndex(int x, int z) {
+		return z << Chunk.BLOCKS.BITS | x;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import gnu.trove.set.hash.TLongHashSet;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.spout.api.Spout;
+import org.spout.api.protocol.Message;
+import org.spout.api.protocol.event.ProtocolEvent;
+import org.spout.api.util.hashing.IntPairHashed;
+
+/**
+ * Compresses the column batches of a session on the {@link ChunkCompressor} threads and hands them back once they are ready, in the order they were submitted.<br>
+ * While a column is in flight, changes to it have to wait, since the client does not have the column yet.
+ */
+public class CompressionPipeline {
+	private final LinkedList<PendingBatch> pending = new LinkedList<PendingBatch>();
+	private final TLongHashSet inFlight = new TLongHashSet();
+
+	/**
+	 * Starts compressing a batch
+	 * @param batch the batch
+	 * @return false if the compressor threads are saturated, the batch was not submitted
+	 */
+	public boolean submit(final ColumnBatcher.Batch batch) {
+		Future<Void> future = ChunkCompressor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				batch.compress();
+				return null;
+			}
+		});
+		if (future == null) {
+			return false;
+		}
+		synchronized (this) {
+			pending.addLast(new PendingBatch(batch, future));
+			inFlight.addAll(batch.getColumns());
+		}
+		return true;
+	}
+
+	/**
+	 * Adds events to call once the most recently submitted batch has been sent
+	 * @param events the events
+	 * @return false if there is no batch in flight, the events can be called right away
+	 */
+	public synchronized boolean attach(Collection<ProtocolEvent> events) {
+		if (pending.isEmpty()) {
+			return false;
+		}
+		pending.getLast().events.addAll(events);
+		return true;
+	}
+
+	/**
+	 * Removes the batches that are ready to be sent. A batch is only returned once all batches submitted before it are ready.<br>
+	 * A batch that failed to compress on the compressor threads is compressed again on the calling thread. If that fails as well,
+	 * the batch is still returned so its events are called, but it has no message.
+	 * @return the batches
+	 */
+	public synchronized List<PendingBatch> pollCompleted() {
+		if (pending.isEmpty() || !pending.getFirst().future.isDone()) {
+			return Collections.emptyList();
+		}
+		List<PendingBatch> completed = new ArrayList<PendingBatch>();
+		while (!pending.isEmpty() && pending.getFirst().future.isDone()) {
+			PendingBatch batch = pending.removeFirst();
+			for (long column : batch.batch.getColumns()) {
+				inFlight.remove(column);
+			}
+			if (!batch.isCompressed()) {
+				batch.failed = true;
+			}
+			completed.add(batch);
+		}
+		return completed;
+	}
+
+	/**
+	 * Checks if a column is waiting for its compression
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @return true if the column has not been handed back yet
+	 */
+	public synchronized boolean isInFlight(int x, int z) {
+		return inFlight.contains(IntPairHashed.key(x, z));
+	}
+
+	public synchronized boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Drops all batches in flight. Compressions that already started still complete, but their results are not sent.
+	 */
+	public synchronized void clear() {
+		for (PendingBatch batch : pending) {
+			batch.future.cancel(false);
+		}
+		pending.clear();
+		inFlight.clear();
+	}
+
+	/**
+	 * A batch whose compression has completed
+	 */
+	public static class PendingBatch {
+		private final ColumnBatcher.Batch batch;
+		private final Future<Void> future;
+		private final List<ProtocolEvent> events = new ArrayList<ProtocolEvent>();
+		private boolean failed = false;
+
+		private PendingBatch(ColumnBatcher.Batch batch, Future<Void> future) {
+			this.batch = batch;
+			this.future = future;
+		}
+
+		private boolean isCompressed() {
+			try {
+				future.get();
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				Spout.getLogger().log(Level.WARNING, "Compressing a chunk batch failed, compressing it again", e.getCause());
+			}
+			try {
+				batch.compress();
+				return true;
+			} catch (IOException e) {
+				Spout.getLogger().log(Level.SEVERE, "Compressing a chunk batch failed, dropping it", e);
+				return false;
+			}
+		}
+
+		/**
+		 * Gets the message to send
+		 * @return the message, or null if its data could not be compressed
+		 */
+		public Message getMessage() {
+			return failed ? null : batch.getMessage();
+		}
+
+		/**
+		 * Gets the events to call after the message is sent
+		 * @return the events
+		 */
+		public List<ProtocolEvent> getEvents() {
+			return events;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+/**
+ * The serialized network form of a single chunk section, along with the positions of the block components it contained when it was built.
+ * Instances are immutable and may be shared between any number of sessions.
+ */
+public final class SectionPayload {
+	private final int version;
+	private final byte[] data;
+	private final int[] componentX;
+	private final int[] componentY;
+	private final int[] componentZ;
+
+	public SectionPayload(int version, byte[] data, int[] componentX, int[] componentY, int[] componentZ) {
+		if (componentX.length != componentY.length || componentX.length != componentZ.length) {
+			throw new IllegalArgumentException("The lengths of the component coordinate arrays must be equal");
+		}
+		this.version = version;
+		this.data = data;
+		this.componentX = componentX;
+		this.componentY = componentY;
+		this.componentZ = componentZ;
+	}
+
+	/**
+	 * Gets the chunk version this payload was built from
+	 * @return the version
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the uncompressed section data, in the layout expected by the client.<br>
+	 * This array is shared and must not be modified.
+	 * @return the section data
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	public int getComponentCount() {
+		return componentX.length;
+	}
+
+	public int[] getComponentX() {
+		return componentX;
+	}
+
+	public int[] getComponentY() {
+		return componentY;
+	}
+
+	public int[] getComponentZ() {
+		return componentZ;
+	}
+
+	/**
+	 * Gets the approximate number of bytes this payload keeps alive
+	 * @return the size in bytes
+	 */
+	public int getSize() {
+		return data.length + componentX.length * 12;
+	}
+}
@@ -27,9 +27,6 @@
 package org.spout.vanilla.protocol.codec.world.chunk;
 
 import java.io.IOException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 
@@ -37,11 +34,10 @@ import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.protocol.MessageCodec;
 import org.spout.api.protocol.reposition.NullRepositionManager;
 
+import org.spout.vanilla.protocol.chunk.ChunkCompressor;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkBulkMessage;
 
 public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
-	private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
-
 	public ChunkBulkCodec() {
 		super(ChunkBulkMessage.class, 0x38);
 	}
@@ -74,40 +70,18 @@ public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
 		int flatLength = 0;
 
 		for (int i = 0; i < length; i++) {
-			byte[][] columnData = data[i];
-			for (int j = 0; j < columnData.length; j++) {
-				flatLength += columnData[j].length;
-			}
-			flatLength += biomeData[i].length;
+			flatLength += ChunkDataCodec.getFlatSize(data[i], biomeData[i]);
 		}
 
 		byte[] uncompressedDataFlat = new byte[flatLength];
 
-		Inflater inflater = new Inflater();
-		inflater.setInput(compressedDataFlat);
-		inflater.getRemaining();
-		try {
-			int uncompressed = inflater.inflate(uncompressedDataFlat);
-			if (uncompressed == 0) {
-				throw new IOException("Not all bytes uncompressed.");
-			} else if (uncompressed != uncompressedDataFlat.length) {
-				throw new IOException("Wrong length for compressed data");
-			}
-		} catch (DataFormatException e) {
-			e.printStackTrace();
-			throw new IOException("Bad compressed data.");
-		} finally {
-			inflater.end();
+		if (ChunkCompressor.inflate(compressedDataFlat, uncompressedDataFlat) != uncompressedDataFlat.length) {
+			throw new IOException("Wrong length for compressed data");
 		}
 
 		int pos = 0;
 		for (int i = 0; i < length; i++) {
-			byte[][] columnData = data[i];
-			for (int j = 0; j < columnData.length; j++) {
-				int l = columnData[j].length;
-				System.arraycopy(uncompressedDataFlat, pos, columnData[j], 0, l);
-				pos += l;
-			}
+			pos = ChunkDataCodec.unflatten(uncompressedDataFlat, pos, data[i]);
 			int l = biomeData[i].length;
 			System.arraycopy(uncompressedDataFlat, pos, biomeData[i], 0, l);
 			pos += l;
@@ -127,57 +101,10 @@ public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
 		int length = message.getX().length;
 		buffer.writeShort(length);
 
-		int dataLength = 0;
-		byte[][][] uncompressedData = message.getData();
-		byte[][] biomeData = message.getBiomeData();
-		for (int i = 0; i < length; i++) {
-			byte[][] uncompressedColumnData = uncompressedData[i];
-			for (int j = 0; j < uncompressedColumnData.length; j++) {
-				byte[] uncompressedChunkData = uncompressedColumnData[j];
-				if (uncompressedChunkData != null) {
-					dataLength += uncompressedChunkData.length;
-				}
-			}
-			dataLength += biomeData[i].length;
-		}
-
-		byte[] uncompressedDataFlat = new byte[dataLength];
-		int pos = 0;
-		for (int i = 0; i < length; i++) {
-			byte[][] uncompressedColumnData = uncompressedData[i];
-			for (int j = 0; j < uncompressedColumnData.length; j++) {
-				byte[] uncompressedChunkData = uncompressedColumnData[j];
-				if (uncompressedChunkData != null) {
-					int copyLength = uncompressedChunkData.length;
-					System.arraycopy(uncompressedChunkData, 0, uncompressedDataFlat, pos, copyLength);
-					pos += copyLength;
-				}
-			}
-			System.arraycopy(biomeData[i], 0, uncompressedDataFlat, pos, biomeData[i].length);
-			pos += biomeData[i].length;
-		}
-
-		if (pos != dataLength) {
-			throw new IllegalStateException("Flat data length miscalculated");
-		}
-
-		Deflater deflater = new Deflater(COMPRESSION_LEVEL);
-		deflater.setInput(uncompressedDataFlat);
-		deflater.finish();
-
-		byte[] compressedDataFlat = new byte[uncompressedDataFlat.length + 1024];
+		byte[] compressedDataFlat = message.getCompressedData();
 
-		int compressed = deflater.deflate(compressedDataFlat);
-		try {
-			if (compressed == 0) {
-				throw new IOException("Not all bytes compressed.");
-			}
-		} finally {
-			deflater.end();
-		}
-
-		buffer.writeInt(compressed);
-		buffer.writeBytes(compressedDataFlat, 0, compressed);
+		buffer.writeInt(compressedDataFlat.length);
+		buffer.writeBytes(compressedDataFlat);
 
 		for (int i = 0; i < length; i++) {
 			buffer.writeInt(message.getX()[i]);
@@ -189,6 +116,32 @@ public final class ChunkBulkCodec extends MessageCodec<ChunkBulkMessage> {
 		return buffer;
 	}
 
+	/**
+	 * Lays out and deflates the data of several columns as a single stream
+	 * @param data the section data of each column
+	 * @param biomeData the biome data of each column
+	 * @return the compressed data
+	 * @throws IOException if the deflater produced no output
+	 */
+	public static byte[] compress(byte[][][] data, byte[][] biomeData) throws IOException {
+		int dataLength = 0;
+		for (int i = 0; i < data.length; i++) {
+			dataLength += ChunkDataCodec.getFlatSize(data[i], biomeData[i]);
+		}
+
+		byte[] uncompressedDataFlat = ChunkCompressor.getInputBuffer(dataLength);
+		int pos = 0;
+		for (int i = 0; i < data.length; i++) {
+			pos = ChunkDataCodec.flatten(data[i], biomeData[i], uncompressedDataFlat, pos);
+		}
+
+		if (pos != dataLength) {
+			throw new IllegalStateException("Flat data length miscalculated");
+		}
+
+		return ChunkCompressor.deflate(uncompressedDataFlat, 0, dataLength);
+	}
+
 	private static short booleanArrayToShort(boolean[] array) {
 		short s = 0;
 		for (int i = 0; i < array.length; i++) {
@@ -27,9 +27,6 @@
 package org.spout.vanilla.protocol.codec.world.chunk;
 
 import java.io.IOException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 
@@ -39,10 +36,11 @@ import org.spout.api.protocol.Session;
 import org.spout.api.protocol.reposition.NullRepositionManager;
 
 import org.spout.vanilla.protocol.VanillaProtocol;
+import org.spout.vanilla.protocol.chunk.ChunkCompressor;
 import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+import org.spout.vanilla.protocol.netcache.ChunkNetCache;
 
 public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
-	private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
 	private static final int MAX_SECTIONS = 16;
 	private final byte[] UNLOAD_COMPRESSED = {0x78, (byte) 0x9C, 0x63, 0x64, 0x1C, (byte) 0xD9, 0x00, 0x00, (byte) 0x81, (byte) 0x80, 0x01, 0x01}; //Fake compressed data, client expects this when unloading
 
@@ -85,34 +83,11 @@ public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
 
 		byte[] uncompressedData = new byte[size];
 
-		Inflater inflater = new Inflater();
-		inflater.setInput(compressedData);
-		inflater.getRemaining();
-		int index = 0;
-		try {
-			while (index < uncompressedData.length) {
-				int uncompressed = inflater.inflate(uncompressedData, index, uncompressedData.length - index);
-				index += uncompressed;
-				if (uncompressed == 0) {
-					break;
-				}
-			}
-			if (index != uncompressedData.length) {
-				throw new IOException("Not all bytes uncompressed.");
-			}
-		} catch (DataFormatException e) {
-			e.printStackTrace();
-			throw new IOException("Bad compressed data.");
-		} finally {
-			inflater.end();
+		if (ChunkCompressor.inflate(compressedData, uncompressedData) != uncompressedData.length) {
+			throw new IOException("Not all bytes uncompressed.");
 		}
 
-		size = 0;
-		// TODO - fix this total hack
-		size = readSectionData(uncompressedData, size, data, 0, 4096);
-		size = readSectionData(uncompressedData, size, data, 2 * 2048, 2048);
-		size = readSectionData(uncompressedData, size, data, 3 * 2048, 2048);
-		size = readSectionData(uncompressedData, size, data, 4 * 2048, 2048);
+		size = unflatten(uncompressedData, 0, data);
 
 		/*size = 0;
 		for (byte[] sectionData : data) {
@@ -150,74 +125,133 @@ public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
 
 		byte[][] data = message.getData();
 
-		int uncompressedSize = 0;
 		for (int i = 0; i < MAX_SECTIONS; ++i) {
 			if (data[i] != null) { // This chunk exists! Let's initialize the data for it.
 				sectionsSentBitmap |= 1 << i;
 				if (message.hasAdditionalData()[i]) {
 					additionalDataBitMap |= 1 << i;
 				}
-				uncompressedSize += data[i].length;
 			}
 		}
 
-		if (message.isContiguous()) {
-			uncompressedSize += message.getBiomeData().length;
-		}
-
 		buffer.writeShort(sectionsSentBitmap);
 		buffer.writeShort(additionalDataBitMap);
-		byte[] uncompressedData = new byte[uncompressedSize];
-		int index = 0;
 
-		// TODO - fix this total hack
-		index = writeSectionData(data, 0, uncompressedData, index, 4096);
-		index = writeSectionData(data, 2 * 2048, uncompressedData, index, 2048);
-		index = writeSectionData(data, 3 * 2048, uncompressedData, index, 2048);
-		index = writeSectionData(data, 4 * 2048, uncompressedData, index, 2048);
-
-		if (message.isContiguous()) {
-			System.arraycopy(message.getBiomeData(), 0, uncompressedData, index, message.getBiomeData().length);
-			index += message.getBiomeData().length;
+		Session session = message.getSession();
+		ChunkNetCache netCache = session == null ? null : session.getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE);
+
+		byte[] compressedData;
+		if (message.getPayload() != null && (netCache == null || !netCache.isCacheEnabled())) {
+			// The column is shared with other sessions, so it only needs to be deflated once
+			compressedData = message.getPayload().getCompressedData();
+		} else {
+			byte[] uncompressedData = flatten(data, message.isContiguous() ? message.getBiomeData() : null);
+			if (netCache != null) {
+				uncompressedData = netCache.handle(uncompressedData);
+			}
+			compressedData = compress(uncompressedData);
 		}
 
-		Session session = message.getSession();
-		if (session != null) {
-			uncompressedData = message.getSession().getDataMap().get(VanillaProtocol.CHUNK_NET_CACHE).handle(uncompressedData);
+		buffer.writeInt(compressedData.length);
+		buffer.writeBytes(compressedData);
+
+		return buffer;
+	}
+
+	/**
+	 * Lays out the given sections and biome data in the order the client expects them
+	 * @param data the section data, null entries are skipped
+	 * @param biomeData the biome data, or null if the column is not contiguous
+	 * @return the uncompressed packet data
+	 */
+	public static byte[] flatten(byte[][] data, byte[] biomeData) {
+		byte[] uncompressedData = new byte[getFlatSize(data, biomeData)];
+		flatten(data, biomeData, uncompressedData, 0);
+		return uncompressedData;
+	}
+
+	/**
+	 * Lays out the given sections and biome data in the order the client expects them
+	 * @param data the section data, null entries are skipped
+	 * @param biomeData the biome data, or null if the column is not contiguous
+	 * @param target the array to write to
+	 * @param off the offset to start writing at
+	 * @return the offset after the written data
+	 */
+	public static int flatten(byte[][] data, byte[] biomeData, byte[] target, int off) {
+		// TODO - fix this total hack
+		off = writeSectionData(data, 0, target, off, 4096);
+		off = writeSectionData(data, 2 * 2048, target, off, 2048);
+		off = writeSectionData(data, 3 * 2048, target, off, 2048);
+		off = writeSectionData(data, 4 * 2048, target, off, 2048);
+
+		if (biomeData != null) {
+			System.arraycopy(biomeData, 0, target, off, biomeData.length);
+			off += biomeData.length;
 		}
+		return off;
+	}
 
-		byte[] compressedData = new byte[uncompressedSize >> 2];
-
-		Deflater deflater = new Deflater(COMPRESSION_LEVEL);
-		deflater.setInput(uncompressedData);
-		deflater.finish();
-
-		int compressed;
-		try {
-			compressed = deflater.deflate(compressedData);
-			if (compressed == 0) {
-				throw new IOException("No compressed data found");
-			} else if (compressed == compressedData.length) {
-				boolean done = false;
-				while (!done) {
-					byte[] newCompressedData = new byte[1 + compressedData.length + (compressedData.length >> 1)];
-					System.arraycopy(compressedData, 0, newCompressedData, 0, compressedData.length);
-					compressedData = newCompressedData;
-					compressed += deflater.deflate(compressedData, compressed, compressedData.length - compressed);
-					done = compressed < compressedData.length;
-				}
+	/**
+	 * Gets the length of the data written by {@link #flatten(byte[][], byte[])}
+	 * @param data the section data, null entries are skipped
+	 * @param biomeData the biome data, or null if the column is not contiguous
+	 * @return the length in bytes
+	 */
+	public static int getFlatSize(byte[][] data, byte[] biomeData) {
+		int size = 0;
+		for (byte[] section : data) {
+			if (section != null) {
+				size += section.length;
 			}
-		} finally {
-			deflater.end();
 		}
+		if (biomeData != null) {
+			size += biomeData.length;
+		}
+		return size;
+	}
 
-		buffer.writeInt(compressed);
-		buffer.writeBytes(compressedData, 0, compressed);
+	/**
+	 * Reads section data laid out by {@link #flatten(byte[][], byte[], byte[], int)} back into the given sections
+	 * @param data the uncompressed packet data
+	 * @param off the offset to start reading at
+	 * @param target the sections to fill, null entries are skipped
+	 * @return the offset after the section data
+	 */
+	public static int unflatten(byte[] data, int off, byte[][] target) {
+		// TODO - fix this total hack
+		off = readSectionData(data, off, target, 0, 4096);
+		off = readSectionData(data, off, target, 2 * 2048, 2048);
+		off = readSectionData(data, off, target, 3 * 2048, 2048);
+		off = readSectionData(data, off, target, 4 * 2048, 2048);
+		return off;
+	}
 
-		return buffer;
+	/**
+	 * Deflates the given packet data
+	 * @param uncompressedData the data to compress
+	 * @return the compressed data, trimmed to its exact length
+	 * @throws IOException if the deflater produced no output
+	 */
+	public static byte[] compress(byte[] uncompressedData) throws IOException {
+		return ChunkCompressor.deflate(uncompressedData, 0, uncompressedData.length);
+	}
+
+	/**
+	 * Lays out and deflates the given sections and biome data, without allocating an intermediate array
+	 * @param data the section data, null entries are skipped
+	 * @param biomeData the biome data, or null if the column is not contiguous
+	 * @return the compressed data, trimmed to its exact length
+	 * @throws IOException if the deflater produced no output
+	 */
+	public static byte[] compress(byte[][] data, byte[] biomeData) throws IOException {
+		int length = getFlatSize(data, biomeData);
+		byte[] uncompressedData = ChunkCompressor.getInputBuffer(length);
+		flatten(data, biomeData, uncompressedData, 0);
+		return ChunkCompressor.deflate(uncompressedData, 0, length);
 	}
 
-	private int readSectionData(byte[] data, int off, byte[][] target, int targetOff, int len) {
+	private static int readSectionData(byte[] data, int off, byte[][] target, int targetOff, int len) {
 		for (byte[] sectionTarget : target) {
 			if (sectionTarget != null) {
 				for (int i = targetOff; i < targetOff + len && i < sectionTarget.length; ++i) {
@@ -228,7 +262,7 @@ public final class ChunkDataCodec extends MessageCodec<ChunkDataMessage> {
 		return off;
 	}
 
-	private int writeSectionData(byte[][] data, int off, byte[] target, int targetOff, int len) {
+	private static int writeSectionData(byte[][] data, int off, byte[] target, int targetOff, int len) {
 		for (byte[] sectionData : data) {
 			if (sectionData != null) {
 				int j = off;
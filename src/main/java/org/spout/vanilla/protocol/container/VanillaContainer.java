@@ -32,12 +32,10 @@ import org.spout.api.geo.cuboid.BlockContainer;
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.geo.cuboid.ContainerFillOrder;
 import org.spout.api.geo.cuboid.LightContainer;
-import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFullState;
 import org.spout.api.util.hashing.NibblePairHashed;
 
-import static org.spout.vanilla.material.VanillaMaterials.getMinecraftData;
-import static org.spout.vanilla.material.VanillaMaterials.getMinecraftId;
+import org.spout.vanilla.material.VanillaMaterials;
 
 public class VanillaContainer implements BlockContainer, LightContainer, BlockComponentContainer {
 	private static final int HALF_VOLUME = Chunk.BLOCKS.HALF_VOLUME;
@@ -45,9 +43,10 @@ public class VanillaContainer implements BlockContainer, LightContainer, BlockCo
 	private int index;
 	private boolean evenLight;
 	private final byte[] fullChunkData;
-	private BlockMaterial material1;
-	private BlockMaterial material2;
+	private int state1;
 	private short nibbleStore;
+	private short lastId = -1;
+	private short[] lastStates;
 	private BlockComponent[] components;
 	private int[] componentX;
 	private int[] componentY;
@@ -65,21 +64,29 @@ public class VanillaContainer implements BlockContainer, LightContainer, BlockCo
 
 	@Override
 	public void setBlockFullState(int state) {
-		short id = BlockFullState.getId(state);
-		short data = BlockFullState.getData(state);
+		int minecraftState = getMinecraftState(BlockFullState.getId(state), BlockFullState.getData(state));
 		if ((index & 1) == 0) {
-			material1 = BlockMaterial.get(id, data);
-			nibbleStore = getMinecraftData(material1, data);
+			state1 = minecraftState;
 		} else {
-			material2 = BlockMaterial.get(id, data);
-			nibbleStore |= getMinecraftData(material2, data) << 4;
-			fullChunkData[index - 1] = (byte) (getMinecraftId(material1) & 0xFF);
-			fullChunkData[index] = (byte) (getMinecraftId(material2) & 0xFF);
-			fullChunkData[(index >> 1) + VOLUME] = (byte) nibbleStore;
+			fullChunkData[index - 1] = (byte) (state1 >> 4);
+			fullChunkData[index] = (byte) (minecraftState >> 4);
+			fullChunkData[(index >> 1) + VOLUME] = (byte) ((state1 & 0xF) | (minecraftState & 0xF) << 4);
 		}
 		index++;
 	}
 
+	private int getMinecraftState(short id, short data) {
+		// Sections are mostly made of a few materials, so the states of the last id are kept at hand
+		if (id != lastId) {
+			lastStates = VanillaMaterials.getMinecraftStates(id);
+			lastId = id;
+		}
+		if (lastStates != null && (data & ~0xF) == 0) {
+			return lastStates[data] & 0xFFFF;
+		}
+		return VanillaMaterials.getMinecraftState(id, data);
+	}
+
 	public void setLightMode(boolean blockLight) {
 		if (blockLight) {
 			index = HALF_VOLUME * 3;
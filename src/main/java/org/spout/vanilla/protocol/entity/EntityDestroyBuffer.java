@@ -0,0 +1,92 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.entity;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.spout.vanilla.protocol.msg.entity.EntityDestroyMessage;
+
+/**
+ * Collects the entities destroyed for a session during a tick, so they can be sent as a few {@link EntityDestroyMessage}s instead of one message per entity.<br>
+ * Region threads add entities while the buffer may be drained, so all access to the buffer is synchronized.
+ */
+public class EntityDestroyBuffer {
+	/**
+	 * The number of ids is sent as a single byte
+	 */
+	public static final int MAX_IDS_PER_MESSAGE = Byte.MAX_VALUE;
+	private final TIntArrayList ids = new TIntArrayList();
+	private final TIntHashSet pending = new TIntHashSet();
+
+	/**
+	 * Queues the destruction of an entity, the same id is only sent once per flush
+	 * @param id of the entity
+	 */
+	public synchronized void add(int id) {
+		if (pending.add(id)) {
+			ids.add(id);
+		}
+	}
+
+	public synchronized boolean contains(int id) {
+		return pending.contains(id);
+	}
+
+	public synchronized boolean isEmpty() {
+		return ids.isEmpty();
+	}
+
+	public synchronized int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Gets the messages destroying all queued entities, in the order they were queued, and empties the buffer
+	 * @return the destroy messages, each holding at most {@link #MAX_IDS_PER_MESSAGE} ids
+	 */
+	public synchronized List<EntityDestroyMessage> drain() {
+		int size = ids.size();
+		if (size == 0) {
+			return Collections.emptyList();
+		}
+		List<EntityDestroyMessage> messages = new ArrayList<EntityDestroyMessage>((size + MAX_IDS_PER_MESSAGE - 1) / MAX_IDS_PER_MESSAGE);
+		for (int offset = 0; offset < size; offset += MAX_IDS_PER_MESSAGE) {
+			messages.add(new EntityDestroyMessage(ids.toArray(offset, Math.min(MAX_IDS_PER_MESSAGE, size - offset))));
+		}
+		clear();
+		return messages;
+	}
+
+	public synchronized void clear() {
+		ids.resetQuick();
+		pending.clear();
+	}
+}
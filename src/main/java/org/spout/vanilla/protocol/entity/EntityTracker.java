@@ -0,0 +1,213 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.entity;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spout.api.geo.discrete.Transform;
+import org.spout.api.protocol.Message;
+import org.spout.api.protocol.reposition.RepositionManager;
+
+import org.spout.vanilla.protocol.msg.entity.pos.EntityRelativePositionMessage;
+import org.spout.vanilla.protocol.msg.entity.pos.EntityRelativePositionYawMessage;
+import org.spout.vanilla.protocol.msg.entity.pos.EntityTeleportMessage;
+import org.spout.vanilla.protocol.msg.entity.pos.EntityYawMessage;
+
+import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyPosition;
+
+/**
+ * Keeps the entity state a session last received, for every entity synced to it.<br>
+ * The state is stored in primitive arrays indexed by a slot per entity. As long as the session is in sync with the shared {@link EntityUpdate}, its messages are reused.
+ * <p/>
+ * Entities are synced by many region threads at once, so all access to the tracker is synchronized.
+ */
+public class EntityTracker {
+	private static final int NO_SLOT = -1;
+	private final TIntIntHashMap slots = new TIntIntHashMap(64, 0.5F, NO_SLOT, NO_SLOT);
+	private final TIntArrayList freeSlots = new TIntArrayList();
+	private int slotCount = 0;
+	private int[] x = new int[64];
+	private int[] y = new int[64];
+	private int[] z = new int[64];
+	private int[] yaw = new int[64];
+	private int[] pitch = new int[64];
+	private int[] headYaw = new int[64];
+	private int[] metadata = new int[64];
+
+	/**
+	 * Starts tracking an entity that was spawned for the session, using the state it was spawned with
+	 * @param update the update of the entity for the tick it was spawned in
+	 */
+	public synchronized void track(EntityUpdate update) {
+		int slot = slots.get(update.getEntityId());
+		if (slot == NO_SLOT) {
+			slot = allocate();
+			slots.put(update.getEntityId(), slot);
+		}
+		x[slot] = update.getLastX();
+		y[slot] = update.getLastY();
+		z[slot] = update.getLastZ();
+		yaw[slot] = update.getLastYaw();
+		pitch[slot] = update.getLastPitch();
+		headYaw[slot] = EntityUpdate.NO_HEAD;
+		metadata[slot] = update.getMetadataVersion();
+	}
+
+	/**
+	 * Stops tracking an entity
+	 * @param entityId the id of the entity
+	 */
+	public synchronized void untrack(int entityId) {
+		int slot = slots.remove(entityId);
+		if (slot != NO_SLOT) {
+			freeSlots.add(slot);
+		}
+	}
+
+	public synchronized boolean isTracked(int entityId) {
+		return slots.containsKey(entityId);
+	}
+
+	public synchronized int getTrackedCount() {
+		return slots.size();
+	}
+
+	public synchronized void clear() {
+		slots.clear();
+		freeSlots.clear();
+		slotCount = 0;
+	}
+
+	/**
+	 * Adds the messages that bring the session up to date with an entity
+	 * @param update the update of the entity
+	 * @param liveTransform the live transform of the entity
+	 * @param rm the reposition manager of the session
+	 * @param force true to send the absolute position of the entity
+	 * @param messages the list to add the messages to
+	 */
+	public synchronized void addUpdateMessages(EntityUpdate update, Transform liveTransform, RepositionManager rm, boolean force, List<Message> messages) {
+		int id = update.getEntityId();
+		if (!slots.containsKey(id)) {
+			track(update);
+		}
+		int slot = slots.get(id);
+
+		final int deltaX = update.getX() - x[slot];
+		final int deltaY = update.getY() - y[slot];
+		final int deltaZ = update.getZ() - z[slot];
+		final int deltaYaw = update.getYaw() - yaw[slot];
+		final int deltaPitch = update.getPitch() - pitch[slot];
+
+		/*
+		 * Two scenarios:
+		 * - The entity moves more than 4 blocks and maybe changes rotation.
+		 * - The entity moves less than 4 blocks and maybe changes rotation.
+		 */
+		if (force || !fitsByte(deltaX) || !fitsByte(deltaY) || !fitsByte(deltaZ)) {
+			final Transform newTransform = rm.convert(liveTransform);
+			final int newX = protocolifyPosition(newTransform.getPosition().getX());
+			final int newY = protocolifyPosition(newTransform.getPosition().getY());
+			final int newZ = protocolifyPosition(newTransform.getPosition().getZ());
+			messages.add(new EntityTeleportMessage(id, newX, newY, newZ, update.getYaw(), update.getPitch()));
+			if (force || update.isLooked()) {
+				messages.add(new EntityYawMessage(id, update.getYaw(), update.getPitch()));
+			}
+		} else {
+			Message movement;
+			if (update.isLastState(x[slot], y[slot], z[slot], yaw[slot], pitch[slot])) {
+				movement = update.getMovement();
+			} else {
+				movement = getRelativeMovement(id, deltaX, deltaY, deltaZ, deltaYaw, deltaPitch, update.getYaw(), update.getPitch(), update.isLooked());
+			}
+			if (movement != null) {
+				messages.add(movement);
+			}
+		}
+		// Rotation changes without a look are never sent, the client is considered up to date either way
+		x[slot] = update.getX();
+		y[slot] = update.getY();
+		z[slot] = update.getZ();
+		yaw[slot] = update.getYaw();
+		pitch[slot] = update.getPitch();
+
+		// Head movement
+		if (update.getHeadYaw() != headYaw[slot] && update.getHeadMessage() != null) {
+			messages.add(update.getHeadMessage());
+			headYaw[slot] = update.getHeadYaw();
+		}
+
+		// Extra metadata
+		if (update.getMetadataVersion() != metadata[slot] && update.getMetadataMessage() != null) {
+			messages.add(update.getMetadataMessage());
+			metadata[slot] = update.getMetadataVersion();
+		}
+	}
+
+	/**
+	 * Gets the message for a movement within the range of the relative messages
+	 * @return the message, or null if there is nothing to send
+	 */
+	static Message getRelativeMovement(int id, int deltaX, int deltaY, int deltaZ, int deltaYaw, int deltaPitch, int yaw, int pitch, boolean looked) {
+		if (deltaX == 0 && deltaY == 0 && deltaZ == 0 && deltaYaw == 0 && deltaPitch == 0) {
+			return null;
+		}
+		if (!fitsByte(deltaX) || !fitsByte(deltaY) || !fitsByte(deltaZ)) {
+			return null;
+		}
+		if (looked) {
+			return new EntityRelativePositionYawMessage(id, deltaX, deltaY, deltaZ, yaw, pitch);
+		} else if (deltaX != 0 || deltaY != 0 || deltaZ != 0) {
+			return new EntityRelativePositionMessage(id, deltaX, deltaY, deltaZ);
+		}
+		return null;
+	}
+
+	private static boolean fitsByte(int delta) {
+		return delta >= Byte.MIN_VALUE && delta <= Byte.MAX_VALUE;
+	}
+
+	private int allocate() {
+		if (!freeSlots.isEmpty()) {
+			return freeSlots.removeAt(freeSlots.size() - 1);
+		}
+		if (slotCount == x.length) {
+			int capacity = slotCount << 1;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			z = Arrays.copyOf(z, capacity);
+			yaw = Arrays.copyOf(yaw, capacity);
+			pitch = Arrays.copyOf(pitch, capacity);
+			headYaw = Arrays.copyOf(headYaw, capacity);
+			metadata = Arrays.copyOf(metadata, capacity);
+		}
+		return slotCount++;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.entity;
+
+import org.spout.api.entity.Entity;
+import org.spout.api.geo.discrete.Transform;
+import org.spout.api.protocol.Message;
+
+import org.spout.vanilla.component.entity.misc.Head;
+import org.spout.vanilla.protocol.msg.entity.pos.EntityHeadYawMessage;
+
+import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyPitch;
+import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyPosition;
+import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyYaw;
+
+/**
+ * The state of an entity during a tick, in protocol units and server coordinates.<br>
+ * It is computed once per entity and tick and shared by all sessions the entity is synced to, together with the messages that are the same for all of them.
+ */
+public class EntityUpdate {
+	/**
+	 * The head yaw of entities without a head
+	 */
+	public static final int NO_HEAD = Integer.MIN_VALUE;
+	private final int entityId;
+	private final long age;
+	private final int lastX, lastY, lastZ, lastYaw, lastPitch;
+	private final int x, y, z, yaw, pitch, headYaw;
+	private final boolean looked;
+	private final Message movement;
+	private final Message headMessage;
+	private final int metadataVersion;
+	private final Message metadataMessage;
+
+	public EntityUpdate(Entity entity, Transform liveTransform, long age, int metadataVersion, Message metadataMessage) {
+		this.entityId = entity.getId();
+		this.age = age;
+		Transform prevTransform = entity.getScene().getTransform();
+		lastX = protocolifyPosition(prevTransform.getPosition().getX());
+		lastY = protocolifyPosition(prevTransform.getPosition().getY());
+		lastZ = protocolifyPosition(prevTransform.getPosition().getZ());
+		lastYaw = protocolifyYaw(prevTransform.getRotation().getYaw());
+		lastPitch = protocolifyPitch(prevTransform.getRotation().getPitch());
+		x = protocolifyPosition(liveTransform.getPosition().getX());
+		y = protocolifyPosition(liveTransform.getPosition().getY());
+		z = protocolifyPosition(liveTransform.getPosition().getZ());
+		yaw = protocolifyYaw(liveTransform.getRotation().getYaw());
+		pitch = protocolifyPitch(liveTransform.getRotation().getPitch());
+		looked = entity.getScene().isRotationDirty();
+
+		Head head = entity.get(Head.class);
+		if (head != null) {
+			headYaw = protocolifyYaw(head.getRotation().getYaw());
+			headMessage = new EntityHeadYawMessage(entityId, headYaw);
+		} else {
+			headYaw = NO_HEAD;
+			headMessage = null;
+		}
+
+		this.movement = EntityTracker.getRelativeMovement(entityId, x - lastX, y - lastY, z - lastZ, yaw - lastYaw, pitch - lastPitch, yaw, pitch, looked);
+		this.metadataVersion = metadataVersion;
+		this.metadataMessage = metadataMessage;
+	}
+
+	public int getEntityId() {
+		return entityId;
+	}
+
+	/**
+	 * Gets the world age the update was computed at
+	 * @return the age
+	 */
+	public long getAge() {
+		return age;
+	}
+
+	/**
+	 * Checks if a session received exactly the state of the entity at the start of the tick
+	 * @return true if the shared movement message applies to the session
+	 */
+	public boolean isLastState(int x, int y, int z, int yaw, int pitch) {
+		return x == lastX && y == lastY && z == lastZ && yaw == lastYaw && pitch == lastPitch;
+	}
+
+	public int getLastX() {
+		return lastX;
+	}
+
+	public int getLastY() {
+		return lastY;
+	}
+
+	public int getLastZ() {
+		return lastZ;
+	}
+
+	public int getLastYaw() {
+		return lastYaw;
+	}
+
+	public int getLastPitch() {
+		return lastPitch;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getZ() {
+		return z;
+	}
+
+	public int getYaw() {
+		return yaw;
+	}
+
+	public int getPitch() {
+		return pitch;
+	}
+
+	/**
+	 * Gets the protocol head yaw
+	 * @return the head yaw, or {@link #NO_HEAD}
+	 */
+	public int getHeadYaw() {
+		return headYaw;
+	}
+
+	public boolean isLooked() {
+		return looked;
+	}
+
+	/**
+	 * Gets the relative movement message for sessions that received the state of the entity at the start of the tick
+	 * @return the message, or null if there is nothing to send
+	 */
+	public Message getMovement() {
+		return movement;
+	}
+
+	public Message getHeadMessage() {
+		return headMessage;
+	}
+
+	/**
+	 * Gets the version of the metadata, which changes every time the metadata changes
+	 * @return the version, 0 if no metadata was ever sent
+	 */
+	public int getMetadataVersion() {
+		return metadataVersion;
+	}
+
+	public Message getMetadataMessage() {
+		return metadataMessage;
+	}
+}
@@ -39,22 +39,14 @@ import org.spout.api.protocol.Message;
 import org.spout.api.protocol.reposition.RepositionManager;
 import org.spout.api.util.Parameter;
 
-import org.spout.vanilla.component.entity.misc.Head;
-import org.spout.vanilla.protocol.ChannelBufferUtils;
 import org.spout.vanilla.protocol.msg.entity.EntityDestroyMessage;
 import org.spout.vanilla.protocol.msg.entity.EntityMetadataMessage;
-import org.spout.vanilla.protocol.msg.entity.pos.EntityHeadYawMessage;
-import org.spout.vanilla.protocol.msg.entity.pos.EntityRelativePositionMessage;
-import org.spout.vanilla.protocol.msg.entity.pos.EntityRelativePositionYawMessage;
-import org.spout.vanilla.protocol.msg.entity.pos.EntityTeleportMessage;
-import org.spout.vanilla.protocol.msg.entity.pos.EntityYawMessage;
-
-import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyPitch;
-import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyPosition;
-import static org.spout.vanilla.protocol.ChannelBufferUtils.protocolifyYaw;
 
 public abstract class VanillaEntityProtocol implements EntityProtocol {
 	private List<Parameter<?>> lastMeta;
+	private int metadataVersion = 0;
+	private Message metadataMessage;
+	private EntityUpdate update;
 
 	public List<Parameter<?>> getUpdateParameters(Entity entity) {
 		return Collections.emptyList();
@@ -65,75 +57,49 @@ public abstract class VanillaEntityProtocol implements EntityProtocol {
 		return Arrays.<Message>asList(new EntityDestroyMessage(new int[]{entity.getId()}));
 	}
 
-	@Override
-	public List<Message> getUpdateMessages(Entity entity, Transform liveTransform, RepositionManager rm, boolean force) {
-		// Movement
-		final Transform prevTransform = rm.convert(entity.getScene().getTransform());
-		final Transform newTransform = rm.convert(liveTransform);
-
-		final boolean looked = entity.getScene().isRotationDirty();
-
-		final int lastX = protocolifyPosition(prevTransform.getPosition().getX());
-		final int lastY = protocolifyPosition(prevTransform.getPosition().getY());
-		final int lastZ = protocolifyPosition(prevTransform.getPosition().getZ());
-		final int lastYaw = protocolifyYaw(prevTransform.getRotation().getYaw());
-		final int lastPitch = protocolifyPitch(prevTransform.getRotation().getPitch());
-
-		final int newX = protocolifyPosition(newTransform.getPosition().getX());
-		final int newY = protocolifyPosition(newTransform.getPosition().getY());
-		final int newZ = protocolifyPosition(newTransform.getPosition().getZ());
-		final int newYaw = protocolifyYaw(newTransform.getRotation().getYaw());
-		final int newPitch = protocolifyPitch(newTransform.getRotation().getPitch());
-
-		final int deltaX = newX - lastX;
-		final int deltaY = newY - lastY;
-		final int deltaZ = newZ - lastZ;
-		final int deltaYaw = newYaw - lastYaw;
-		final int deltaPitch = newPitch - lastPitch;
-
-		final List<Message> messages = new ArrayList<Message>();
-
-		/*
-		 * Two scenarios:
-		 * - The entity moves more than 4 blocks and maybe changes rotation.
-		 * - The entity moves less than 4 blocks and maybe changes rotation.
-		 */
-		if (force || deltaX > 128 || deltaX < -128 || deltaY > 128 || deltaY < -128 || deltaZ > 128 || deltaZ < -128) {
-			messages.add(new EntityTeleportMessage(entity.getId(), newX, newY, newZ, newYaw, newPitch));
-			if (force || looked) {
-				messages.add(new EntityYawMessage(entity.getId(), newYaw, newPitch));
-			}
-		} else if (deltaX != 0 || deltaY != 0 || deltaZ != 0 || deltaYaw != 0 || deltaPitch != 0) {
-			if (looked) {
-				messages.add(new EntityRelativePositionYawMessage(entity.getId(), deltaX, deltaY, deltaZ, newYaw, newPitch));
-			} else if (!prevTransform.getPosition().equals(newTransform.getPosition())) {
-				messages.add(new EntityRelativePositionMessage(entity.getId(), deltaX, deltaY, deltaZ));
+	/**
+	 * Gets the state of the entity for the current tick, which is computed by the first session that syncs the entity during the tick
+	 * @param entity the entity
+	 * @param liveTransform the live transform of the entity
+	 * @return the update
+	 */
+	public synchronized EntityUpdate getUpdate(Entity entity, Transform liveTransform) {
+		long age = entity.getWorld().getAge();
+		EntityUpdate current = update;
+		if (current == null || current.getAge() != age || current.getEntityId() != entity.getId()) {
+			List<Parameter<?>> params = getUpdateParameters(entity);
+			if (!params.isEmpty() && (lastMeta == null || !lastMeta.equals(params))) {
+				metadataVersion++;
+				metadataMessage = new EntityMetadataMessage(entity.getId(), params);
+				lastMeta = params;
 			}
+			current = new EntityUpdate(entity, liveTransform, age, metadataVersion, metadataMessage);
+			update = current;
 		}
+		return current;
+	}
 
-		// Head movement
-		Head head = entity.get(Head.class);
-		if (head != null && head.isDirty()) {
-			final int headYawProt = ChannelBufferUtils.protocolifyYaw(head.getRotation().getYaw());
-			messages.add(new EntityHeadYawMessage(entity.getId(), headYawProt));
-		}
-
-		// Physics
-		//TODO: Actually not used?
-		/*if (physics != null && physics.isLinearVelocityDirty()) {
-			messages.add(new EntityVelocityMessage(entity.getId(), new Vector3(0, 0, 0)));
-		}*/
-
-		// Extra metadata
-		List<Parameter<?>> params = getUpdateParameters(entity);
-		if (lastMeta == null || !lastMeta.equals(params)) {
-			messages.add(new EntityMetadataMessage(entity.getId(), params));
-			lastMeta = params;
-		}
-
+	@Override
+	public List<Message> getUpdateMessages(Entity entity, Transform liveTransform, RepositionManager rm, boolean force) {
+		EntityTracker tracker = new EntityTracker();
+		List<Message> messages = new ArrayList<Message>();
+		getUpdateMessages(entity, liveTransform, rm, force, tracker, messages);
 		return messages;
 	}
 
+	/**
+	 * Adds the messages that bring a session up to date with the entity
+	 * @param entity the entity
+	 * @param liveTransform the live transform of the entity
+	 * @param rm the reposition manager of the session
+	 * @param force true to send the absolute position of the entity
+	 * @param tracker the entity state the session last received
+	 * @param messages the list to add the messages to
+	 */
+	public void getUpdateMessages(Entity entity, Transform liveTransform, RepositionManager rm, boolean force, EntityTracker tracker, List<Message> messages) {
+		tracker.addUpdateMessages(getUpdate(entity, liveTransform), liveTransform, rm, force, messages);
+	}
+
 	public static Vector3 getProtocolVelocity(Vector3 velocity) {
 		final float x = velocity.getX() * 32000;
 		final float y = velocity.getY() * 32000;
@@ -38,6 +38,7 @@ import org.spout.api.protocol.reposition.RepositionManager;
 import org.spout.api.util.Parameter;
 
 import org.spout.vanilla.component.entity.substance.Painting;
+import org.spout.vanilla.protocol.entity.EntityTracker;
 import org.spout.vanilla.protocol.entity.VanillaEntityProtocol;
 import org.spout.vanilla.protocol.msg.entity.EntityMetadataMessage;
 import org.spout.vanilla.protocol.msg.entity.spawn.EntityPaintingMessage;
@@ -54,4 +55,8 @@ public class PaintingEntityProtocol extends VanillaEntityProtocol {
 	public final List<Message> getUpdateMessages(Entity entity, Transform liveTransform, RepositionManager rm, boolean force) {
 		return Collections.emptyList();
 	}
+
+	@Override
+	public final void getUpdateMessages(Entity entity, Transform liveTransform, RepositionManager rm, boolean force, EntityTracker tracker, List<Message> messages) {
+	}
 }
@@ -43,18 +43,23 @@ public final class BlockBulkMessage extends VanillaBlockDataChannelMessage {
 	 * Creates a BlockBulkMessage using the specified data
 	 * @param chunkX The x coordinate of the chunk containing these changes
 	 * @param chunkZ The z coordinate of the chunk containing these changes
-	 * @param coordinates An array of change coordinates. Length should be 3 * types.length, with coordinates in x y z format
+	 * @param coordinates An array of change coordinates. Length should be 3 * types.length, with coordinates in x y z format.
+	 * The x and z coordinates are relative to the chunk, the y coordinate is the world y coordinate
 	 * @param types An array of block types
 	 * @param metadata An array of block metadata. No more than a nibble per entry
 	 */
 	public BlockBulkMessage(int chunkX, int chunkZ, short[] coordinates, short[] types, byte[] metadata, RepositionManager rm) {
 		if (coordinates.length != (types.length * 3) || types.length != metadata.length) {
-			throw new IllegalArgumentException();
+			throw new IllegalArgumentException("Coordinates must have a length of 3 * types.length and types must have the same length as metadata");
 		}
-		// TODO - this message is broken anyway? - need to add reposition support + fix
 		this.chunkX = rm.convertChunkX(chunkX);
 		this.chunkZ = rm.convertChunkZ(chunkZ);
-		this.coordinates = coordinates;
+		this.coordinates = new short[coordinates.length];
+		for (int i = 0; i < coordinates.length; i += 3) {
+			this.coordinates[i] = coordinates[i];
+			this.coordinates[i + 1] = (short) rm.convertY(coordinates[i + 1]);
+			this.coordinates[i + 2] = coordinates[i + 2];
+		}
 		this.types = types;
 		this.metadata = metadata;
 	}
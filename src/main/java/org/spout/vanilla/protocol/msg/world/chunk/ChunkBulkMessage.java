@@ -26,12 +26,14 @@
  */
 package org.spout.vanilla.protocol.msg.world.chunk;
 
-import java.util.Arrays;
+import java.io.IOException;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import org.spout.api.protocol.reposition.RepositionManager;
 import org.spout.api.util.SpoutToStringStyle;
 
+import org.spout.vanilla.protocol.codec.world.chunk.ChunkBulkCodec;
 import org.spout.vanilla.protocol.msg.VanillaBlockDataChannelMessage;
 
 public final class ChunkBulkMessage extends VanillaBlockDataChannelMessage {
@@ -40,17 +42,18 @@ public final class ChunkBulkMessage extends VanillaBlockDataChannelMessage {
 	private final boolean[][] addData;
 	private final byte[][][] data;
 	private final byte[][] biomeData;
+	private volatile byte[] compressedData;
 
 	public ChunkBulkMessage(int[] x, int[] z, boolean[][] hasAdditionalData, byte[][][] data, byte[][] biomeData, RepositionManager rm) {
 		int l = x.length;
 		if (l != z.length || l != hasAdditionalData.length || l != data.length || l != biomeData.length) {
 			throw new IllegalArgumentException("The lengths of all bulk data arrays must be equal");
 		}
-		this.x = Arrays.copyOf(x, x.length);
-		this.z = Arrays.copyOf(z, z.length);
-		for (int i = 0; i < x.length; i++) {
-			x[i] = rm.convertChunkX(x[i]);
-			z[i] = rm.convertChunkZ(z[i]);
+		this.x = new int[l];
+		this.z = new int[l];
+		for (int i = 0; i < l; i++) {
+			this.x[i] = rm.convertChunkX(x[i]);
+			this.z[i] = rm.convertChunkZ(z[i]);
 		}
 		this.addData = hasAdditionalData;
 		this.data = data;
@@ -77,6 +80,26 @@ public final class ChunkBulkMessage extends VanillaBlockDataChannelMessage {
 		return biomeData;
 	}
 
+	/**
+	 * Gets the deflated data of all columns, compressing it on the first call.<br>
+	 * The synchronizer calls this off the network thread so the codec only has to copy the result.
+	 * @return the compressed data
+	 * @throws IOException if the data could not be compressed
+	 */
+	public byte[] getCompressedData() throws IOException {
+		byte[] compressed = compressedData;
+		if (compressed == null) {
+			synchronized (this) {
+				compressed = compressedData;
+				if (compressed == null) {
+					compressed = ChunkBulkCodec.compress(data, biomeData);
+					compressedData = compressed;
+				}
+			}
+		}
+		return compressed;
+	}
+
 	@Override
 	public String toString() {
 		return new ToStringBuilder(this, SpoutToStringStyle.INSTANCE)
@@ -32,6 +32,7 @@ import org.spout.api.protocol.Session;
 import org.spout.api.protocol.reposition.RepositionManager;
 import org.spout.api.util.SpoutToStringStyle;
 
+import org.spout.vanilla.protocol.chunk.ColumnPayload;
 import org.spout.vanilla.protocol.msg.VanillaBlockDataChannelMessage;
 
 public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
@@ -42,12 +43,29 @@ public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
 	private final byte[] biomeData;
 	private final boolean unload;
 	private final Session session;
+	private final ColumnPayload payload;
 
 	public ChunkDataMessage(int x, int z, boolean contiguous, boolean[] hasAdditionalData, byte[][] data, byte[] biomeData, Session session, RepositionManager rm) {
 		this(x, z, contiguous, hasAdditionalData, data, biomeData, false, session, rm);
 	}
 
 	public ChunkDataMessage(int x, int z, boolean contiguous, boolean[] hasAdditionalData, byte[][] data, byte[] biomeData, boolean unload, Session session, RepositionManager rm) {
+		this(x, z, contiguous, hasAdditionalData, data, biomeData, unload, session, null, rm);
+	}
+
+	/**
+	 * Creates a full column message backed by a shared column payload
+	 * @param x the column x coordinate
+	 * @param z the column z coordinate
+	 * @param payload the shared payload, its compressed form is reused by every session that sends it
+	 * @param session the session the message is sent to
+	 * @param rm the reposition manager of the session
+	 */
+	public ChunkDataMessage(int x, int z, ColumnPayload payload, Session session, RepositionManager rm) {
+		this(x, z, true, new boolean[16], payload.getData(), payload.getBiomeData(), false, session, payload, rm);
+	}
+
+	private ChunkDataMessage(int x, int z, boolean contiguous, boolean[] hasAdditionalData, byte[][] data, byte[] biomeData, boolean unload, Session session, ColumnPayload payload, RepositionManager rm) {
 		if (!unload && (hasAdditionalData.length != data.length || data.length != 16)) {
 			throw new IllegalArgumentException("Data and hasAdditionalData must have a length of 16");
 		}
@@ -59,6 +77,7 @@ public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
 		this.biomeData = biomeData;
 		this.unload = unload;
 		this.session = session;
+		this.payload = payload;
 	}
 
 	public int getX() {
@@ -93,6 +112,14 @@ public final class ChunkDataMessage extends VanillaBlockDataChannelMessage {
 		return session;
 	}
 
+	/**
+	 * Gets the shared payload backing this message
+	 * @return the payload, or null if the message data is specific to this message
+	 */
+	public ColumnPayload getPayload() {
+		return payload;
+	}
+
 	@Override
 	public String toString() {
 		return new ToStringBuilder(this, SpoutToStringStyle.INSTANCE)
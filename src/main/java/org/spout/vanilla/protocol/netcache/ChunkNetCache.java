@@ -26,35 +26,43 @@
  */
 package org.spout.vanilla.protocol.netcache;
 
-import com.google.common.collect.Sets;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 import org.spout.vanilla.data.configuration.VanillaConfiguration;
 
 public class ChunkNetCache implements Serializable {
 	private static final long serialVersionUID = 1L;
-	private final AtomicReference<byte[]> partitionCache = new AtomicReference<byte[]>();
-	private final Set<Long> hashSet;
+	private static final int PARTITION_SIZE = 2048;
+	private final PartitionHashSet hashSet;
 	private volatile boolean cacheEnabled = false;
 
 	public ChunkNetCache() {
-		this(Sets.newSetFromMap(new ConcurrentHashMap<Long, Boolean>()));
+		this(VanillaConfiguration.CHUNK_NET_CACHE_SIZE.getInt() * 1024);
 	}
 
-	public ChunkNetCache(Set<Long> hashSet) {
-		this.hashSet = hashSet;
+	/**
+	 * Creates a new cache
+	 * @param maxBytes the maximum amount of memory used to track the partitions of the client
+	 */
+	public ChunkNetCache(int maxBytes) {
+		this.hashSet = new PartitionHashSet(maxBytes);
 	}
 
 	public boolean isCacheEnabled() {
 		return cacheEnabled;
 	}
 
+	/**
+	 * Gets the set of partition hashes the client is known to have
+	 * @return the hash set
+	 */
+	public PartitionHashSet getHashSet() {
+		return hashSet;
+	}
+
 	public void handleCustomPacket(String channel, byte[] array) {
 		if (VanillaConfiguration.USE_CHUNK_CACHE.getBoolean() && channel.equals("ChkCache:setHash")) {
 			cacheEnabled = true;
@@ -72,13 +80,6 @@ public class ChunkNetCache implements Serializable {
 	}
 
 	public byte[] handle(byte[] inflatedBuffer) {
-
-		byte[] partition = partitionCache.getAndSet(null);
-
-		if (partition == null) {
-			partition = new byte[2048];
-		}
-
 		if (!cacheEnabled) {
 			return inflatedBuffer;
 		}
@@ -93,21 +94,21 @@ public class ChunkNetCache implements Serializable {
 
 		byte[] newBuffer = new byte[newLength];
 
+		long[] hashes = new long[2];
+		long crc = 1;
 		for (int i = 0; i < segments; i++) {
-			PartitionChunk.copyFromChunkData(inflatedBuffer, i, partition, inflatedBuffer.length);
-			long hash = PartitionChunk.hash(partition);
-			if (hashSet.add(hash)) {
-				PartitionChunk.copyToChunkData(newBuffer, i, partition, dataLength);
+			int off = i << 11;
+			int len = Math.min(PARTITION_SIZE, dataLength - off);
+			crc = PartitionChunk.hashPartition(inflatedBuffer, off, len, crc, hashes);
+			if (hashSet.checkAndAdd(hashes[0], hashes[1])) {
+				PartitionChunk.setHash(newBuffer, i, hashes[0], dataLength);
 			} else {
-				PartitionChunk.setHash(newBuffer, i, hash, dataLength);
+				System.arraycopy(inflatedBuffer, off, newBuffer, off, len);
 			}
 		}
-		long crc = PartitionChunk.hash(inflatedBuffer);
 		PartitionChunk.setHash(newBuffer, 0, crc, newLength - 13);
 		PartitionChunk.setInt(newBuffer, 0, dataLength, newLength - 5);
 
-		partitionCache.set(partition);
-
 		return newBuffer;
 	}
 }
@@ -101,6 +101,63 @@ public class PartitionChunk {
 		chunkData[p++] = (byte) (hash >> 0);
 	}
 
+	private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME64_3 = 0x165667B19E3779F9L;
+	private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+	/**
+	 * Hashes a partition of chunk data in a single pass.<br>
+	 * The partition is hashed as if it was padded with zeros to a full partition, which gives the same client hash as {@link #hash(byte[])} of a copy of the partition.
+	 * @param a the chunk data
+	 * @param off the offset of the partition
+	 * @param len the number of bytes of the partition present in the data
+	 * @param bufferHash the running hash of the whole buffer up to the partition
+	 * @param hashes receives the client hash of the partition at index 0, and a 64 bit xxHash style hash of its content at index 1
+	 * @return the running hash of the whole buffer, including the partition
+	 */
+	public static long hashPartition(final byte[] a, final int off, final int len, long bufferHash, final long[] hashes) {
+		long h = 1;
+		long content = PRIME64_5 + len;
+		int i = off;
+		int end = off + len;
+		for (; i + 8 <= end; i += 8) {
+			long lane = 0;
+			for (int j = 7; j >= 0; j--) {
+				lane = lane << 8 | ((long) a[i + j] & 0xFFL);
+			}
+			for (int j = 0; j < 8; j++) {
+				long b = (long) a[i + j];
+				h += (h << 5) + b;
+				bufferHash += (bufferHash << 5) + b;
+			}
+			lane *= PRIME64_2;
+			lane = Long.rotateLeft(lane, 31) * PRIME64_1;
+			content ^= lane;
+			content = Long.rotateLeft(content, 27) * PRIME64_1 + PRIME64_4;
+		}
+		for (; i < end; i++) {
+			long b = (long) a[i];
+			h += (h << 5) + b;
+			bufferHash += (bufferHash << 5) + b;
+			content ^= (b & 0xFFL) * PRIME64_5;
+			content = Long.rotateLeft(content, 11) * PRIME64_1;
+		}
+		for (int pad = len; pad < 2048; pad++) {
+			h += h << 5;
+		}
+		content ^= content >>> 33;
+		content *= PRIME64_2;
+		content ^= content >>> 29;
+		content *= PRIME64_3;
+		content ^= content >>> 32;
+
+		hashes[0] = h;
+		hashes[1] = content;
+		return bufferHash;
+	}
+
 	public static long hash(final byte[] a) {
 		return hash(a, 0, a.length);
 	}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.netcache;
+
+import java.io.Serializable;
+
+/**
+ * A bounded set of the partition hashes a client is known to have, built on a primitive open addressing table.<br>
+ * Along with the hash the client uses, a stronger hash of the partition content is kept for the partitions sent during the session, so a collision of the client hash resends the data instead of corrupting the chunk.
+ * When the set is full, entries are evicted with the clock approximation of least recently used.
+ */
+public class PartitionHashSet implements Serializable {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The number of bytes used by a single slot of the table
+	 */
+	public static final int BYTES_PER_SLOT = 8 + 8 + 1;
+	/**
+	 * The content hash of partitions the client announced itself, which are trusted until they are first sent
+	 */
+	private static final long UNKNOWN_CONTENT = 0;
+	private static final byte EMPTY = 0;
+	private static final byte USED = 1;
+	private static final byte REFERENCED = 2;
+	private final long[] keys;
+	private final long[] contents;
+	private final byte[] states;
+	private final int mask;
+	private final int shift;
+	private final int maxSize;
+	private int size = 0;
+	private int hand = 0;
+	private long evictions = 0;
+
+	/**
+	 * Creates a new set
+	 * @param maxBytes the maximum amount of memory the table may use
+	 */
+	public PartitionHashSet(int maxBytes) {
+		int slots = Integer.highestOneBit(Math.max(16, maxBytes / BYTES_PER_SLOT));
+		keys = new long[slots];
+		contents = new long[slots];
+		states = new byte[slots];
+		mask = slots - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(slots);
+		maxSize = slots - (slots >> 2);
+	}
+
+	/**
+	 * Adds a hash the client announced to have
+	 * @param hash the client hash
+	 */
+	public synchronized void add(long hash) {
+		if (find(hash) < 0) {
+			insert(hash, UNKNOWN_CONTENT);
+		}
+	}
+
+	/**
+	 * Checks if the client has a partition, and records that it will have it otherwise
+	 * @param hash the client hash of the partition
+	 * @param content the content hash of the partition
+	 * @return true if the client has the partition, false if it has to be sent
+	 */
+	public synchronized boolean checkAndAdd(long hash, long content) {
+		int slot = find(hash);
+		if (slot < 0) {
+			insert(hash, content);
+			return false;
+		}
+		states[slot] = REFERENCED;
+		long known = contents[slot];
+		contents[slot] = content;
+		return known == UNKNOWN_CONTENT || known == content;
+	}
+
+	public synchronized boolean contains(long hash) {
+		return find(hash) >= 0;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the maximum number of hashes kept before entries are evicted
+	 * @return the maximum size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gets the amount of memory used by the table, which does not change with its size
+	 * @return the size in bytes
+	 */
+	public int getMemoryUsage() {
+		return keys.length * BYTES_PER_SLOT;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < states.length; i++) {
+			states[i] = EMPTY;
+		}
+		size = 0;
+	}
+
+	private int getHome(long hash) {
+		// The client hash is weak in its low bits, so the slot is taken from the high bits of a multiplicative hash
+		return (int) ((hash * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	private int find(long hash) {
+		int slot = getHome(hash);
+		while (states[slot] != EMPTY) {
+			if (keys[slot] == hash) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void insert(long hash, long content) {
+		if (size >= maxSize) {
+			evict();
+		}
+		int slot = getHome(hash);
+		while (states[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = hash;
+		contents[slot] = content;
+		states[slot] = USED;
+		size++;
+	}
+
+	private void evict() {
+		while (true) {
+			if (states[hand] == REFERENCED) {
+				states[hand] = USED;
+			} else if (states[hand] == USED) {
+				remove(hand);
+				evictions++;
+				return;
+			}
+			hand = (hand + 1) & mask;
+		}
+	}
+
+	private void remove(int slot) {
+		// Shift the following entries back, so no probe sequence is broken by the new gap
+		int gap = slot;
+		int i = (slot + 1) & mask;
+		while (states[i] != EMPTY) {
+			int home = getHome(keys[i]);
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				contents[gap] = contents[i];
+				states[gap] = states[i];
+				gap = i;
+			}
+			i = (i + 1) & mask;
+		}
+		states[gap] = EMPTY;
+		size--;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.explosion;
+
+import org.spout.api.event.Cause;
+import org.spout.api.geo.discrete.Point;
+
+/**
+ * A single explosion waiting to be executed by an {@link ExplosionModel}
+ */
+public class Explosion {
+	private final Point position;
+	private final float size;
+	private final boolean fire;
+	private final Cause<?> cause;
+
+	public Explosion(Point position, float size, boolean fire, Cause<?> cause) {
+		this.position = position;
+		this.size = size;
+		this.fire = fire;
+		this.cause = cause;
+	}
+
+	/**
+	 * Gets the origin of this explosion
+	 * @return the position
+	 */
+	public Point getPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets the size of this explosion
+	 * @return the size
+	 */
+	public float getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets whether this explosion sets the air it passes on fire
+	 * @return True if it makes fire, False if not
+	 */
+	public boolean makesFire() {
+		return fire;
+	}
+
+	/**
+	 * Gets the cause of this explosion
+	 * @return the cause
+	 */
+	public Cause<?> getCause() {
+		return cause;
+	}
+}
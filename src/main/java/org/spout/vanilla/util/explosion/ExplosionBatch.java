@@ -0,0 +1,275 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.explosion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import org.spout.api.event.Cause;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+
+import org.spout.vanilla.material.VanillaBlockMaterial;
+import org.spout.vanilla.material.VanillaMaterials;
+
+/**
+ * The scratch state of the explosions executed together by a single thread.<br>
+ * Blocks are loaded once and stored as primitives, keyed by their position relative to the chunk of the first explosion.
+ * Keys are ordered by chunk first, so the destroyed blocks can be applied chunk by chunk once all explosions are done.
+ * Every destroyed block remembers the cause of the explosion that destroyed it first.
+ * <p/>
+ * A batch is confined to one thread and is reused for every explosion of that thread.
+ */
+public class ExplosionBatch {
+	private static final int NO_BLOCK = -1;
+	private static final byte DESTROY = 0x1;
+	private static final byte FIRE = 0x2;
+	private final TLongIntHashMap blocks = new TLongIntHashMap(512, 0.5f, Long.MIN_VALUE, NO_BLOCK);
+	private final Random random = new Random();
+	private final ExplosionOcclusion occlusion = new ExplosionOcclusion();
+	private final List<Cause<?>> causes = new ArrayList<Cause<?>>();
+	private long[] keys = new long[512];
+	private float[] damageFactors = new float[512];
+	private byte[] flags = new byte[512];
+	private int[] owners = new int[512];
+	private long[] edits = new long[128];
+	private float[] sourceDamage = new float[0];
+	private int size, editCount, cause;
+	private World world;
+	private int originX, originY, originZ;
+
+	/**
+	 * Starts a new batch of explosions, clearing all previously loaded blocks
+	 * @param world the explosions happen in
+	 * @param x coordinate of the first explosion
+	 * @param y coordinate of the first explosion
+	 * @param z coordinate of the first explosion
+	 */
+	public void begin(World world, int x, int y, int z) {
+		this.world = world;
+		// The origin is snapped to a chunk, so the chunk bits of a key match the world chunk of the block
+		this.originX = x & ~Chunk.BLOCKS.MASK;
+		this.originY = y & ~Chunk.BLOCKS.MASK;
+		this.originZ = z & ~Chunk.BLOCKS.MASK;
+		this.blocks.clear();
+		this.size = 0;
+		this.editCount = 0;
+		this.causes.clear();
+		this.cause = -1;
+	}
+
+	/**
+	 * Selects the cause of the blocks destroyed from now on, used when the next explosion of this batch starts
+	 * @param cause of the explosion
+	 */
+	public void select(Cause<?> cause) {
+		this.causes.add(cause);
+		this.cause = this.causes.size() - 1;
+	}
+
+	/**
+	 * Gets the random to use for the explosions of this batch
+	 * @return the random
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Gets the occlusion used to damage the entities around the explosions of this batch
+	 * @return the occlusion
+	 */
+	public ExplosionOcclusion getOcclusion() {
+		return occlusion;
+	}
+
+	/**
+	 * Gets the damage that reached each explosion slot, cleared for a new explosion
+	 * @param slots the number of slots of the explosion model
+	 * @return the damage array, indexed by slot index
+	 */
+	public float[] getSourceDamage(int slots) {
+		if (sourceDamage.length < slots) {
+			sourceDamage = new float[slots];
+		} else {
+			Arrays.fill(sourceDamage, 0, slots, 0f);
+		}
+		return sourceDamage;
+	}
+
+	/**
+	 * Loads a block into this batch, reading its material and damage factor from the world if not loaded before
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the index of the block in this batch
+	 */
+	public int load(int x, int y, int z) {
+		long key = key(x - originX, y - originY, z - originZ);
+		int index = blocks.get(key);
+		if (index != NO_BLOCK) {
+			return index;
+		}
+		if (size == keys.length) {
+			int length = size << 1;
+			keys = Arrays.copyOf(keys, length);
+			damageFactors = Arrays.copyOf(damageFactors, length);
+			flags = Arrays.copyOf(flags, length);
+			owners = Arrays.copyOf(owners, length);
+		}
+		index = size++;
+		BlockMaterial material = world.getBlockMaterial(x, y, z);
+		float damageFactor = 0f;
+		if (material != VanillaMaterials.AIR && material instanceof VanillaBlockMaterial) {
+			damageFactor = (((VanillaBlockMaterial) material).getResistance() + 0.3f) * 0.3f;
+			damageFactor *= (2.0f + random.nextFloat()) / 3.0f;
+		}
+		keys[index] = key;
+		damageFactors[index] = damageFactor;
+		flags[index] = 0;
+		blocks.put(key, index);
+		return index;
+	}
+
+	/**
+	 * Gets the damage an explosion loses when passing a loaded block
+	 * @param index of the block
+	 * @return the damage factor
+	 */
+	public float getDamageFactor(int index) {
+		return damageFactors[index];
+	}
+
+	/**
+	 * Marks a loaded block as destroyed
+	 * @param index of the block
+	 * @param fire whether the explosion sets the block on fire if it is air
+	 */
+	public void destroy(int index, boolean fire) {
+		byte flag = flags[index];
+		if ((flag & DESTROY) == 0) {
+			if (editCount == edits.length) {
+				edits = Arrays.copyOf(edits, editCount << 1);
+			}
+			edits[editCount++] = keys[index];
+			owners[index] = cause;
+			flag |= DESTROY;
+		}
+		if (fire) {
+			flag |= FIRE;
+		}
+		flags[index] = flag;
+	}
+
+	/**
+	 * Finishes a single explosion of this batch<br>
+	 * Blocks destroyed by it no longer slow down the explosions that follow, as if they already were air
+	 */
+	public void settle() {
+		for (int i = 0; i < editCount; i++) {
+			damageFactors[blocks.get(edits[i])] = 0f;
+		}
+	}
+
+	/**
+	 * Gets the number of blocks destroyed in this batch
+	 * @return the destroyed block count
+	 */
+	public int getDestroyedCount() {
+		return editCount;
+	}
+
+	/**
+	 * Destroys all blocks marked as destroyed, one chunk at a time, each with the cause of the explosion that destroyed it
+	 */
+	public void apply() {
+		Arrays.sort(edits, 0, editCount);
+		Chunk chunk = null;
+		long chunkKey = 0;
+		for (int i = 0; i < editCount; i++) {
+			long key = edits[i];
+			int x = originX + getX(key);
+			int y = originY + getY(key);
+			int z = originZ + getZ(key);
+			if (chunk == null || (key >>> 12) != chunkKey) {
+				chunk = world.getChunkFromBlock(x, y, z);
+				chunkKey = key >>> 12;
+			}
+			int index = blocks.get(key);
+			BlockMaterial material = chunk.getBlockMaterial(x, y, z);
+			if (material == VanillaMaterials.AIR) {
+				if ((flags[index] & FIRE) != 0 && random.nextInt(3) == 0 && world.getBlockMaterial(x, y - 1, z).isSolid()) {
+					chunk.getBlock(x, y, z).setMaterial(VanillaMaterials.FIRE);
+				}
+			} else if (material != VanillaMaterials.FIRE) {
+				Block block = chunk.getBlock(x, y, z);
+				Cause<?> owner = owners[index] < 0 ? null : causes.get(owners[index]);
+				//TODO: Item dropping yield?
+				if (material instanceof VanillaBlockMaterial) {
+					((VanillaBlockMaterial) material).onIgnite(block, owner);
+				} else {
+					material.destroy(block, owner);
+				}
+				block.setMaterial(VanillaMaterials.AIR);
+			}
+		}
+		editCount = 0;
+	}
+
+	/**
+	 * Releases the world and causes of this batch, so they are not kept alive by the thread
+	 */
+	public void end() {
+		this.world = null;
+		this.causes.clear();
+	}
+
+	/**
+	 * Packs a relative block position, with the chunk in the upper 51 bits and the block within the chunk in the lower 12
+	 */
+	private static long key(int x, int y, int z) {
+		return ((long) ((x >> 4) & 0x1FFFF) << 46) | ((long) ((y >> 4) & 0x1FFFF) << 29) | ((long) ((z >> 4) & 0x1FFFF) << 12) | ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+	}
+
+	private static int getX(long key) {
+		return (((int) (key >>> 46) << 15) >> 11) | (int) (key & 0xF);
+	}
+
+	private static int getY(long key) {
+		return (((int) (key >>> 29) << 15) >> 11) | (int) ((key >>> 8) & 0xF);
+	}
+
+	private static int getZ(long key) {
+		return (((int) (key >>> 12) << 15) >> 11) | (int) ((key >>> 4) & 0xF);
+	}
+}
@@ -82,6 +82,17 @@ public class ExplosionLayer {
 		this.slots = this.tmpSlotMap.values().toArray(new ExplosionSlot[0]);
 	}
 
+	/**
+	 * Finalizes the 'next' of all slots in this layer to lead to the layer created from it<br>
+	 * After this is called no new slots can be created in this layer
+	 */
+	public void link() {
+		for (ExplosionSlot slot : this.slots) {
+			slot.finish();
+		}
+		this.tmpSlotMap = null;
+	}
+
 	/**
 	 * Creates a new slot using a given direction
 	 * @param dx is the delta x motion
@@ -96,7 +107,7 @@ public class ExplosionLayer {
 		Vector3 pos = new Vector3(x, y, z);
 		ExplosionSlot slot = this.tmpSlotMap.get(pos);
 		if (slot == null) {
-			slot = new ExplosionSlot(this.model.getBlock(pos));
+			slot = new ExplosionSlot(this.model.getBlock(pos), this.model.nextSlotIndex());
 			this.tmpSlotMap.put(pos, slot);
 		}
 		return slot;
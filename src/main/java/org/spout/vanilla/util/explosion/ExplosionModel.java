@@ -26,47 +26,47 @@
  */
 package org.spout.vanilla.util.explosion;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import org.spout.api.entity.Entity;
 import org.spout.api.event.Cause;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.geo.discrete.Point;
-import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
-import org.spout.api.math.GenericMath;
-import org.spout.api.math.Vector3;
-import org.spout.api.util.BlockIterator;
 
 import org.spout.vanilla.component.entity.living.neutral.Human;
 import org.spout.vanilla.component.entity.misc.Health;
 import org.spout.vanilla.component.entity.substance.Item;
 import org.spout.vanilla.data.effect.store.GeneralEffects;
-import org.spout.vanilla.material.VanillaBlockMaterial;
 import org.spout.vanilla.material.VanillaMaterials;
 
+/**
+ * Executes explosions without any shared mutable state, so explosions can be executed by multiple threads at once.<br>
+ * Explosions executed together share a single {@link ExplosionBatch}: every block is loaded once and all destroyed blocks are applied chunk by chunk.
+ */
 public abstract class ExplosionModel {
-	private List<ExplosionBlockSlot> blockList = new ArrayList<ExplosionBlockSlot>();
-	private Map<Vector3, ExplosionBlockSlot> blocks = new HashMap<Vector3, ExplosionBlockSlot>();
-	public List<Block> blocksToDestroy = new ArrayList<Block>(100);
-
-	public synchronized ExplosionBlockSlot getBlock(Vector3 position) {
-		ExplosionBlockSlot block = this.blocks.get(position);
-		if (block == null) {
-			block = new ExplosionBlockSlot(position);
-			this.blocks.put(position, block);
-			this.blockList.add(block);
+	private static final ThreadLocal<ExplosionBatch> batches = new ThreadLocal<ExplosionBatch>() {
+		@Override
+		protected ExplosionBatch initialValue() {
+			return new ExplosionBatch();
 		}
-		return block;
-	}
+	};
 
-	public synchronized List<ExplosionBlockSlot> getBlocks() {
-		return this.blockList;
-	}
+	/**
+	 * Marks all blocks damaged by a single explosion as destroyed in the batch
+	 * @param batch to load blocks from and mark them in
+	 * @param explosion to march
+	 */
+	protected abstract void march(ExplosionBatch batch, Explosion explosion);
+
+	/**
+	 * Gets the furthest distance from its origin at which an explosion of a given size can destroy blocks
+	 * @param size of the explosion
+	 * @return the radius
+	 */
+	public abstract float getRadius(float size);
 
 	/**
 	 * Calculated with the following:
@@ -75,120 +75,145 @@ public abstract class ExplosionModel {
 	 * p: Location of entity for impact to be calculated for
 	 * s: The damage radius
 	 * di: distance from origin
-	 * de: density of non-air blocks from the position to the origin
+	 * de: exposure of the entity, the density of non-solid blocks from samples of the entity to the origin
 	 * i: impact of explosion
 	 * <p/>
 	 * 1. Calculate impact with <code>i = (1 - di / size) * de</code>
 	 * 2. Return <code>(int) ((i * i + i) / 2 * 8 * size + 1)</code>
-	 * <p/>
-	 * Example:
-	 * M
-	 * @param o
-	 * @param p
-	 * @param s
-	 * @return
+	 * @param o origin of the explosion
+	 * @param p position of the entity
+	 * @param s damage radius
+	 * @param de exposure of the entity
+	 * @return the damage
 	 */
-	private int getDamage(Point o, Point p, double s) {
+	private int getDamage(Point o, Point p, double s, float de) {
 		double di = p.distance(o);
-		int amt = 0, solid = 0;
-		BlockIterator iterator = new BlockIterator(o, p);
-		while(iterator.hasNext()) {
-			amt++;
-			BlockMaterial next = iterator.next().getMaterial();
-			if (next.isSolid()) {
-				solid++;
-			}
-		}
-		double density;
-		if (amt == 0) {
-			density = 1;
-		} else {
-			density = (double)(amt - solid) / (double)amt;
-		}
-		double i = (1 - di / s) * density;
+		double i = (1 - di / s) * de;
 		return (int) ((i * i + i) / 2 * 8 * s + 1);
 	}
 
-	public synchronized void execute(Point position, float size, boolean fire, boolean damage, boolean ignoreWater, Cause<?> cause) {
-		//reset all blocks for the next explosion
-		for (ExplosionBlockSlot block : this.blockList) {
-			block.isSet = false;
+	/**
+	 * Executes several explosions of the same world together<br>
+	 * Overlapping explosions load and destroy the blocks they share only once, and the blocks destroyed by one explosion no longer stop the explosions after it.
+	 * @param explosions to execute, all in the same world
+	 * @param damage whether entities within range are damaged
+	 * @param ignoreWater whether explosions touching water still destroy blocks
+	 */
+	public void execute(List<Explosion> explosions, boolean damage, boolean ignoreWater) {
+		if (explosions.isEmpty()) {
+			return;
 		}
-
-		//TODO: Block Event?
-
-		// See if it's touching water
-		boolean breakBlocks = true;
-		if (!ignoreWater) {
-			Block block = position.getBlock();
-			for (BlockFace face : BlockFaces.NESWBT) {
-				if (block.translate(face).isMaterial(VanillaMaterials.WATER)) {
-					breakBlocks = false;
-					break;
+		Point first = explosions.get(0).getPosition();
+		ExplosionBatch batch = batches.get();
+		batch.begin(first.getWorld(), first.getBlockX(), first.getBlockY(), first.getBlockZ());
+		try {
+			for (Explosion explosion : explosions) {
+				//TODO: Block Event?
+				if (ignoreWater || !isTouchingWater(explosion.getPosition())) {
+					batch.select(explosion.getCause());
+					march(batch, explosion);
+					batch.settle();
 				}
 			}
-		}
 
-		// perform block changes
-		if (breakBlocks) {
-			BlockMaterial material;
-			for (Block block : this.blocksToDestroy) {
-				material = block.getMaterial();
-
-				if (material == VanillaMaterials.AIR) {
-					if (fire) {
-						BlockMaterial below = block.translate(BlockFace.BOTTOM).getMaterial();
-						if (below.isSolid() && GenericMath.getRandom().nextInt(3) == 0) {
-							block.setMaterial(VanillaMaterials.FIRE);
-						}
-					}
-				} else if (material != VanillaMaterials.FIRE) {
-					//TODO: Item dropping yield?
-					if (material instanceof VanillaBlockMaterial) {
-						((VanillaBlockMaterial) material).onIgnite(block, cause);
-					} else {
-						material.destroy(block, cause);
-					}
-					block.setMaterial(VanillaMaterials.AIR);
-				}
-			}
+			// perform block changes
+			batch.apply();
+		} finally {
+			batch.end();
 		}
 
 		// Damage entities within radius
 		if (damage) {
-			size *= 2;
-			for (Entity entity : position.getWorld().getNearbyEntities(position, (int) size)) {
-				if (entity.get(Item.class) != null) {
-					entity.remove();
-					continue;
-				}
+			damageEntities(batch.getOcclusion(), explosions);
+		}
+
+		for (Explosion explosion : explosions) {
+			//explosion packet (TODO: Limit the amount sent per tick? Don't want to lag-out clients!)
+			GeneralEffects.EXPLOSION.playGlobal(explosion.getPosition(), explosion.getSize() * (damage ? 2 : 1));
+		}
+	}
 
-				// Check if entity can be damaged
-				Health health = entity.get(Health.class);
-				if (health == null) {
-					continue;
+	private void damageEntities(ExplosionOcclusion occlusion, List<Explosion> explosions) {
+		// The area all explosions can damage entities in
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for (Explosion explosion : explosions) {
+			Point position = explosion.getPosition();
+			int range = (int) (explosion.getSize() * 2) + 2;
+			minX = Math.min(minX, position.getBlockX() - range);
+			minY = Math.min(minY, position.getBlockY() - range);
+			minZ = Math.min(minZ, position.getBlockZ() - range);
+			maxX = Math.max(maxX, position.getBlockX() + range);
+			maxY = Math.max(maxY, position.getBlockY() + range);
+			maxZ = Math.max(maxZ, position.getBlockZ() + range);
+		}
+		occlusion.begin(explosions.get(0).getPosition().getWorld(), minX, minY, minZ, maxX, maxY, maxZ);
+		try {
+			for (int e = 0; e < explosions.size(); e++) {
+				Point position = explosions.get(e).getPosition();
+				float size = explosions.get(e).getSize() * 2;
+
+				// Explosions in the same block share their exposures
+				int originId = e;
+				for (int o = 0; o < e; o++) {
+					Point other = explosions.get(o).getPosition();
+					if (other.getBlockX() == position.getBlockX() && other.getBlockY() == position.getBlockY() && other.getBlockZ() == position.getBlockZ()) {
+						originId = o;
+						break;
+					}
 				}
-				Human human = entity.get(Human.class);
-				if (human != null && human.isCreative()) {
-					continue;
+
+				for (Entity entity : position.getWorld().getNearbyEntities(position, (int) size)) {
+					if (entity.isRemoved()) {
+						continue;
+					}
+					if (entity.get(Item.class) != null) {
+						entity.remove();
+						continue;
+					}
+
+					// Check if entity can be damaged
+					Health health = entity.get(Health.class);
+					if (health == null) {
+						continue;
+					}
+					Human human = entity.get(Human.class);
+					if (human != null && human.isCreative()) {
+						continue;
+					}
+					Point entityPosition = entity.getScene().getPosition();
+					float exposure = occlusion.getExposure(position, originId, entity.getId(), entityPosition);
+					health.damage(getDamage(position, entityPosition, size, exposure));
 				}
-				health.damage(getDamage(position, entity.getScene().getPosition(), size));
 			}
+		} finally {
+			occlusion.end();
 		}
+	}
+
+	private static boolean isTouchingWater(Point position) {
+		Block block = position.getBlock();
+		for (BlockFace face : BlockFaces.NESWBT) {
+			if (block.translate(face).isMaterial(VanillaMaterials.WATER)) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-		//explosion packet (TODO: Limit the amount sent per tick? Don't want to lag-out clients!)
-		GeneralEffects.EXPLOSION.playGlobal(position, size);
+	public void execute(Point position, float size, boolean fire, boolean damage, boolean ignoreWater, Cause<?> cause) {
+		execute(Collections.singletonList(new Explosion(position, size, fire, cause)), damage, ignoreWater);
 	}
 
-	public synchronized void execute(Point pos, float size, boolean fire, boolean damage, Cause<?> cause) {
+	public void execute(Point pos, float size, boolean fire, boolean damage, Cause<?> cause) {
 		execute(pos, size, fire, damage, false, cause);
 	}
 
-	public synchronized void execute(Point pos, float size, boolean fire, Cause<?> cause) {
+	public void execute(Point pos, float size, boolean fire, Cause<?> cause) {
 		execute(pos, size, fire, true, cause);
 	}
 
-	public synchronized void execute(Point pos, float size, Cause<?> cause) {
+	public void execute(Point pos, float size, Cause<?> cause) {
 		execute(pos, size, false, cause);
 	}
 }
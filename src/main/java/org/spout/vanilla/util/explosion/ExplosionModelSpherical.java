@@ -26,110 +26,181 @@
  */
 package org.spout.vanilla.util.explosion;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.spout.api.event.Cause;
-import org.spout.api.geo.World;
-import org.spout.api.geo.cuboid.Block;
 import org.spout.api.geo.discrete.Point;
-import org.spout.api.math.GenericMath;
+import org.spout.api.math.Vector3;
 
 import org.spout.vanilla.material.VanillaMaterials;
 
+/**
+ * Marches an explosion outwards along rays, layer by layer, losing damage on every block it passes<br>
+ * The layers and slots only describe the shape of the rays and are shared by all explosions.
+ * They are created once, as far as the largest explosion so far reached. Growing links the last layer to the new layers,
+ * so an explosion only follows the links within the layers it started with, and sizes its damage by the slot count of those layers.
+ */
 public class ExplosionModelSpherical extends ExplosionModel {
+	private static final float MAX_DAMAGE_FACTOR = 1.3f;
+	private static final float LAYER_DAMAGE = 0.225f;
+	private static final float LAYER_DISTANCE = 0.3f;
+
 	public ExplosionModelSpherical() {
-		this.layers.add(new ExplosionLayer(this));
-		this.root = this.layers.get(0).slots[0];
+		synchronized (this) {
+			this.shape = new Shape(new ExplosionLayer[]{new ExplosionLayer(this)}, this.slotCount);
+		}
+		this.root = this.shape.layers[0].slots[0];
 	}
 
-	private List<ExplosionLayer> layers = new ArrayList<ExplosionLayer>();
-	private ExplosionSlot root;
+	private final Map<Vector3, ExplosionBlockSlot> blocks = new HashMap<Vector3, ExplosionBlockSlot>();
+	private volatile Shape shape;
+	private int slotCount;
+	private final ExplosionSlot root;
+
+	/**
+	 * Gets the block slot at an offset, creating it if needed<br>
+	 * Only used while creating new layers.
+	 */
+	ExplosionBlockSlot getBlock(Vector3 position) {
+		ExplosionBlockSlot block = this.blocks.get(position);
+		if (block == null) {
+			block = new ExplosionBlockSlot(position);
+			this.blocks.put(position, block);
+		}
+		return block;
+	}
+
+	/**
+	 * Gets the index for a new slot<br>
+	 * Only used while creating new layers.
+	 */
+	int nextSlotIndex() {
+		return this.slotCount++;
+	}
 
-	public synchronized ExplosionLayer getLastLayer() {
-		return this.layers.get(this.layers.size() - 1);
+	/**
+	 * Gets the number of layers an explosion of the given size can reach
+	 * @param size of the explosion
+	 * @return the layer count
+	 */
+	public static int getLayerCount(float size) {
+		return (int) (size * MAX_DAMAGE_FACTOR / LAYER_DAMAGE) + 2;
 	}
 
-	public synchronized ExplosionLayer getLayer(int index) {
-		return this.layers.get(index);
+	/**
+	 * Gets all layers, creating new layers if less than the count requested exist
+	 * @param count of layers needed
+	 * @return the layers, at least count long
+	 */
+	public ExplosionLayer[] getLayers(int count) {
+		return this.getShape(count).layers;
+	}
+
+	/**
+	 * Gets the layers along with the number of slots in them, creating new layers if less than the count requested exist
+	 * @param count of layers needed
+	 * @return the shape, with at least count layers
+	 */
+	private Shape getShape(int count) {
+		Shape current = this.shape;
+		if (current.layers.length >= count) {
+			return current;
+		}
+		synchronized (this) {
+			current = this.shape;
+			if (current.layers.length < count) {
+				ExplosionLayer[] grown = Arrays.copyOf(current.layers, count);
+				for (int i = current.layers.length; i < count; i++) {
+					grown[i] = new ExplosionLayer(grown[i - 1]);
+					grown[i - 1].link();
+				}
+				this.shape = current = new Shape(grown, this.slotCount);
+			}
+		}
+		return current;
 	}
 
-	public synchronized void execute(Point position, float size) {
+	@Override
+	public float getRadius(float size) {
+		return (getLayerCount(size) - 1) * LAYER_DISTANCE;
+	}
+
+	public void execute(Point position, float size) {
 		this.execute(position, size, VanillaMaterials.TNT.toCause(position));
 	}
 
-	public synchronized void execute(Point position, float size, Cause<?> cause) {
+	@Override
+	public void execute(Point position, float size, Cause<?> cause) {
 		this.execute(position, size, false, cause);
 	}
 
-	public synchronized void execute(Point position, boolean fire, float size) {
+	public void execute(Point position, boolean fire, float size) {
 		this.execute(position, size, fire, VanillaMaterials.TNT.toCause(position));
 	}
 
-	public synchronized void execute(Point position, float size, boolean fire, Cause<?> cause) {
+	@Override
+	protected void march(ExplosionBatch batch, Explosion explosion) {
+		Point position = explosion.getPosition();
 		int xoff = position.getBlockX();
 		int yoff = position.getBlockY();
 		int zoff = position.getBlockZ();
-		World world = position.getWorld();
-
-		this.blocksToDestroy.clear();
-		this.root.sourcedamage = size * (0.7F + (float) Math.random() * 0.6F);
+		boolean fire = explosion.makesFire();
+		Shape shape = this.getShape(getLayerCount(explosion.getSize()));
+		ExplosionLayer[] layers = shape.layers;
+		float[] sourcedamage = batch.getSourceDamage(shape.slotCount);
+		sourcedamage[this.root.index] = explosion.getSize() * (0.7F + batch.getRandom().nextFloat() * 0.6F);
 
-		//recursively operate on all blocks
+		//operate on all blocks layer by layer
 		float damageFactor;
 		boolean hasDamage = true;
-		ExplosionLayer layer;
-		for (int i = 0; i < this.layers.size() && hasDamage; i++) {
+		for (int i = 0; i < layers.length && hasDamage; i++) {
 			hasDamage = false;
-			layer = this.layers.get(i);
-			for (ExplosionSlot slot : layer.slots) {
-				//prepare the block information
-				if (!slot.block.isSet) {
-					slot.block.prepare(world, xoff, yoff, zoff, GenericMath.getRandom());
+			for (ExplosionSlot slot : layers[i].slots) {
+				damageFactor = sourcedamage[slot.index];
+				if (damageFactor <= 0f) {
+					continue;
 				}
 
-				//subtract damage factor
-				damageFactor = slot.sourcedamage - slot.block.damageFactor;
-				slot.sourcedamage = 0f;
+				//subtract damage factor of the block
+				ExplosionBlockSlot offset = slot.block;
+				int block = batch.load(xoff + offset.offsetX, yoff + offset.offsetY, zoff + offset.offsetZ);
+				damageFactor -= batch.getDamageFactor(block);
 				if (damageFactor <= 0f) {
 					continue;
 				}
 
 				//this block has been destroyed
-				if (!slot.block.destroy) {
-					slot.block.destroy = true;
-					Block block = world.getBlock(slot.block.realx, slot.block.realy, slot.block.realz);
-					blocksToDestroy.add(block);
-				}
+				batch.destroy(block, fire);
 
-				//one block layer further...
-				if ((damageFactor -= 0.225f) <= 0.0f) {
+				//one block layer further, the last layer may be linked to layers created since
+				if ((damageFactor -= LAYER_DAMAGE) <= 0.0f || i + 1 == layers.length) {
 					continue;
 				}
 
-				//create a new layer if needed
-				if (slot.next == null) {
-					//create a new layer
-					ExplosionLayer nextLayer = new ExplosionLayer(layer);
-					//finalize the 'next' of the current layer to lead to the new layer
-					for (ExplosionSlot slot2 : layer.slots) {
-						slot2.finish();
-					}
-					this.layers.add(nextLayer);
-				}
-
 				//set source damage of next slots
 				for (ExplosionSlot slot2 : slot.next) {
-					if (damageFactor > slot2.sourcedamage) {
-						slot2.sourcedamage = damageFactor;
+					if (damageFactor > sourcedamage[slot2.index]) {
+						sourcedamage[slot2.index] = damageFactor;
 					}
 				}
 
 				hasDamage = true;
 			}
 		}
+	}
+
+	/**
+	 * The layers created so far, with the number of slots they contain
+	 */
+	private static final class Shape {
+		private final ExplosionLayer[] layers;
+		private final int slotCount;
 
-		//perform the final block changes, entity damage and explosion messages
-		super.execute(position, size, fire, cause);
+		private Shape(ExplosionLayer[] layers, int slotCount) {
+			this.layers = layers;
+			this.slotCount = slotCount;
+		}
 	}
 }
@@ -0,0 +1,194 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.explosion;
+
+import java.util.Arrays;
+
+import gnu.trove.map.hash.TLongFloatHashMap;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.math.GenericMath;
+
+/**
+ * Calculates how much of an entity is exposed to the explosions executed together.<br>
+ * Whether blocks are solid is read from the world once and kept in a bitset of the blast area, shared by all rays of all explosions.
+ * The exposure of every entity is cached for each distinct explosion origin, so a stack of explosions at the same spot traces its rays once.
+ * <p/>
+ * An occlusion is confined to one thread and is reused for every explosion of that thread.
+ */
+public class ExplosionOcclusion {
+	/**
+	 * The size of the box sampled around the position of an entity
+	 */
+	private static final float SAMPLE_WIDTH = 0.6f, SAMPLE_HEIGHT = 1.8f;
+	/**
+	 * The number of samples along each axis of the box, the rays of the samples are averaged
+	 */
+	private static final int SAMPLES_XZ = 2, SAMPLES_Y = 3;
+	/**
+	 * The largest bitset volume kept, blocks of larger areas are read from the world on every ray
+	 */
+	private static final int MAX_VOLUME = 1 << 22;
+	private final TLongFloatHashMap exposures = new TLongFloatHashMap();
+	private long[] known = new long[0], solid = new long[0];
+	private World world;
+	private int minX, minY, minZ, sizeX, sizeY, sizeZ;
+
+	/**
+	 * Starts a new occlusion snapshot of a blast area, clearing all previously cached blocks and exposures
+	 * @param world of the explosions
+	 * @param minX coordinate of the lowest corner of the area
+	 * @param minY coordinate of the lowest corner of the area
+	 * @param minZ coordinate of the lowest corner of the area
+	 * @param maxX coordinate of the highest corner of the area
+	 * @param maxY coordinate of the highest corner of the area
+	 * @param maxZ coordinate of the highest corner of the area
+	 */
+	public void begin(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		this.world = world;
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.sizeX = maxX - minX + 1;
+		this.sizeY = maxY - minY + 1;
+		this.sizeZ = maxZ - minZ + 1;
+		long volume = (long) sizeX * sizeY * sizeZ;
+		if (volume > MAX_VOLUME) {
+			this.sizeX = this.sizeY = this.sizeZ = 0;
+			volume = 0;
+		}
+		int words = (int) ((volume + 63) >> 6);
+		if (known.length < words) {
+			known = new long[words];
+			solid = new long[words];
+		} else {
+			Arrays.fill(known, 0, words, 0L);
+		}
+		exposures.clear();
+	}
+
+	/**
+	 * Gets whether the block at a position stops explosions from reaching entities
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return True if solid, False if not
+	 */
+	public boolean isSolid(int x, int y, int z) {
+		int rx = x - minX, ry = y - minY, rz = z - minZ;
+		if (rx < 0 || ry < 0 || rz < 0 || rx >= sizeX || ry >= sizeY || rz >= sizeZ) {
+			return world.getBlockMaterial(x, y, z).isSolid();
+		}
+		int index = (ry * sizeZ + rz) * sizeX + rx;
+		int word = index >> 6;
+		long bit = 1L << index;
+		if ((known[word] & bit) == 0) {
+			known[word] |= bit;
+			if (world.getBlockMaterial(x, y, z).isSolid()) {
+				solid[word] |= bit;
+			} else {
+				solid[word] &= ~bit;
+			}
+		}
+		return (solid[word] & bit) != 0;
+	}
+
+	/**
+	 * Gets the fraction of non-solid blocks between an explosion and an entity, averaged over rays to samples of the entity
+	 * @param origin of the explosion
+	 * @param originId identifying the block of the origin within this snapshot, used to cache the result
+	 * @param entityId of the entity
+	 * @param position of the entity
+	 * @return the exposure, from 0 (fully covered) to 1 (fully exposed)
+	 */
+	public float getExposure(Point origin, int originId, int entityId, Point position) {
+		long key = ((long) entityId << 32) | (originId & 0xFFFFFFFFL);
+		if (exposures.containsKey(key)) {
+			return exposures.get(key);
+		}
+		double ox = origin.getBlockX() + 0.5, oy = origin.getBlockY() + 0.5, oz = origin.getBlockZ() + 0.5;
+		float exposure = 0f;
+		for (int sx = 0; sx < SAMPLES_XZ; sx++) {
+			double px = position.getX() + SAMPLE_WIDTH * ((double) sx / (SAMPLES_XZ - 1) - 0.5);
+			for (int sy = 0; sy < SAMPLES_Y; sy++) {
+				double py = position.getY() + SAMPLE_HEIGHT * sy / (SAMPLES_Y - 1);
+				for (int sz = 0; sz < SAMPLES_XZ; sz++) {
+					double pz = position.getZ() + SAMPLE_WIDTH * ((double) sz / (SAMPLES_XZ - 1) - 0.5);
+					exposure += getDensity(ox, oy, oz, px, py, pz);
+				}
+			}
+		}
+		exposure /= SAMPLES_XZ * SAMPLES_Y * SAMPLES_XZ;
+		exposures.put(key, exposure);
+		return exposure;
+	}
+
+	/**
+	 * Walks all blocks on the line between two points, including the blocks of both points
+	 * @return the fraction of non-solid blocks on the line
+	 */
+	private float getDensity(double ox, double oy, double oz, double px, double py, double pz) {
+		int x = GenericMath.floor(ox), y = GenericMath.floor(oy), z = GenericMath.floor(oz);
+		int steps = Math.abs(GenericMath.floor(px) - x) + Math.abs(GenericMath.floor(py) - y) + Math.abs(GenericMath.floor(pz) - z);
+		double dx = px - ox, dy = py - oy, dz = pz - oz;
+		int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1, stepZ = dz > 0 ? 1 : -1;
+		double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dx);
+		double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dy);
+		double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dz);
+		double maxX = dx == 0 ? Double.POSITIVE_INFINITY : (dx > 0 ? x + 1 - ox : ox - x) * deltaX;
+		double maxY = dy == 0 ? Double.POSITIVE_INFINITY : (dy > 0 ? y + 1 - oy : oy - y) * deltaY;
+		double maxZ = dz == 0 ? Double.POSITIVE_INFINITY : (dz > 0 ? z + 1 - oz : oz - z) * deltaZ;
+		int solidCount = 0;
+		for (int i = 0; ; i++) {
+			if (isSolid(x, y, z)) {
+				solidCount++;
+			}
+			if (i == steps) {
+				break;
+			}
+			if (maxX < maxY && maxX < maxZ) {
+				x += stepX;
+				maxX += deltaX;
+			} else if (maxY < maxZ) {
+				y += stepY;
+				maxY += deltaY;
+			} else {
+				z += stepZ;
+				maxZ += deltaZ;
+			}
+		}
+		return (float) (steps + 1 - solidCount) / (steps + 1);
+	}
+
+	/**
+	 * Releases the world of this occlusion, so it is not kept alive by the thread
+	 */
+	public void end() {
+		this.world = null;
+	}
+}
@@ -30,17 +30,19 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * Contains live information of a single element in the chain of the explosion layers
+ * Contains the information of a single element in the chain of the explosion layers<br>
+ * The damage that reaches a slot is not stored here, but in the scratch state of the explosion using the index of the slot
  */
 public class ExplosionSlot {
-	public ExplosionSlot(final ExplosionBlockSlot block) {
+	public ExplosionSlot(final ExplosionBlockSlot block, final int index) {
 		this.block = block;
+		this.index = index;
 	}
 
 	public final ExplosionBlockSlot block;
+	public final int index;
 	private Set<ExplosionSlot> nextSet = new HashSet<ExplosionSlot>();
 	public ExplosionSlot[] next;
-	public float sourcedamage = 0;
 
 	/**
 	 * Adds the next linked block slot to the chain
@@ -0,0 +1,298 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.flowing;
+
+import gnu.trove.iterator.TIntLongIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The liquid blocks of a world that are waiting to flow, grouped by chunk.<br>
+ * <br>
+ * Every block is due one flow delay after it was added. All blocks of a chunk that are due when the chunk is polled flow together
+ * in one step, so blocks due in the same tick are batched without any of them flowing early. Blocks of chunks that are not loaded
+ * when they are due are parked until their chunk loads again.
+ */
+public class ActiveLiquids {
+	private static final int CHUNK_BITS = 21;
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+	private final ConcurrentMap<Long, ChunkLiquids> chunks = new ConcurrentHashMap<Long, ChunkLiquids>();
+	private final AtomicInteger activeCells = new AtomicInteger(0);
+	private final Map<Long, TIntHashSet> parked = new HashMap<Long, TIntHashSet>();
+
+	/**
+	 * Adds a liquid block that has to flow
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @param delay in milliseconds until the block flows
+	 * @param age of the world
+	 * @return True if the block was added, False if it was already waiting
+	 */
+	public boolean add(int x, int y, int z, int delay, long age) {
+		Long key = getKey(x >> 4, y >> 4, z >> 4);
+		int cell = (y & 0xF) << 8 | (z & 0xF) << 4 | (x & 0xF);
+		while (true) {
+			ChunkLiquids liquids = chunks.get(key);
+			if (liquids == null) {
+				liquids = new ChunkLiquids();
+				ChunkLiquids old = chunks.putIfAbsent(key, liquids);
+				if (old != null) {
+					liquids = old;
+				}
+			}
+			int result = liquids.add(cell, delay, age);
+			if (result != ChunkLiquids.RETIRED) {
+				if (result == ChunkLiquids.ADDED) {
+					activeCells.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+			// The chunk was just emptied and removed, add it again
+			chunks.remove(key, liquids);
+		}
+	}
+
+	/**
+	 * Removes all blocks that are due
+	 * @param age of the world
+	 * @return the steps of the chunks that have blocks due
+	 */
+	public List<Step> pollDue(long age) {
+		List<Step> steps = null;
+		Iterator<Entry<Long, ChunkLiquids>> i = chunks.entrySet().iterator();
+		while (i.hasNext()) {
+			Entry<Long, ChunkLiquids> entry = i.next();
+			ChunkLiquids liquids = entry.getValue();
+			int[] cells = liquids.pollDue(age);
+			if (cells != null) {
+				activeCells.addAndGet(-cells.length);
+				if (steps == null) {
+					steps = new ArrayList<Step>();
+				}
+				long key = entry.getKey();
+				steps.add(new Step(getChunkX(key), getChunkY(key), getChunkZ(key), cells));
+			}
+			if (liquids.retireIfEmpty()) {
+				i.remove();
+			}
+		}
+		return steps == null ? Collections.<Step>emptyList() : steps;
+	}
+
+	/**
+	 * Keeps the blocks of a step whose chunk is not loaded, until {@link #unpark(int, int, int)} is called for the chunk
+	 * @param step to park
+	 */
+	public void park(Step step) {
+		Long key = getKey(step.chunkX, step.chunkY, step.chunkZ);
+		synchronized (parked) {
+			TIntHashSet cells = parked.get(key);
+			if (cells == null) {
+				cells = new TIntHashSet();
+				parked.put(key, cells);
+			}
+			cells.addAll(step.cells);
+		}
+	}
+
+	/**
+	 * Removes the parked blocks of a chunk
+	 * @param cx chunk x-coordinate
+	 * @param cy chunk y-coordinate
+	 * @param cz chunk z-coordinate
+	 * @return the parked blocks as a step, or null if none were parked
+	 */
+	public Step unpark(int cx, int cy, int cz) {
+		TIntHashSet cells;
+		synchronized (parked) {
+			cells = parked.remove(getKey(cx, cy, cz));
+		}
+		return cells == null ? null : new Step(cx, cy, cz, cells.toArray());
+	}
+
+	/**
+	 * Gets the number of chunks with parked liquid blocks
+	 * @return the chunk count
+	 */
+	public int getParkedChunks() {
+		synchronized (parked) {
+			return parked.size();
+		}
+	}
+
+	/**
+	 * Gets the number of liquid blocks waiting to flow
+	 * @return the block count
+	 */
+	public int getActiveCells() {
+		return activeCells.get();
+	}
+
+	/**
+	 * Gets the number of chunks with liquid blocks waiting to flow
+	 * @return the chunk count
+	 */
+	public int getActiveChunks() {
+		return chunks.size();
+	}
+
+	private static long getKey(int x, int y, int z) {
+		return (x & CHUNK_MASK) << (CHUNK_BITS << 1) | (y & CHUNK_MASK) << CHUNK_BITS | (z & CHUNK_MASK);
+	}
+
+	private static int getChunkX(long key) {
+		return signExtend(key >> (CHUNK_BITS << 1));
+	}
+
+	private static int getChunkY(long key) {
+		return signExtend(key >> CHUNK_BITS);
+	}
+
+	private static int getChunkZ(long key) {
+		return signExtend(key);
+	}
+
+	private static int signExtend(long value) {
+		return (int) ((value & CHUNK_MASK) << (64 - CHUNK_BITS) >> (64 - CHUNK_BITS));
+	}
+
+	/**
+	 * The liquid blocks of a chunk which flow together
+	 */
+	public static class Step {
+		private final int chunkX, chunkY, chunkZ;
+		private final int[] cells;
+
+		public Step(int chunkX, int chunkY, int chunkZ, int[] cells) {
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+			this.chunkZ = chunkZ;
+			this.cells = cells;
+		}
+
+		public int getChunkX() {
+			return chunkX;
+		}
+
+		public int getChunkY() {
+			return chunkY;
+		}
+
+		public int getChunkZ() {
+			return chunkZ;
+		}
+
+		public int getSize() {
+			return cells.length;
+		}
+
+		/**
+		 * Gets the x coordinate of a block, blocks are ordered from the top of the chunk to the bottom
+		 * @param index of the block
+		 * @return the x coordinate
+		 */
+		public int getX(int index) {
+			return chunkX << 4 | (cells[index] & 0xF);
+		}
+
+		public int getY(int index) {
+			return chunkY << 4 | (cells[index] >> 8);
+		}
+
+		public int getZ(int index) {
+			return chunkZ << 4 | ((cells[index] >> 4) & 0xF);
+		}
+	}
+
+	private static class ChunkLiquids {
+		public static final int ADDED = 0;
+		public static final int WAITING = 1;
+		public static final int RETIRED = 2;
+		private final TIntLongHashMap cells = new TIntLongHashMap();
+		private long nextDue = Long.MAX_VALUE;
+		private boolean retired = false;
+
+		public synchronized int add(int cell, int delay, long age) {
+			if (retired) {
+				return RETIRED;
+			}
+			if (cells.containsKey(cell)) {
+				return WAITING;
+			}
+			long due = age + delay;
+			cells.put(cell, due);
+			if (due < nextDue) {
+				nextDue = due;
+			}
+			return ADDED;
+		}
+
+		public synchronized int[] pollDue(long age) {
+			if (age < nextDue) {
+				return null;
+			}
+			TIntArrayList due = new TIntArrayList();
+			long next = Long.MAX_VALUE;
+			TIntLongIterator i = cells.iterator();
+			while (i.hasNext()) {
+				i.advance();
+				if (i.value() <= age) {
+					due.add(i.key());
+					i.remove();
+				} else if (i.value() < next) {
+					next = i.value();
+				}
+			}
+			nextDue = next;
+			// Flow from the top of the chunk to the bottom
+			due.sort();
+			due.reverse();
+			return due.toArray();
+		}
+
+		public synchronized boolean retireIfEmpty() {
+			if (!cells.isEmpty()) {
+				return false;
+			}
+			retired = true;
+			return true;
+		}
+	}
+}
@@ -26,11 +26,10 @@
  */
 package org.spout.vanilla.util.flowing;
 
-import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Block;
@@ -47,200 +46,235 @@ import org.spout.vanilla.material.block.Liquid;
 
 /**
  * A model used to find the faces to which a liquid can flow<br>
- * Is basically a flat disk where 64 elements can have a state.
+ * Is basically a flat disk where 64 elements can have a state.<br>
+ * <br>
+ * The layout of the disk is immutable and shared, the element states are kept in primitive arrays owned by the calling thread.
+ * Flows in different regions can therefore be solved concurrently. Every block of the disk is read from the world once per solve, and not from
+ * a snapshot of the whole flow step, since liquids that flowed earlier in a step change the blocks seen by the liquids after them.
  */
 public class LiquidModel {
-	public static enum State {
-		BLOCKED, OPEN, HOLE;
-	}
-
-	public static class Element {
-		public Element(int dX, int dZ) {
-			this.dX = dX;
-			this.dZ = dZ;
-			this.absdX = Math.abs(this.dX);
-			this.absdZ = Math.abs(this.dZ);
-			this.center = (this.dX == 0 && this.absdZ == 1) || (this.dZ == 0 && this.absdX == 1);
-		}
-
-		public final int dX, dZ;
-		public final int absdX, absdZ;
-		private State state;
-		private int holeDistance;
-		public final boolean center;
-		private final List<Element> neighbours = new ArrayList<Element>();
-		public final List<AtomicBoolean> mainDirection = new ArrayList<AtomicBoolean>();
-
-		public void load(World world, int x, int y, int z) {
-			for (AtomicBoolean bool : this.mainDirection) {
-				if (bool.get()) {
-					x += this.dX;
-					z += this.dZ;
-					int fullState = world.getBlockFullState(x, y, z);
-					BlockMaterial mat = BlockFullState.getMaterial(fullState);
-					if (Liquid.isLiquidObstacle(mat) || (VanillaMaterials.WATER.isMaterial(mat) && VanillaMaterials.WATER.isSource(BlockFullState.getData(fullState)))) {
-						this.state = State.BLOCKED;
-						this.holeDistance = Integer.MAX_VALUE;
-					} else if (!Liquid.isLiquidObstacle(world.getBlockMaterial(x, y - 1, z))) {
-						this.state = State.HOLE;
-						this.holeDistance = 0;
-					} else {
-						this.state = State.OPEN;
-						this.holeDistance = Integer.MAX_VALUE;
-					}
-					return;
-				}
-			}
-			this.state = State.BLOCKED;
-			this.holeDistance = Integer.MAX_VALUE;
-		}
-
-		public void link(Element with) {
-			if (with != null) {
-				this.neighbours.add(with);
-			}
-		}
-
-		public void spreadHole() {
-			if (this.holeDistance != -1) {
-				for (Element element : this.neighbours) {
-					if (element.state == State.OPEN && element.holeDistance > this.holeDistance) {
-						element.holeDistance = this.holeDistance + 1;
-					}
-				}
-			}
-		}
-	}
-
-	private final List<Element> elementList = new ArrayList<Element>();
-	private final Element[] center = new Element[4];
-	private final TIntObjectHashMap<Element> elementMap = new TIntObjectHashMap<Element>();
-	private final AtomicBoolean[] mainDirections = new AtomicBoolean[4];
-	private final boolean[] possible = new boolean[4];
-
-	private Element getElement(BlockFace face) {
-		return getElement((int) face.getOffset().getX(), (int) face.getOffset().getZ());
-	}
-
-	private Element getElement(int dX, int dZ) {
-		return elementMap.get(ShortPairHashed.key((short) dX, (short) dZ));
-	}
-
-	private void link(Element element, int dx, int dz) {
-		element.link(getElement(element.dX + dx, element.dZ + dz));
-		for (int i = 0; i < 4; i++) {
-			IntVector3 offset = new IntVector3(BlockFaces.NESW.get(i).getOpposite().getOffset());
-			if (dx == offset.getX() && dz == offset.getZ()) {
-				element.mainDirection.add(this.mainDirections[i]);
-			}
+	private static final byte BLOCKED = 0;
+	private static final byte OPEN = 1;
+	private static final byte HOLE = 2;
+	private static final int NO_HOLE = Integer.MAX_VALUE;
+	/**
+	 * The main direction mask of the center elements, which are always loaded
+	 */
+	private static final int ALWAYS = 1 << 4;
+	private static final int NO_ELEMENT = -1;
+	public static final LiquidModel INSTANCE = new LiquidModel();
+	private final int size;
+	private final int[] dX;
+	private final int[] dZ;
+	private final boolean[] center;
+	private final int[] mainDirections;
+	private final int[][] neighbours;
+	private final int[] centerIndex = new int[4];
+	private final BlockFace[][] faces = new BlockFace[16][];
+	private final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+		@Override
+		protected Solver initialValue() {
+			return new Solver(size);
 		}
-	}
+	};
 
 	private LiquidModel() {
-		for (int i = 0; i < this.mainDirections.length; i++) {
-			this.mainDirections[i] = new AtomicBoolean(true);
-		}
+		TIntArrayList xs = new TIntArrayList();
+		TIntArrayList zs = new TIntArrayList();
+		TIntIntHashMap indices = new TIntIntHashMap(64, 0.5F, NO_ELEMENT, NO_ELEMENT);
 		for (IntVector3 delta : new DiamondEffectRange(1, 5)) {
 			if (delta.getY() == 0) {
-				Element element = new Element(delta.getX(), delta.getZ());
-				elementList.add(element);
-				elementMap.put(ShortPairHashed.key((short) element.dX, (short) element.dZ), element);
+				indices.put(ShortPairHashed.key((short) delta.getX(), (short) delta.getZ()), xs.size());
+				xs.add(delta.getX());
+				zs.add(delta.getZ());
 			}
 		}
+		this.size = xs.size();
+		this.dX = xs.toArray();
+		this.dZ = zs.toArray();
+		this.center = new boolean[size];
+		this.mainDirections = new int[size];
+		this.neighbours = new int[size][];
+		for (int i = 0; i < size; i++) {
+			int absdX = Math.abs(dX[i]);
+			int absdZ = Math.abs(dZ[i]);
+			center[i] = (dX[i] == 0 && absdZ == 1) || (dZ[i] == 0 && absdX == 1);
+		}
 		for (int i = 0; i < 4; i++) {
-			center[i] = getElement(BlockFaces.NESW.get(i));
-			center[i].mainDirection.add(new AtomicBoolean(true));
+			IntVector3 offset = new IntVector3(BlockFaces.NESW.get(i).getOffset());
+			centerIndex[i] = indices.get(ShortPairHashed.key((short) offset.getX(), (short) offset.getZ()));
+			mainDirections[centerIndex[i]] = ALWAYS;
 		}
 		// make basic x/z connections
-		for (Element element : this.elementList) {
-			if (element.center) {
-				continue;
-			}
-			if (element.dX == 0) {
-				if (element.absdZ <= 3) {
-					// 4x middle connections
-					link(element, -1, 0);
-					link(element, 1, 0);
+		TIntArrayList links = new TIntArrayList();
+		for (int i = 0; i < size; i++) {
+			links.resetQuick();
+			if (!center[i]) {
+				int absdX = Math.abs(dX[i]);
+				int absdZ = Math.abs(dZ[i]);
+				if (dX[i] == 0) {
+					if (absdZ <= 3) {
+						// 4x middle connections
+						link(i, -1, 0, indices, links);
+						link(i, 1, 0, indices, links);
+					}
+				} else {
+					// Simple connections
+					link(i, -Integer.signum(dX[i]), 0, indices, links);
 				}
-			} else {
-				// Simple connections
-				link(element, -Integer.signum(element.dX), 0);
-			}
-			if (element.dZ == 0) {
-				if (element.absdX <= 3) {
-					// 4x middle connections
-					link(element, 0, -1);
-					link(element, 0, 1);
+				if (dZ[i] == 0) {
+					if (absdX <= 3) {
+						// 4x middle connections
+						link(i, 0, -1, indices, links);
+						link(i, 0, 1, indices, links);
+					}
+				} else {
+					// Simple connections
+					link(i, 0, -Integer.signum(dZ[i]), indices, links);
+				}
+				// Advanced
+				if (absdX == 2 && absdZ == 1) {
+					link(i, 0, dZ[i], indices, links);
+				}
+				if (absdZ == 2 && absdX == 1) {
+					link(i, dX[i], 0, indices, links);
 				}
-			} else {
-				// Simple connections
-				link(element, 0, -Integer.signum(element.dZ));
-			}
-			// Advanced
-			if (element.absdX == 2 && element.absdZ == 1) {
-				link(element, 0, element.dZ);
 			}
-			if (element.absdZ == 2 && element.absdX == 1) {
-				link(element, element.dX, 0);
+			neighbours[i] = links.toArray();
+		}
+		for (int mask = 0; mask < faces.length; mask++) {
+			List<BlockFace> possible = new ArrayList<BlockFace>(4);
+			for (int i = 0; i < 4; i++) {
+				if ((mask & (1 << i)) != 0) {
+					possible.add(BlockFaces.NESW.get(i));
+				}
 			}
+			faces[mask] = possible.toArray(new BlockFace[possible.size()]);
 		}
 	}
 
-	public static final LiquidModel INSTANCE = new LiquidModel();
-
-	private BlockFace[] getFaces() {
-		List<BlockFace> faces = new ArrayList<BlockFace>(4);
+	private void link(int element, int dx, int dz, TIntIntHashMap indices, TIntArrayList links) {
+		int with = indices.get(ShortPairHashed.key((short) (dX[element] + dx), (short) (dZ[element] + dz)));
+		if (with != NO_ELEMENT) {
+			links.add(with);
+		}
 		for (int i = 0; i < 4; i++) {
-			if (this.possible[i]) {
-				faces.add(BlockFaces.NESW.get(i));
+			IntVector3 offset = new IntVector3(BlockFaces.NESW.get(i).getOpposite().getOffset());
+			if (dx == offset.getX() && dz == offset.getZ()) {
+				mainDirections[element] |= 1 << i;
 			}
 		}
-		return faces.toArray(new BlockFace[0]);
 	}
 
-	public synchronized BlockFace[] getHoleDirections(Block block) {
+	/**
+	 * Gets the faces to which the liquid in a block can flow. The returned array is shared and must not be modified.
+	 * @param block containing the liquid
+	 * @return the faces
+	 */
+	public BlockFace[] getHoleDirections(Block block) {
 		return this.getHoleDirections(block.getWorld(), block.getX(), block.getY(), block.getZ());
 	}
 
-	public synchronized BlockFace[] getHoleDirections(World world, int x, int y, int z) {
-		// Load center
-		boolean instant = false; // for faster generation
-		for (int i = 0; i < 4; i++) {
-			this.center[i].load(world, x, y, z);
-			instant |= (this.possible[i] = this.center[i].state == State.HOLE);
-			this.mainDirections[i].set(this.center[i].state == State.OPEN);
+	/**
+	 * Gets the faces to which the liquid in a block can flow. The returned array is shared and must not be modified.
+	 * @param world of the block
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the faces
+	 */
+	public BlockFace[] getHoleDirections(World world, int x, int y, int z) {
+		return faces[solvers.get().solve(world, x, y, z)];
+	}
+
+	/**
+	 * The element states of a single thread
+	 */
+	private final class Solver {
+		private final byte[] state;
+		private final int[] holeDistance;
+
+		public Solver(int size) {
+			this.state = new byte[size];
+			this.holeDistance = new int[size];
 		}
-		if (!instant) {
+
+		/**
+		 * Solves the flow of the liquid in a block
+		 * @return the mask of the possible flow directions, in the order of {@link BlockFaces#NESW}
+		 */
+		public int solve(World world, int x, int y, int z) {
+			// Load center
+			int possible = 0;
+			int open = 0;
+			for (int i = 0; i < 4; i++) {
+				int element = centerIndex[i];
+				load(element, ALWAYS, world, x, y, z);
+				if (state[element] == HOLE) {
+					possible |= 1 << i;
+				} else if (state[element] == OPEN) {
+					open |= 1 << i;
+				}
+			}
+			if (possible != 0) {
+				// Flow to the holes right next to the block, for faster generation
+				return possible;
+			}
 			// Load other elements
-			for (Element element : elementList) {
-				if (element.center) {
-					continue;
+			for (int i = 0; i < size; i++) {
+				if (!center[i]) {
+					load(i, open, world, x, y, z);
 				}
-				element.load(world, x, y, z);
 			}
 			// Spread to neighbors
 			for (int c = 0; c < 4; c++) {
-				for (int i = elementList.size() - 1; i >= 0; i--) {
-					elementList.get(i).spreadHole();
+				for (int i = size - 1; i >= 0; i--) {
+					int distance = holeDistance[i];
+					for (int neighbour : neighbours[i]) {
+						if (state[neighbour] == OPEN && holeDistance[neighbour] > distance) {
+							holeDistance[neighbour] = distance + 1;
+						}
+					}
 				}
 			}
 			// Get minimum distance
-			int distance = Integer.MAX_VALUE;
-			for (Element elem : this.center) {
-				if (elem.holeDistance < distance) {
-					distance = elem.holeDistance;
-				}
+			int distance = NO_HOLE;
+			for (int i = 0; i < 4; i++) {
+				distance = Math.min(distance, holeDistance[centerIndex[i]]);
 			}
-			if (distance == Integer.MAX_VALUE) {
+			if (distance == NO_HOLE) {
 				// No hole, flow in all directions
-				Arrays.fill(this.possible, true);
-			} else {
-				// Flow to all hole directions
-				for (int i = 0; i < 4; i++) {
-					this.possible[i] = this.center[i].holeDistance <= distance;
+				return faces.length - 1;
+			}
+			// Flow to all hole directions
+			for (int i = 0; i < 4; i++) {
+				if (holeDistance[centerIndex[i]] <= distance) {
+					possible |= 1 << i;
 				}
 			}
+			return possible;
+		}
+
+		private void load(int element, int directions, World world, int x, int y, int z) {
+			if ((mainDirections[element] & directions) == 0) {
+				state[element] = BLOCKED;
+				holeDistance[element] = NO_HOLE;
+				return;
+			}
+			x += dX[element];
+			z += dZ[element];
+			int fullState = world.getBlockFullState(x, y, z);
+			BlockMaterial mat = BlockFullState.getMaterial(fullState);
+			if (Liquid.isLiquidObstacle(mat) || (VanillaMaterials.WATER.isMaterial(mat) && VanillaMaterials.WATER.isSource(BlockFullState.getData(fullState)))) {
+				state[element] = BLOCKED;
+				holeDistance[element] = NO_HOLE;
+			} else if (!Liquid.isLiquidObstacle(world.getBlockMaterial(x, y - 1, z))) {
+				state[element] = HOLE;
+				holeDistance[element] = 0;
+			} else {
+				state[element] = OPEN;
+				holeDistance[element] = NO_HOLE;
+			}
 		}
-		return getFaces();
 	}
 }
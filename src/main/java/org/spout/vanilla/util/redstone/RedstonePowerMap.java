@@ -0,0 +1,88 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.redstone;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.material.block.BlockFace;
+
+import org.spout.vanilla.util.RedstoneUtil;
+
+/**
+ * Caches whether blocks emit power to their faces, while the redstone components due in a tick read their neighbours.<br>
+ * Every block and face is read from the world once, all components of the tick see the same power.
+ * Low 8 bits of a cached value mark the faces read, the next 8 bits the faces emitting power.
+ */
+public class RedstonePowerMap {
+	private final TLongIntHashMap faces = new TLongIntHashMap();
+	private int reads, hits;
+
+	/**
+	 * Clears all cached power, to read the world again for the next tick
+	 */
+	public void clear() {
+		faces.clear();
+	}
+
+	/**
+	 * Gets if the given block is emitting power to surrounding blocks
+	 * @param block to check
+	 * @param to the face it is powering
+	 * @return True if emitting power, False if not
+	 * @see RedstoneUtil#isEmittingPower(Block, BlockFace)
+	 */
+	public boolean isEmittingPower(Block block, BlockFace to) {
+		long key = WireGraph.getKey(block.getX(), block.getY(), block.getZ());
+		int read = 1 << to.ordinal();
+		int bits = faces.get(key);
+		if ((bits & read) != 0) {
+			hits++;
+			return (bits & (read << 8)) != 0;
+		}
+		reads++;
+		boolean emitting = RedstoneUtil.isEmittingPower(block, to);
+		faces.put(key, bits | read | (emitting ? read << 8 : 0));
+		return emitting;
+	}
+
+	/**
+	 * Gets the number of block faces read from the world
+	 * @return the read count
+	 */
+	public int getReads() {
+		return reads;
+	}
+
+	/**
+	 * Gets the number of block faces answered from the cache
+	 * @return the hit count
+	 */
+	public int getHits() {
+		return hits;
+	}
+}
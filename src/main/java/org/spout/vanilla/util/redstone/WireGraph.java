@@ -0,0 +1,225 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.redstone;
+
+import java.util.Arrays;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+
+/**
+ * A graph of connected redstone wires, with the power every wire receives from outside the graph.<br>
+ * <br>
+ * The power of all wires is computed in a single pass over the power levels, from the highest down: a wire at a level powers its
+ * linked wires one level lower, unless they already have more power. Every wire and link is visited once per level.
+ */
+public class WireGraph {
+	/**
+	 * The most wires a single wire can be linked to, four neighbours, four above, four below and the wires straight above and below
+	 */
+	public static final int MAX_LINKS = 14;
+	private static final int COORD_BITS = 21;
+	private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+	private static final int NO_NODE = -1;
+	private final TLongIntHashMap index = new TLongIntHashMap(64, 0.5f, Long.MIN_VALUE, NO_NODE);
+	private int[] coords = new int[3 * 64];
+	private byte[] source = new byte[64];
+	private byte[] current = new byte[64];
+	private byte[] power = new byte[64];
+	private byte[] linkCount = new byte[64];
+	private int[] links = new int[MAX_LINKS * 64];
+	private int size;
+
+	/**
+	 * Removes all wires from this graph, so it can be reused
+	 */
+	public void clear() {
+		index.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of wires in this graph
+	 * @return the wire count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a wire to this graph, if not already added
+	 * @param x coordinate of the wire
+	 * @param y coordinate of the wire
+	 * @param z coordinate of the wire
+	 * @param currentPower the wire has now
+	 * @return the node of the wire
+	 */
+	public int add(int x, int y, int z, int currentPower) {
+		long key = getKey(x, y, z);
+		int node = index.get(key);
+		if (node != NO_NODE) {
+			return node;
+		}
+		if (size == source.length) {
+			int length = size << 1;
+			coords = Arrays.copyOf(coords, 3 * length);
+			source = Arrays.copyOf(source, length);
+			current = Arrays.copyOf(current, length);
+			power = Arrays.copyOf(power, length);
+			linkCount = Arrays.copyOf(linkCount, length);
+			links = Arrays.copyOf(links, MAX_LINKS * length);
+		}
+		node = size++;
+		coords[3 * node] = x;
+		coords[3 * node + 1] = y;
+		coords[3 * node + 2] = z;
+		source[node] = 0;
+		current[node] = (byte) currentPower;
+		linkCount[node] = 0;
+		index.put(key, node);
+		return node;
+	}
+
+	/**
+	 * Gets the node of a wire in this graph
+	 * @param x coordinate of the wire
+	 * @param y coordinate of the wire
+	 * @param z coordinate of the wire
+	 * @return the node, or -1 if the wire is not in this graph
+	 */
+	public int indexOf(int x, int y, int z) {
+		return index.get(getKey(x, y, z));
+	}
+
+	/**
+	 * Links two wires, so power flows between them in both directions
+	 * @param a node of the first wire
+	 * @param b node of the second wire
+	 */
+	public void link(int a, int b) {
+		if (a != b) {
+			addLink(a, b);
+			addLink(b, a);
+		}
+	}
+
+	private void addLink(int from, int to) {
+		int start = MAX_LINKS * from;
+		int count = linkCount[from];
+		for (int i = 0; i < count; i++) {
+			if (links[start + i] == to) {
+				return;
+			}
+		}
+		if (count < MAX_LINKS) {
+			links[start + count] = to;
+			linkCount[from] = (byte) (count + 1);
+		}
+	}
+
+	/**
+	 * Raises the power a wire receives from outside this graph
+	 * @param node of the wire
+	 * @param sourcePower the wire receives
+	 */
+	public void addSource(int node, int sourcePower) {
+		if (sourcePower > source[node]) {
+			source[node] = (byte) sourcePower;
+		}
+	}
+
+	/**
+	 * Computes the power of all wires in this graph
+	 * @param maxPower the highest power a wire can have
+	 * @return the number of wires of which the power changed
+	 */
+	public int propagate(int maxPower) {
+		System.arraycopy(source, 0, power, 0, size);
+		for (int level = maxPower; level > 1; level--) {
+			byte next = (byte) (level - 1);
+			for (int node = 0; node < size; node++) {
+				if (power[node] != level) {
+					continue;
+				}
+				int start = MAX_LINKS * node;
+				int end = start + linkCount[node];
+				for (int i = start; i < end; i++) {
+					if (power[links[i]] < next) {
+						power[links[i]] = next;
+					}
+				}
+			}
+		}
+		int changed = 0;
+		for (int node = 0; node < size; node++) {
+			if (power[node] != current[node]) {
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Gets whether the power computed for a wire differs from the power it had
+	 * @param node of the wire
+	 * @return True if changed, False if not
+	 */
+	public boolean isChanged(int node) {
+		return power[node] != current[node];
+	}
+
+	/**
+	 * Gets the power computed for a wire
+	 * @param node of the wire
+	 * @return the power
+	 */
+	public int getPower(int node) {
+		return power[node];
+	}
+
+	public int getX(int node) {
+		return coords[3 * node];
+	}
+
+	public int getY(int node) {
+		return coords[3 * node + 1];
+	}
+
+	public int getZ(int node) {
+		return coords[3 * node + 2];
+	}
+
+	/**
+	 * Packs the coordinates of a block into a single key
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the key
+	 */
+	public static long getKey(int x, int y, int z) {
+		return (x & COORD_MASK) << (COORD_BITS << 1) | (y & COORD_MASK) << COORD_BITS | (z & COORD_MASK);
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Block;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.material.block.BlockFullState;
+
+/**
+ * Stages the block reads and writes of a populator in per chunk arrays.<br>
+ * Blocks are read from the world once, and the blocks set are only written to the world when the buffer is committed,
+ * one chunk at a time, skipping the blocks that were set to what they already were.
+ * <p/>
+ * A buffer is confined to the thread populating with it. Anything that edits the world directly while a buffer is in use
+ * should get the blocks it edits with {@link #getBlock(int, int, int)}, or commit the buffer first. Checks reading the
+ * world around a block, such as whether something can attach to its neighbours, need the buffer to be committed first.
+ */
+public class PopulatorBuffer {
+	private final TLongObjectHashMap<ChunkEdit> chunks;
+	private final World world;
+	private ChunkEdit last;
+	private int changedCount;
+
+	public PopulatorBuffer(World world) {
+		this(world, true);
+	}
+
+	private PopulatorBuffer(World world, boolean buffered) {
+		this.world = world;
+		chunks = buffered ? new TLongObjectHashMap<ChunkEdit>() : null;
+	}
+
+	/**
+	 * Gets a buffer that reads straight from the world and cannot set blocks.<br>
+	 * Checks that only read a few blocks use it so they do not copy whole chunks.
+	 * @param world to read from
+	 * @return the read only buffer
+	 */
+	public static PopulatorBuffer readOnly(World world) {
+		return new PopulatorBuffer(world, false);
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Gets the full state of a block, as packed by {@link BlockFullState}
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the full state
+	 */
+	public int getBlockFullState(int x, int y, int z) {
+		if (chunks == null) {
+			return world.getBlockFullState(x, y, z);
+		}
+		return getChunkEdit(x, y, z).load(x, y, z);
+	}
+
+	public BlockMaterial getBlockMaterial(int x, int y, int z) {
+		return BlockFullState.getMaterial(getBlockFullState(x, y, z));
+	}
+
+	public short getBlockData(int x, int y, int z) {
+		return BlockFullState.getData(getBlockFullState(x, y, z));
+	}
+
+	/**
+	 * Sets the material and data of a block, to be written to the world on the next commit
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @param material to set
+	 * @param data to set
+	 * @throws UnsupportedOperationException if this buffer is {@link #readOnly(World) read only}
+	 */
+	public void setBlockMaterial(int x, int y, int z, BlockMaterial material, short data) {
+		if (chunks == null) {
+			throw new UnsupportedOperationException("Cannot set blocks through a read only buffer");
+		}
+		changedCount += getChunkEdit(x, y, z).set(x, y, z, pack(material.getId(), data));
+	}
+
+	/**
+	 * Gets a block of the world to edit directly.<br>
+	 * The buffered state of the block is written and the block is read from the world again afterwards, so the direct edits
+	 * are seen by the following reads. The rest of its chunk stays buffered.
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the block
+	 */
+	public Block getBlock(int x, int y, int z) {
+		if (chunks == null) {
+			return world.getBlock(x, y, z);
+		}
+		final ChunkEdit edit = chunks.get(getKey(x >> Chunk.BLOCKS.BITS, y >> Chunk.BLOCKS.BITS, z >> Chunk.BLOCKS.BITS));
+		if (edit != null && edit.release(x, y, z)) {
+			changedCount--;
+		}
+		return world.getBlock(x, y, z);
+	}
+
+	/**
+	 * Gets the number of blocks set and not yet committed
+	 * @return the changed block count
+	 */
+	public int getChangedCount() {
+		return changedCount;
+	}
+
+	/**
+	 * Writes all set blocks to the world, one chunk at a time, and empties this buffer
+	 */
+	public void commit() {
+		if (chunks == null) {
+			return;
+		}
+		for (ChunkEdit edit : chunks.valueCollection()) {
+			edit.commit();
+		}
+		chunks.clear();
+		last = null;
+		changedCount = 0;
+	}
+
+	private ChunkEdit getChunkEdit(int x, int y, int z) {
+		final int cx = x >> Chunk.BLOCKS.BITS;
+		final int cy = y >> Chunk.BLOCKS.BITS;
+		final int cz = z >> Chunk.BLOCKS.BITS;
+		if (last != null && last.cx == cx && last.cy == cy && last.cz == cz) {
+			return last;
+		}
+		final long key = getKey(cx, cy, cz);
+		ChunkEdit edit = chunks.get(key);
+		if (edit == null) {
+			edit = new ChunkEdit(world.getChunkFromBlock(x, y, z), cx, cy, cz);
+			chunks.put(key, edit);
+		}
+		last = edit;
+		return edit;
+	}
+
+	private static long getKey(int cx, int cy, int cz) {
+		return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (long) (cz & 0x1FFFFF);
+	}
+
+	/**
+	 * Packs a block id and data the same way as {@link World#getBlockFullState(int, int, int)}
+	 */
+	private static int pack(short id, short data) {
+		return ((id & 0xFFFF) << 16) | (data & 0xFFFF);
+	}
+
+	private static int getIndex(int x, int y, int z) {
+		return ((y & Chunk.BLOCKS.MASK) << (Chunk.BLOCKS.BITS << 1)) | ((z & Chunk.BLOCKS.MASK) << Chunk.BLOCKS.BITS) | (x & Chunk.BLOCKS.MASK);
+	}
+
+	/**
+	 * The blocks of one chunk read and set through the buffer, with a bit per block for loaded and changed states.<br>
+	 * The state a block had when it was loaded is kept, so a block set back to it is no longer written.
+	 */
+	private static class ChunkEdit {
+		private final Chunk chunk;
+		private final int cx, cy, cz;
+		private final int[] states = new int[Chunk.BLOCKS.VOLUME];
+		private final int[] original = new int[Chunk.BLOCKS.VOLUME];
+		private final long[] loaded = new long[Chunk.BLOCKS.VOLUME >> 6];
+		private final long[] changed = new long[Chunk.BLOCKS.VOLUME >> 6];
+
+		private ChunkEdit(Chunk chunk, int cx, int cy, int cz) {
+			this.chunk = chunk;
+			this.cx = cx;
+			this.cy = cy;
+			this.cz = cz;
+		}
+
+		private int load(int x, int y, int z) {
+			final int index = getIndex(x, y, z);
+			final long bit = 1L << index;
+			if ((loaded[index >> 6] & bit) == 0) {
+				states[index] = original[index] = chunk.getBlockFullState(x, y, z);
+				loaded[index >> 6] |= bit;
+			}
+			return states[index];
+		}
+
+		/**
+		 * Sets the state of a block
+		 * @return the change in the number of changed blocks: 1 if the block is changed now, -1 if it was set back to
+		 *         its loaded state, 0 otherwise
+		 */
+		private int set(int x, int y, int z, int state) {
+			load(x, y, z);
+			final int index = getIndex(x, y, z);
+			final long bit = 1L << index;
+			states[index] = state;
+			final boolean wasChanged = (changed[index >> 6] & bit) != 0;
+			if (state == original[index]) {
+				changed[index >> 6] &= ~bit;
+				return wasChanged ? -1 : 0;
+			}
+			changed[index >> 6] |= bit;
+			return wasChanged ? 0 : 1;
+		}
+
+		/**
+		 * Writes a block to the world if it was changed, and forgets its state so it is read from the world again
+		 * @return true if the block was written
+		 */
+		private boolean release(int x, int y, int z) {
+			final int index = getIndex(x, y, z);
+			final long bit = 1L << index;
+			loaded[index >> 6] &= ~bit;
+			if ((changed[index >> 6] & bit) == 0) {
+				return false;
+			}
+			changed[index >> 6] &= ~bit;
+			final int state = states[index];
+			chunk.setBlockMaterial(x, y, z, BlockFullState.getMaterial(state), BlockFullState.getData(state), null);
+			return true;
+		}
+
+		/**
+		 * Writes the changed blocks of this chunk to the world
+		 * @return the number of blocks written
+		 */
+		private int commit() {
+			final int baseX = cx << Chunk.BLOCKS.BITS;
+			final int baseY = cy << Chunk.BLOCKS.BITS;
+			final int baseZ = cz << Chunk.BLOCKS.BITS;
+			int count = 0;
+			for (int word = 0; word < changed.length; word++) {
+				long bits = changed[word];
+				while (bits != 0) {
+					final int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					final int state = states[index];
+					chunk.setBlockMaterial(baseX + (index & Chunk.BLOCKS.MASK), baseY + (index >> (Chunk.BLOCKS.BITS << 1)),
+							baseZ + ((index >> Chunk.BLOCKS.BITS) & Chunk.BLOCKS.MASK),
+							BlockFullState.getMaterial(state), BlockFullState.getData(state), null);
+					count++;
+				}
+				changed[word] = 0;
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.royawesome.jlibnoise.module.Module;
+
+/**
+ * Builds a noise module once for every world seed it is asked for.<br>
+ * A built module is never changed again, so many generation threads can read values from it at once without reseeding shared noise.
+ * @param <T> type of the module
+ */
+public abstract class SeededModule<T extends Module> {
+	private final ConcurrentMap<Long, T> modules = new ConcurrentHashMap<Long, T>();
+
+	/**
+	 * Gets the module for the seed, building it if needed
+	 * @param seed of the world
+	 * @return the module for the seed
+	 */
+	public T get(long seed) {
+		T module = modules.get(seed);
+		if (module == null) {
+			module = build(seed);
+			final T previous = modules.putIfAbsent(seed, module);
+			if (previous != null) {
+				module = previous;
+			}
+		}
+		return module;
+	}
+
+	/**
+	 * Drops all built modules, so they are built again with the current settings
+	 */
+	public void clear() {
+		modules.clear();
+	}
+
+	/**
+	 * Builds a new module for the seed
+	 * @param seed of the world
+	 * @return the new module
+	 */
+	protected abstract T build(long seed);
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import net.royawesome.jlibnoise.module.Module;
+
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+/**
+ * Samples terrain noise into flat arrays and writes the resulting materials in column runs.<br>
+ * Sampled values are indexed by {@link #getIndex(int, int, int, int, int)}, so the values of a column are next to each other and
+ * can be read from bottom to top in one pass.
+ */
+public class TerrainSampler {
+	private TerrainSampler() {
+	}
+
+	/**
+	 * Gets the index of a value in a flat array of sampled noise
+	 * @param xx x-coordinate relative to the sampled area
+	 * @param yy y-coordinate relative to the sampled area
+	 * @param zz z-coordinate relative to the sampled area
+	 * @param sizeY of the sampled area
+	 * @param sizeZ of the sampled area
+	 * @return the index of the value
+	 */
+	public static int getIndex(int xx, int yy, int zz, int sizeY, int sizeZ) {
+		return (xx * sizeZ + zz) * sizeY + yy;
+	}
+
+	/**
+	 * Samples noise over an area, reading the noise once every samplingRate blocks along every axis and interpolating the values between.<br>
+	 * The sizes must be multiples of the sampling rate.
+	 * @param noise to sample
+	 * @param sizeX of the area
+	 * @param sizeY of the area
+	 * @param sizeZ of the area
+	 * @param samplingRate distance between noise reads
+	 * @param x coordinate of the area
+	 * @param y coordinate of the area
+	 * @param z coordinate of the area
+	 * @return the values, indexed by {@link #getIndex(int, int, int, int, int)}
+	 */
+	public static double[] sample(Module noise, int sizeX, int sizeY, int sizeZ, int samplingRate, int x, int y, int z) {
+		if (samplingRate <= 0) {
+			throw new IllegalArgumentException("sampling rate must be positive");
+		}
+		if (sizeX % samplingRate != 0 || sizeY % samplingRate != 0 || sizeZ % samplingRate != 0) {
+			throw new IllegalArgumentException("sizes must be divisible by the sampling rate");
+		}
+
+		// Read the noise at the corners of every sampling cell, columns along y
+		final int cornersX = sizeX / samplingRate + 1;
+		final int cornersY = sizeY / samplingRate + 1;
+		final int cornersZ = sizeZ / samplingRate + 1;
+		final double[] corners = new double[cornersX * cornersY * cornersZ];
+		int index = 0;
+		for (int cx = 0; cx < cornersX; cx++) {
+			for (int cz = 0; cz < cornersZ; cz++) {
+				for (int cy = 0; cy < cornersY; cy++) {
+					corners[index++] = noise.GetValue(x + cx * samplingRate, y + cy * samplingRate, z + cz * samplingRate);
+				}
+			}
+		}
+
+		final double[] fractions = new double[samplingRate];
+		for (int i = 0; i < samplingRate; i++) {
+			fractions[i] = (double) i / samplingRate;
+		}
+
+		// Interpolate between the corners, first across xz on the two cell layers, then along y
+		final double[] values = new double[sizeX * sizeY * sizeZ];
+		for (int xx = 0; xx < sizeX; xx++) {
+			final int cx = xx / samplingRate;
+			final double fx = fractions[xx % samplingRate];
+			for (int zz = 0; zz < sizeZ; zz++) {
+				final int cz = zz / samplingRate;
+				final double fz = fractions[zz % samplingRate];
+				final int c00 = (cx * cornersZ + cz) * cornersY;
+				final int c10 = ((cx + 1) * cornersZ + cz) * cornersY;
+				final int c01 = (cx * cornersZ + cz + 1) * cornersY;
+				final int c11 = ((cx + 1) * cornersZ + cz + 1) * cornersY;
+				int out = getIndex(xx, 0, zz, sizeY, sizeZ);
+				double low = bilerp(corners[c00], corners[c10], corners[c01], corners[c11], fx, fz);
+				for (int cy = 1; cy < cornersY; cy++) {
+					final double high = bilerp(corners[c00 + cy], corners[c10 + cy], corners[c01 + cy], corners[c11 + cy], fx, fz);
+					final double step = high - low;
+					for (int i = 0; i < samplingRate; i++) {
+						values[out++] = low + step * fractions[i];
+					}
+					low = high;
+				}
+			}
+		}
+		return values;
+	}
+
+	private static double bilerp(double v00, double v10, double v01, double v11, double fx, double fz) {
+		final double v0 = v00 + (v10 - v00) * fx;
+		final double v1 = v01 + (v11 - v01) * fx;
+		return v0 + (v1 - v0) * fz;
+	}
+
+	/**
+	 * Sets the blocks of a column, one run of equal materials at a time<br>
+	 * Null materials leave their blocks as they are, which is air in a new buffer.
+	 * @param blockData to write to
+	 * @param x coordinate of the column
+	 * @param y coordinate of the lowest block of the column
+	 * @param z coordinate of the column
+	 * @param column materials of the column, from bottom to top
+	 * @param height of the column
+	 */
+	public static void setColumn(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BlockMaterial[] column, int height) {
+		int start = 0;
+		for (int yy = 1; yy <= height; yy++) {
+			if (yy == height || column[yy] != column[start]) {
+				if (column[start] != null) {
+					fillColumn(blockData, x, y + start, y + yy, z, column[start]);
+				}
+				start = yy;
+			}
+		}
+	}
+
+	/**
+	 * Sets a run of blocks in a column to a material<br>
+	 * The block buffer has no range setter, so generators write runs through here to have one place to change once it does.
+	 * @param blockData to write to
+	 * @param x coordinate of the column
+	 * @param fromY lowest y-coordinate of the run
+	 * @param toY y-coordinate above the run
+	 * @param z coordinate of the column
+	 * @param material to set
+	 */
+	public static void fillColumn(CuboidBlockMaterialBuffer blockData, int x, int fromY, int toY, int z, BlockMaterial material) {
+		for (int y = fromY; y < toY; y++) {
+			blockData.set(x, y, z, material);
+		}
+	}
+}
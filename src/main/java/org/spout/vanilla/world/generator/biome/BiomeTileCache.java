@@ -0,0 +1,144 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.biome;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spout.api.generator.biome.Biome;
+import org.spout.api.generator.biome.BiomeSelector;
+
+/**
+ * Keeps the biomes picked by a selector in tiles of 16 by 16 columns, so neighbouring chunks share their picks.<br>
+ * Tiles are kept per world seed, and the least recently used tile is dropped once the cache is full.
+ */
+public class BiomeTileCache {
+	public static final int TILE_BITS = 4;
+	public static final int TILE_SIZE = 1 << TILE_BITS;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	private final BiomeSelector selector;
+	private final Map<TileKey, Biome[]> tiles;
+	private final AtomicLong picks = new AtomicLong();
+
+	public BiomeTileCache(BiomeSelector selector, final int maxTiles) {
+		this.selector = selector;
+		this.tiles = new LinkedHashMap<TileKey, Biome[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<TileKey, Biome[]> eldest) {
+				return size() > maxTiles;
+			}
+		};
+	}
+
+	/**
+	 * Gets the biome of a column
+	 * @param x coordinate of the column
+	 * @param z coordinate of the column
+	 * @param seed of the world
+	 * @return the biome
+	 */
+	public Biome getBiome(int x, int z, long seed) {
+		return getTile(x >> TILE_BITS, z >> TILE_BITS, seed)[(x & TILE_MASK) << TILE_BITS | (z & TILE_MASK)];
+	}
+
+	/**
+	 * Gets the biomes of a tile, indexed by (x << {@link #TILE_BITS}) | z relative to the tile
+	 * @param tileX coordinate of the tile
+	 * @param tileZ coordinate of the tile
+	 * @param seed of the world
+	 * @return the biomes of the tile, which should not be changed
+	 */
+	public Biome[] getTile(int tileX, int tileZ, long seed) {
+		final TileKey key = new TileKey(tileX, tileZ, seed);
+		Biome[] tile;
+		synchronized (tiles) {
+			tile = tiles.get(key);
+		}
+		if (tile == null) {
+			// Pick outside of the lock, another thread may pick the same tile but the result is the same
+			tile = new Biome[TILE_SIZE * TILE_SIZE];
+			final int baseX = tileX << TILE_BITS;
+			final int baseZ = tileZ << TILE_BITS;
+			for (int x = 0; x < TILE_SIZE; x++) {
+				for (int z = 0; z < TILE_SIZE; z++) {
+					tile[x << TILE_BITS | z] = selector.pickBiome(baseX + x, baseZ + z, seed);
+				}
+			}
+			picks.addAndGet(tile.length);
+			synchronized (tiles) {
+				tiles.put(key, tile);
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * Gets the number of biomes picked from the selector so far
+	 * @return the pick count
+	 */
+	public long getPicks() {
+		return picks.get();
+	}
+
+	/**
+	 * Gets the number of tiles in the cache
+	 * @return the tile count
+	 */
+	public int size() {
+		synchronized (tiles) {
+			return tiles.size();
+		}
+	}
+
+	private static final class TileKey {
+		private final int x, z;
+		private final long seed;
+
+		private TileKey(int x, int z, long seed) {
+			this.x = x;
+			this.z = z;
+			this.seed = seed;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof TileKey)) {
+				return false;
+			}
+			final TileKey other = (TileKey) o;
+			return x == other.x && z == other.z && seed == other.seed;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * x + z) * 31 + (int) (seed ^ (seed >>> 32));
+		}
+	}
+}
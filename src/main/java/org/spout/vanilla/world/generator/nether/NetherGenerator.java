@@ -32,17 +32,19 @@ import net.royawesome.jlibnoise.NoiseQuality;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.protocol.VanillaNetworkSynchronizer;
+import org.spout.vanilla.world.generator.SeededModule;
+import org.spout.vanilla.world.generator.TerrainSampler;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.biome.VanillaSingleBiomeGenerator;
 import org.spout.vanilla.world.generator.nether.populator.BlockPatchPopulator;
@@ -56,26 +58,30 @@ public class NetherGenerator extends VanillaSingleBiomeGenerator {
 	public static final int SEA_LEVEL = 31;
 	private static final byte BEDROCK_DEPTH = 4;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final SeededModule<ScalePoint> NOISE = new SeededModule<ScalePoint>() {
+		@Override
+		protected ScalePoint build(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setSeed((int) seed * 17);
+			perlin.setFrequency(0.01);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(16);
+
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, perlin);
+			noise.setxScale(0.5);
+			noise.setyScale(1);
+			noise.setzScale(0.5);
+			return noise;
+		}
+	};
 	// smooth stuff
 	private static final int SMOOTH_HEIGHT = 16;
 	private static final int LOW_SMOOTH_START = BEDROCK_DEPTH + SMOOTH_HEIGHT;
 	private static final int HIGH_SMOOTH_START = HEIGHT - 1 - BEDROCK_DEPTH - SMOOTH_HEIGHT;
 
-	static {
-		PERLIN.setFrequency(0.01);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(16);
-
-		NOISE.SetSourceModule(0, PERLIN);
-		NOISE.setxScale(0.5);
-		NOISE.setyScale(1);
-		NOISE.setzScale(0.5);
-	}
-
 	public NetherGenerator() {
 		super(VanillaBiomes.NETHERRACK);
 	}
@@ -102,16 +108,17 @@ public class NetherGenerator extends VanillaSingleBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomeManager, long seed) {
-		PERLIN.setSeed((int) seed * 17);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = Math.min(size.getFloorY(), HEIGHT);
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
+		final double[] noise = TerrainSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
+		final BlockMaterial[] column = new BlockMaterial[sizeY];
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
+				final int index = TerrainSampler.getIndex(xx, 0, zz, sizeY, sizeZ);
 				for (int yy = 0; yy < sizeY; yy++) {
-					double value = noise[xx][yy][zz];
+					double value = noise[index + yy];
 					if (SMOOTH_HEIGHT > 0) {
 						if (yy + y < LOW_SMOOTH_START) {
 							value -= cubic(1d / SMOOTH_HEIGHT * (y + yy - LOW_SMOOTH_START));
@@ -120,15 +127,14 @@ public class NetherGenerator extends VanillaSingleBiomeGenerator {
 						}
 					}
 					if (value >= 0) {
-						blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.NETHERRACK);
+						column[yy] = VanillaMaterials.NETHERRACK;
+					} else if (y + yy <= SEA_LEVEL) {
+						column[yy] = VanillaMaterials.STATIONARY_LAVA;
 					} else {
-						if (y + yy <= SEA_LEVEL) {
-							blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.STATIONARY_LAVA);
-						} else {
-							blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.AIR);
-						}
+						column[yy] = null;
 					}
 				}
+				TerrainSampler.setColumn(blockData, x + xx, y, z + zz, column, sizeY);
 			}
 		}
 	}
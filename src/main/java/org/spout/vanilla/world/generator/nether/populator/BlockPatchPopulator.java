@@ -41,31 +41,55 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.SolidMoving;
 import org.spout.vanilla.util.MathHelper;
+import org.spout.vanilla.world.generator.SeededModule;
 import org.spout.vanilla.world.generator.nether.NetherGenerator;
 
 public class BlockPatchPopulator implements GeneratorPopulator {
-	private final Perlin elevation = new Perlin();
-	private final Perlin shapeBase = new Perlin();
-	private final Turbulence shape = new Turbulence();
+	private final SeededModule<Perlin> elevation = new SeededModule<Perlin>() {
+		@Override
+		protected Perlin build(long seed) {
+			final Perlin elevation = new Perlin();
+			elevation.setFrequency(0.01);
+			elevation.setLacunarity(1);
+			elevation.setNoiseQuality(NoiseQuality.STANDARD);
+			elevation.setPersistence(0.7);
+			elevation.setOctaveCount(1);
+			elevation.setSeed((int) (getSeed(seed) * 101));
+			return elevation;
+		}
+	};
+	private final SeededModule<Turbulence> shape = new SeededModule<Turbulence>() {
+		@Override
+		protected Turbulence build(long seed) {
+			seed = getSeed(seed);
+			final Perlin shapeBase = new Perlin();
+			shapeBase.setFrequency(0.03);
+			shapeBase.setNoiseQuality(NoiseQuality.STANDARD);
+			shapeBase.setOctaveCount(1);
+			shapeBase.setSeed((int) (seed * 313));
+
+			final Turbulence shape = new Turbulence();
+			shape.SetSourceModule(0, shapeBase);
+			shape.setFrequency(0.03);
+			shape.setPower(8);
+			shape.setRoughness(2);
+			shape.setSeed((int) (seed * 661));
+			return shape;
+		}
+	};
 	private final BlockMaterial material;
 
 	public BlockPatchPopulator(BlockMaterial material) {
 		this.material = material;
+	}
 
-		elevation.setFrequency(0.01);
-		elevation.setLacunarity(1);
-		elevation.setNoiseQuality(NoiseQuality.STANDARD);
-		elevation.setPersistence(0.7);
-		elevation.setOctaveCount(1);
-
-		shapeBase.setFrequency(0.03);
-		shapeBase.setNoiseQuality(NoiseQuality.STANDARD);
-		shapeBase.setOctaveCount(1);
-
-		shape.SetSourceModule(0, shapeBase);
-		shape.setFrequency(0.03);
-		shape.setPower(8);
-		shape.setRoughness(2);
+	/**
+	 * Gets the seed of the patches of this material in a world
+	 * @param seed of the world
+	 * @return the seed of the patches
+	 */
+	private long getSeed(long seed) {
+		return WorldGeneratorUtils.getSeed(seed, 4324337, 234571, 76537, material.getId());
 	}
 
 	@Override
@@ -73,17 +97,14 @@ public class BlockPatchPopulator implements GeneratorPopulator {
 		if (y < 0 || y >= NetherGenerator.HEIGHT) {
 			return;
 		}
-		seed = WorldGeneratorUtils.getSeed(seed, 4324337, 234571, 76537, material.getId());
-		elevation.setSeed((int) (seed * 101));
-		shapeBase.setSeed((int) (seed * 313));
-		shape.setSeed((int) (seed * 661));
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = GenericMath.clamp(size.getFloorY(), 0, NetherGenerator.HEIGHT);
 		final int sizeZ = size.getFloorZ();
 		final int scale = sizeY / 2;
-		final double[][] displacements = WorldGeneratorUtils.fastNoise(elevation, sizeX, sizeZ, 4, x, 0, z);
-		final double[][] values = WorldGeneratorUtils.fastNoise(shape, sizeX, sizeZ, 4, x, 0, z);
+		final double[][] displacements = WorldGeneratorUtils.fastNoise(elevation.get(seed), sizeX, sizeZ, 4, x, 0, z);
+		final double[][] values = WorldGeneratorUtils.fastNoise(shape.get(seed), sizeX, sizeZ, 4, x, 0, z);
+		final int patchSeed = (int) getSeed(seed);
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
 				if (values[xx][zz] > 0.6) {
@@ -92,7 +113,7 @@ public class BlockPatchPopulator implements GeneratorPopulator {
 					if (yy == -1 || blockData.get(x + xx, yy + 1, z + zz) != VanillaMaterials.AIR) {
 						continue;
 					}
-					final int depth = (int) (MathHelper.hashToFloat(x + xx, z + zz, (int) seed) * 2 + 4);
+					final int depth = (int) (MathHelper.hashToFloat(x + xx, z + zz, patchSeed) * 2 + 4);
 					int yyy = 0;
 					while (yyy < depth && blockData.get(x + xx, yy - yyy, z + zz).isMaterial(VanillaMaterials.NETHERRACK)) {
 						blockData.set(x + xx, yy - yyy++, z + zz, material);
@@ -32,7 +32,6 @@ import net.royawesome.jlibnoise.NoiseQuality;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.generator.biome.BiomePopulator;
 import org.spout.api.generator.biome.BiomeSelector;
@@ -43,15 +42,18 @@ import org.spout.api.generator.biome.selector.RidgedMultiRangeLayer;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.GenericMath;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.LogicUtil;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
-import org.spout.api.util.map.TIntPairObjectHashMap;
 
 import org.spout.vanilla.data.Climate;
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.world.generator.SeededModule;
+import org.spout.vanilla.world.generator.TerrainSampler;
+import org.spout.vanilla.world.generator.biome.BiomeTileCache;
 import org.spout.vanilla.world.generator.biome.VanillaBiomeGenerator;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.normal.biome.NormalBiome;
@@ -77,33 +79,40 @@ public class NormalGenerator extends VanillaBiomeGenerator {
 	public static final int SEA_LEVEL = 62;
 	private static final byte BEDROCK_DEPTH = 5;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final SeededModule<ScalePoint> NOISE = new SeededModule<ScalePoint>() {
+		@Override
+		protected ScalePoint build(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setSeed((int) seed);
+			perlin.setFrequency(0.01);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(16);
+
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, perlin);
+			noise.setxScale(1);
+			noise.setyScale(1);
+			noise.setzScale(1);
+			return noise;
+		}
+	};
 	// smoothing stuff
 	private static final int SMOOTH_SIZE = 4;
-	private static final double[][] GAUSSIAN_KERNEL;
+	private static final int KERNEL_SIZE = SMOOTH_SIZE * 2 + 1;
+	// the kernel is separable, the weight of (sx, sz) is GAUSSIAN_KERNEL[sx] * GAUSSIAN_KERNEL[sz] * KERNEL_SCALE
+	private static final double[] GAUSSIAN_KERNEL = new double[KERNEL_SIZE];
+	private static final double KERNEL_SCALE = 1.5 / (KERNEL_SIZE * KERNEL_SIZE);
+	// biome cache
+	private static final int MAX_BIOME_TILES = 1024;
+	private BiomeTileCache biomeTiles;
 
 	static {
-		PERLIN.setFrequency(0.01);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(16);
-
-		NOISE.SetSourceModule(0, PERLIN);
-		NOISE.setxScale(1);
-		NOISE.setyScale(1);
-		NOISE.setzScale(1);
-
-		final int kernelSize = SMOOTH_SIZE * 2 + 1;
-		GAUSSIAN_KERNEL = new double[kernelSize][kernelSize];
 		final double bellSize = 1d / SMOOTH_SIZE;
-		for (int sx = -SMOOTH_SIZE; sx <= SMOOTH_SIZE; sx++) {
-			for (int sz = -SMOOTH_SIZE; sz <= SMOOTH_SIZE; sz++) {
-				final double bx = bellSize * sx;
-				final double bz = bellSize * sz;
-				GAUSSIAN_KERNEL[sx + SMOOTH_SIZE][sz + SMOOTH_SIZE] = 1.5 * Math.exp(-(bx * bx + bz * bz) / 2);
-			}
+		for (int s = -SMOOTH_SIZE; s <= SMOOTH_SIZE; s++) {
+			final double b = bellSize * s;
+			GAUSSIAN_KERNEL[s + SMOOTH_SIZE] = Math.exp(-(b * b) / 2);
 		}
 	}
 
@@ -112,6 +121,7 @@ public class NormalGenerator extends VanillaBiomeGenerator {
 		// if you want to check out a particular biome, use this!
 		//setSelector(new PerBlockBiomeSelector(VanillaBiomes.TUNDRA));
 		setSelector(new LayeredBiomeSelector(buildSelectorStack(1), VanillaBiomes.OCEAN));
+		biomeTiles = new BiomeTileCache(getSelector(), MAX_BIOME_TILES);
 		final BedrockBoundPopulator bedrock = new BedrockBoundPopulator();
 		bedrock.addBound(0, 1, BEDROCK_DEPTH);
 		addGeneratorPopulators(
@@ -155,59 +165,87 @@ public class NormalGenerator extends VanillaBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
-		PERLIN.setSeed((int) seed);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = size.getFloorY();
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
-		final BiomeSelector selector = getSelector();
-		final TIntPairObjectHashMap<NormalBiome> biomeCache = new TIntPairObjectHashMap<NormalBiome>();
+		final double[] noise = TerrainSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
+		final BlockMaterial[] column = new BlockMaterial[sizeY];
+		final double[][] elevations = getSmoothElevations(x, z, sizeX, sizeZ, seed);
+		final double[] minElevations = elevations[0];
+		final double[] maxElevations = elevations[1];
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
-				double maxSum = 0;
-				double minSum = 0;
-				int count = 0;
-				for (int sx = -SMOOTH_SIZE; sx <= SMOOTH_SIZE; sx++) {
-					for (int sz = -SMOOTH_SIZE; sz <= SMOOTH_SIZE; sz++) {
-						final NormalBiome adjacent;
-						if (xx + sx < 0 || zz + sz < 0
-								|| xx + sx >= sizeX || zz + sz >= sizeZ) {
-							if (biomeCache.containsKey(x + xx + sx, z + zz + sz)) {
-								adjacent = biomeCache.get(x + xx + sx, z + zz + sz);
-							} else {
-								adjacent = (NormalBiome) selector.pickBiome(x + xx + sx, y, z + zz + sz, seed);
-								biomeCache.put(x + xx + sx, z + zz + sz, adjacent);
-							}
-						} else {
-							adjacent = (NormalBiome) biomes.getBiome(xx + sx, y, zz + sz);
-						}
-						final double weight = GAUSSIAN_KERNEL[sx + SMOOTH_SIZE][sz + SMOOTH_SIZE];
-						minSum += adjacent.getMinElevation() * weight;
-						maxSum += adjacent.getMaxElevation() * weight;
-						count++;
-					}
-				}
-				final double minElevation = minSum / count;
-				final double smoothHeight = (maxSum / count - minElevation) / 2;
+				final double minElevation = minElevations[xx * sizeZ + zz];
+				final double smoothHeight = (maxElevations[xx * sizeZ + zz] - minElevation) / 2;
+				final int index = TerrainSampler.getIndex(xx, 0, zz, sizeY, sizeZ);
 				for (int yy = 0; yy < sizeY; yy++) {
-					final double noiseValue = pow(noise[xx][yy][zz], 2) - 1 / smoothHeight * (y + yy - smoothHeight - minElevation);
+					final double noiseValue = pow(noise[index + yy], 2) - 1 / smoothHeight * (y + yy - smoothHeight - minElevation);
 					if (noiseValue >= 0) {
-						blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.STONE);
+						column[yy] = VanillaMaterials.STONE;
+					} else if (y + yy < SEA_LEVEL) {
+						column[yy] = VanillaMaterials.STATIONARY_WATER;
+					} else if (y + yy == SEA_LEVEL) {
+						column[yy] = ((NormalBiome) biomes.getBiome(xx, 0, zz)).getClimate() == Climate.COLD ? VanillaMaterials.ICE : VanillaMaterials.STATIONARY_WATER;
 					} else {
-						if (y + yy <= SEA_LEVEL) {
-							if (y + yy == SEA_LEVEL && ((NormalBiome) biomes.getBiome(xx, 0, zz)).getClimate() == Climate.COLD) {
-								blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.ICE);
-							} else {
-								blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.STATIONARY_WATER);
-							}
-						} else {
-							blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.AIR);
-						}
+						column[yy] = null;
 					}
 				}
+				TerrainSampler.setColumn(blockData, x + xx, y, z + zz, column, sizeY);
+			}
+		}
+	}
+
+	/**
+	 * Smooths the minimum and maximum elevations of the biomes around every column of an area with a gaussian blur.<br>
+	 * The biomes of the area and a border around it are read once into a grid, then blurred along x and along z in two passes.
+	 * @return the minimum and the maximum elevations, indexed by x * sizeZ + z
+	 */
+	private double[][] getSmoothElevations(int x, int z, int sizeX, int sizeZ, long seed) {
+		final int paddedX = sizeX + SMOOTH_SIZE * 2;
+		final int paddedZ = sizeZ + SMOOTH_SIZE * 2;
+		final double[] min = new double[paddedX * paddedZ];
+		final double[] max = new double[paddedX * paddedZ];
+		for (int px = 0; px < paddedX; px++) {
+			for (int pz = 0; pz < paddedZ; pz++) {
+				final NormalBiome biome = (NormalBiome) biomeTiles.getBiome(x + px - SMOOTH_SIZE, z + pz - SMOOTH_SIZE, seed);
+				min[px * paddedZ + pz] = biome.getMinElevation();
+				max[px * paddedZ + pz] = biome.getMaxElevation();
+			}
+		}
+		// blur along x
+		final double[] minX = new double[sizeX * paddedZ];
+		final double[] maxX = new double[sizeX * paddedZ];
+		for (int xx = 0; xx < sizeX; xx++) {
+			for (int pz = 0; pz < paddedZ; pz++) {
+				double minSum = 0;
+				double maxSum = 0;
+				for (int s = 0; s < KERNEL_SIZE; s++) {
+					final int index = (xx + s) * paddedZ + pz;
+					minSum += min[index] * GAUSSIAN_KERNEL[s];
+					maxSum += max[index] * GAUSSIAN_KERNEL[s];
+				}
+				minX[xx * paddedZ + pz] = minSum;
+				maxX[xx * paddedZ + pz] = maxSum;
+			}
+		}
+		// blur along z
+		final double[] minElevations = new double[sizeX * sizeZ];
+		final double[] maxElevations = new double[sizeX * sizeZ];
+		for (int xx = 0; xx < sizeX; xx++) {
+			for (int zz = 0; zz < sizeZ; zz++) {
+				double minSum = 0;
+				double maxSum = 0;
+				for (int s = 0; s < KERNEL_SIZE; s++) {
+					final int index = xx * paddedZ + zz + s;
+					minSum += minX[index] * GAUSSIAN_KERNEL[s];
+					maxSum += maxX[index] * GAUSSIAN_KERNEL[s];
+				}
+				minElevations[xx * sizeZ + zz] = minSum * KERNEL_SCALE;
+				maxElevations[xx * sizeZ + zz] = maxSum * KERNEL_SCALE;
 			}
 		}
+		return new double[][] {minElevations, maxElevations};
 	}
 
 	private static double pow(double val, int pow) {
@@ -40,13 +40,23 @@ import org.spout.api.generator.biome.selector.BiomeSelectorLayer;
 import org.spout.api.generator.biome.selector.LayeredBiomeSelectorElement;
 import org.spout.api.math.Vector2;
 
+import org.spout.vanilla.world.generator.SeededModule;
+
 public class WhittakerLayer implements BiomeSelectorLayer {
 	private final Perlin temperaturePerlin = new Perlin();
-	private final Clamp temperatureClamp = new Clamp();
-	private final ScaleBias temperature = new ScaleBias();
 	private final Perlin humidityPerlin = new Perlin();
-	private final Clamp humidityClamp = new Clamp();
-	private final ScaleBias humidity = new ScaleBias();
+	private final SeededModule<ScaleBias> temperature = new SeededModule<ScaleBias>() {
+		@Override
+		protected ScaleBias build(long seed) {
+			return buildNoise(temperaturePerlin, (int) seed * uniquenessValue * uniquenessValue);
+		}
+	};
+	private final SeededModule<ScaleBias> humidity = new SeededModule<ScaleBias>() {
+		@Override
+		protected ScaleBias build(long seed) {
+			return buildNoise(humidityPerlin, (int) seed * uniquenessValue);
+		}
+	};
 	private double minTemperature = -20;
 	private double maxTemperature = 30;
 	private double minHumidity = 0;
@@ -56,26 +66,37 @@ public class WhittakerLayer implements BiomeSelectorLayer {
 
 	public WhittakerLayer(int uniquenessValue) {
 		this.uniquenessValue = uniquenessValue;
-		temperatureClamp.SetSourceModule(0, temperaturePerlin);
-		temperatureClamp.setLowerBound(-1);
-		temperatureClamp.setUpperBound(1);
-		temperature.SetSourceModule(0, temperatureClamp);
-		temperature.setScale(0.5);
-		temperature.setBias(0.5);
-		humidityClamp.SetSourceModule(0, humidityPerlin);
-		humidityClamp.setLowerBound(-1);
-		humidityClamp.setUpperBound(1);
-		humidity.SetSourceModule(0, humidityClamp);
-		humidity.setScale(0.5);
-		humidity.setBias(0.5);
+	}
+
+	/**
+	 * Builds the noise of a seed from a perlin that only holds the settings, mapping its values to the 0 to 1 range
+	 * @param settings perlin to copy the settings from
+	 * @param seed of the noise
+	 * @return the noise
+	 */
+	private static ScaleBias buildNoise(Perlin settings, int seed) {
+		final Perlin perlin = new Perlin();
+		perlin.setSeed(seed);
+		perlin.setFrequency(settings.getFrequency());
+		perlin.setLacunarity(settings.getLacunarity());
+		perlin.setNoiseQuality(settings.getNoiseQuality());
+		perlin.setOctaveCount(settings.getOctaveCount());
+		perlin.setPersistence(settings.getPersistence());
+		final Clamp clamp = new Clamp();
+		clamp.SetSourceModule(0, perlin);
+		clamp.setLowerBound(-1);
+		clamp.setUpperBound(1);
+		final ScaleBias noise = new ScaleBias();
+		noise.SetSourceModule(0, clamp);
+		noise.setScale(0.5);
+		noise.setBias(0.5);
+		return noise;
 	}
 
 	@Override
 	public LayeredBiomeSelectorElement pick(int x, int y, int z, long seed) {
-		temperaturePerlin.setSeed((int) seed * uniquenessValue * uniquenessValue);
-		humidityPerlin.setSeed((int) seed * uniquenessValue);
-		final double temperatureValue = temperature.GetValue(x, y, z);
-		final double humidityValue = humidity.GetValue(x, y, z);
+		final double temperatureValue = temperature.get(seed).GetValue(x, y, z);
+		final double humidityValue = humidity.get(seed).GetValue(x, y, z);
 		return findClosest(humidityValue * temperatureValue * (minTemperature - maxTemperature) + maxTemperature,
 				(1 - humidityValue) * (maxHumidity - minHumidity) + minHumidity);
 	}
@@ -119,51 +140,61 @@ public class WhittakerLayer implements BiomeSelectorLayer {
 
 	public WhittakerLayer setTemperatureFrequency(double frequency) {
 		temperaturePerlin.setFrequency(frequency);
+		temperature.clear();
 		return this;
 	}
 
 	public WhittakerLayer setTemperatureLacunarity(double lacunarity) {
 		temperaturePerlin.setLacunarity(lacunarity);
+		temperature.clear();
 		return this;
 	}
 
 	public WhittakerLayer setTemperatureNoiseQuality(NoiseQuality quality) {
 		temperaturePerlin.setNoiseQuality(quality);
+		temperature.clear();
 		return this;
 	}
 
 	public WhittakerLayer setTemperatureOctaveCount(int octaveCount) {
 		temperaturePerlin.setOctaveCount(octaveCount);
+		temperature.clear();
 		return this;
 	}
 
 	public WhittakerLayer setTemperaturePersistence(double persistence) {
 		temperaturePerlin.setPersistence(persistence);
+		temperature.clear();
 		return this;
 	}
 
 	public WhittakerLayer setHumidityFrequency(double frequency) {
 		humidityPerlin.setFrequency(frequency);
+		humidity.clear();
 		return this;
 	}
 
 	public WhittakerLayer setHumidityLacunarity(double lacunarity) {
 		humidityPerlin.setLacunarity(lacunarity);
+		humidity.clear();
 		return this;
 	}
 
 	public WhittakerLayer setHumidityNoiseQuality(NoiseQuality quality) {
 		humidityPerlin.setNoiseQuality(quality);
+		humidity.clear();
 		return this;
 	}
 
 	public WhittakerLayer setHumidityOctaveCount(int octaveCount) {
 		humidityPerlin.setOctaveCount(octaveCount);
+		humidity.clear();
 		return this;
 	}
 
 	public WhittakerLayer setHumidityPersistence(double persistence) {
 		humidityPerlin.setPersistence(persistence);
+		humidity.clear();
 		return this;
 	}
 
@@ -34,6 +34,7 @@ import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
 import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 import org.spout.vanilla.world.generator.normal.NormalGenerator;
 import org.spout.vanilla.world.generator.normal.object.tree.TreeObject;
 
@@ -48,6 +49,7 @@ public class TreeDecorator extends Decorator {
 		final World world = chunk.getWorld();
 		final Biome decorating = chunk.getBiome(7, 7, 7);
 		final byte amount = factory.amount(random);
+		final PopulatorBuffer buffer = new PopulatorBuffer(world);
 		for (byte count = 0; count < amount; count++) {
 			final TreeObject tree = factory.make(random);
 			tree.setRandom(random);
@@ -57,19 +59,20 @@ public class TreeDecorator extends Decorator {
 			if (decorating != world.getBiome(x, 64, z)) {
 				continue;
 			}
-			final int y = getHighestWorkableBlock(world, x, z);
+			final int y = getHighestWorkableBlock(buffer, x, z);
 			if (y == -1) {
 				continue;
 			}
-			if (tree.canPlaceObject(world, x, y, z)) {
-				tree.placeObject(world, x, y, z);
+			if (tree.canPlaceObject(buffer, x, y, z)) {
+				tree.placeObject(buffer, x, y, z);
 			}
 		}
+		buffer.commit();
 	}
 
-	private int getHighestWorkableBlock(World w, int x, int z) {
+	private int getHighestWorkableBlock(PopulatorBuffer buffer, int x, int z) {
 		int y = NormalGenerator.HEIGHT;
-		while (!w.getBlockMaterial(x, y, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS)) {
+		while (!buffer.getBlockMaterial(x, y, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS)) {
 			if (--y <= 0) {
 				return -1;
 			}
@@ -29,13 +29,14 @@ package org.spout.vanilla.world.generator.normal.object;
 import java.util.Random;
 
 import org.spout.api.geo.World;
-import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
 import org.spout.api.material.block.BlockFaces;
+import org.spout.api.math.Vector3;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.item.misc.Dye;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 import org.spout.vanilla.world.generator.object.RandomObject;
 import org.spout.vanilla.world.generator.object.RandomizableObject;
 
@@ -82,11 +83,22 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 
 	@Override
 	public boolean canPlaceObject(World w, int x, int y, int z) {
+		return canPlaceObject(PopulatorBuffer.readOnly(w), x, y, z);
+	}
+
+	@Override
+	public void placeObject(World w, int x, int y, int z) {
+		final PopulatorBuffer buffer = new PopulatorBuffer(w);
+		placeObject(buffer, x, y, z);
+		buffer.commit();
+	}
+
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
 		byte missingWallBlocks = 0;
 		for (byte yy = -1; yy < height + 2; yy++) {
 			for (byte xx = (byte) (-radiusX - 1); xx < radiusX + 2; xx++) {
 				for (byte zz = (byte) (-radiusZ - 1); zz < radiusZ + 2; zz++) {
-					BlockMaterial material = w.getBlockMaterial(x + xx, y + yy, z + zz);
+					BlockMaterial material = buffer.getBlockMaterial(x + xx, y + yy, z + zz);
 					if ((yy == -1 || yy == height + 1)
 							&& material.isMaterial(VanillaMaterials.AIR)) {
 						return false;
@@ -94,7 +106,7 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 					if ((xx == -radiusX - 1 || xx == radiusX + 1
 							|| zz == -radiusZ - 1 || zz == radiusZ + 1)
 							&& yy == 0 && material.isMaterial(VanillaMaterials.AIR)
-							&& w.getBlockMaterial(x + xx, y + yy + 1, z + zz).isMaterial(VanillaMaterials.AIR)) {
+							&& buffer.getBlockMaterial(x + xx, y + yy + 1, z + zz).isMaterial(VanillaMaterials.AIR)) {
 						missingWallBlocks++;
 					}
 				}
@@ -103,27 +115,34 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 		return missingWallBlocks > 0 && missingWallBlocks < 6;
 	}
 
-	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	/**
+	 * Places this dungeon through the buffer, which the caller commits.<br>
+	 * The buffer is committed before placing each chest, as chests are placed directly in the world.
+	 * @param buffer to place in
+	 * @param x coordinate of the center of the floor
+	 * @param y coordinate of the center of the floor
+	 * @param z coordinate of the center of the floor
+	 */
+	public void placeObject(PopulatorBuffer buffer, int x, int y, int z) {
 		for (int yy = height; yy > -2; yy--) {
 			for (byte xx = (byte) (-radiusX - 1); xx < radiusX + 2; xx++) {
 				for (byte zz = (byte) (-radiusZ - 1); zz < radiusZ + 2; zz++) {
 					if (xx == -radiusX - 1 || yy == -1 || zz == -radiusZ - 1
 							|| xx == radiusX + 1 || yy == height + 1 || zz == radiusZ + 1) {
-						if (yy > -1 && w.getBlockMaterial(x + xx, y + yy - 1, z + zz).isMaterial(VanillaMaterials.AIR)) {
-							w.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.AIR, (short) 0, null);
+						if (yy > -1 && buffer.getBlockMaterial(x + xx, y + yy - 1, z + zz).isMaterial(VanillaMaterials.AIR)) {
+							buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.AIR, (short) 0);
 							continue;
 						}
-						if (w.getBlockMaterial(x + xx, y + yy, z + zz).isMaterial(VanillaMaterials.AIR)) {
+						if (buffer.getBlockMaterial(x + xx, y + yy, z + zz).isMaterial(VanillaMaterials.AIR)) {
 							continue;
 						}
 						if (yy == -1 && random.nextInt(4) != 0) {
-							w.setBlockMaterial(x + xx, y + yy, z + zz, secondWallMaterial, (short) 0, null);
+							buffer.setBlockMaterial(x + xx, y + yy, z + zz, secondWallMaterial, (short) 0);
 						} else {
-							w.setBlockMaterial(x + xx, y + yy, z + zz, firstWallMaterial, (short) 0, null);
+							buffer.setBlockMaterial(x + xx, y + yy, z + zz, firstWallMaterial, (short) 0);
 						}
 					} else {
-						w.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.AIR, (short) 0, null);
+						buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.AIR, (short) 0);
 					}
 				}
 			}
@@ -134,20 +153,21 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 			for (byte attempts = 0; attempts < 6; attempts++) {
 				final int xx = random.nextInt(radiusX * 2 + 1) - radiusX + x;
 				final int zz = random.nextInt(radiusZ * 2 + 1) - radiusZ + z;
-				final Block middle = w.getBlock(xx, y, zz);
-				if (!middle.getMaterial().isMaterial(VanillaMaterials.AIR)) {
+				if (!buffer.getBlockMaterial(xx, y, zz).isMaterial(VanillaMaterials.AIR)) {
 					continue;
 				}
 				byte adjacentSolidBlockCount = 0;
 				for (final BlockFace face : BlockFaces.NESW) {
-					if (middle.translate(face).getMaterial().isOpaque()) {
+					final Vector3 offset = face.getOffset();
+					if (buffer.getBlockMaterial(xx + offset.getFloorX(), y, zz + offset.getFloorZ()).isOpaque()) {
 						adjacentSolidBlockCount++;
 					}
 				}
 				if (adjacentSolidBlockCount != 1) {
 					continue;
 				}
-				chestObject.placeObject(w, xx, y, zz);
+				buffer.commit();
+				chestObject.placeObject(buffer.getWorld(), xx, y, zz);
 				chestCount++;
 				if (chestCount == maxNumberOfChests) {
 					break;
@@ -155,7 +175,7 @@ public class DungeonObject extends RandomObject implements RandomizableObject {
 			}
 		}
 		if (addSpawner) {
-			w.setBlockMaterial(x, y, z, VanillaMaterials.MONSTER_SPAWNER, (short) 0, null);
+			buffer.setBlockMaterial(x, y, z, VanillaMaterials.MONSTER_SPAWNER, (short) 0);
 		}
 	}
 
@@ -34,7 +34,7 @@ import org.spout.api.math.TrigMath;
 import org.spout.api.math.Vector2;
 import org.spout.api.math.VectorMath;
 import org.spout.vanilla.material.VanillaMaterials;
-
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 import org.spout.vanilla.world.generator.object.RandomObject;
 
 public class OreObject extends RandomObject {
@@ -58,16 +58,22 @@ public class OreObject extends RandomObject {
 		return true;
 	}
 
+	@Override
+	public void placeObject(World world, int originX, int originY, int originZ) {
+		final PopulatorBuffer buffer = new PopulatorBuffer(world);
+		placeObject(buffer, originX, originY, originZ);
+		buffer.commit();
+	}
+
 	/**
 	 * Generates a cluster of this ore at the position using the random given
 	 *
-	 * @param world to place in
+	 * @param buffer to place in
 	 * @param originX of the cluster
 	 * @param originY of the cluster
 	 * @param originZ of the cluster
 	 */
-	@Override
-	public void placeObject(World world, int originX, int originY, int originZ) {
+	public void placeObject(PopulatorBuffer buffer, int originX, int originY, int originZ) {
 		final int clusterSize = type.clusterSize;
 		final float angle = random.nextFloat() * (float) Math.PI;
 		final Vector2 offset = VectorMath.getDirection2D(angle).multiply(clusterSize).divide(8);
@@ -104,8 +110,8 @@ public class OreObject extends RandomObject {
 							for (int z = startZ; z <= endZ; z++) {
 								float sizeZ = (z + 0.5f - seedZ) / size;
 								sizeZ *= sizeZ;
-								if (sizeX + sizeY + sizeZ < 1 && world.getBlockMaterial(x, y, z).isMaterial(VanillaMaterials.STONE)) {
-									world.setBlockMaterial(x, y, z, type.material, (short) 0, null);
+								if (sizeX + sizeY + sizeZ < 1 && buffer.getBlockMaterial(x, y, z).isMaterial(VanillaMaterials.STONE)) {
+									buffer.setBlockMaterial(x, y, z, type.material, (short) 0);
 								}
 							}
 						}
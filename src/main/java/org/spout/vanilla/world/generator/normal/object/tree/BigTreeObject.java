@@ -42,6 +42,7 @@ import org.spout.api.util.BlockIterator;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public class BigTreeObject extends TreeObject {
 	private float trunkHeightMultiplier = 0.618f;
@@ -63,12 +64,12 @@ public class BigTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		if (!super.canPlaceObject(w, x, y, z)) {
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		if (!super.canPlaceObject(buffer, x, y, z)) {
 			return false;
 		}
-		final Point base = new Point(w, x, y, z);
-		final byte availableSpace = getAvailableBlockSpace(base, base.add(0, totalHeight - 1, 0));
+		final Point base = new Point(buffer.getWorld(), x, y, z);
+		final byte availableSpace = getAvailableBlockSpace(buffer, base, base.add(0, totalHeight - 1, 0));
 		if (availableSpace > baseHeight || availableSpace == -1) {
 			if (availableSpace != -1) {
 				totalHeight = availableSpace;
@@ -79,25 +80,28 @@ public class BigTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulatorBuffer buffer, int x, int y, int z) {
 		trunkHeight = (byte) (totalHeight * trunkHeightMultiplier);
-		final List<PointBase> leaves = getLeafGroupPoints(w, x, y, z);
+		final List<PointBase> leaves = getLeafGroupPoints(buffer, x, y, z);
 		for (PointBase leafGroup : leaves) {
 			final int groupX = leafGroup.getBlockX();
 			final int groupY = leafGroup.getBlockY();
 			final int groupZ = leafGroup.getBlockZ();
 			for (int yy = groupY; yy < groupY + leafDistanceLimit; yy++) {
-				generateGroupLayer(w, groupX, yy, groupZ, getLeafGroupLayerSize((byte) (yy - groupY)));
+				generateGroupLayer(buffer, groupX, yy, groupZ, getLeafGroupLayerSize((byte) (yy - groupY)));
 			}
 		}
-		final BlockIterator trunk = new BlockIterator(new Point(w, x, y - 1, z), new Point(w, x, y + trunkHeight, z));
+		final World world = buffer.getWorld();
+		final BlockIterator trunk = new BlockIterator(new Point(world, x, y - 1, z), new Point(world, x, y + trunkHeight, z));
 		while (trunk.hasNext()) {
-			trunk.next().setMaterial(VanillaMaterials.LOG, logMetadata);
+			final Block block = trunk.next();
+			buffer.setBlockMaterial(block.getX(), block.getY(), block.getZ(), VanillaMaterials.LOG, logMetadata);
 		}
-		generateBranches(w, x, y, z, leaves);
+		generateBranches(buffer, x, y, z, leaves);
 	}
 
-	private List<PointBase> getLeafGroupPoints(World world, int x, int y, int z) {
+	private List<PointBase> getLeafGroupPoints(PopulatorBuffer buffer, int x, int y, int z) {
+		final World world = buffer.getWorld();
 		final float amount = leafAmount * totalHeight / 13;
 		byte groupsPerLayer = (byte) (1.382 + amount * amount);
 
@@ -125,7 +129,7 @@ public class BigTreeObject extends TreeObject {
 				final int groupX = (int) (randomOffset.getX() + x + 0.5);
 				final int groupZ = (int) (randomOffset.getY() + z + 0.5);
 				final Point group = new Point(world, groupX, groupY, groupZ);
-				if (getAvailableBlockSpace(group, group.add(0, leafDistanceLimit, 0)) != -1) {
+				if (getAvailableBlockSpace(buffer, group, group.add(0, leafDistanceLimit, 0)) != -1) {
 					continue;
 				}
 				final byte xOff = (byte) (x - groupX);
@@ -139,7 +143,7 @@ public class BigTreeObject extends TreeObject {
 				} else {
 					base = yDiff;
 				}
-				if (getAvailableBlockSpace(new Point(world, x, base, z), group) == -1) {
+				if (getAvailableBlockSpace(buffer, new Point(world, x, base, z), group) == -1) {
 					groups.add(new PointBase(group, base));
 				}
 			}
@@ -155,14 +159,14 @@ public class BigTreeObject extends TreeObject {
 		return -1;
 	}
 
-	private void generateGroupLayer(World world, int x, int y, int z, byte size) {
+	private void generateGroupLayer(PopulatorBuffer buffer, int x, int y, int z, byte size) {
 		for (int xx = x - size; xx <= x + size; xx++) {
 			for (int zz = z - size; zz <= z + size; zz++) {
 				final float sizeX = Math.abs(x - xx) + 0.5f;
 				final float sizeZ = Math.abs(z - zz) + 0.5f;
 				if (sizeX * sizeX + sizeZ * sizeZ <= size * size) {
-					if (overridable.contains(world.getBlockMaterial(xx, y, zz))) {
-						world.setBlockMaterial(xx, y, zz, VanillaMaterials.LEAVES, leavesMetadata, null);
+					if (overridable.contains(buffer.getBlockMaterial(xx, y, zz))) {
+						buffer.setBlockMaterial(xx, y, zz, VanillaMaterials.LEAVES, leavesMetadata);
 					}
 				}
 			}
@@ -182,11 +186,11 @@ public class BigTreeObject extends TreeObject {
 		}
 	}
 
-	private void generateBranches(World world, int x, int y, int z, List<PointBase> groups) {
+	private void generateBranches(PopulatorBuffer buffer, int x, int y, int z, List<PointBase> groups) {
 		for (PointBase group : groups) {
 			final int baseY = group.getBase();
 			if (baseY - y >= totalHeight * 0.2) {
-				final Point base = new Point(world, x, baseY, z);
+				final Point base = new Point(buffer.getWorld(), x, baseY, z);
 				final Vector3 angles = QuaternionMath.rotationTo(Vector3.FORWARD, group.subtract(base)).getAxisAngles();
 				final BlockFace facing;
 				if (angles.getX() < 135) {
@@ -196,21 +200,25 @@ public class BigTreeObject extends TreeObject {
 				}
 				final BlockIterator branch = new BlockIterator(base, group);
 				while (branch.hasNext()) {
-					final Block block = branch.next();
-					block.setMaterial(VanillaMaterials.LOG, logMetadata);
-					if (block.getX() != x || block.getZ() != z) {
+					final Block next = branch.next();
+					if (next.getX() != x || next.getZ() != z) {
+						final Block block = buffer.getBlock(next.getX(), next.getY(), next.getZ());
+						block.setMaterial(VanillaMaterials.LOG, logMetadata);
 						VanillaMaterials.LOG.setFacing(block, facing);
+					} else {
+						buffer.setBlockMaterial(next.getX(), next.getY(), next.getZ(), VanillaMaterials.LOG, logMetadata);
 					}
 				}
 			}
 		}
 	}
 
-	private byte getAvailableBlockSpace(Point from, Point to) {
+	private byte getAvailableBlockSpace(PopulatorBuffer buffer, Point from, Point to) {
 		byte count = 0;
 		final BlockIterator iter = new BlockIterator(from, to);
 		while (iter.hasNext()) {
-			if (!overridable.contains(iter.next().getMaterial())) {
+			final Block block = iter.next();
+			if (!overridable.contains(buffer.getBlockMaterial(block.getX(), block.getY(), block.getZ()))) {
 				return count;
 			}
 			count++;
@@ -28,7 +28,6 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
@@ -41,6 +40,7 @@ import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
 import org.spout.vanilla.material.block.plant.Sapling;
 import org.spout.vanilla.util.MathHelper;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public class HugeTreeObject extends TreeObject {
 	// size control
@@ -67,8 +67,8 @@ public class HugeTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		if (!super.canPlaceObject(w, x, y, z)) {
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		if (!super.canPlaceObject(buffer, x, y, z)) {
 			return false;
 		}
 		byte checkRadius = 1;
@@ -78,7 +78,7 @@ public class HugeTreeObject extends TreeObject {
 			}
 			for (byte xx = (byte) -checkRadius; xx < checkRadius + 1; xx++) {
 				for (byte zz = (byte) -checkRadius; zz < checkRadius + 1; zz++) {
-					if (!overridable.contains(w.getBlockMaterial(x + xx, y + yy, z + zz))) {
+					if (!overridable.contains(buffer.getBlockMaterial(x + xx, y + yy, z + zz))) {
 						return false;
 					}
 				}
@@ -88,17 +88,17 @@ public class HugeTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
-		generateLeaves(w, x, y + totalHeight, z, (byte) 2);
+	public void placeObject(PopulatorBuffer buffer, int x, int y, int z) {
+		generateLeaves(buffer, x, y + totalHeight, z, (byte) 2);
 		final byte leavesEnd = (byte) (totalHeight - 2 - random.nextInt(4));
 		for (byte yy = (byte) (totalHeight / 2); yy < leavesEnd; yy += random.nextInt(4) + 2) {
 			final Vector2 randomOffset = VectorMath.getRandomDirection2D(random);
-			generateLeaves(w, (int) (x + (randomOffset.getX() * 4f + 0.5f)), y + yy, (int) (z + (randomOffset.getY() * 4f + 0.5f)), (byte) 0);
+			generateLeaves(buffer, (int) (x + (randomOffset.getX() * 4f + 0.5f)), y + yy, (int) (z + (randomOffset.getY() * 4f + 0.5f)), (byte) 0);
 			for (byte branchLengthCount = 0; branchLengthCount < branchLength; branchLengthCount++) {
 				final int bx = (int) (randomOffset.getX() * branchLengthCount + 1.5f);
 				final int by = -3 + branchLengthCount / 2;
 				final int bz = (int) (randomOffset.getY() * branchLengthCount + 1.5f);
-				final Block block = w.getBlock(x + bx, y + yy + by, z + bz);
+				final Block block = buffer.getBlock(x + bx, y + yy + by, z + bz);
 				block.setMaterial(VanillaMaterials.LOG);
 				block.setData(logMetadata);
 				VanillaMaterials.LOG.setFacing(block, BlockFace.fromYaw(MathHelper.getLookAtYaw(new Vector3(bx, by, bz))));
@@ -108,49 +108,49 @@ public class HugeTreeObject extends TreeObject {
 			for (byte xx = 0; xx < 2; xx++) {
 				for (byte zz = 0; zz < 2; zz++) {
 					if (yy == -1) {
-						w.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.DIRT, (short) 0, null);
+						buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.DIRT, (short) 0);
 					} else {
-						w.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LOG, logMetadata, null);
+						buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LOG, logMetadata);
 						if (addVines && yy > 0) {
-							placeVines(w, x + xx, y + yy, z + zz, (byte) 3);
+							placeVines(buffer, x + xx, y + yy, z + zz, (byte) 3);
 						}
 					}
 				}
 			}
 		}
-		w.setBlockMaterial(x, y + totalHeight - 1, z, VanillaMaterials.LOG, logMetadata, null);
+		buffer.setBlockMaterial(x, y + totalHeight - 1, z, VanillaMaterials.LOG, logMetadata);
 	}
 
-	private void generateLeaves(World world, int x, int y, int z, byte sizeIncrease) {
+	private void generateLeaves(PopulatorBuffer buffer, int x, int y, int z, byte sizeIncrease) {
 		for (byte yy = (byte) -leavesGroupHeight; yy < 1; yy++) {
 			final byte radius = (byte) (sizeIncrease - yy + 1);
 			for (byte xx = (byte) -radius; xx < radius + 1; xx++) {
 				for (byte zz = (byte) -radius; zz < radius + 1; zz++) {
 					final short circle = (short) (xx * xx + zz * zz - 1);
-					final BlockMaterial material = world.getBlockMaterial(x + xx, y + yy, z + zz);
+					final BlockMaterial material = buffer.getBlockMaterial(x + xx, y + yy, z + zz);
 					if (!(material instanceof Solid || material instanceof Liquid)
 							&& (xx > -1 || zz > -1 || circle < radius * radius)
 							&& ((xx < 1 && zz < 1) || circle < (radius + 1) * (radius + 1))
 							&& (random.nextInt(4) != 0 || circle < (radius - 1) * (radius - 1))) {
-						world.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LEAVES, leavesMetadata, null);
+						buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LEAVES, leavesMetadata);
 					}
 				}
 			}
 		}
 	}
 
-	private void placeVines(World w, int x, int y, int z, byte faceOdd) {
-		if (w.getBlockMaterial(x + 1, y, z).isInvisible() && random.nextInt(faceOdd) != 0) {
-			w.setBlockMaterial(x + 1, y, z, VanillaMaterials.VINES, (short) 2, null);
+	private void placeVines(PopulatorBuffer buffer, int x, int y, int z, byte faceOdd) {
+		if (buffer.getBlockMaterial(x + 1, y, z).isInvisible() && random.nextInt(faceOdd) != 0) {
+			buffer.setBlockMaterial(x + 1, y, z, VanillaMaterials.VINES, (short) 2);
 		}
-		if (w.getBlockMaterial(x - 1, y, z).isInvisible() && random.nextInt(faceOdd) != 0) {
-			w.setBlockMaterial(x - 1, y, z, VanillaMaterials.VINES, (short) 8, null);
+		if (buffer.getBlockMaterial(x - 1, y, z).isInvisible() && random.nextInt(faceOdd) != 0) {
+			buffer.setBlockMaterial(x - 1, y, z, VanillaMaterials.VINES, (short) 8);
 		}
-		if (w.getBlockMaterial(x, y, z + 1).isInvisible() && random.nextInt(faceOdd) != 0) {
-			w.setBlockMaterial(x, y, z + 1, VanillaMaterials.VINES, (short) 4, null);
+		if (buffer.getBlockMaterial(x, y, z + 1).isInvisible() && random.nextInt(faceOdd) != 0) {
+			buffer.setBlockMaterial(x, y, z + 1, VanillaMaterials.VINES, (short) 4);
 		}
-		if (w.getBlockMaterial(x, y, z - 1).isInvisible() && random.nextInt(faceOdd) != 0) {
-			w.setBlockMaterial(x, y, z - 1, VanillaMaterials.VINES, (short) 1, null);
+		if (buffer.getBlockMaterial(x, y, z - 1).isInvisible() && random.nextInt(faceOdd) != 0) {
+			buffer.setBlockMaterial(x, y, z - 1, VanillaMaterials.VINES, (short) 1);
 		}
 	}
 
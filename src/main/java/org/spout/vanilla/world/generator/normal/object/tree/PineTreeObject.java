@@ -28,10 +28,9 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
-
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public class PineTreeObject extends TreeObject {
 	private byte leavesSizeY = -1;
@@ -49,8 +48,8 @@ public class PineTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		if (!super.canPlaceObject(w, x, y, z)) {
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		if (!super.canPlaceObject(buffer, x, y, z)) {
 			return false;
 		}
 		findRandomLeavesSize();
@@ -61,7 +60,7 @@ public class PineTreeObject extends TreeObject {
 			}
 			for (byte xx = (byte) -checkRadius; xx < checkRadius + 1; xx++) {
 				for (byte zz = (byte) -checkRadius; zz < checkRadius + 1; zz++) {
-					if (!overridable.contains(w.getBlockMaterial(x + xx, y + yy, z + zz))) {
+					if (!overridable.contains(buffer.getBlockMaterial(x + xx, y + yy, z + zz))) {
 						return false;
 					}
 				}
@@ -71,11 +70,11 @@ public class PineTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	public void placeObject(PopulatorBuffer buffer, int x, int y, int z) {
 		if (leavesSizeY == -1 || leavesAbsoluteMaxRadius == -1) {
 			findRandomLeavesSize();
 		}
-		w.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0, null);
+		buffer.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0);
 		byte leavesRadius = (byte) random.nextInt(2);
 		byte leavesMaxRadius = 1;
 		final byte leavesBottomY = (byte) (totalHeight - leavesSizeY);
@@ -85,7 +84,7 @@ public class PineTreeObject extends TreeObject {
 			for (byte xx = (byte) -leavesRadius; xx < leavesRadius + 1; xx++) {
 				for (byte zz = (byte) -leavesRadius; zz < leavesRadius + 1; zz++) {
 					if (Math.abs(xx) != leavesRadius || Math.abs(zz) != leavesRadius || leavesRadius <= 0) {
-						w.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LEAVES, leavesMetadata, null);
+						buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LEAVES, leavesMetadata);
 					}
 				}
 			}
@@ -101,7 +100,7 @@ public class PineTreeObject extends TreeObject {
 		}
 		final byte trunkHeightReducer = (byte) random.nextInt(3);
 		for (int yy = 0; yy < totalHeight - trunkHeightReducer; yy++) {
-			w.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata, null);
+			buffer.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata);
 		}
 	}
 
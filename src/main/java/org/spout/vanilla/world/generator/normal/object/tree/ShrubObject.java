@@ -28,12 +28,12 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public class ShrubObject extends TreeObject {
 	// size control
@@ -50,19 +50,19 @@ public class ShrubObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		if (!super.canPlaceObject(w, x, y, z)) {
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		if (!super.canPlaceObject(buffer, x, y, z)) {
 			return false;
 		}
-		return !(w.getBlockMaterial(x, y, z) instanceof Liquid
-				|| w.getBlockMaterial(x, y + 1, z) instanceof Liquid);
+		return !(buffer.getBlockMaterial(x, y, z) instanceof Liquid
+				|| buffer.getBlockMaterial(x, y + 1, z) instanceof Liquid);
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
-		w.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0, null);
+	public void placeObject(PopulatorBuffer buffer, int x, int y, int z) {
+		buffer.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0);
 		for (byte yy = 0; yy < totalHeight; yy++) {
-			w.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata, null);
+			buffer.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata);
 		}
 		for (byte yy = radius; yy > -1; yy--) {
 			for (byte xx = (byte) -yy; xx < yy + 1; xx++) {
@@ -70,9 +70,9 @@ public class ShrubObject extends TreeObject {
 					if (Math.abs(xx) == yy && Math.abs(zz) == yy && random.nextBoolean()) {
 						continue;
 					}
-					final BlockMaterial material = w.getBlockMaterial(x + xx, y - yy + radius, z + zz);
+					final BlockMaterial material = buffer.getBlockMaterial(x + xx, y - yy + radius, z + zz);
 					if (!(material instanceof Solid || material instanceof Liquid)) {
-						w.setBlockMaterial(x + xx, y - yy + radius, z + zz, VanillaMaterials.LEAVES, leavesMetadata, null);
+						buffer.setBlockMaterial(x + xx, y - yy + radius, z + zz, VanillaMaterials.LEAVES, leavesMetadata);
 					}
 				}
 			}
@@ -28,7 +28,6 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Block;
 import org.spout.api.material.BlockMaterial;
 import org.spout.api.material.block.BlockFace;
@@ -39,6 +38,7 @@ import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.Solid;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public class SmallTreeObject extends TreeObject {
 	//size control
@@ -63,8 +63,8 @@ public class SmallTreeObject extends TreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		if (!super.canPlaceObject(w, x, y, z)) {
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		if (!super.canPlaceObject(buffer, x, y, z)) {
 			return false;
 		}
 		byte radiusToCheck = radiusIncrease;
@@ -74,7 +74,7 @@ public class SmallTreeObject extends TreeObject {
 			}
 			for (byte xx = (byte) -radiusToCheck; xx < radiusToCheck + 1; xx++) {
 				for (byte zz = (byte) -radiusToCheck; zz < radiusToCheck + 1; zz++) {
-					if (!overridable.contains(w.getBlockMaterial(x + xx, y + yy, z + zz))) {
+					if (!overridable.contains(buffer.getBlockMaterial(x + xx, y + yy, z + zz))) {
 						return false;
 					}
 				}
@@ -84,26 +84,26 @@ public class SmallTreeObject extends TreeObject {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
-		w.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0, null);
+	public void placeObject(PopulatorBuffer buffer, int x, int y, int z) {
+		buffer.setBlockMaterial(x, y - 1, z, VanillaMaterials.DIRT, (short) 0);
 		for (byte yy = (byte) (totalHeight - leavesHeight); yy < totalHeight + 1; yy++) {
 			final byte yRadius = (byte) (yy - totalHeight);
 			final byte xzRadius = (byte) ((radiusIncrease + 1) - yRadius / 2);
 			for (byte xx = (byte) -xzRadius; xx < xzRadius + 1; xx++) {
 				for (byte zz = (byte) -xzRadius; zz < xzRadius + 1; zz++) {
-					final BlockMaterial material = w.getBlockMaterial(x + xx, y + yy, z + zz);
+					final BlockMaterial material = buffer.getBlockMaterial(x + xx, y + yy, z + zz);
 					if (Math.abs(xx) != xzRadius || Math.abs(zz) != xzRadius
 							|| random.nextBoolean() && yRadius != 0
 							&& !(material instanceof Solid || material instanceof Liquid)) {
-						w.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LEAVES, leavesMetadata, null);
+						buffer.setBlockMaterial(x + xx, y + yy, z + zz, VanillaMaterials.LEAVES, leavesMetadata);
 					}
 				}
 			}
 		}
 		for (byte yy = 0; yy < totalHeight; yy++) {
-			w.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata, null);
+			buffer.setBlockMaterial(x, y + yy, z, VanillaMaterials.LOG, logMetadata);
 			if (addLogVines) {
-				placeVines(w, x, y + yy, z, (byte) 3, false);
+				placeVines(buffer, x, y + yy, z, (byte) 3, false);
 			}
 		}
 		if (addLeavesVines) {
@@ -112,8 +112,8 @@ public class SmallTreeObject extends TreeObject {
 				final byte xzRadius = (byte) ((radiusIncrease + 2) - yRadius / 2);
 				for (byte xx = (byte) -xzRadius; xx < xzRadius + 1; xx++) {
 					for (byte zz = (byte) -xzRadius; zz < xzRadius + 1; zz++) {
-						if (w.getBlockMaterial(x + xx, y + yy, z + zz) == VanillaMaterials.LEAVES) {
-							placeVines(w, x + xx, y + yy, z + zz, (byte) 4, true);
+						if (buffer.getBlockMaterial(x + xx, y + yy, z + zz) == VanillaMaterials.LEAVES) {
+							placeVines(buffer, x + xx, y + yy, z + zz, (byte) 4, true);
 						}
 					}
 				}
@@ -123,12 +123,12 @@ public class SmallTreeObject extends TreeObject {
 			if (totalHeight >= 6 && random.nextInt(5) == 0) {
 				for (byte yy = 0; yy < 2; yy++) {
 					final byte odd = (byte) (4 - yy);
-					final Vector3 position = new Vector3(x, y + yy + totalHeight - 5, z);
 					for (BlockFace face : BlockFaces.NSEW) {
 						if (random.nextInt(odd) != 0) {
 							continue;
 						}
-						final Block block = w.getBlock(position.add(face.getOffset()));
+						final Vector3 offset = face.getOffset();
+						final Block block = buffer.getBlock(x + offset.getFloorX(), y + yy + totalHeight - 5, z + offset.getFloorZ());
 						block.setMaterial(VanillaMaterials.COCOA_PLANT);
 						VanillaMaterials.COCOA_PLANT.setAttachedFace(block, face.getOpposite(), null);
 						VanillaMaterials.COCOA_PLANT.setGrowthStage(block, random.nextInt(3));
@@ -138,16 +138,19 @@ public class SmallTreeObject extends TreeObject {
 		}
 	}
 
-	private void placeVines(World w, int x, int y, int z, byte faceOdd, boolean grow) {
+	private void placeVines(PopulatorBuffer buffer, int x, int y, int z, byte faceOdd, boolean grow) {
 		final byte lenght = (byte) (grow ? 5 : 1);
 		for (BlockFace face : BlockFaces.NSEW) {
 			if (random.nextInt(faceOdd) != 0) {
 				continue;
 			}
 			final BlockFace facing = face.getOpposite();
+			final Vector3 offset = face.getOffset();
+			final int vineX = x + offset.getFloorX();
+			final int vineZ = z + offset.getFloorZ();
 			for (byte yy = 0; yy < lenght; yy++) {
-				final Block block = w.getBlock(face.getOffset().add(x, y - yy, z));
-				if (block.isMaterial(VanillaMaterials.AIR)) {
+				if (buffer.getBlockMaterial(vineX, y - yy, vineZ).isMaterial(VanillaMaterials.AIR)) {
+					final Block block = buffer.getBlock(vineX, y - yy, vineZ);
 					block.setMaterial(VanillaMaterials.VINES);
 					VanillaMaterials.VINES.setFaceAttached(block, facing, true);
 				} else {
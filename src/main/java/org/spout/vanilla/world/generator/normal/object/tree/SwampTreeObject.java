@@ -28,11 +28,11 @@ package org.spout.vanilla.world.generator.normal.object.tree;
 
 import java.util.Random;
 
-import org.spout.api.geo.World;
 import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.liquid.Water;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public class SwampTreeObject extends SmallTreeObject {
 	public SwampTreeObject(Random random) {
@@ -46,8 +46,8 @@ public class SwampTreeObject extends SmallTreeObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		if (!w.getBlockMaterial(x, y - 1, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS)) {
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		if (!buffer.getBlockMaterial(x, y - 1, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS)) {
 			return false;
 		}
 		byte radiusToCheck = radiusIncrease;
@@ -57,7 +57,7 @@ public class SwampTreeObject extends SmallTreeObject {
 			}
 			for (byte xx = (byte) -radiusToCheck; xx < radiusToCheck + 1; xx++) {
 				for (byte zz = (byte) -radiusToCheck; zz < radiusToCheck + 1; zz++) {
-					final BlockMaterial material = w.getBlockMaterial(x + xx, y + yy, z + zz);
+					final BlockMaterial material = buffer.getBlockMaterial(x + xx, y + yy, z + zz);
 					if (!overridable.contains(material)) {
 						if (yy == 0 && material instanceof Water) {
 							continue;
@@ -36,6 +36,7 @@ import org.spout.api.material.BlockMaterial;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.plant.Sapling;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 import org.spout.vanilla.world.generator.object.VariableHeightObject;
 
 public abstract class TreeObject extends VariableHeightObject {
@@ -78,10 +79,30 @@ public abstract class TreeObject extends VariableHeightObject {
 	}
 
 	@Override
-	public boolean canPlaceObject(World w, int x, int y, int z) {
-		return w.getBlockMaterial(x, y - 1, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS);
+	public final boolean canPlaceObject(World w, int x, int y, int z) {
+		return canPlaceObject(PopulatorBuffer.readOnly(w), x, y, z);
 	}
 
+	@Override
+	public final void placeObject(World w, int x, int y, int z) {
+		final PopulatorBuffer buffer = new PopulatorBuffer(w);
+		placeObject(buffer, x, y, z);
+		buffer.commit();
+	}
+
+	public boolean canPlaceObject(PopulatorBuffer buffer, int x, int y, int z) {
+		return buffer.getBlockMaterial(x, y - 1, z).isMaterial(VanillaMaterials.DIRT, VanillaMaterials.GRASS);
+	}
+
+	/**
+	 * Places this tree through the buffer, which the caller commits
+	 * @param buffer to place in
+	 * @param x coordinate of the base of the trunk
+	 * @param y coordinate of the base of the trunk
+	 * @param z coordinate of the base of the trunk
+	 */
+	public abstract void placeObject(PopulatorBuffer buffer, int x, int y, int z);
+
 	@Override
 	public final void randomize() {
 		totalHeight = (byte) (baseHeight + random.nextInt(randomHeight));
@@ -139,8 +160,11 @@ public abstract class TreeObject extends VariableHeightObject {
 		tree.randomize();
 		final int x = pos.getX();
 		final int z = pos.getZ();
-		if (tree.canPlaceObject(world, x, y, z)) {
-			tree.placeObject(world, x, y, z);
+		// The blocks read by the check are reused to place the tree
+		final PopulatorBuffer buffer = new PopulatorBuffer(world);
+		if (tree.canPlaceObject(buffer, x, y, z)) {
+			tree.placeObject(buffer, x, y, z);
+			buffer.commit();
 		}
 	}
 
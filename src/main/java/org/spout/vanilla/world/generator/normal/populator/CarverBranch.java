@@ -0,0 +1,157 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal.populator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.spout.api.math.Vector3;
+
+/**
+ * The skeleton of a cave or ravine tunnel: the nodes it may carve, in walk order, and the branches it forks into at its end.<br>
+ * A branch does not depend on the chunk being carved, so it can be walked once and carved into every chunk it reaches.
+ */
+public class CarverBranch {
+	private final double horizontalScale;
+	private final int nodeAmount;
+	private final boolean lastNode;
+	private final double[] horizontalScales;
+	private final List<Node> nodes = new ArrayList<Node>();
+	private List<CarverBranch> children = Collections.emptyList();
+	private double minX = Double.MAX_VALUE, minZ = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+
+	/**
+	 * Creates a new branch
+	 * @param horizontalScale of the branch
+	 * @param nodeAmount the total amount of nodes of the branch
+	 * @param lastNode whether only the first node that can be carved is carved
+	 * @param horizontalScales the horizontal scale per height, or null if not used
+	 */
+	public CarverBranch(double horizontalScale, int nodeAmount, boolean lastNode, double[] horizontalScales) {
+		this.horizontalScale = horizontalScale;
+		this.nodeAmount = nodeAmount;
+		this.lastNode = lastNode;
+		this.horizontalScales = horizontalScales;
+	}
+
+	public double getHorizontalScale() {
+		return horizontalScale;
+	}
+
+	public int getNodeAmount() {
+		return nodeAmount;
+	}
+
+	public boolean isLastNode() {
+		return lastNode;
+	}
+
+	public double[] getHorizontalScales() {
+		return horizontalScales;
+	}
+
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	public List<CarverBranch> getChildren() {
+		return children;
+	}
+
+	/**
+	 * Adds a node that may be carved, after the nodes added before it
+	 * @param target center of the node
+	 * @param horizontalSize of the node
+	 * @param verticalSize of the node
+	 * @param index of the node in the branch
+	 */
+	public void addNode(Vector3 target, double horizontalSize, double verticalSize, int index) {
+		nodes.add(new Node(target, horizontalSize, verticalSize, index));
+		// The node is only carved into chunks of which the middle is within this range
+		final double range = 16 + horizontalSize * 2 + 1;
+		minX = Math.min(minX, target.getX() - range);
+		minZ = Math.min(minZ, target.getZ() - range);
+		maxX = Math.max(maxX, target.getX() + range);
+		maxZ = Math.max(maxZ, target.getZ() + range);
+	}
+
+	/**
+	 * Adds a branch this branch forks into after its last node
+	 * @param child branch
+	 */
+	public void addChild(CarverBranch child) {
+		if (children.isEmpty()) {
+			children = new ArrayList<CarverBranch>(2);
+		}
+		children.add(child);
+		minX = Math.min(minX, child.minX);
+		minZ = Math.min(minZ, child.minZ);
+		maxX = Math.max(maxX, child.maxX);
+		maxZ = Math.max(maxZ, child.maxZ);
+	}
+
+	/**
+	 * Tests if any node of this branch or its children can be carved into the chunk with the middle specified
+	 * @param middleX x-coordinate of the middle of the chunk
+	 * @param middleZ z-coordinate of the middle of the chunk
+	 * @return True if a node may be carved, False if none can
+	 */
+	public boolean canReach(double middleX, double middleZ) {
+		return middleX >= minX && middleX <= maxX && middleZ >= minZ && middleZ <= maxZ;
+	}
+
+	public static class Node {
+		private final Vector3 target;
+		private final double horizontalSize;
+		private final double verticalSize;
+		private final int index;
+
+		private Node(Vector3 target, double horizontalSize, double verticalSize, int index) {
+			this.target = target;
+			this.horizontalSize = horizontalSize;
+			this.verticalSize = verticalSize;
+			this.index = index;
+		}
+
+		public Vector3 getTarget() {
+			return target;
+		}
+
+		public double getHorizontalSize() {
+			return horizontalSize;
+		}
+
+		public double getVerticalSize() {
+			return verticalSize;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+	}
+}
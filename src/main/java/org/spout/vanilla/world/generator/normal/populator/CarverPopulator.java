@@ -0,0 +1,204 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal.populator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.spout.api.generator.GeneratorPopulator;
+import org.spout.api.generator.biome.BiomeManager;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.math.GenericMath;
+import org.spout.api.math.Vector3;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+import org.spout.vanilla.world.generator.normal.populator.CarverBranch.Node;
+
+/**
+ * Carves tunnels that start in the chunks around the generated chunk, such as caves and ravines.<br>
+ * The tunnels starting in a chunk are walked once into a skeleton of {@link CarverBranch}es, which is kept in a bounded cache
+ * per world seed and carved into every chunk it reaches. The result is the same as walking the tunnels again for every chunk.
+ */
+public abstract class CarverPopulator implements GeneratorPopulator {
+	protected static final byte OVERLAP = OverlapingPopulator.OVERLAP;
+	private static final int MAX_SKELETONS = 4096;
+	private static final int MAX_Y = 120;
+	private final Map<SkeletonKey, List<CarverBranch>> skeletons = new LinkedHashMap<SkeletonKey, List<CarverBranch>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<SkeletonKey, List<CarverBranch>> eldest) {
+			return size() > MAX_SKELETONS;
+		}
+	};
+
+	@Override
+	public void populate(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
+		if (y < 0 || y >= MAX_Y) {
+			return;
+		}
+		final int cx = x >> Chunk.BLOCKS.BITS;
+		final int cz = z >> Chunk.BLOCKS.BITS;
+		final Vector3 size = blockData.getSize();
+		final int sizeX = size.getFloorX() >> Chunk.BLOCKS.BITS;
+		final int sizeZ = size.getFloorZ() >> Chunk.BLOCKS.BITS;
+		final Random worldRandom = new Random(seed);
+		final long firstSeed = worldRandom.nextLong();
+		final long secondSeed = worldRandom.nextLong();
+		for (int cxx = 0; cxx < sizeX; cxx++) {
+			for (int czz = 0; czz < sizeZ; czz++) {
+				final int dcx = cx + cxx;
+				final int dcz = cz + czz;
+				final Vector3 chunk = new Vector3(dcx << Chunk.BLOCKS.BITS, y, dcz << Chunk.BLOCKS.BITS);
+				final Vector3 middle = new Vector3(chunk.getX() + 8, 0, chunk.getZ() + 8);
+				for (int cxxx = -OVERLAP; cxxx <= OVERLAP; cxxx++) {
+					for (int czzz = -OVERLAP; czzz <= OVERLAP; czzz++) {
+						for (CarverBranch branch : getSkeleton(dcx + cxxx, dcz + czzz, seed, firstSeed, secondSeed)) {
+							carve(blockData, chunk, middle, branch);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of skeletons in the cache
+	 * @return the skeleton count
+	 */
+	public int getCachedSkeletons() {
+		synchronized (skeletons) {
+			return skeletons.size();
+		}
+	}
+
+	private List<CarverBranch> getSkeleton(int cx, int cz, long seed, long firstSeed, long secondSeed) {
+		final SkeletonKey key = new SkeletonKey(cx, cz, seed);
+		List<CarverBranch> skeleton;
+		synchronized (skeletons) {
+			skeleton = skeletons.get(key);
+		}
+		if (skeleton == null) {
+			// Walk outside of the lock, another thread may walk the same chunk but the result is the same
+			final List<CarverBranch> branches = new ArrayList<CarverBranch>();
+			buildSkeleton(new Vector3(cx << Chunk.BLOCKS.BITS, 0, cz << Chunk.BLOCKS.BITS), new Random((cx * firstSeed) ^ (cz * secondSeed) ^ seed), branches);
+			skeleton = branches.isEmpty() ? Collections.<CarverBranch>emptyList() : branches;
+			synchronized (skeletons) {
+				skeletons.put(key, skeleton);
+			}
+		}
+		return skeleton;
+	}
+
+	private void carve(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 middle, CarverBranch branch) {
+		if (!branch.canReach(middle.getX(), middle.getZ())) {
+			return;
+		}
+		final double offsetHorizontalScale = branch.getHorizontalScale() + 18;
+		for (Node node : branch.getNodes()) {
+			final Vector3 target = node.getTarget();
+			final double horizontalSize = node.getHorizontalSize();
+			final double verticalSize = node.getVerticalSize();
+			final double xOffset = target.getX() - middle.getX();
+			final double zOffset = target.getZ() - middle.getZ();
+			final double nodesLeft = branch.getNodeAmount() - node.getIndex();
+
+			// The rest of the branch is too far from the chunk to reach it
+			if ((xOffset * xOffset + zOffset * zOffset) - nodesLeft * nodesLeft > offsetHorizontalScale * offsetHorizontalScale) {
+				return;
+			}
+
+			if (target.getX() < middle.getX() - 16 - horizontalSize * 2
+					|| target.getZ() < middle.getZ() - 16 - horizontalSize * 2
+					|| target.getX() > middle.getX() + 16 + horizontalSize * 2
+					|| target.getZ() > middle.getZ() + 16 + horizontalSize * 2) {
+				continue;
+			}
+
+			final Vector3 start = new Vector3(GenericMath.floor(target.getX() - horizontalSize) - chunk.getFloorX() - 1,
+					GenericMath.floor(target.getY() - verticalSize) - 1, GenericMath.floor(target.getZ() - horizontalSize) - chunk.getFloorZ() - 1);
+			final Vector3 end = new Vector3(GenericMath.floor(target.getX() + horizontalSize) - chunk.getFloorX() + 1,
+					GenericMath.floor(target.getY() + verticalSize) + 1, GenericMath.floor(target.getZ() + horizontalSize) - chunk.getFloorZ() + 1);
+			carveNode(blockData, chunk, start, end, branch, node);
+
+			if (branch.isLastNode()) {
+				return;
+			}
+		}
+		for (CarverBranch child : branch.getChildren()) {
+			carve(blockData, chunk, middle, child);
+		}
+	}
+
+	/**
+	 * Walks the tunnels starting in a chunk
+	 * @param chunk position of the chunk the tunnels start in
+	 * @param random for the chunk
+	 * @param branches to add the branches of the tunnels to, in carving order
+	 */
+	protected abstract void buildSkeleton(Vector3 chunk, Random random, List<CarverBranch> branches);
+
+	/**
+	 * Carves a node into a chunk
+	 * @param blockData to carve into
+	 * @param chunk position of the carved chunk
+	 * @param start of the node, relative to the chunk
+	 * @param end of the node, relative to the chunk
+	 * @param branch of the node
+	 * @param node to carve
+	 */
+	protected abstract void carveNode(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 start, Vector3 end, CarverBranch branch, Node node);
+
+	private static final class SkeletonKey {
+		private final int x, z;
+		private final long seed;
+
+		private SkeletonKey(int x, int z, long seed) {
+			this.x = x;
+			this.z = z;
+			this.seed = seed;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof SkeletonKey)) {
+				return false;
+			}
+			final SkeletonKey other = (SkeletonKey) o;
+			return x == other.x && z == other.z && seed == other.seed;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * x + z) * 31 + (int) (seed ^ (seed >>> 32));
+		}
+	}
+}
@@ -29,9 +29,9 @@ package org.spout.vanilla.world.generator.normal.populator;
 import java.util.Random;
 
 import org.spout.api.generator.Populator;
-import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 import org.spout.vanilla.world.generator.normal.object.DungeonObject;
 
 public class DungeonPopulator extends Populator {
@@ -44,16 +44,17 @@ public class DungeonPopulator extends Populator {
 		}
 		final DungeonObject dungeon = new DungeonObject();
 		dungeon.setRandom(random);
-		final World world = chunk.getWorld();
+		final PopulatorBuffer buffer = new PopulatorBuffer(chunk.getWorld());
 		for (byte count = 0; count < attempts; count++) {
 			final int x = chunk.getBlockX(random);
 			final int z = chunk.getBlockZ(random);
 			final int y = random.nextInt(128);
 			dungeon.randomize();
-			if (dungeon.canPlaceObject(world, x, y, z)) {
-				dungeon.placeObject(world, x, y, z);
+			if (dungeon.canPlaceObject(buffer, x, y, z)) {
+				dungeon.placeObject(buffer, x, y, z);
 			}
 		}
+		buffer.commit();
 	}
 
 	public void setAttempts(int attempts) {
@@ -26,6 +26,7 @@
  */
 package org.spout.vanilla.world.generator.normal.populator;
 
+import java.util.List;
 import java.util.Random;
 
 import org.spout.api.material.BlockMaterial;
@@ -37,14 +38,11 @@ import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.liquid.Water;
+import org.spout.vanilla.world.generator.normal.populator.CarverBranch.Node;
 
-public class RavinePopulator extends OverlapingPopulator {
+public class RavinePopulator extends CarverPopulator {
 	@Override
-	protected void populate(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 originChunk, Random random) {
-		if (chunk.getFloorY() < 0 || chunk.getFloorY() >= 120) {
-			return;
-		}
-
+	protected void buildSkeleton(Vector3 chunk, Random random, List<CarverBranch> branches) {
 		if (random.nextInt(50) != 0) {
 			return;
 		}
@@ -54,13 +52,12 @@ public class RavinePopulator extends OverlapingPopulator {
 		final double randomHorizontalAngle = random.nextDouble() * Math.PI * 2;
 		final double randomVerticalAngle = ((random.nextDouble() - 0.5) * 2) / 8;
 		final double horizontalScale = (random.nextDouble() * 2 + random.nextDouble()) * 2;
-		generateRavineNodes(blockData, originChunk, target, horizontalScale, 3, randomHorizontalAngle, randomVerticalAngle, 0, 0, random);
+		branches.add(buildRavineBranch(target, horizontalScale, 3, randomHorizontalAngle, randomVerticalAngle, 0, 0, random));
 	}
 
-	private void generateRavineNodes(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 target, double horizontalScale, double verticalScale,
-									 double horizontalAngle, double verticalAngle, int startingNode, int nodeAmount, Random random) {
+	private CarverBranch buildRavineBranch(Vector3 target, double horizontalScale, double verticalScale,
+										   double horizontalAngle, double verticalAngle, int startingNode, int nodeAmount, Random random) {
 
-		final Vector3 middle = new Vector3(chunk.getX() + 8, 0, chunk.getZ() + 8);
 		double horizontalOffset = 0;
 		double verticalOffset = 0;
 
@@ -85,6 +82,8 @@ public class RavinePopulator extends OverlapingPopulator {
 			horizontalScales[y] = xzScale * xzScale;
 		}
 
+		final CarverBranch branch = new CarverBranch(horizontalScale, nodeAmount, lastNode, horizontalScales);
+
 		for (; startingNode < nodeAmount; startingNode++) {
 			double horizontalSize = 1.5 + TrigMath.sin((float) (startingNode * Math.PI / nodeAmount)) * horizontalScale;
 			double verticalSize = horizontalSize * verticalScale;
@@ -105,35 +104,17 @@ public class RavinePopulator extends OverlapingPopulator {
 				continue;
 			}
 
-			final double xOffset = target.getX() - middle.getX();
-			final double zOffset = target.getZ() - middle.getZ();
-			final double nodesLeft = nodeAmount - startingNode;
-			final double offsetHorizontalScale = horizontalScale + 18;
-
-			if ((xOffset * xOffset + zOffset * zOffset) - nodesLeft * nodesLeft > offsetHorizontalScale * offsetHorizontalScale) {
-				return;
-			}
-
-			if (target.getX() < middle.getX() - 16 - horizontalSize * 2
-					|| target.getZ() < middle.getZ() - 16 - horizontalSize * 2
-					|| target.getX() > middle.getX() + 16 + horizontalSize * 2
-					|| target.getZ() > middle.getZ() + 16 + horizontalSize * 2) {
-				continue;
-			}
-
-			final Vector3 start = new Vector3(GenericMath.floor(target.getX() - horizontalSize) - chunk.getFloorX() - 1,
-					GenericMath.floor(target.getY() - verticalSize) - 1, GenericMath.floor(target.getZ() - horizontalSize) - chunk.getFloorZ() - 1);
-			final Vector3 end = new Vector3(GenericMath.floor(target.getX() + horizontalSize) - chunk.getFloorX() + 1,
-					GenericMath.floor(target.getY() + verticalSize) + 1, GenericMath.floor(target.getZ() + horizontalSize) - chunk.getFloorZ() + 1);
-			final RavineNode node = new RavineNode(blockData, chunk, start, end, target, verticalSize, horizontalSize, horizontalScales);
+			branch.addNode(target, horizontalSize, verticalSize, startingNode);
+		}
+		return branch;
+	}
 
-			if (node.canPlace()) {
-				node.place();
-			}
+	@Override
+	protected void carveNode(CuboidBlockMaterialBuffer blockData, Vector3 chunk, Vector3 start, Vector3 end, CarverBranch branch, Node node) {
+		final RavineNode ravineNode = new RavineNode(blockData, chunk, start, end, node.getTarget(), node.getVerticalSize(), node.getHorizontalSize(), branch.getHorizontalScales());
 
-			if (lastNode) {
-				break;
-			}
+		if (ravineNode.canPlace()) {
+			ravineNode.place();
 		}
 	}
 
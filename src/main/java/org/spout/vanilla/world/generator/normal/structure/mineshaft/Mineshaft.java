@@ -58,7 +58,7 @@ public class Mineshaft extends Structure {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	protected void placePieces(World w, int x, int y, int z) {
 		final Set<BoundingBox> placed = new HashSet<BoundingBox>();
 		final Queue<StructurePiece> activeBranches = new LinkedList<StructurePiece>();
 		final MineshaftRoom room = new MineshaftRoom(this);
@@ -45,7 +45,7 @@ public class Temple extends Structure {
 	}
 
 	@Override
-	public void placeObject(World w, int x, int y, int z) {
+	protected void placePieces(World w, int x, int y, int z) {
 		final StructurePiece temple = getTemple(w.getBiome(x, y, z));
 		if (temple == null) {
 			return;
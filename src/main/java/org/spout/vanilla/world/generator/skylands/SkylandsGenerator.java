@@ -32,16 +32,18 @@ import net.royawesome.jlibnoise.NoiseQuality;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.world.generator.SeededModule;
+import org.spout.vanilla.world.generator.TerrainSampler;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.biome.VanillaSingleBiomeGenerator;
 import org.spout.vanilla.world.generator.normal.object.OreObject.OreType;
@@ -56,21 +58,25 @@ public class SkylandsGenerator extends VanillaSingleBiomeGenerator {
 	public static final int MINIMUM = ELEVATION - LOWER_SIZE;
 	public static final int HEIGHT = ELEVATION + UPPER_SIZE;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final SeededModule<ScalePoint> NOISE = new SeededModule<ScalePoint>() {
+		@Override
+		protected ScalePoint build(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setSeed((int) seed * 31);
+			perlin.setFrequency(0.04);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(4);
 
-	static {
-		PERLIN.setFrequency(0.04);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(4);
-
-		NOISE.SetSourceModule(0, PERLIN);
-		NOISE.setxScale(0.5);
-		NOISE.setyScale(1);
-		NOISE.setzScale(0.5);
-	}
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, perlin);
+			noise.setxScale(0.5);
+			noise.setyScale(1);
+			noise.setzScale(0.5);
+			return noise;
+		}
+	};
 
 	public SkylandsGenerator() {
 		super(VanillaBiomes.SKYLANDS);
@@ -100,25 +106,25 @@ public class SkylandsGenerator extends VanillaSingleBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager manager, long seed) {
-		PERLIN.setSeed((int) seed * 31);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = size.getFloorY();
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
+		final double[] noise = TerrainSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
+		final BlockMaterial[] column = new BlockMaterial[sizeY];
 		for (int xx = 0; xx < sizeX; xx++) {
-			for (int yy = 0; yy < sizeY; yy++) {
-				for (int zz = 0; zz < sizeZ; zz++) {
-					double density = noise[xx][yy][zz];
+			for (int zz = 0; zz < sizeZ; zz++) {
+				final int index = TerrainSampler.getIndex(xx, 0, zz, sizeY, sizeZ);
+				for (int yy = 0; yy < sizeY; yy++) {
+					double density = noise[index + yy];
 					if (y + yy < ELEVATION) {
 						density -= square(1d / LOWER_SIZE * (y + yy - ELEVATION));
 					} else if (y + yy >= ELEVATION) {
 						density -= square(1d / UPPER_SIZE * (y + yy - ELEVATION));
 					}
-					if (density >= 0.3) {
-						blockData.set(x + xx, y + yy, z + zz, VanillaMaterials.STONE);
-					}
+					column[yy] = density >= 0.3 ? VanillaMaterials.STONE : null;
 				}
+				TerrainSampler.setColumn(blockData, x + xx, y, z + zz, column, sizeY);
 			}
 		}
 	}
@@ -28,13 +28,42 @@ package org.spout.vanilla.world.generator.structure;
 
 import java.util.Random;
 
+import org.spout.api.geo.World;
+
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 import org.spout.vanilla.world.generator.object.RandomObject;
 
 public abstract class Structure extends RandomObject {
+	private PopulatorBuffer buffer;
+
 	public Structure() {
 	}
 
 	public Structure(Random random) {
 		super(random);
 	}
+
+	/**
+	 * Places the pieces of this structure, all through one buffer that is committed once every piece is placed
+	 */
+	@Override
+	public final void placeObject(World w, int x, int y, int z) {
+		buffer = new PopulatorBuffer(w);
+		try {
+			placePieces(w, x, y, z);
+			buffer.commit();
+		} finally {
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Gets the buffer the pieces read and set blocks through while this structure is being placed
+	 * @return the buffer
+	 */
+	public PopulatorBuffer getBuffer() {
+		return buffer;
+	}
+
+	protected abstract void placePieces(World w, int x, int y, int z);
 }
@@ -44,6 +44,7 @@ import org.spout.vanilla.material.block.Directional;
 import org.spout.vanilla.material.block.DoorBlock;
 import org.spout.vanilla.material.block.Liquid;
 import org.spout.vanilla.material.block.attachable.Attachable;
+import org.spout.vanilla.world.generator.PopulatorBuffer;
 
 public abstract class StructurePiece {
 	protected Structure parent;
@@ -51,6 +52,9 @@ public abstract class StructurePiece {
 	protected Point position = Point.invalid;
 	protected Quaternion rotation = Quaternion.IDENTITY;
 	protected Vector3 rotationPoint = Vector3.ZERO;
+	// origin, then the x, y and z axes of the piece in world coordinates, updated when the piece is moved or rotated
+	private final float[] axes = new float[12];
+	private boolean axesValid = false;
 
 	public StructurePiece(Structure parent) {
 		this.parent = parent;
@@ -72,13 +76,15 @@ public abstract class StructurePiece {
 		this.lastComponent = lastComponent;
 	}
 
+	/**
+	 * Gets a block of the piece to edit directly, writing its buffered edit first
+	 */
 	public Block getBlock(int xx, int yy, int zz) {
-		return position.getWorld().getBlock(transform(xx, yy, zz));
+		return parent.getBuffer().getBlock(getWorldX(xx, yy, zz), getWorldY(xx, yy, zz), getWorldZ(xx, yy, zz));
 	}
 
 	public BlockMaterial getBlockMaterial(int xx, int yy, int zz) {
-		final Vector3 transformed = transform(xx, yy, zz);
-		return position.getWorld().getBlockMaterial(transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ());
+		return parent.getBuffer().getBlockMaterial(getWorldX(xx, yy, zz), getWorldY(xx, yy, zz), getWorldZ(xx, yy, zz));
 	}
 
 	public void setBlockMaterial(int xx, int yy, int zz, BlockMaterial material) {
@@ -86,12 +92,14 @@ public abstract class StructurePiece {
 	}
 
 	public void setBlockMaterial(int xx, int yy, int zz, BlockMaterial material, short data) {
-		final Vector3 transformed = transform(xx, yy, zz);
-		position.getWorld().setBlockMaterial(transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ(),
-				material, data, null);
+		final PopulatorBuffer buffer = parent.getBuffer();
+		final int x = getWorldX(xx, yy, zz);
+		final int y = getWorldY(xx, yy, zz);
+		final int z = getWorldZ(xx, yy, zz);
+		buffer.setBlockMaterial(x, y, z, material, data);
 		if (material instanceof Directional) {
 			final Directional directional = (Directional) material;
-			final Block block = position.getWorld().getBlock(transformed);
+			final Block block = buffer.getBlock(x, y, z);
 			final BlockFace face = directional.getFacing(block);
 			if (face != BlockFace.BOTTOM && face != BlockFace.TOP) {
 				directional.setFacing(block, BlockFace.fromYaw(face.getDirection().getYaw()
@@ -99,7 +107,7 @@ public abstract class StructurePiece {
 			}
 		} else if (material instanceof Attachable) {
 			final Attachable attachable = (Attachable) material;
-			final Block block = position.getWorld().getBlock(transformed);
+			final Block block = buffer.getBlock(x, y, z);
 			final BlockFace face = attachable.getAttachedFace(block);
 			if (face != BlockFace.BOTTOM && face != BlockFace.TOP) {
 				attachable.setAttachedFace(block, BlockFace.fromYaw(face.getDirection().getYaw()
@@ -124,7 +132,12 @@ public abstract class StructurePiece {
 		}
 	}
 
+	/**
+	 * Attaches a material to the first neighbour of the block it can attach to, committing the buffered edits of the structure
+	 * first so the neighbours are read as placed, even across chunks
+	 */
 	public void attachMaterial(int xx, int yy, int zz, Attachable attachable) {
+		parent.getBuffer().commit();
 		final Block block = getBlock(xx, yy, zz);
 		for (BlockFace face : BlockFaces.BTNSWE) {
 			final Block adjacent = block.translate(face);
@@ -140,19 +153,30 @@ public abstract class StructurePiece {
 	}
 
 	public void fillDownwards(int xx, int yy, int zz, short limit, BlockMaterial material, short data) {
+		final PopulatorBuffer buffer = parent.getBuffer();
+		final int x = getWorldX(xx, yy, zz);
+		final int z = getWorldZ(xx, yy, zz);
+		int y = getWorldY(xx, yy, zz);
 		short counter = 0;
-		Block block;
-		while (((block = getBlock(xx, yy, zz)).getMaterial().isMaterial(VanillaMaterials.AIR)
-				|| block.getMaterial() instanceof Liquid) && counter++ < limit) {
-			block.setMaterial(material, data);
-			yy--;
+		BlockMaterial current;
+		while (((current = buffer.getBlockMaterial(x, y, z)).isMaterial(VanillaMaterials.AIR)
+				|| current instanceof Liquid) && counter++ < limit) {
+			buffer.setBlockMaterial(x, y, z, material, data);
+			y--;
 		}
 	}
 
+	/**
+	 * Places an object in the world, committing the buffered edits of the structure first
+	 */
 	public void placeObject(int xx, int yy, int zz, WorldGeneratorObject object) {
-		final Vector3 transformed = transform(xx, yy, zz);
-		if (object.canPlaceObject(position.getWorld(), transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ())) {
-			object.placeObject(position.getWorld(), transformed.getFloorX(), transformed.getFloorY(), transformed.getFloorZ());
+		final PopulatorBuffer buffer = parent.getBuffer();
+		final int x = getWorldX(xx, yy, zz);
+		final int y = getWorldY(xx, yy, zz);
+		final int z = getWorldZ(xx, yy, zz);
+		buffer.commit();
+		if (object.canPlaceObject(buffer.getWorld(), x, y, z)) {
+			object.placeObject(buffer.getWorld(), x, y, z);
 		}
 	}
 
@@ -170,16 +194,54 @@ public abstract class StructurePiece {
 		return VectorMath.transform(new Vector3(x, y, z).subtract(rotationPoint), rotation).add(rotationPoint);
 	}
 
+	/**
+	 * Gets the world x-coordinate of a block of the piece, the same as {@link #transform(int, int, int)} without allocating
+	 */
+	protected int getWorldX(int x, int y, int z) {
+		final float[] axes = getAxes();
+		return Math.round(axes[0] + x * axes[3] + y * axes[6] + z * axes[9]);
+	}
+
+	protected int getWorldY(int x, int y, int z) {
+		final float[] axes = getAxes();
+		return Math.round(axes[1] + x * axes[4] + y * axes[7] + z * axes[10]);
+	}
+
+	protected int getWorldZ(int x, int y, int z) {
+		final float[] axes = getAxes();
+		return Math.round(axes[2] + x * axes[5] + y * axes[8] + z * axes[11]);
+	}
+
+	private float[] getAxes() {
+		if (!axesValid) {
+			final Vector3 origin = rotate(0, 0, 0);
+			setAxis(0, origin.add(position));
+			setAxis(3, rotate(1, 0, 0).subtract(origin));
+			setAxis(6, rotate(0, 1, 0).subtract(origin));
+			setAxis(9, rotate(0, 0, 1).subtract(origin));
+			axesValid = true;
+		}
+		return axes;
+	}
+
+	private void setAxis(int index, Vector3 axis) {
+		axes[index] = axis.getX();
+		axes[index + 1] = axis.getY();
+		axes[index + 2] = axis.getZ();
+	}
+
 	public Point getPosition() {
 		return position;
 	}
 
 	public void setPosition(Point position) {
 		this.position = position;
+		axesValid = false;
 	}
 
 	public void offsetPosition(int x, int y, int z) {
 		position = position.add(x, y, z);
+		axesValid = false;
 	}
 
 	public void offsetPosition(Vector3 offset) {
@@ -192,6 +254,7 @@ public abstract class StructurePiece {
 
 	public void setRotation(Quaternion rotation) {
 		this.rotation = rotation;
+		axesValid = false;
 	}
 
 	public Vector3 getRotationPoint() {
@@ -200,6 +263,7 @@ public abstract class StructurePiece {
 
 	public void setRotationPoint(Vector3 rotationPoint) {
 		this.rotationPoint = rotationPoint;
+		axesValid = false;
 	}
 
 	public abstract boolean canPlace();
@@ -32,16 +32,18 @@ import net.royawesome.jlibnoise.NoiseQuality;
 import net.royawesome.jlibnoise.module.modifier.ScalePoint;
 import net.royawesome.jlibnoise.module.source.Perlin;
 
-import org.spout.api.generator.WorldGeneratorUtils;
 import org.spout.api.generator.biome.BiomeManager;
 import org.spout.api.geo.World;
 import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.geo.discrete.Point;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.math.Vector3;
 import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
 
 import org.spout.vanilla.material.VanillaMaterials;
 import org.spout.vanilla.material.block.Liquid;
+import org.spout.vanilla.world.generator.SeededModule;
+import org.spout.vanilla.world.generator.TerrainSampler;
 import org.spout.vanilla.world.generator.biome.VanillaBiomes;
 import org.spout.vanilla.world.generator.biome.VanillaSingleBiomeGenerator;
 
@@ -53,21 +55,25 @@ public class TheEndGenerator extends VanillaSingleBiomeGenerator {
 	public static final int MINIMUM = ELEVATION - LOWER_SIZE;
 	public static final int HEIGHT = ELEVATION + UPPER_SIZE;
 	// noise for generation
-	private static final Perlin PERLIN = new Perlin();
-	private static final ScalePoint NOISE = new ScalePoint();
+	private static final SeededModule<ScalePoint> NOISE = new SeededModule<ScalePoint>() {
+		@Override
+		protected ScalePoint build(long seed) {
+			final Perlin perlin = new Perlin();
+			perlin.setSeed((int) seed * 23);
+			perlin.setFrequency(0.01);
+			perlin.setLacunarity(2);
+			perlin.setNoiseQuality(NoiseQuality.BEST);
+			perlin.setPersistence(0.5);
+			perlin.setOctaveCount(16);
 
-	static {
-		PERLIN.setFrequency(0.01);
-		PERLIN.setLacunarity(2);
-		PERLIN.setNoiseQuality(NoiseQuality.BEST);
-		PERLIN.setPersistence(0.5);
-		PERLIN.setOctaveCount(16);
-
-		NOISE.SetSourceModule(0, PERLIN);
-		NOISE.setxScale(1);
-		NOISE.setyScale(1);
-		NOISE.setzScale(1);
-	}
+			final ScalePoint noise = new ScalePoint();
+			noise.SetSourceModule(0, perlin);
+			noise.setxScale(1);
+			noise.setyScale(1);
+			noise.setzScale(1);
+			return noise;
+		}
+	};
 
 	public TheEndGenerator() {
 		super(VanillaBiomes.ENDSTONE);
@@ -86,29 +92,29 @@ public class TheEndGenerator extends VanillaSingleBiomeGenerator {
 
 	@Override
 	protected void generateTerrain(CuboidBlockMaterialBuffer blockData, int x, int y, int z, BiomeManager biomes, long seed) {
-		PERLIN.setSeed((int) seed * 23);
 		final Vector3 size = blockData.getSize();
 		final int sizeX = size.getFloorX();
 		final int sizeY = size.getFloorY();
 		final int sizeZ = size.getFloorZ();
-		final double[][][] noise = WorldGeneratorUtils.fastNoise(NOISE, sizeX, sizeY, sizeZ, 4, x, y, z);
+		final double[] noise = TerrainSampler.sample(NOISE.get(seed), sizeX, sizeY, sizeZ, 4, x, y, z);
+		final BlockMaterial[] column = new BlockMaterial[sizeY];
 		for (int xx = 0; xx < sizeX; xx++) {
 			for (int zz = 0; zz < sizeZ; zz++) {
 				final int totalX = x + xx;
 				final int totalZ = z + zz;
 				final double distance = Math.sqrt(totalX * totalX + totalZ * totalZ);
+				final int index = TerrainSampler.getIndex(xx, 0, zz, sizeY, sizeZ);
 				for (int yy = 0; yy < sizeY; yy++) {
-					double density = noise[xx][yy][zz] * 0.5 + 0.5;
+					double density = noise[index + yy] * 0.5 + 0.5;
 					if (y + yy < ELEVATION) {
 						density += 1d / LOWER_SIZE * (y + yy - ELEVATION);
 					} else if (y + yy >= ELEVATION) {
 						density -= 1d / UPPER_SIZE * (y + yy - ELEVATION);
 					}
 					density *= ISLAND_RADIUS / distance;
-					if (density >= 1) {
-						blockData.set(totalX, y + yy, totalZ, VanillaMaterials.END_STONE);
-					}
+					column[yy] = density >= 1 ? VanillaMaterials.END_STONE : null;
 				}
+				TerrainSampler.setColumn(blockData, totalX, y, totalZ, column, sizeY);
 			}
 		}
 	}
@@ -0,0 +1,369 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import org.spout.api.math.Vector3;
+import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
+import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
+
+/**
+ * A breadth first light propagation pass over a cuboid.<br>
+ * <br>
+ * All blocks added through {@link #addChanged(int, int, int)} are resolved together: first a decrease pass clears the light that could
+ * have come from the old state of the blocks, then an increase pass floods the light of the emitters and of the borders of the cleared area.
+ * When the manager has direct sunlight, full light spreads down through transparent blocks without decreasing.<br>
+ * Queue entries are coordinates relative to the cuboid, packed into a single int together with a light level.<br>
+ * <br>
+ * Instances are not thread safe, each lighting thread uses its own instance.
+ */
+class LightPropagator {
+	private static final int BITS = 9;
+	private static final int MASK = (1 << BITS) - 1;
+	private static final int X_SHIFT = BITS << 1;
+	private static final int Y_SHIFT = BITS;
+	private static final int LEVEL_SHIFT = BITS * 3;
+	private static final int COORD_MASK = (1 << LEVEL_SHIFT) - 1;
+	/**
+	 * The maximum size of the cuboid along each axis
+	 */
+	public static final int MAX_SIZE = 1 << BITS;
+	private static final int MAX_LEVEL = 15;
+	private static final int DOWN = 3;
+	private static final int[] OFFSET_X = {1, -1, 0, 0, 0, 0};
+	private static final int[] OFFSET_Y = {0, 0, 1, -1, 0, 0};
+	private static final int[] OFFSET_Z = {0, 0, 0, 0, 1, -1};
+	private final TIntArrayList decrease = new TIntArrayList();
+	private final TIntArrayList increase = new TIntArrayList();
+	private VanillaLightingManager manager;
+	private ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light;
+	private ImmutableCuboidBlockMaterialBuffer material;
+	private int baseX, baseY, baseZ;
+	private int sizeX, sizeY, sizeZ;
+	private boolean directSunlight;
+	private int updated;
+
+	/**
+	 * Starts a pass over the cuboid covered by the material buffer
+	 * @param manager the lighting manager, which defines the emitted light of blocks
+	 * @param light the light buffers to update
+	 * @param material the materials of the cuboid
+	 */
+	public void init(VanillaLightingManager manager, ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material) {
+		Vector3 base = material.getBase();
+		Vector3 top = material.getTop();
+		this.baseX = base.getFloorX();
+		this.baseY = base.getFloorY();
+		this.baseZ = base.getFloorZ();
+		this.sizeX = top.getFloorX() - baseX;
+		this.sizeY = top.getFloorY() - baseY;
+		this.sizeZ = top.getFloorZ() - baseZ;
+		if (sizeX > MAX_SIZE || sizeY > MAX_SIZE || sizeZ > MAX_SIZE) {
+			throw new IllegalArgumentException("Cuboid of size " + sizeX + ", " + sizeY + ", " + sizeZ + " exceeds the maximum light pass size of " + MAX_SIZE);
+		}
+		this.manager = manager;
+		this.light = light;
+		this.material = material;
+		this.directSunlight = manager.hasDirectSunlight();
+		this.updated = 0;
+		decrease.resetQuick();
+		increase.resetQuick();
+		VanillaCuboidLightBuffer.beginPass();
+	}
+
+	/**
+	 * Adds a block whose material changed, its light is computed again along with all light that passed through it
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 */
+	public void addChanged(int x, int y, int z) {
+		int rx = x - baseX;
+		int ry = y - baseY;
+		int rz = z - baseZ;
+		if (!contains(rx, ry, rz)) {
+			return;
+		}
+		int old = light.get(x, y, z);
+		int emitted = manager.getEmittedLight(material, x, y, z);
+		int packed = pack(rx, ry, rz);
+		if (old > emitted) {
+			light.set(x, y, z, (byte) emitted);
+			updated++;
+			decrease.add(packed | old << LEVEL_SHIFT);
+		} else if (old < emitted) {
+			light.set(x, y, z, (byte) emitted);
+			updated++;
+		}
+		// The light of the neighbours may now pass through the block
+		increase.add(packed);
+		for (int i = 0; i < 6; i++) {
+			int nx = rx + OFFSET_X[i];
+			int ny = ry + OFFSET_Y[i];
+			int nz = rz + OFFSET_Z[i];
+			if (contains(nx, ny, nz)) {
+				increase.add(pack(nx, ny, nz));
+			}
+		}
+	}
+
+	/**
+	 * Adds all blocks of a cuboid whose materials changed.<br>
+	 * A cuboid without any light, like a freshly generated one, is lit in a single sweep instead: every column is seeded with the emitted
+	 * light and the direct sunlight entering from above, and the light around the cuboid is spread into it.
+	 * @param bx base x coordinate
+	 * @param by base y coordinate
+	 * @param bz base z coordinate
+	 * @param tx top x coordinate, exclusive
+	 * @param ty top y coordinate, exclusive
+	 * @param tz top z coordinate, exclusive
+	 */
+	public void addChanged(int bx, int by, int bz, int tx, int ty, int tz) {
+		bx = Math.max(bx, baseX);
+		by = Math.max(by, baseY);
+		bz = Math.max(bz, baseZ);
+		tx = Math.min(tx, baseX + sizeX);
+		ty = Math.min(ty, baseY + sizeY);
+		tz = Math.min(tz, baseZ + sizeZ);
+		if (bx >= tx || by >= ty || bz >= tz) {
+			return;
+		}
+		if (!isDark(bx, by, bz, tx, ty, tz)) {
+			for (int x = bx; x < tx; x++) {
+				for (int y = by; y < ty; y++) {
+					for (int z = bz; z < tz; z++) {
+						addChanged(x, y, z);
+					}
+				}
+			}
+			return;
+		}
+		for (int x = bx; x < tx; x++) {
+			for (int z = bz; z < tz; z++) {
+				seedColumn(x, z, by, ty);
+			}
+		}
+		addBorder(bx, by, bz, tx, ty, tz);
+	}
+
+	private boolean isDark(int bx, int by, int bz, int tx, int ty, int tz) {
+		for (int x = bx; x < tx; x++) {
+			for (int y = by; y < ty; y++) {
+				for (int z = bz; z < tz; z++) {
+					if (light.get(x, y, z) != 0) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private void seedColumn(int x, int z, int by, int ty) {
+		int sunlight = 0;
+		if (directSunlight) {
+			// Above the buffers is open sky
+			sunlight = ty < baseY + sizeY ? light.get(x, ty, z) : MAX_LEVEL;
+		}
+		int rx = x - baseX;
+		int rz = z - baseZ;
+		for (int y = ty - 1; y >= by; y--) {
+			if (sunlight == MAX_LEVEL) {
+				sunlight -= manager.getOpacity(material, x, y, z);
+			} else {
+				sunlight = 0;
+			}
+			int level = Math.max(sunlight, manager.getEmittedLight(material, x, y, z));
+			if (level > 0) {
+				light.set(x, y, z, (byte) level);
+				updated++;
+				increase.add(pack(rx, y - baseY, rz));
+			}
+		}
+	}
+
+	private void addBorder(int bx, int by, int bz, int tx, int ty, int tz) {
+		for (int x = bx; x < tx; x++) {
+			for (int y = by; y < ty; y++) {
+				addSource(x, y, bz - 1);
+				addSource(x, y, tz);
+			}
+			for (int z = bz; z < tz; z++) {
+				addSource(x, by - 1, z);
+				addSource(x, ty, z);
+			}
+		}
+		for (int y = by; y < ty; y++) {
+			for (int z = bz; z < tz; z++) {
+				addSource(bx - 1, y, z);
+				addSource(tx, y, z);
+			}
+		}
+	}
+
+	/**
+	 * Raises the light of a block and spreads it to its neighbours
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @param level the light level of the block
+	 */
+	public void addLight(int x, int y, int z, int level) {
+		int rx = x - baseX;
+		int ry = y - baseY;
+		int rz = z - baseZ;
+		if (!contains(rx, ry, rz)) {
+			return;
+		}
+		if (level > light.get(x, y, z)) {
+			light.set(x, y, z, (byte) level);
+			updated++;
+		}
+		increase.add(pack(rx, ry, rz));
+	}
+
+	/**
+	 * Adds a block whose current light has to be spread to its neighbours
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 */
+	public void addSource(int x, int y, int z) {
+		int rx = x - baseX;
+		int ry = y - baseY;
+		int rz = z - baseZ;
+		if (contains(rx, ry, rz)) {
+			increase.add(pack(rx, ry, rz));
+		}
+	}
+
+	/**
+	 * Runs the decrease and increase passes for all added blocks and releases the buffers.<br>
+	 * The cached payloads of the chunks whose light changed are invalidated once, at the end.
+	 * @return the number of light values that were set
+	 */
+	public int run() {
+		try {
+			runDecrease();
+			runIncrease();
+		} finally {
+			VanillaCuboidLightBuffer.endPass();
+		}
+		int count = updated;
+		this.manager = null;
+		this.light = null;
+		this.material = null;
+		return count;
+	}
+
+	private void runDecrease() {
+		for (int i = 0; i < decrease.size(); i++) {
+			int entry = decrease.getQuick(i);
+			int level = entry >>> LEVEL_SHIFT;
+			int rx = (entry >> X_SHIFT) & MASK;
+			int ry = (entry >> Y_SHIFT) & MASK;
+			int rz = entry & MASK;
+			for (int face = 0; face < 6; face++) {
+				int nx = rx + OFFSET_X[face];
+				int ny = ry + OFFSET_Y[face];
+				int nz = rz + OFFSET_Z[face];
+				if (!contains(nx, ny, nz)) {
+					continue;
+				}
+				int x = nx + baseX;
+				int y = ny + baseY;
+				int z = nz + baseZ;
+				int neighbor = light.get(x, y, z);
+				if (neighbor == 0) {
+					continue;
+				}
+				int packed = pack(nx, ny, nz);
+				// Full sunlight passes down without losing a level
+				if (neighbor < level || (directSunlight && face == DOWN && neighbor == MAX_LEVEL)) {
+					// The neighbour may have been lit through this block
+					int emitted = manager.getEmittedLight(material, x, y, z);
+					light.set(x, y, z, (byte) emitted);
+					updated++;
+					decrease.add(packed | neighbor << LEVEL_SHIFT);
+					if (emitted > 0) {
+						increase.add(packed);
+					}
+				} else {
+					// The neighbour is lit by another source, which refills the cleared blocks
+					increase.add(packed);
+				}
+			}
+		}
+		decrease.resetQuick();
+	}
+
+	private void runIncrease() {
+		for (int i = 0; i < increase.size(); i++) {
+			int entry = increase.getQuick(i) & COORD_MASK;
+			int rx = (entry >> X_SHIFT) & MASK;
+			int ry = (entry >> Y_SHIFT) & MASK;
+			int rz = entry & MASK;
+			int level = light.get(rx + baseX, ry + baseY, rz + baseZ);
+			if (level <= 1) {
+				continue;
+			}
+			for (int face = 0; face < 6; face++) {
+				int nx = rx + OFFSET_X[face];
+				int ny = ry + OFFSET_Y[face];
+				int nz = rz + OFFSET_Z[face];
+				if (!contains(nx, ny, nz)) {
+					continue;
+				}
+				int x = nx + baseX;
+				int y = ny + baseY;
+				int z = nz + baseZ;
+				int opacity = manager.getOpacity(material, x, y, z);
+				int spread;
+				if (directSunlight && face == DOWN && level == MAX_LEVEL) {
+					spread = level - opacity;
+				} else {
+					spread = level - Math.max(1, opacity);
+				}
+				if (spread > light.get(x, y, z)) {
+					light.set(x, y, z, (byte) spread);
+					updated++;
+					increase.add(pack(nx, ny, nz));
+				}
+			}
+		}
+		increase.resetQuick();
+	}
+
+	private boolean contains(int rx, int ry, int rz) {
+		return rx >= 0 && ry >= 0 && rz >= 0 && rx < sizeX && ry < sizeY && rz < sizeZ;
+	}
+
+	private static int pack(int rx, int ry, int rz) {
+		return rx << X_SHIFT | ry << Y_SHIFT | rz;
+	}
+}
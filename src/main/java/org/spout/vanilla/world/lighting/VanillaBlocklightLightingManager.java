@@ -26,6 +26,7 @@
  */
 package org.spout.vanilla.world.lighting;
 
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
 import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
 
@@ -36,14 +37,31 @@ public class VanillaBlocklightLightingManager extends VanillaLightingManager {
 
 	@Override
 	public void resolve(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, int[] x, int[] y, int[] z, int changedBlocks) {
-		/*if (changedBlocks > 0) {
-			Spout.getLogger().info(getClass().getSimpleName() + ":" + changedBlocks + " blocks changed");
-			Spout.getLogger().info("Material (" + x[0] + ", " + y[0] + ", " + z[0] + ") changed to: " + material.get(x[0], y[0], z[0]));
-		}*/
+		if (changedBlocks <= 0) {
+			return;
+		}
+		LightPropagator propagator = getPropagator(light, material);
+		for (int i = 0; i < changedBlocks; i++) {
+			propagator.addChanged(x[i], y[i], z[i]);
+		}
+		propagator.run();
 	}
 
 	@Override
 	public void resolve(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, int[] bx, int[] by, int[] bz, int[] tx, int[] ty, int[] tz, int changedCuboids) {
-		//Spout.getLogger().info(getClass().getSimpleName() + ":" + changedCuboids + " cuboids changed");
+		if (changedCuboids <= 0) {
+			return;
+		}
+		LightPropagator propagator = getPropagator(light, material);
+		for (int i = 0; i < changedCuboids; i++) {
+			propagator.addChanged(bx[i], by[i], bz[i], tx[i], ty[i], tz[i]);
+		}
+		propagator.run();
+	}
+
+	@Override
+	protected int getEmittedLight(ImmutableCuboidBlockMaterialBuffer material, int x, int y, int z) {
+		BlockMaterial m = material.get(x, y, z);
+		return m == null ? 0 : m.getLightLevel(material.getData(x, y, z));
 	}
 }
@@ -26,19 +26,75 @@
  */
 package org.spout.vanilla.world.lighting;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.spout.api.geo.cuboid.Chunk;
 import org.spout.api.lighting.Modifiable;
 import org.spout.api.util.cuboid.CuboidNibbleLightBuffer;
 
+import org.spout.vanilla.protocol.chunk.ChunkPayloadCache;
+
+/**
+ * The light buffer of a chunk. Light values are part of the chunk data sent to clients, so every change invalidates the cached payloads of
+ * the chunk.<br>
+ * Changes made during a light pass of the current thread only mark the buffer, and the chunks of all marked buffers are invalidated once
+ * when the pass ends, so a pass setting thousands of values does not contend on the cache for every one of them.
+ */
 public class VanillaCuboidLightBuffer extends CuboidNibbleLightBuffer {
+	private static final ThreadLocal<List<VanillaCuboidLightBuffer>> PASS = new ThreadLocal<List<VanillaCuboidLightBuffer>>();
+	private final Chunk chunk;
+	private boolean changed = false;
+
 	protected VanillaCuboidLightBuffer(VanillaCuboidLightBuffer buffer) {
 		super(buffer);
+		this.chunk = buffer.chunk;
 	}
 
 	protected VanillaCuboidLightBuffer(Modifiable holder, int id, int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ) {
 		super(holder, id, baseX, baseY, baseZ, sizeX, sizeY, sizeZ);
+		this.chunk = holder instanceof Chunk ? (Chunk) holder : null;
 	}
 
 	protected VanillaCuboidLightBuffer(Modifiable holder, int id, int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ, byte[] data) {
 		super(holder, id, baseX, baseY, baseZ, sizeX, sizeY, sizeZ, data);
+		this.chunk = holder instanceof Chunk ? (Chunk) holder : null;
+	}
+
+	@Override
+	public void set(int x, int y, int z, byte value) {
+		if (chunk != null && get(x, y, z) != value) {
+			List<VanillaCuboidLightBuffer> pass = PASS.get();
+			if (pass == null) {
+				ChunkPayloadCache.getInstance().invalidate(chunk);
+			} else if (!changed) {
+				changed = true;
+				pass.add(this);
+			}
+		}
+		super.set(x, y, z, value);
+	}
+
+	/**
+	 * Starts a light pass on the current thread, ending the previous one if it was not ended
+	 */
+	static void beginPass() {
+		endPass();
+		PASS.set(new ArrayList<VanillaCuboidLightBuffer>());
+	}
+
+	/**
+	 * Ends the light pass of the current thread, invalidating the payloads of every chunk whose light changed during the pass
+	 */
+	static void endPass() {
+		List<VanillaCuboidLightBuffer> pass = PASS.get();
+		if (pass == null) {
+			return;
+		}
+		PASS.remove();
+		for (VanillaCuboidLightBuffer buffer : pass) {
+			buffer.changed = false;
+			ChunkPayloadCache.getInstance().invalidate(buffer.chunk);
+		}
 	}
 }
@@ -28,14 +28,65 @@ package org.spout.vanilla.world.lighting;
 
 import org.spout.api.lighting.LightingManager;
 import org.spout.api.lighting.Modifiable;
+import org.spout.api.material.BlockMaterial;
 import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
 import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
 
 public abstract class VanillaLightingManager extends LightingManager<VanillaCuboidLightBuffer> {
+	private final ThreadLocal<LightPropagator> propagators = new ThreadLocal<LightPropagator>() {
+		@Override
+		protected LightPropagator initialValue() {
+			return new LightPropagator();
+		}
+	};
+
 	public VanillaLightingManager(String name) {
 		super(name);
 	}
 
+	/**
+	 * Gets the light propagator of the current thread, initialized for the given buffers
+	 * @param light the light buffers to update
+	 * @param material the materials of the cuboid
+	 * @return the propagator
+	 */
+	protected LightPropagator getPropagator(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material) {
+		LightPropagator propagator = propagators.get();
+		propagator.init(this, light, material);
+		return propagator;
+	}
+
+	/**
+	 * Gets the light a block emits by itself
+	 * @param material the materials of the cuboid
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the light level
+	 */
+	protected abstract int getEmittedLight(ImmutableCuboidBlockMaterialBuffer material, int x, int y, int z);
+
+	/**
+	 * Gets the opacity of a block. Light entering the block decreases by its opacity, and by at least one level
+	 * @param material the materials of the cuboid
+	 * @param x coordinate of the block
+	 * @param y coordinate of the block
+	 * @param z coordinate of the block
+	 * @return the opacity
+	 */
+	protected int getOpacity(ImmutableCuboidBlockMaterialBuffer material, int x, int y, int z) {
+		BlockMaterial m = material.get(x, y, z);
+		return m == null ? 0 : m.getOpacity();
+	}
+
+	/**
+	 * Gets if full light spreads down through transparent blocks without decreasing, like sunlight does
+	 * @return true for direct sunlight
+	 */
+	protected boolean hasDirectSunlight() {
+		return false;
+	}
+
 	@Override
 	public VanillaCuboidLightBuffer deserialize(Modifiable holder, int baseX, int baseY, int baseZ, int sizeX, int sizeY, int sizeZ, byte[] data) {
 		return new VanillaCuboidLightBuffer(holder, getId(), baseX, baseY, baseZ, sizeX, sizeY, sizeZ, data);
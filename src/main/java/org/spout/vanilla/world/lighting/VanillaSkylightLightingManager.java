@@ -26,16 +26,56 @@
  */
 package org.spout.vanilla.world.lighting;
 
+import org.spout.api.math.Vector3;
 import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
 import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
 
+/**
+ * Resolves sky light incrementally. Blocks above the height map receive full light, which spreads down through transparent blocks without
+ * decreasing and spills sideways like block light. Changed blocks and changed height map columns only relight the area they affect.
+ */
 public class VanillaSkylightLightingManager extends VanillaBlocklightLightingManager {
+	private static final int SKY_LIGHT = 15;
+
 	public VanillaSkylightLightingManager(String name) {
 		super(name);
 	}
 
 	@Override
 	public void resolve(ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light, ImmutableCuboidBlockMaterialBuffer material, int[] hx, int[] hz, int[] oldHy, int[] newHy, int changedColumns) {
-		//Spout.getLogger().info(getClass().getSimpleName() + ":" + changedColumns + " columns changed");
+		if (changedColumns <= 0) {
+			return;
+		}
+		Vector3 base = material.getBase();
+		Vector3 top = material.getTop();
+		int baseY = base.getFloorY();
+		int topY = top.getFloorY();
+		LightPropagator propagator = getPropagator(light, material);
+		for (int i = 0; i < changedColumns; i++) {
+			int x = hx[i];
+			int z = hz[i];
+			int newHeight = newHy[i];
+			// Only the blocks between the old and the new height changed exposure
+			int minY = Math.max(baseY, Math.min(oldHy[i], newHeight));
+			int maxY = Math.min(topY - 1, Math.max(oldHy[i], newHeight));
+			for (int y = minY; y <= maxY; y++) {
+				if (y > newHeight) {
+					propagator.addLight(x, y, z, SKY_LIGHT);
+				} else {
+					propagator.addChanged(x, y, z);
+				}
+			}
+		}
+		propagator.run();
+	}
+
+	@Override
+	protected int getEmittedLight(ImmutableCuboidBlockMaterialBuffer material, int x, int y, int z) {
+		return 0;
+	}
+
+	@Override
+	protected boolean hasDirectSunlight() {
+		return true;
 	}
 }
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.components.world;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.spout.api.geo.cuboid.BlockContainer;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+
+import org.spout.vanilla.component.world.ChunkScan;
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertEquals;
+
+import static org.mockito.Matchers.any;
+
+public class ChunkScanTest {
+	private static int getState(BlockMaterial material) {
+		return (material.getId() & 0xFFFF) << 16;
+	}
+
+	@Test
+	public void testScan() {
+		VanillaMaterials.initialize();
+		final int[] states = new int[Chunk.BLOCKS.VOLUME];
+		states[5] = getState(VanillaMaterials.WATER);
+		states[6] = getState(VanillaMaterials.STATIONARY_WATER);
+		states[300] = getState(VanillaMaterials.REDSTONE_TORCH_ON);
+		states[4000] = getState(VanillaMaterials.FARMLAND);
+		states[4001] = getState(VanillaMaterials.FARMLAND);
+		Chunk chunk = Mockito.mock(Chunk.class);
+		Mockito.when(chunk.getX()).thenReturn(1);
+		Mockito.when(chunk.getY()).thenReturn(2);
+		Mockito.when(chunk.getZ()).thenReturn(-3);
+		Mockito.doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				BlockContainer container = (BlockContainer) invocation.getArguments()[0];
+				for (int state : states) {
+					container.setBlockFullState(state);
+				}
+				return null;
+			}
+		}).when(chunk).fillBlockContainer(any(BlockContainer.class));
+
+		ChunkScan scan = ChunkScan.scan(chunk);
+		// Only the flowing liquid is kept, the stationary one does not flow by itself
+		assertEquals(1, scan.getLiquids().size());
+		assertEquals(5, scan.getLiquids().get(0));
+		assertEquals(1, scan.getComponents().size());
+		assertEquals(2, scan.getTickableCount());
+
+		// Blocks are filled x first, then z, then y
+		int index = scan.getComponents().get(0);
+		assertEquals(16 + 12, scan.getX(index));
+		assertEquals(32 + 1, scan.getY(index));
+		assertEquals(-48 + 2, scan.getZ(index));
+	}
+}
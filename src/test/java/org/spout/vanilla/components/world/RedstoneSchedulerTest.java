@@ -0,0 +1,103 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.components.world;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.spout.vanilla.component.world.RedstoneScheduler;
+import org.spout.vanilla.component.world.RedstoneScheduler.Update;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RedstoneSchedulerTest {
+	@Test
+	public void testRepeatedUpdatesDropped() {
+		RedstoneScheduler scheduler = new RedstoneScheduler();
+		assertTrue(scheduler.add(1, 64, 1, 200, 1, false));
+		for (int i = 0; i < 10; i++) {
+			assertFalse(scheduler.add(1, 64, 1, 200, 1, false));
+		}
+		assertTrue(scheduler.add(1, 64, 1, 200, 0, false));
+		assertTrue(scheduler.add(2, 64, 1, 100, 1, false));
+		assertEquals(3, scheduler.getPending());
+
+		assertTrue(scheduler.pollDue(50).isEmpty());
+		assertEquals(10, scheduler.getDroppedPerTick());
+		List<Update> due = scheduler.pollDue(200);
+		assertEquals(3, due.size());
+		assertEquals(2, due.get(0).getX());
+		assertEquals(1, due.get(1).getData());
+		assertEquals(0, due.get(2).getData());
+		assertEquals(0, scheduler.getDroppedPerTick());
+		assertEquals(0, scheduler.getPending());
+
+		// Once run, the same update can be scheduled again
+		assertTrue(scheduler.add(1, 64, 1, 200, 1, false));
+	}
+
+	@Test
+	public void testExclusiveUpdates() {
+		RedstoneScheduler scheduler = new RedstoneScheduler();
+		scheduler.add(5, 10, -5, 100, 0, true);
+		scheduler.add(5, 10, -5, 300, 0, false);
+		scheduler.add(5, 10, -5, 500, 0, true);
+		List<Update> due = scheduler.pollDue(1000);
+		assertEquals(1, due.size());
+		assertEquals(500, due.get(0).getTime());
+
+		scheduler.add(5, 10, -5, 100, 0, false);
+		scheduler.remove(5, 10, -5);
+		assertTrue(scheduler.pollDue(1000).isEmpty());
+	}
+
+	@Test
+	public void testParkedUntilChunkLoads() {
+		RedstoneScheduler scheduler = new RedstoneScheduler();
+		scheduler.add(-20, 64, 35, 100, 1, false);
+		scheduler.add(-20, 64, 36, 100, 0, false);
+		List<Update> due = scheduler.pollDue(100);
+		assertEquals(2, due.size());
+
+		// The chunk was not loaded, so both updates wait for it
+		scheduler.park(due.get(0));
+		scheduler.park(due.get(1));
+		assertTrue(scheduler.pollDue(200).isEmpty());
+		assertFalse(scheduler.add(-20, 64, 35, 100, 1, false));
+		scheduler.remove(-20, 64, 36);
+
+		assertEquals(0, scheduler.unpark(-1, 4, 3));
+		assertEquals(1, scheduler.unpark(-2, 4, 2));
+		due = scheduler.pollDue(200);
+		assertEquals(1, due.size());
+		assertEquals(35, due.get(0).getZ());
+		assertEquals(0, scheduler.unpark(-2, 4, 2));
+	}
+}
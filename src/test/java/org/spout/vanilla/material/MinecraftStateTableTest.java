@@ -0,0 +1,92 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.material;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.spout.api.material.BlockMaterial;
+
+import org.spout.vanilla.EngineFaker;
+import org.spout.vanilla.data.resources.VanillaMaterialModels;
+import org.spout.vanilla.material.block.Solid;
+
+import static org.junit.Assert.assertEquals;
+
+public class MinecraftStateTableTest {
+	@Test
+	public void testTableMatchesConversion() throws IllegalAccessException {
+		EngineFaker.setupEngine();
+		VanillaMaterials.initialize();
+		for (Field field : VanillaMaterials.class.getFields()) {
+			if ((field.getModifiers() & Modifier.STATIC) == 0 || !BlockMaterial.class.isAssignableFrom(field.getType())) {
+				continue;
+			}
+			BlockMaterial material = (BlockMaterial) field.get(null);
+			short id = material.getId();
+			for (short data = 0; data < 16; data++) {
+				BlockMaterial state = BlockMaterial.get(id, data);
+				int expected = VanillaMaterials.getMinecraftId(state) << 4 | (VanillaMaterials.getMinecraftData(state, data) & 0xF);
+				assertEquals("State " + data + " of " + field.getName(), expected, VanillaMaterials.getMinecraftState(id, data));
+			}
+		}
+		assertEquals(1 << 4, VanillaMaterials.getMinecraftState(VanillaMaterials.STONE.getId(), (short) 0));
+	}
+
+	@Test
+	public void testInvalidation() {
+		EngineFaker.setupEngine();
+		short id = VanillaMaterials.REDSTONE_WIRE.getId();
+		short max = VanillaBlockMaterial.REDSTONE_POWER_MAX;
+		try {
+			assertEquals(55 << 4 | 10, VanillaMaterials.getMinecraftState(id, (short) 10));
+			VanillaBlockMaterial.REDSTONE_POWER_MAX = 10;
+			VanillaMaterials.invalidateMinecraftStates();
+			assertEquals(55 << 4 | 15, VanillaMaterials.getMinecraftState(id, (short) 10));
+		} finally {
+			VanillaBlockMaterial.REDSTONE_POWER_MAX = max;
+			VanillaMaterials.invalidateMinecraftStates();
+		}
+	}
+
+	@Test
+	public void testLateRegistration() {
+		EngineFaker.setupEngine();
+		VanillaMaterials.initialize();
+		Solid first = new Solid("State Table Test First", 1, VanillaMaterialModels.STONE);
+		short id = (short) (first.getId() + 1);
+		// Ids are handed out in order, the next one is looked up before a material is registered for it
+		Assume.assumeTrue(BlockMaterial.get(id) == null);
+		assertEquals(0, VanillaMaterials.getMinecraftState(id, (short) 0));
+		Solid late = new Solid("State Table Test Late", 4, VanillaMaterialModels.STONE);
+		Assume.assumeTrue(late.getId() == id);
+		assertEquals(4 << 4, VanillaMaterials.getMinecraftState(id, (short) 0));
+	}
+}
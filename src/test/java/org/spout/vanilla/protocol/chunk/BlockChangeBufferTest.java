@@ -0,0 +1,80 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.geo.cuboid.Chunk;
+
+import org.spout.vanilla.protocol.chunk.BlockChangeBuffer.ChunkChanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BlockChangeBufferTest {
+	private static Chunk mockChunk(int x, int y, int z) {
+		Chunk chunk = Mockito.mock(Chunk.class);
+		Mockito.when(chunk.getBlockX()).thenReturn(x << Chunk.BLOCKS.BITS);
+		Mockito.when(chunk.getBlockY()).thenReturn(y << Chunk.BLOCKS.BITS);
+		Mockito.when(chunk.getBlockZ()).thenReturn(z << Chunk.BLOCKS.BITS);
+		return chunk;
+	}
+
+	@Test
+	public void testCoalesce() {
+		BlockChangeBuffer buffer = new BlockChangeBuffer();
+		Chunk first = mockChunk(1, 2, -3);
+		Chunk second = mockChunk(0, 0, 0);
+
+		buffer.add(first, 1, 2, 3, (short) 1, (short) 0);
+		buffer.add(second, 15, 15, 15, (short) 4, (short) 5);
+		buffer.add(first, 1, 2, 3, (short) 35, (short) 14);
+
+		List<ChunkChanges> changes = buffer.drain();
+		assertEquals(2, changes.size());
+
+		ChunkChanges firstChanges = changes.get(0);
+		assertSame(first, firstChanges.getChunk());
+		assertEquals(1, firstChanges.getCount());
+		assertEquals(17, firstChanges.getX(0));
+		assertEquals(34, firstChanges.getY(0));
+		assertEquals(-45, firstChanges.getZ(0));
+		assertEquals(35, firstChanges.getId(0));
+		assertEquals(14, firstChanges.getData(0));
+
+		ChunkChanges secondChanges = changes.get(1);
+		assertEquals(15, secondChanges.getX(0));
+		assertEquals(15, secondChanges.getY(0));
+		assertEquals(15, secondChanges.getZ(0));
+
+		assertTrue(buffer.drain().isEmpty());
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkCompressorTest {
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(42);
+		for (int size : new int[] {1, 4096, 81920}) {
+			byte[] data = new byte[size];
+			// Mostly random data, so the output has to grow past the initial buffer
+			random.nextBytes(data);
+			byte[] compressed = ChunkCompressor.deflate(data, 0, data.length);
+			byte[] result = new byte[size];
+			assertEquals(size, ChunkCompressor.inflate(compressed, result));
+			assertArrayEquals(data, result);
+		}
+	}
+
+	@Test
+	public void testOffset() throws IOException {
+		byte[] data = new byte[100];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		byte[] compressed = ChunkCompressor.deflate(data, 10, 50);
+		byte[] result = new byte[50];
+		assertEquals(50, ChunkCompressor.inflate(compressed, result));
+		for (int i = 0; i < result.length; i++) {
+			assertEquals(i + 10, result[i]);
+		}
+	}
+
+	@Test
+	public void testSaturated() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		Callable<Void> task = new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				latch.await();
+				return null;
+			}
+		};
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		try {
+			Future<Void> future;
+			while ((future = ChunkCompressor.submit(task)) != null) {
+				futures.add(future);
+				assertTrue(futures.size() <= 1024);
+			}
+			// The task is refused instead of being run by this thread
+			assertFalse(ChunkCompressor.hasCapacity());
+			assertNull(ChunkCompressor.submit(task));
+		} finally {
+			latch.countDown();
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		assertTrue(ChunkCompressor.hasCapacity());
+		assertNotNull(ChunkCompressor.submit(task));
+		ChunkCompressor.shutdown();
+	}
+}
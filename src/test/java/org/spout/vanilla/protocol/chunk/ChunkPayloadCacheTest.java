@@ -0,0 +1,143 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ChunkPayloadCacheTest {
+	private static final int[] NO_COMPONENTS = new int[0];
+
+	private static World mockWorld(String name) {
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getName()).thenReturn(name);
+		return world;
+	}
+
+	private static Chunk mockChunk(World world, int x, int y, int z) {
+		Chunk chunk = Mockito.mock(Chunk.class);
+		Mockito.when(chunk.getWorld()).thenReturn(world);
+		Mockito.when(chunk.getX()).thenReturn(x);
+		Mockito.when(chunk.getY()).thenReturn(y);
+		Mockito.when(chunk.getZ()).thenReturn(z);
+		return chunk;
+	}
+
+	private static SectionPayload section(int version) {
+		return new SectionPayload(version, new byte[Chunk.BLOCKS.HALF_VOLUME * 5], NO_COMPONENTS, NO_COMPONENTS, NO_COMPONENTS);
+	}
+
+	@Test
+	public void testUnviewedChunksAreNotCached() {
+		ChunkPayloadCache cache = new ChunkPayloadCache();
+		Chunk chunk = mockChunk(mockWorld("world"), 1, 2, 3);
+
+		assertEquals(-1, cache.getVersion(chunk));
+		cache.putSection(chunk, section(-1));
+		assertNull(cache.getSection(chunk));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testSharedUntilInvalidated() {
+		ChunkPayloadCache cache = new ChunkPayloadCache();
+		World world = mockWorld("world");
+		Chunk chunk = mockChunk(world, 1, 2, 3);
+		cache.retain(world, 1, 3);
+
+		SectionPayload payload = section(cache.getVersion(chunk));
+		cache.putSection(chunk, payload);
+		assertSame(payload, cache.getSection(chunk));
+		assertSame(payload, cache.getSection(mockChunk(world, 1, 2, 3)));
+		assertNull(cache.getSection(mockChunk(mockWorld("other"), 1, 2, 3)));
+
+		cache.invalidate(chunk);
+		assertNull(cache.getSection(chunk));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testStalePayloadIsDiscarded() {
+		ChunkPayloadCache cache = new ChunkPayloadCache();
+		World world = mockWorld("world");
+		Chunk chunk = mockChunk(world, 0, 0, 0);
+		cache.retain(world, 0, 0);
+
+		int version = cache.getVersion(chunk);
+		cache.invalidate(chunk);
+		cache.putSection(chunk, section(version));
+		assertNull(cache.getSection(chunk));
+	}
+
+	@Test
+	public void testReleaseAndEviction() {
+		ChunkPayloadCache cache = new ChunkPayloadCache();
+		World world = mockWorld("world");
+		Chunk first = mockChunk(world, 0, 0, 0);
+		Chunk second = mockChunk(world, 0, 1, 0);
+		cache.retain(world, 0, 0);
+		cache.retain(world, 0, 0);
+
+		SectionPayload payload = section(0);
+		cache.setCapacity(payload.getSize());
+		cache.putSection(first, payload);
+		cache.putSection(second, section(0));
+		assertNull(cache.getSection(first));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(payload.getSize(), cache.getSize());
+
+		cache.release(world, 0, 0);
+		assertEquals(1, cache.getColumnCount());
+		cache.release(world, 0, 0);
+		assertEquals(0, cache.getColumnCount());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testCompressedColumnIsReleasedAsCharged() throws Exception {
+		ChunkPayloadCache cache = new ChunkPayloadCache();
+		World world = mockWorld("world");
+		cache.retain(world, 0, 0);
+
+		ColumnPayload payload = new ColumnPayload(cache.getColumnVersion(world, 0, 0), 0, new byte[16][], new byte[256]);
+		cache.putColumn(world, 0, 0, payload);
+		long size = cache.getSize();
+		// Compressing a cached payload after it was stored does not change what the cache releases for it
+		payload.getCompressedData();
+		assertEquals(size, cache.getSize());
+		cache.release(world, 0, 0);
+		assertEquals(0, cache.getSize());
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkSendBudgetTest {
+	@Test
+	public void testLimits() {
+		ChunkSendBudget budget = new ChunkSendBudget(100, 250);
+		assertEquals(100, budget.getAllowance(0F));
+		budget.consume(60);
+		assertEquals(40, budget.getAllowance(0F));
+
+		budget.tick();
+		budget.consume(100);
+		budget.tick();
+		budget.consume(80);
+		budget.tick();
+		// Only 10 bytes are left of the per second budget
+		assertEquals(10, budget.getAllowance(0F));
+
+		for (int i = 0; i < ChunkSendBudget.WINDOW_TICKS; i++) {
+			budget.tick();
+		}
+		assertEquals(0, budget.getWindowTotal());
+		assertEquals(100, budget.getAllowance(0F));
+	}
+
+	@Test
+	public void testPing() {
+		ChunkSendBudget budget = new ChunkSendBudget(1000, 100000);
+		assertEquals(1000, budget.getAllowance(ChunkSendBudget.LOW_PING));
+		assertEquals(500, budget.getAllowance(ChunkSendBudget.LOW_PING * 2));
+		assertEquals(250, budget.getAllowance(10F));
+	}
+}
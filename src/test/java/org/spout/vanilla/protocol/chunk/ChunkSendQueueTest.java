@@ -0,0 +1,111 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.spout.api.protocol.event.ProtocolEvent;
+
+import org.spout.vanilla.protocol.chunk.ChunkSendQueue.QueuedColumn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkSendQueueTest {
+	private static ColumnPayload createPayload() {
+		return new ColumnPayload(0, 0, new byte[16][10240], new byte[256]);
+	}
+
+	@Test
+	public void testOrder() {
+		ChunkSendQueue queue = new ChunkSendQueue();
+		queue.add(10, 0, createPayload());
+		queue.add(-10, 0, createPayload());
+		queue.add(0, 1, createPayload());
+		queue.add(0, -5, createPayload());
+
+		// Looking towards positive x, so the column behind the player comes last
+		List<QueuedColumn> columns = queue.poll(0, 0, 1, 0, Integer.MAX_VALUE);
+		assertEquals(4, columns.size());
+		assertEquals(1, columns.get(0).getZ());
+		assertEquals(-5, columns.get(1).getZ());
+		assertEquals(10, columns.get(2).getX());
+		assertEquals(-10, columns.get(3).getX());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testAllowance() {
+		ChunkSendQueue queue = new ChunkSendQueue();
+		for (int i = 0; i < 5; i++) {
+			queue.add(i, 0, createPayload());
+		}
+		int size = createPayload().getUncompressedSize() >> 3;
+
+		assertTrue(queue.poll(0, 0, 1, 0, 0).isEmpty());
+		// A column larger than the allowance is still sent on its own
+		assertEquals(1, queue.poll(0, 0, 1, 0, 1).size());
+		assertEquals(2, queue.poll(0, 0, 1, 0, size * 2).size());
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testCancel() {
+		ChunkSendQueue queue = new ChunkSendQueue();
+		queue.add(3, 4, createPayload());
+		assertTrue(queue.addEvents(3, 4, Collections.<ProtocolEvent>emptyList()));
+		assertFalse(queue.addEvents(4, 3, Collections.<ProtocolEvent>emptyList()));
+		assertTrue(queue.remove(3, 4));
+		assertFalse(queue.remove(3, 4));
+		assertTrue(queue.poll(0, 0, 1, 0, Integer.MAX_VALUE).isEmpty());
+	}
+
+	@Test
+	public void testRequeue() {
+		ChunkSendQueue queue = new ChunkSendQueue();
+		queue.add(3, 4, createPayload());
+		queue.add(5, 4, createPayload());
+		List<QueuedColumn> columns = queue.poll(0, 0, 1, 0, Integer.MAX_VALUE);
+		assertEquals(0, queue.size());
+
+		// A column that was not queued again goes back as it was
+		queue.requeue(columns.get(0));
+		assertTrue(queue.contains(3, 4));
+		assertEquals(columns.get(0), queue.poll(0, 0, 1, 0, Integer.MAX_VALUE).get(0));
+
+		// A column that was queued again keeps its newer payload
+		ColumnPayload payload = createPayload();
+		queue.add(5, 4, payload);
+		queue.requeue(columns.get(1));
+		assertEquals(1, queue.size());
+		assertEquals(payload, queue.poll(0, 0, 1, 0, Integer.MAX_VALUE).get(0).getPayload());
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.spout.api.protocol.reposition.NullRepositionManager;
+
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkBulkMessage;
+import org.spout.vanilla.protocol.msg.world.chunk.ChunkDataMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnBatcherTest {
+	@Test
+	public void testBatchLimits() {
+		ColumnBatcher batcher = new ColumnBatcher();
+		ColumnPayload payload = new ColumnPayload(0, 0, new byte[16][10240], new byte[256]);
+		int perMessage = Math.min(ColumnBatcher.MAX_COLUMNS, ColumnBatcher.MAX_BYTES / payload.getUncompressedSize());
+		int columns = perMessage * 2 + 1;
+		for (int i = 0; i < columns; i++) {
+			batcher.add(i, -i, payload);
+		}
+
+		List<ColumnBatcher.Batch> batches = batcher.drain(null, NullRepositionManager.getInstance());
+		assertTrue(batcher.isEmpty());
+		assertEquals(3, batches.size());
+		assertEquals(perMessage, batches.get(0).getColumns().length);
+		assertEquals(1, batches.get(2).getColumns().length);
+
+		ChunkBulkMessage first = (ChunkBulkMessage) batches.get(0).getMessage();
+		assertEquals(perMessage, first.getX().length);
+		assertEquals(0, first.getX()[0]);
+		ChunkBulkMessage second = (ChunkBulkMessage) batches.get(1).getMessage();
+		assertEquals(perMessage, second.getX()[0]);
+		assertEquals(-perMessage, second.getZ()[0]);
+		ChunkDataMessage last = (ChunkDataMessage) batches.get(2).getMessage();
+		assertEquals(columns - 1, last.getX());
+	}
+}
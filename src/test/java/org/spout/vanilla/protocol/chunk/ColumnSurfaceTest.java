@@ -0,0 +1,74 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.chunk;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+
+public class ColumnSurfaceTest {
+	@Test
+	public void testIncrementalUpdates() {
+		VanillaMaterials.initialize();
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getSurfaceHeight(anyInt(), anyInt(), eq(true))).thenReturn(20);
+		Mockito.when(world.getTopmostBlock(anyInt(), anyInt(), eq(true))).thenReturn(VanillaMaterials.GRASS);
+
+		ColumnSurface surface = new ColumnSurface(world, 2, 3);
+		byte[] section = surface.getHeightMapSection(1);
+		assertEquals(20, surface.getHeight(5, 5));
+		Mockito.verify(world, Mockito.times(Chunk.BLOCKS.AREA)).getSurfaceHeight(anyInt(), anyInt(), eq(true));
+
+		// The surface block of the section, above it the sky light is full
+		int offset = 4 << 8 | 5 << 4 | 5;
+		assertEquals(VanillaMaterials.getMinecraftId(VanillaMaterials.GRASS.getId()), section[offset]);
+		assertEquals(0xF0, section[Chunk.BLOCKS.DOUBLE_VOLUME + ((offset + Chunk.BLOCKS.AREA) >> 1)] & 0xFF);
+
+		// An unchanged surface keeps the section
+		surface.markDirty(37, 50);
+		assertSame(section, surface.getHeightMapSection(1));
+		Mockito.verify(world, Mockito.times(Chunk.BLOCKS.AREA + 1)).getSurfaceHeight(anyInt(), anyInt(), eq(true));
+		Mockito.verify(world, Mockito.times(2)).getSurfaceHeight(2 * 16 + 5, 3 * 16 + 2, true);
+
+		Mockito.when(world.getSurfaceHeight(2 * 16 + 5, 3 * 16 + 2, true)).thenReturn(40);
+		surface.markDirty(5, 2);
+		assertNotSame(section, surface.getHeightMapSection(1));
+		assertEquals(40, surface.getHeight(5, 2));
+		assertEquals(20, surface.getHeight(5, 3));
+	}
+}
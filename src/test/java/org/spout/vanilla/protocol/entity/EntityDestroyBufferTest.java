@@ -0,0 +1,136 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.entity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.spout.vanilla.protocol.codec.entity.EntityDestroyCodec;
+import org.spout.vanilla.protocol.msg.entity.EntityDestroyMessage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityDestroyBufferTest {
+	private static final int ENTITIES = 500;
+	private static final int THREADS = 4;
+
+	@Test
+	public void testUnload() throws IOException {
+		EntityDestroyBuffer buffer = new EntityDestroyBuffer();
+		for (int i = 0; i < ENTITIES; i++) {
+			buffer.add(i);
+			buffer.add(i);
+		}
+		assertEquals(ENTITIES, buffer.size());
+
+		List<EntityDestroyMessage> messages = buffer.drain();
+		assertTrue(buffer.isEmpty());
+		assertEquals((ENTITIES + EntityDestroyBuffer.MAX_IDS_PER_MESSAGE - 1) / EntityDestroyBuffer.MAX_IDS_PER_MESSAGE, messages.size());
+
+		EntityDestroyCodec codec = new EntityDestroyCodec();
+		int next = 0;
+		int batchedBytes = 0;
+		for (EntityDestroyMessage message : messages) {
+			int[] ids = message.getId();
+			assertTrue(ids.length <= EntityDestroyBuffer.MAX_IDS_PER_MESSAGE);
+			for (int id : ids) {
+				assertEquals(next++, id);
+			}
+			EntityDestroyMessage decoded = codec.decode(codec.encode(message));
+			assertArrayEquals(ids, decoded.getId());
+			batchedBytes += 1 + codec.encode(message).readableBytes();
+		}
+		assertEquals(ENTITIES, next);
+
+		int singleBytes = 0;
+		for (int i = 0; i < ENTITIES; i++) {
+			singleBytes += 1 + codec.encode(new EntityDestroyMessage(new int[]{i})).readableBytes();
+		}
+		// One opcode and count per message instead of per entity
+		assertEquals(singleBytes - (ENTITIES - messages.size()) * 2, batchedBytes);
+	}
+
+	@Test
+	public void testEmpty() {
+		EntityDestroyBuffer buffer = new EntityDestroyBuffer();
+		assertTrue(buffer.drain().isEmpty());
+		buffer.add(3);
+		assertTrue(buffer.contains(3));
+		buffer.clear();
+		assertTrue(!buffer.contains(3));
+		assertTrue(buffer.drain().isEmpty());
+	}
+
+	@Test
+	public void testConcurrentAddsAndDrains() throws InterruptedException {
+		final EntityDestroyBuffer buffer = new EntityDestroyBuffer();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			final int first = t * ENTITIES * 10;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ENTITIES * 10; i++) {
+						buffer.add(first + i);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		// Drain while the ids are being added, every id is sent exactly once
+		int[] sent = new int[THREADS * ENTITIES * 10];
+		boolean adding = true;
+		while (adding) {
+			adding = false;
+			for (Thread thread : threads) {
+				adding |= thread.isAlive();
+			}
+			for (EntityDestroyMessage message : buffer.drain()) {
+				for (int id : message.getId()) {
+					sent[id]++;
+				}
+			}
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (EntityDestroyMessage message : buffer.drain()) {
+			for (int id : message.getId()) {
+				sent[id]++;
+			}
+		}
+		for (int count : sent) {
+			assertEquals(1, count);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.entity.Entity;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.geo.discrete.Transform;
+import org.spout.api.math.Quaternion;
+import org.spout.api.math.Vector3;
+import org.spout.api.protocol.Message;
+import org.spout.api.protocol.reposition.NullRepositionManager;
+
+import org.spout.vanilla.component.entity.misc.Head;
+import org.spout.vanilla.protocol.msg.entity.pos.EntityRelativePositionMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntityTrackerTest {
+	private static final int THREADS = 4;
+	private static final int ENTITIES = 500;
+
+	private static Transform createTransform(float x, float y, float z) {
+		return new Transform(new Point(null, x, y, z), Quaternion.IDENTITY, Vector3.ONE);
+	}
+
+	private static EntityUpdate createUpdate(int id, Transform previous, Transform live) {
+		Entity entity = Mockito.mock(Entity.class, Mockito.RETURNS_DEEP_STUBS);
+		Mockito.when(entity.getId()).thenReturn(id);
+		Mockito.when(entity.getScene().getTransform()).thenReturn(previous);
+		Mockito.when(entity.getScene().isRotationDirty()).thenReturn(false);
+		Mockito.when(entity.get(Head.class)).thenReturn(null);
+		return new EntityUpdate(entity, live, 0, 0, null);
+	}
+
+	@Test
+	public void testTrackUpdateUntrack() {
+		EntityTracker tracker = new EntityTracker();
+		Transform start = createTransform(0f, 64f, 0f);
+		Transform moved = createTransform(1f, 64f, 0f);
+		Transform movedAgain = createTransform(2f, 64f, 0f);
+
+		tracker.track(createUpdate(1, start, moved));
+		assertTrue(tracker.isTracked(1));
+		assertEquals(1, tracker.getTrackedCount());
+
+		// The session was spawned at the start state, so it is two blocks behind the second update
+		List<Message> messages = new ArrayList<Message>();
+		EntityUpdate update = createUpdate(1, moved, movedAgain);
+		tracker.addUpdateMessages(update, movedAgain, NullRepositionManager.getInstance(), false, messages);
+		assertEquals(1, messages.size());
+		assertTrue(messages.get(0) instanceof EntityRelativePositionMessage);
+		assertEquals(64, ((EntityRelativePositionMessage) messages.get(0)).getDeltaX());
+
+		// Once up to date, the same update sends nothing
+		messages.clear();
+		tracker.addUpdateMessages(update, movedAgain, NullRepositionManager.getInstance(), false, messages);
+		assertTrue(messages.isEmpty());
+
+		tracker.untrack(1);
+		assertFalse(tracker.isTracked(1));
+		assertEquals(0, tracker.getTrackedCount());
+
+		// Untracked entities are tracked again by their next update
+		tracker.addUpdateMessages(update, movedAgain, NullRepositionManager.getInstance(), false, messages);
+		assertTrue(tracker.isTracked(1));
+	}
+
+	@Test
+	public void testConcurrentTracking() throws InterruptedException {
+		final EntityTracker tracker = new EntityTracker();
+		final Transform transform = createTransform(0f, 64f, 0f);
+		final EntityUpdate[][] updates = new EntityUpdate[THREADS][ENTITIES];
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < ENTITIES; i++) {
+				updates[t][i] = createUpdate(t * ENTITIES + i, transform, transform);
+			}
+		}
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			final EntityUpdate[] own = updates[t];
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int round = 0; round < 20; round++) {
+						for (EntityUpdate update : own) {
+							tracker.track(update);
+						}
+						for (int i = 0; i < own.length; i += 2) {
+							tracker.untrack(own[i].getEntityId());
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(THREADS * ENTITIES / 2, tracker.getTrackedCount());
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < ENTITIES; i++) {
+				assertEquals(i % 2 == 1, tracker.isTracked(updates[t][i].getEntityId()));
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.protocol.netcache;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionHashSetTest {
+	@Test
+	public void testClientHashCompatibility() {
+		byte[] data = new byte[2048 * 2 + 100];
+		new Random(7).nextBytes(data);
+		long[] hashes = new long[2];
+		long bufferHash = 1;
+		for (int i = 0; i < 3; i++) {
+			int off = i * 2048;
+			int len = Math.min(2048, data.length - off);
+			bufferHash = PartitionChunk.hashPartition(data, off, len, bufferHash, hashes);
+			byte[] partition = new byte[2048];
+			PartitionChunk.copyFromChunkData(data, i, partition, data.length);
+			assertEquals(PartitionChunk.hash(partition), hashes[0]);
+		}
+		assertEquals(PartitionChunk.hash(data), bufferHash);
+	}
+
+	@Test
+	public void testContentHash() {
+		byte[] data = new byte[2048];
+		long[] first = new long[2];
+		long[] second = new long[2];
+		PartitionChunk.hashPartition(data, 0, data.length, 1, first);
+		data[1000] = 1;
+		PartitionChunk.hashPartition(data, 0, data.length, 1, second);
+		assertFalse(first[1] == second[1]);
+	}
+
+	@Test
+	public void testCheckAndAdd() {
+		PartitionHashSet set = new PartitionHashSet(1 << 16);
+		assertFalse(set.checkAndAdd(5, 50));
+		assertTrue(set.checkAndAdd(5, 50));
+		// Same client hash with other content is a collision, the data has to be sent again
+		assertFalse(set.checkAndAdd(5, 51));
+		assertTrue(set.checkAndAdd(5, 51));
+
+		set.add(6);
+		assertTrue(set.checkAndAdd(6, 60));
+		assertFalse(set.checkAndAdd(6, 61));
+	}
+
+	@Test
+	public void testBounded() {
+		PartitionHashSet set = new PartitionHashSet(1 << 12);
+		int max = set.getMaxSize();
+		assertTrue(set.getMemoryUsage() <= 1 << 12);
+
+		long[] hashes = new long[max * 4];
+		Random random = new Random(3);
+		for (int i = 0; i < hashes.length; i++) {
+			hashes[i] = random.nextLong();
+			set.add(hashes[i]);
+			// Keep the first hash in use, so the clock never evicts it
+			set.checkAndAdd(hashes[0], 1);
+		}
+		assertEquals(max, set.size());
+		assertEquals(hashes.length - max, set.getEvictions());
+		assertTrue(set.contains(hashes[0]));
+		assertTrue(set.contains(hashes[hashes.length - 1]));
+
+		int found = 0;
+		for (long hash : Arrays.copyOfRange(hashes, 1, hashes.length)) {
+			if (set.contains(hash)) {
+				found++;
+			}
+		}
+		assertEquals(max - 1, found);
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.explosion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.geo.discrete.Point;
+import org.spout.api.math.Vector3;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static org.mockito.Matchers.anyInt;
+
+public class ExplosionModelTest {
+	private static final float SIZE = 4f;
+
+	private static World createWorld(Chunk chunk) {
+		VanillaMaterials.initialize();
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getBlockMaterial(anyInt(), anyInt(), anyInt())).thenReturn(VanillaMaterials.AIR);
+		Mockito.when(world.getChunkFromBlock(anyInt(), anyInt(), anyInt())).thenReturn(chunk);
+		return world;
+	}
+
+	private static Set<Vector3> getPositions(ArgumentCaptor<Integer> x, ArgumentCaptor<Integer> y, ArgumentCaptor<Integer> z) {
+		Set<Vector3> positions = new HashSet<Vector3>();
+		for (int i = 0; i < x.getAllValues().size(); i++) {
+			positions.add(new Vector3(x.getAllValues().get(i), y.getAllValues().get(i), z.getAllValues().get(i)));
+		}
+		return positions;
+	}
+
+	@Test
+	public void testChunkBatchedEdits() {
+		VanillaMaterials.initialize();
+		final Map<Vector3, Chunk> chunks = new HashMap<Vector3, Chunk>();
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getBlockMaterial(anyInt(), anyInt(), anyInt())).thenReturn(VanillaMaterials.AIR);
+		Mockito.when(world.getChunkFromBlock(anyInt(), anyInt(), anyInt())).thenAnswer(new Answer<Chunk>() {
+			@Override
+			public Chunk answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				Vector3 key = new Vector3((Integer) args[0] >> 4, (Integer) args[1] >> 4, (Integer) args[2] >> 4);
+				Chunk chunk = chunks.get(key);
+				if (chunk == null) {
+					chunk = Mockito.mock(Chunk.class);
+					Mockito.when(chunk.getBlockMaterial(anyInt(), anyInt(), anyInt())).thenReturn(VanillaMaterials.AIR);
+					chunks.put(key, chunk);
+				}
+				return chunk;
+			}
+		});
+		ExplosionModelSpherical model = new ExplosionModelSpherical();
+		ExplosionBatch batch = new ExplosionBatch();
+
+		// The first explosion is not on a chunk boundary, the edits still have to be grouped by world chunk
+		batch.begin(world, 7, 60, -9);
+		model.march(batch, new Explosion(new Point(world, 7.5f, 60.5f, -8.5f), SIZE * 2, false, null));
+		int destroyed = batch.getDestroyedCount();
+		assertTrue(destroyed > 0);
+		batch.apply();
+
+		// Every destroyed block is within reach and read from the chunk containing it, and every chunk is looked up once
+		float radius = model.getRadius(SIZE * 2) + 1f;
+		Set<Vector3> positions = new HashSet<Vector3>();
+		for (Map.Entry<Vector3, Chunk> entry : chunks.entrySet()) {
+			ArgumentCaptor<Integer> x = ArgumentCaptor.forClass(Integer.class);
+			ArgumentCaptor<Integer> y = ArgumentCaptor.forClass(Integer.class);
+			ArgumentCaptor<Integer> z = ArgumentCaptor.forClass(Integer.class);
+			Mockito.verify(entry.getValue(), Mockito.atLeastOnce()).getBlockMaterial(x.capture(), y.capture(), z.capture());
+			for (Vector3 position : getPositions(x, y, z)) {
+				assertEquals(entry.getKey(), new Vector3(position.getFloorX() >> 4, position.getFloorY() >> 4, position.getFloorZ() >> 4));
+				assertTrue(position.distance(new Vector3(7, 60, -9)) <= radius);
+				positions.add(position);
+			}
+		}
+		assertEquals(destroyed, positions.size());
+		assertTrue(chunks.size() > 1);
+		Mockito.verify(world, Mockito.times(chunks.size())).getChunkFromBlock(anyInt(), anyInt(), anyInt());
+	}
+
+	@Test
+	public void testMergedExplosionsLoadBlocksOnce() {
+		Chunk chunk = Mockito.mock(Chunk.class);
+		Mockito.when(chunk.getBlockMaterial(anyInt(), anyInt(), anyInt())).thenReturn(VanillaMaterials.AIR);
+		World world = createWorld(chunk);
+		ExplosionModelSpherical model = new ExplosionModelSpherical();
+		ExplosionBatch batch = new ExplosionBatch();
+
+		batch.begin(world, 0, 64, 0);
+		model.march(batch, new Explosion(new Point(world, 0.5f, 64.5f, 0.5f), SIZE, false, null));
+		batch.settle();
+		int first = batch.getDestroyedCount();
+		model.march(batch, new Explosion(new Point(world, 2.5f, 64.5f, 0.5f), SIZE, false, null));
+		batch.settle();
+		assertTrue(batch.getDestroyedCount() > first);
+
+		ArgumentCaptor<Integer> x = ArgumentCaptor.forClass(Integer.class);
+		ArgumentCaptor<Integer> y = ArgumentCaptor.forClass(Integer.class);
+		ArgumentCaptor<Integer> z = ArgumentCaptor.forClass(Integer.class);
+		Mockito.verify(world, Mockito.atLeastOnce()).getBlockMaterial(x.capture(), y.capture(), z.capture());
+		assertEquals(x.getAllValues().size(), getPositions(x, y, z).size());
+	}
+
+	@Test
+	public void testConcurrentExplosions() throws InterruptedException {
+		Chunk chunk = Mockito.mock(Chunk.class);
+		final World world = createWorld(chunk);
+		final ExplosionModelSpherical model = new ExplosionModelSpherical();
+		final int[] destroyed = new int[4];
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < destroyed.length; i++) {
+			final int index = i;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					ExplosionBatch batch = new ExplosionBatch();
+					batch.begin(world, index * 100, 64, 0);
+					model.march(batch, new Explosion(new Point(world, index * 100 + 0.5f, 64.5f, 0.5f), SIZE + index, false, null));
+					destroyed[index] = batch.getDestroyedCount();
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int count : destroyed) {
+			assertTrue(count > 0);
+		}
+		assertTrue(model.getLayers(0).length >= ExplosionModelSpherical.getLayerCount(SIZE + destroyed.length - 1));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.explosion;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.discrete.Point;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+
+public class ExplosionOcclusionTest {
+	@Test
+	public void testCachedExposure() {
+		VanillaMaterials.initialize();
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getBlockMaterial(anyInt(), anyInt(), anyInt())).thenReturn(VanillaMaterials.AIR);
+		Mockito.when(world.getBlockMaterial(eq(3), anyInt(), anyInt())).thenReturn(VanillaMaterials.STONE);
+
+		ExplosionOcclusion occlusion = new ExplosionOcclusion();
+		occlusion.begin(world, -10, 54, -10, 10, 74, 10);
+		Point origin = new Point(world, 0.5f, 64.5f, 0.5f);
+
+		// A wall between the explosion and the entity covers it
+		float covered = occlusion.getExposure(origin, 0, 1, new Point(world, 6.5f, 64f, 0.5f));
+		assertTrue(covered > 0f && covered < 1f);
+		assertEquals(1f, occlusion.getExposure(origin, 0, 2, new Point(world, -6.5f, 64f, 0.5f)), 0f);
+
+		// Every block is read once, and the exposure of an entity is cached per origin
+		Mockito.verify(world, Mockito.times(24)).getBlockMaterial(anyInt(), anyInt(), anyInt());
+		assertEquals(covered, occlusion.getExposure(origin, 0, 1, new Point(world, 0.5f, 64f, 6.5f)), 0f);
+		assertEquals(covered, occlusion.getExposure(origin, 1, 3, new Point(world, 6.5f, 64f, 0.5f)), 0f);
+		Mockito.verify(world, Mockito.times(24)).getBlockMaterial(anyInt(), anyInt(), anyInt());
+		occlusion.end();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.flowing;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.spout.vanilla.util.flowing.ActiveLiquids.Step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ActiveLiquidsTest {
+	private static final int WATER_DELAY = 250;
+	private static final int LAVA_DELAY = 1500;
+
+	@Test
+	public void testBatches() {
+		ActiveLiquids liquids = new ActiveLiquids();
+		assertTrue(liquids.add(-3, 70, 17, WATER_DELAY, 1000));
+		assertFalse(liquids.add(-3, 70, 17, WATER_DELAY, 1050));
+		assertTrue(liquids.add(-4, 75, 18, WATER_DELAY, 1100));
+		assertTrue(liquids.add(-5, 70, 17, LAVA_DELAY, 1100));
+		assertTrue(liquids.add(40, 70, 17, WATER_DELAY, 1200));
+		assertEquals(4, liquids.getActiveCells());
+		assertEquals(2, liquids.getActiveChunks());
+
+		assertTrue(liquids.pollDue(1249).isEmpty());
+
+		// Only the water added first is due, the water added later, the lava and the other chunk wait
+		List<Step> steps = liquids.pollDue(1250);
+		assertEquals(1, steps.size());
+		Step step = steps.get(0);
+		assertEquals(-1, step.getChunkX());
+		assertEquals(4, step.getChunkY());
+		assertEquals(1, step.getChunkZ());
+		assertEquals(1, step.getSize());
+		assertEquals(-3, step.getX(0));
+		assertEquals(70, step.getY(0));
+		assertEquals(17, step.getZ(0));
+		assertEquals(3, liquids.getActiveCells());
+
+		assertTrue(liquids.pollDue(1349).isEmpty());
+		steps = liquids.pollDue(1350);
+		assertEquals(1, steps.size());
+		assertEquals(-4, steps.get(0).getX(0));
+		assertEquals(75, steps.get(0).getY(0));
+		assertEquals(18, steps.get(0).getZ(0));
+
+		assertEquals(1, liquids.pollDue(1450).size());
+		assertEquals(1, liquids.getActiveChunks());
+		assertEquals(1, liquids.pollDue(2600).size());
+		assertEquals(0, liquids.getActiveCells());
+		assertEquals(0, liquids.getActiveChunks());
+
+		// Emptied chunks take new blocks again
+		assertTrue(liquids.add(-3, 70, 17, WATER_DELAY, 3000));
+		assertEquals(1, liquids.pollDue(3250).size());
+	}
+
+	@Test
+	public void testDueTogether() {
+		ActiveLiquids liquids = new ActiveLiquids();
+		liquids.add(-3, 70, 17, WATER_DELAY, 1000);
+		liquids.add(-4, 75, 18, WATER_DELAY, 1040);
+		// A block added just before the first is due does not flow with it
+		liquids.add(-5, 72, 17, WATER_DELAY, 1249);
+
+		// Blocks due by the same poll flow together, top-down
+		List<Step> steps = liquids.pollDue(1300);
+		assertEquals(1, steps.size());
+		Step step = steps.get(0);
+		assertEquals(2, step.getSize());
+		assertEquals(75, step.getY(0));
+		assertEquals(70, step.getY(1));
+		assertEquals(1, liquids.getActiveCells());
+
+		assertTrue(liquids.pollDue(1498).isEmpty());
+		steps = liquids.pollDue(1499);
+		assertEquals(1, steps.get(0).getSize());
+		assertEquals(72, steps.get(0).getY(0));
+	}
+
+	@Test
+	public void testParkedUntilUnparked() {
+		ActiveLiquids liquids = new ActiveLiquids();
+		liquids.add(-3, 70, 17, WATER_DELAY, 1000);
+		liquids.add(-4, 75, 18, WATER_DELAY, 1000);
+		List<Step> steps = liquids.pollDue(1250);
+		assertEquals(1, steps.size());
+
+		// A step of an unloaded chunk is kept until the chunk loads
+		liquids.park(steps.get(0));
+		liquids.add(-5, 70, 17, WATER_DELAY, 1300);
+		liquids.park(liquids.pollDue(1550).get(0));
+		assertEquals(0, liquids.getActiveCells());
+		assertEquals(1, liquids.getParkedChunks());
+		assertNull(liquids.unpark(0, 4, 1));
+
+		Step parked = liquids.unpark(-1, 4, 1);
+		assertEquals(3, parked.getSize());
+		assertEquals(0, liquids.getParkedChunks());
+		assertNull(liquids.unpark(-1, 4, 1));
+	}
+}
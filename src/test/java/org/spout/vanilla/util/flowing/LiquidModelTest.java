@@ -0,0 +1,338 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.flowing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.spout.api.geo.World;
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.material.block.BlockFace;
+import org.spout.api.material.block.BlockFaces;
+import org.spout.api.material.block.BlockFullState;
+import org.spout.api.material.range.DiamondEffectRange;
+import org.spout.api.math.IntVector3;
+import org.spout.api.util.hashing.ShortPairHashed;
+
+import org.spout.vanilla.material.VanillaMaterials;
+import org.spout.vanilla.material.block.Liquid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import static org.mockito.Matchers.anyInt;
+
+public class LiquidModelTest {
+	private static final int FLOOR = 63;
+	private static final int RANGE = 6;
+
+	/**
+	 * A flat stone floor with air above, in which single blocks can be changed
+	 */
+	private static class Grid implements Answer<Object> {
+		private final Map<IntVector3, BlockMaterial> materials = new HashMap<IntVector3, BlockMaterial>();
+		private final Map<IntVector3, Short> data = new HashMap<IntVector3, Short>();
+		private final World world = Mockito.mock(World.class);
+
+		public Grid() {
+			Mockito.when(world.getBlockFullState(anyInt(), anyInt(), anyInt())).thenAnswer(this);
+			Mockito.when(world.getBlockMaterial(anyInt(), anyInt(), anyInt())).thenAnswer(this);
+		}
+
+		public Grid set(int x, int y, int z, BlockMaterial material, int data) {
+			IntVector3 position = new IntVector3(x, y, z);
+			this.materials.put(position, material);
+			this.data.put(position, (short) data);
+			return this;
+		}
+
+		public Grid hole(int x, int z) {
+			return set(x, FLOOR, z, VanillaMaterials.AIR, 0);
+		}
+
+		private BlockMaterial getMaterial(IntVector3 position) {
+			BlockMaterial material = materials.get(position);
+			if (material == null) {
+				return position.getY() <= FLOOR ? VanillaMaterials.STONE : VanillaMaterials.AIR;
+			}
+			return material;
+		}
+
+		@Override
+		public Object answer(InvocationOnMock invocation) {
+			Object[] args = invocation.getArguments();
+			IntVector3 position = new IntVector3((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+			BlockMaterial material = getMaterial(position);
+			if (invocation.getMethod().getName().equals("getBlockMaterial")) {
+				return material;
+			}
+			Short blockData = data.get(position);
+			return (material.getId() & 0xFFFF) << 16 | (blockData == null ? 0 : blockData & 0xFFFF);
+		}
+	}
+
+	private static BlockFace face(int dx, int dz) {
+		for (BlockFace face : BlockFaces.NESW) {
+			if (face.getOffset().getX() == dx && face.getOffset().getZ() == dz) {
+				return face;
+			}
+		}
+		throw new IllegalArgumentException("No face with offset " + dx + ", " + dz);
+	}
+
+	private static void assertFlow(Grid grid, BlockFace... expected) {
+		World world = grid.world;
+		BlockFace[] reference = new ReferenceModel().getHoleDirections(world, 0, FLOOR + 1, 0);
+		assertEquals(new HashSet<BlockFace>(Arrays.asList(expected)), new HashSet<BlockFace>(Arrays.asList(reference)));
+		assertArrayEquals(reference, LiquidModel.INSTANCE.getHoleDirections(world, 0, FLOOR + 1, 0));
+	}
+
+	@Test
+	public void testSource() {
+		VanillaMaterials.initialize();
+		// Without a hole in range, the liquid spreads in all directions
+		assertFlow(new Grid().hole(RANGE, 0), face(-1, 0), face(1, 0), face(0, -1), face(0, 1));
+	}
+
+	@Test
+	public void testFalling() {
+		VanillaMaterials.initialize();
+		// A hole right next to the liquid takes all the flow, even with other holes close by
+		assertFlow(new Grid().hole(1, 0).hole(0, -2), face(1, 0));
+	}
+
+	@Test
+	public void testSpreading() {
+		VanillaMaterials.initialize();
+		// The liquid spreads towards the closest hole only
+		assertFlow(new Grid().hole(3, 0).hole(-4, 0), face(1, 0));
+	}
+
+	@Test
+	public void testDraining() {
+		VanillaMaterials.initialize();
+		// Holes at the same distance drain the liquid in both directions, but not across water sources
+		Grid grid = new Grid().hole(3, 0).hole(0, 3).hole(-3, 0);
+		grid.set(-1, FLOOR + 1, 0, VanillaMaterials.WATER, 0);
+		grid.set(0, FLOOR + 1, 1, VanillaMaterials.WATER, 3);
+		assertFlow(grid, face(1, 0), face(0, 1));
+	}
+
+	@Test
+	public void testRandomGrids() {
+		VanillaMaterials.initialize();
+		BlockMaterial[] surface = {VanillaMaterials.AIR, VanillaMaterials.AIR, VanillaMaterials.STONE, VanillaMaterials.WATER, VanillaMaterials.WATER};
+		Random random = new Random(4);
+		for (int i = 0; i < 500; i++) {
+			Grid grid = new Grid();
+			for (int x = -RANGE; x <= RANGE; x++) {
+				for (int z = -RANGE; z <= RANGE; z++) {
+					if (random.nextInt(6) == 0) {
+						grid.hole(x, z);
+					}
+					if ((x != 0 || z != 0) && random.nextInt(4) == 0) {
+						int index = random.nextInt(surface.length);
+						grid.set(x, FLOOR + 1, z, surface[index], index == 3 ? 0 : random.nextInt(8));
+					}
+				}
+			}
+			World world = grid.world;
+			assertArrayEquals(new ReferenceModel().getHoleDirections(world, 0, FLOOR + 1, 0), LiquidModel.INSTANCE.getHoleDirections(world, 0, FLOOR + 1, 0));
+		}
+	}
+
+	/**
+	 * The liquid model as it was before its state was moved into the solvers of each thread, used as the reference for the flow directions
+	 */
+	private static class ReferenceModel {
+		private static final int NONE = Integer.MAX_VALUE;
+
+		private static class Element {
+			private final int dX, dZ, absdX, absdZ;
+			private final boolean center;
+			private final List<Element> neighbours = new ArrayList<Element>();
+			private final List<boolean[]> mainDirection = new ArrayList<boolean[]>();
+			private int state;
+			private int holeDistance;
+
+			public Element(int dX, int dZ) {
+				this.dX = dX;
+				this.dZ = dZ;
+				this.absdX = Math.abs(dX);
+				this.absdZ = Math.abs(dZ);
+				this.center = (dX == 0 && absdZ == 1) || (dZ == 0 && absdX == 1);
+			}
+
+			public void load(World world, int x, int y, int z) {
+				for (boolean[] bool : this.mainDirection) {
+					if (bool[0]) {
+						x += this.dX;
+						z += this.dZ;
+						int fullState = world.getBlockFullState(x, y, z);
+						BlockMaterial mat = BlockFullState.getMaterial(fullState);
+						if (Liquid.isLiquidObstacle(mat) || (VanillaMaterials.WATER.isMaterial(mat) && VanillaMaterials.WATER.isSource(BlockFullState.getData(fullState)))) {
+							this.state = 0;
+							this.holeDistance = NONE;
+						} else if (!Liquid.isLiquidObstacle(world.getBlockMaterial(x, y - 1, z))) {
+							this.state = 2;
+							this.holeDistance = 0;
+						} else {
+							this.state = 1;
+							this.holeDistance = NONE;
+						}
+						return;
+					}
+				}
+				this.state = 0;
+				this.holeDistance = NONE;
+			}
+
+			public void spreadHole() {
+				for (Element element : this.neighbours) {
+					if (element.state == 1 && element.holeDistance > this.holeDistance) {
+						element.holeDistance = this.holeDistance + 1;
+					}
+				}
+			}
+		}
+
+		private final List<Element> elementList = new ArrayList<Element>();
+		private final Element[] center = new Element[4];
+		private final TIntObjectHashMap<Element> elementMap = new TIntObjectHashMap<Element>();
+		private final boolean[][] mainDirections = new boolean[4][1];
+		private final boolean[] possible = new boolean[4];
+
+		private Element getElement(int dX, int dZ) {
+			return elementMap.get(ShortPairHashed.key((short) dX, (short) dZ));
+		}
+
+		private void link(Element element, int dx, int dz) {
+			Element with = getElement(element.dX + dx, element.dZ + dz);
+			if (with != null) {
+				element.neighbours.add(with);
+			}
+			for (int i = 0; i < 4; i++) {
+				IntVector3 offset = new IntVector3(BlockFaces.NESW.get(i).getOpposite().getOffset());
+				if (dx == offset.getX() && dz == offset.getZ()) {
+					element.mainDirection.add(this.mainDirections[i]);
+				}
+			}
+		}
+
+		public ReferenceModel() {
+			for (IntVector3 delta : new DiamondEffectRange(1, 5)) {
+				if (delta.getY() == 0) {
+					Element element = new Element(delta.getX(), delta.getZ());
+					elementList.add(element);
+					elementMap.put(ShortPairHashed.key((short) element.dX, (short) element.dZ), element);
+				}
+			}
+			for (int i = 0; i < 4; i++) {
+				IntVector3 offset = new IntVector3(BlockFaces.NESW.get(i).getOffset());
+				center[i] = getElement(offset.getX(), offset.getZ());
+				center[i].mainDirection.add(new boolean[]{true});
+			}
+			for (Element element : this.elementList) {
+				if (element.center) {
+					continue;
+				}
+				if (element.dX == 0) {
+					if (element.absdZ <= 3) {
+						link(element, -1, 0);
+						link(element, 1, 0);
+					}
+				} else {
+					link(element, -Integer.signum(element.dX), 0);
+				}
+				if (element.dZ == 0) {
+					if (element.absdX <= 3) {
+						link(element, 0, -1);
+						link(element, 0, 1);
+					}
+				} else {
+					link(element, 0, -Integer.signum(element.dZ));
+				}
+				if (element.absdX == 2 && element.absdZ == 1) {
+					link(element, 0, element.dZ);
+				}
+				if (element.absdZ == 2 && element.absdX == 1) {
+					link(element, element.dX, 0);
+				}
+			}
+		}
+
+		public BlockFace[] getHoleDirections(World world, int x, int y, int z) {
+			boolean instant = false;
+			for (int i = 0; i < 4; i++) {
+				this.center[i].load(world, x, y, z);
+				instant |= (this.possible[i] = this.center[i].state == 2);
+				this.mainDirections[i][0] = this.center[i].state == 1;
+			}
+			if (!instant) {
+				for (Element element : elementList) {
+					if (!element.center) {
+						element.load(world, x, y, z);
+					}
+				}
+				for (int c = 0; c < 4; c++) {
+					for (int i = elementList.size() - 1; i >= 0; i--) {
+						elementList.get(i).spreadHole();
+					}
+				}
+				int distance = NONE;
+				for (Element elem : this.center) {
+					distance = Math.min(distance, elem.holeDistance);
+				}
+				if (distance == NONE) {
+					Arrays.fill(this.possible, true);
+				} else {
+					for (int i = 0; i < 4; i++) {
+						this.possible[i] = this.center[i].holeDistance <= distance;
+					}
+				}
+			}
+			List<BlockFace> faces = new ArrayList<BlockFace>(4);
+			for (int i = 0; i < 4; i++) {
+				if (this.possible[i]) {
+					faces.add(BlockFaces.NESW.get(i));
+				}
+			}
+			return faces.toArray(new BlockFace[faces.size()]);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.util.redstone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WireGraphTest {
+	private static final int LENGTH = 20;
+
+	private static WireGraph createLine(int[] powers) {
+		WireGraph graph = new WireGraph();
+		for (int i = 0; i < LENGTH; i++) {
+			graph.add(i, 64, 0, powers[i]);
+			if (i > 0) {
+				graph.link(i - 1, i);
+			}
+		}
+		return graph;
+	}
+
+	@Test
+	public void testPowerLine() {
+		WireGraph graph = createLine(new int[LENGTH]);
+		graph.addSource(0, 15);
+		assertEquals(15, graph.propagate(15));
+		int[] powers = new int[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			powers[i] = Math.max(15 - i, 0);
+			assertEquals(powers[i], graph.getPower(i));
+		}
+
+		// The same power again changes nothing
+		graph = createLine(powers);
+		graph.addSource(0, 15);
+		assertEquals(0, graph.propagate(15));
+
+		// Removing the source clears the whole line in one pass
+		graph = createLine(powers);
+		assertEquals(15, graph.propagate(15));
+		for (int i = 0; i < LENGTH; i++) {
+			assertEquals(0, graph.getPower(i));
+		}
+		assertFalse(graph.isChanged(LENGTH - 1));
+	}
+
+	@Test
+	public void testStrongestSourceWins() {
+		WireGraph graph = createLine(new int[LENGTH]);
+		graph.addSource(0, 15);
+		graph.addSource(LENGTH - 1, 15);
+		graph.addSource(10, 3);
+		graph.propagate(15);
+		for (int i = 0; i < LENGTH; i++) {
+			assertEquals(Math.max(15 - Math.min(i, LENGTH - 1 - i), 0), graph.getPower(i));
+		}
+		assertEquals(3, graph.indexOf(3, 64, 0));
+		assertEquals(-1, graph.indexOf(3, 65, 0));
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.event.Cause;
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.material.BlockMaterial;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertEquals;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyShort;
+import static org.mockito.Matchers.eq;
+
+public class PopulatorBufferTest {
+	private static int getState(BlockMaterial material) {
+		return (material.getId() & 0xFFFF) << 16;
+	}
+
+	private static Chunk createChunk() {
+		VanillaMaterials.initialize();
+		Chunk chunk = Mockito.mock(Chunk.class);
+		Mockito.when(chunk.getBlockFullState(anyInt(), anyInt(), anyInt())).thenReturn(getState(VanillaMaterials.STONE));
+		return chunk;
+	}
+
+	private static World createWorld(Chunk chunk) {
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getChunkFromBlock(anyInt(), anyInt(), anyInt())).thenReturn(chunk);
+		return world;
+	}
+
+	@Test
+	public void testEditsAreStagedUntilCommit() {
+		Chunk chunk = createChunk();
+		World world = createWorld(chunk);
+		PopulatorBuffer buffer = new PopulatorBuffer(world);
+
+		buffer.setBlockMaterial(1, 64, 1, VanillaMaterials.COAL_ORE, (short) 0);
+		buffer.setBlockMaterial(1, 64, 1, VanillaMaterials.IRON_ORE, (short) 0);
+		buffer.setBlockMaterial(2, 64, 1, VanillaMaterials.STONE, (short) 0);
+		buffer.setBlockMaterial(20, 64, 1, VanillaMaterials.GOLD_ORE, (short) 0);
+		assertEquals(getState(VanillaMaterials.IRON_ORE), buffer.getBlockFullState(1, 64, 1));
+		assertEquals(getState(VanillaMaterials.STONE), buffer.getBlockFullState(3, 64, 1));
+		assertEquals(2, buffer.getChangedCount());
+		Mockito.verify(chunk, Mockito.never()).setBlockMaterial(anyInt(), anyInt(), anyInt(), any(BlockMaterial.class), anyShort(), any(Cause.class));
+
+		// Blocks set twice are written once, blocks set to what they were are not written, every chunk is looked up once
+		buffer.commit();
+		Mockito.verify(chunk, Mockito.times(2)).setBlockMaterial(anyInt(), anyInt(), anyInt(), any(BlockMaterial.class), anyShort(), any(Cause.class));
+		Mockito.verify(chunk).setBlockMaterial(eq(1), eq(64), eq(1), any(BlockMaterial.class), eq((short) 0), any(Cause.class));
+		Mockito.verify(chunk).setBlockMaterial(eq(20), eq(64), eq(1), any(BlockMaterial.class), eq((short) 0), any(Cause.class));
+		Mockito.verify(chunk, Mockito.times(4)).getBlockFullState(anyInt(), anyInt(), anyInt());
+		Mockito.verify(world, Mockito.times(2)).getChunkFromBlock(anyInt(), anyInt(), anyInt());
+		assertEquals(0, buffer.getChangedCount());
+	}
+
+	@Test
+	public void testBlocksSetBackAreNotWritten() {
+		Chunk chunk = createChunk();
+		World world = createWorld(chunk);
+		PopulatorBuffer buffer = new PopulatorBuffer(world);
+
+		buffer.setBlockMaterial(1, 64, 1, VanillaMaterials.COAL_ORE, (short) 0);
+		buffer.setBlockMaterial(2, 64, 1, VanillaMaterials.COAL_ORE, (short) 0);
+		assertEquals(2, buffer.getChangedCount());
+		buffer.setBlockMaterial(1, 64, 1, VanillaMaterials.IRON_ORE, (short) 0);
+		buffer.setBlockMaterial(1, 64, 1, VanillaMaterials.STONE, (short) 0);
+		assertEquals(1, buffer.getChangedCount());
+
+		buffer.commit();
+		Mockito.verify(chunk).setBlockMaterial(anyInt(), anyInt(), anyInt(), any(BlockMaterial.class), anyShort(), any(Cause.class));
+		Mockito.verify(chunk).setBlockMaterial(eq(2), eq(64), eq(1), any(BlockMaterial.class), eq((short) 0), any(Cause.class));
+	}
+
+	@Test
+	public void testGetBlockWritesOnlyItsBlock() {
+		Chunk chunk = createChunk();
+		World world = createWorld(chunk);
+		PopulatorBuffer buffer = new PopulatorBuffer(world);
+
+		buffer.setBlockMaterial(1, 64, 1, VanillaMaterials.COAL_ORE, (short) 0);
+		buffer.setBlockMaterial(2, 64, 1, VanillaMaterials.IRON_ORE, (short) 0);
+		buffer.getBlock(1, 64, 1);
+		Mockito.verify(chunk).setBlockMaterial(anyInt(), anyInt(), anyInt(), any(BlockMaterial.class), anyShort(), any(Cause.class));
+		Mockito.verify(chunk).setBlockMaterial(eq(1), eq(64), eq(1), any(BlockMaterial.class), eq((short) 0), any(Cause.class));
+		Mockito.verify(world).getBlock(1, 64, 1);
+		assertEquals(1, buffer.getChangedCount());
+
+		// The block given out is read from the world again, the chunk is kept and looked up once
+		assertEquals(getState(VanillaMaterials.STONE), buffer.getBlockFullState(1, 64, 1));
+		Mockito.verify(chunk, Mockito.times(2)).getBlockFullState(1, 64, 1);
+		assertEquals(getState(VanillaMaterials.IRON_ORE), buffer.getBlockFullState(2, 64, 1));
+		Mockito.verify(world).getChunkFromBlock(anyInt(), anyInt(), anyInt());
+
+		buffer.commit();
+		Mockito.verify(chunk).setBlockMaterial(eq(2), eq(64), eq(1), any(BlockMaterial.class), eq((short) 0), any(Cause.class));
+		Mockito.verify(chunk, Mockito.times(2)).setBlockMaterial(anyInt(), anyInt(), anyInt(), any(BlockMaterial.class), anyShort(), any(Cause.class));
+	}
+
+	@Test
+	public void testReadOnlyReadsTheWorld() {
+		Chunk chunk = createChunk();
+		World world = createWorld(chunk);
+		Mockito.when(world.getBlockFullState(anyInt(), anyInt(), anyInt())).thenReturn(getState(VanillaMaterials.DIRT));
+		PopulatorBuffer buffer = PopulatorBuffer.readOnly(world);
+
+		assertEquals(VanillaMaterials.DIRT, buffer.getBlockMaterial(1, 64, 1));
+		Mockito.verify(world).getBlockFullState(1, 64, 1);
+		Mockito.verify(world, Mockito.never()).getChunkFromBlock(anyInt(), anyInt(), anyInt());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnlyCannotSet() {
+		PopulatorBuffer.readOnly(createWorld(createChunk())).setBlockMaterial(1, 64, 1, VanillaMaterials.COAL_ORE, (short) 0);
+	}
+}
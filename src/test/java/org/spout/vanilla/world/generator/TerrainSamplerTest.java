@@ -0,0 +1,75 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator;
+
+import net.royawesome.jlibnoise.module.Module;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+
+import static org.mockito.Matchers.anyDouble;
+
+public class TerrainSamplerTest {
+	@Test
+	public void testInterpolation() {
+		// Trilinear interpolation reproduces a linear function exactly
+		Module noise = Mockito.mock(Module.class);
+		Mockito.when(noise.GetValue(anyDouble(), anyDouble(), anyDouble())).thenAnswer(new Answer<Double>() {
+			@Override
+			public Double answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				return linear((Double) args[0], (Double) args[1], (Double) args[2]);
+			}
+		});
+
+		final int sizeX = 16, sizeY = 8, sizeZ = 12;
+		double[] values = TerrainSampler.sample(noise, sizeX, sizeY, sizeZ, 4, 32, 64, -16);
+		assertEquals(sizeX * sizeY * sizeZ, values.length);
+		for (int xx = 0; xx < sizeX; xx++) {
+			for (int yy = 0; yy < sizeY; yy++) {
+				for (int zz = 0; zz < sizeZ; zz++) {
+					assertEquals(linear(32 + xx, 64 + yy, -16 + zz), values[TerrainSampler.getIndex(xx, yy, zz, sizeY, sizeZ)], 1e-9);
+				}
+			}
+		}
+		// The noise is only read at the corners of the sampling cells
+		Mockito.verify(noise, Mockito.times(5 * 3 * 4)).GetValue(anyDouble(), anyDouble(), anyDouble());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeNotDivisible() {
+		TerrainSampler.sample(Mockito.mock(Module.class), 16, 10, 16, 4, 0, 0, 0);
+	}
+
+	private static double linear(double x, double y, double z) {
+		return 0.5 * x - 0.25 * y + 0.125 * z + 3;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.biome;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.generator.biome.Biome;
+import org.spout.api.generator.biome.BiomeSelector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+
+public class BiomeTileCacheTest {
+	@Test
+	public void testTilesShared() {
+		Biome plains = Mockito.mock(Biome.class);
+		Biome ocean = Mockito.mock(Biome.class);
+		BiomeSelector selector = Mockito.mock(BiomeSelector.class);
+		Mockito.when(selector.pickBiome(anyInt(), anyInt(), anyLong())).thenReturn(plains);
+		Mockito.when(selector.pickBiome(eq(-1), eq(20), anyLong())).thenReturn(ocean);
+
+		BiomeTileCache cache = new BiomeTileCache(selector, 9);
+		final int tileArea = BiomeTileCache.TILE_SIZE * BiomeTileCache.TILE_SIZE;
+		assertSame(ocean, cache.getBiome(-1, 20, 5));
+		assertSame(plains, cache.getBiome(-2, 20, 5));
+		assertEquals(tileArea, cache.getPicks());
+
+		// The area smoothed around a chunk, 24 by 24 columns, only picks the 9 tiles it touches, even when read twice
+		for (int i = 0; i < 2; i++) {
+			for (int x = -4; x < 20; x++) {
+				for (int z = -4; z < 20; z++) {
+					cache.getBiome(x, z, 5);
+				}
+			}
+		}
+		assertEquals(9 * tileArea, cache.getPicks());
+		assertEquals(9, cache.size());
+		Mockito.verify(selector, Mockito.times(1)).pickBiome(-1, 20, 5L);
+
+		// Another seed has its own tiles, the least recently used tile is dropped for it
+		cache.getBiome(0, 0, 6);
+		assertEquals(9, cache.size());
+		assertEquals(10 * tileArea, cache.getPicks());
+		cache.getBiome(-4, -4, 5);
+		assertEquals(11 * tileArea, cache.getPicks());
+		Mockito.verify(selector, Mockito.times(2)).pickBiome(-4, -4, 5L);
+	}
+}
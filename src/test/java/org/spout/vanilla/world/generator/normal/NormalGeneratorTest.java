@@ -0,0 +1,107 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.geo.World;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertSame;
+
+public class NormalGeneratorTest {
+	private static final long[] SEEDS = {1, 42, -7};
+	private static final int COLUMNS = 4;
+	private static final int SIZE = 16;
+
+	@Test
+	public void testParallelGenerateMatchesSequential() throws Exception {
+		VanillaMaterials.initialize();
+		final NormalGenerator generator = new NormalGenerator();
+		final World[] worlds = new World[SEEDS.length];
+		for (int i = 0; i < SEEDS.length; i++) {
+			worlds[i] = Mockito.mock(World.class);
+			Mockito.when(worlds[i].getSeed()).thenReturn(SEEDS[i]);
+		}
+
+		// Generate every column once on this thread, with the biomes of the whittaker layer and all generator populators
+		final List<CuboidBlockMaterialBuffer> expected = new ArrayList<CuboidBlockMaterialBuffer>();
+		for (int i = 0; i < SEEDS.length * COLUMNS; i++) {
+			expected.add(generate(generator, worlds, i));
+		}
+
+		// Generate the same columns on many threads at once, with the seeds interleaved
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (int round = 0; round < 3; round++) {
+				final List<Future<CuboidBlockMaterialBuffer>> results = new ArrayList<Future<CuboidBlockMaterialBuffer>>();
+				for (int i = 0; i < expected.size(); i++) {
+					final int index = i;
+					results.add(executor.submit(new Callable<CuboidBlockMaterialBuffer>() {
+						@Override
+						public CuboidBlockMaterialBuffer call() {
+							return generate(generator, worlds, index);
+						}
+					}));
+				}
+				for (int i = 0; i < expected.size(); i++) {
+					assertSameBlocks(expected.get(i), results.get(i).get(), i);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static CuboidBlockMaterialBuffer generate(NormalGenerator generator, World[] worlds, int index) {
+		final int x = (index % COLUMNS) * SIZE;
+		final CuboidBlockMaterialBuffer buffer = new CuboidBlockMaterialBuffer(x, 0, 0, SIZE, NormalGenerator.HEIGHT, SIZE);
+		generator.generate(buffer, x >> 4, 0, 0, worlds[index / COLUMNS]);
+		return buffer;
+	}
+
+	private static void assertSameBlocks(CuboidBlockMaterialBuffer expected, CuboidBlockMaterialBuffer actual, int index) {
+		final int baseX = (index % COLUMNS) * SIZE;
+		for (int x = baseX; x < baseX + SIZE; x++) {
+			for (int y = 0; y < NormalGenerator.HEIGHT; y++) {
+				for (int z = 0; z < SIZE; z++) {
+					assertSame("Block " + x + ", " + y + ", " + z + " of column " + index, expected.get(x, y, z), actual.get(x, y, z));
+				}
+			}
+		}
+	}
+}
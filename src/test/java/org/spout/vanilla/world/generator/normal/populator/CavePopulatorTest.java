@@ -0,0 +1,131 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.generator.normal.populator;
+
+import org.junit.Test;
+
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.util.cuboid.CuboidBlockMaterialBuffer;
+
+import org.spout.vanilla.material.VanillaMaterials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CavePopulatorTest {
+	private static final long SEED = 42;
+	private static final int RANGE = 3;
+	private static final int SIZE = 16;
+	private static final int HEIGHT = 128;
+
+	@Test
+	public void testCachedSkeletonsCarveTheSame() {
+		VanillaMaterials.initialize();
+		final CarverPopulator[] shared = {new CavePopulator(), new RavinePopulator()};
+		// Warm the shared skeleton caches in the reverse order of the checks below
+		for (int cx = RANGE - 1; cx >= -RANGE; cx--) {
+			for (int cz = RANGE - 1; cz >= -RANGE; cz--) {
+				for (CarverPopulator populator : shared) {
+					carve(populator, cx, cz);
+				}
+			}
+		}
+		for (int cx = -RANGE; cx < RANGE; cx++) {
+			for (int cz = -RANGE; cz < RANGE; cz++) {
+				assertSameBlocks(carve(new CavePopulator(), cx, cz), carve(shared[0], cx, cz), cx, cz);
+				assertSameBlocks(carve(new RavinePopulator(), cx, cz), carve(shared[1], cx, cz), cx, cz);
+			}
+		}
+	}
+
+	@Test
+	public void testCarvedBlocks() {
+		VanillaMaterials.initialize();
+		// Air, lava and grass blocks carved and a hash of their positions, as carved before the skeletons were cached
+		assertCarved(new CavePopulator(), -1, -1, 612, 493, 0, 4753907757997338846L);
+		assertCarved(new CavePopulator(), -3, -2, 512, 0, 2, -7481970221783313608L);
+		assertCarved(new RavinePopulator(), -19, -12, 3502, 147, 0, -6840667436813485873L);
+	}
+
+	private static void assertCarved(CarverPopulator populator, int cx, int cz, int air, int lava, int grass, long hash) {
+		final CuboidBlockMaterialBuffer buffer = carve(populator, cx, cz);
+		int airCount = 0, lavaCount = 0, grassCount = 0;
+		long positionHash = 0;
+		for (int x = cx * SIZE; x < (cx + 1) * SIZE; x++) {
+			for (int z = cz * SIZE; z < (cz + 1) * SIZE; z++) {
+				for (int y = 0; y < HEIGHT; y++) {
+					final BlockMaterial material = buffer.get(x, y, z);
+					if (material == getTerrain(y)) {
+						continue;
+					}
+					positionHash = positionHash * 31 + (((x & 15) << 11) | ((z & 15) << 7) | y);
+					if (material == VanillaMaterials.AIR) {
+						airCount++;
+					} else if (material == VanillaMaterials.STATIONARY_LAVA) {
+						lavaCount++;
+					} else if (material == VanillaMaterials.GRASS) {
+						grassCount++;
+					}
+				}
+			}
+		}
+		final String chunk = populator.getClass().getSimpleName() + " at " + cx + ", " + cz;
+		assertEquals(chunk, air, airCount);
+		assertEquals(chunk, lava, lavaCount);
+		assertEquals(chunk, grass, grassCount);
+		assertEquals(chunk, hash, positionHash);
+	}
+
+	private static BlockMaterial getTerrain(int y) {
+		return y < 60 ? VanillaMaterials.STONE : y < 63 ? VanillaMaterials.DIRT : y == 63 ? VanillaMaterials.GRASS : VanillaMaterials.AIR;
+	}
+
+	private static CuboidBlockMaterialBuffer carve(CarverPopulator populator, int cx, int cz) {
+		final int x = cx * SIZE;
+		final int z = cz * SIZE;
+		final CuboidBlockMaterialBuffer buffer = new CuboidBlockMaterialBuffer(x, 0, z, SIZE, HEIGHT, SIZE);
+		for (int xx = x; xx < x + SIZE; xx++) {
+			for (int zz = z; zz < z + SIZE; zz++) {
+				for (int y = 0; y < HEIGHT; y++) {
+					buffer.set(xx, y, zz, getTerrain(y));
+				}
+			}
+		}
+		populator.populate(buffer, x, 0, z, null, SEED);
+		return buffer;
+	}
+
+	private static void assertSameBlocks(CuboidBlockMaterialBuffer expected, CuboidBlockMaterialBuffer actual, int cx, int cz) {
+		for (int x = cx * SIZE; x < (cx + 1) * SIZE; x++) {
+			for (int z = cz * SIZE; z < (cz + 1) * SIZE; z++) {
+				for (int y = 0; y < HEIGHT; y++) {
+					assertSame("Block " + x + ", " + y + ", " + z, expected.get(x, y, z), actual.get(x, y, z));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
+import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class BlocklightPropagationTest extends LightBufferTestBase {
+	private static final int TORCHES = 60;
+	private final BlockMaterial torch = mockMaterial(0, 14);
+
+	/**
+	 * Computes the light of the whole cuboid by relaxing every block until nothing changes
+	 */
+	private byte[] getExpected() {
+		byte[] expected = new byte[levels.length];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int x = 0; x < SIZE; x++) {
+				for (int y = 0; y < SIZE; y++) {
+					for (int z = 0; z < SIZE; z++) {
+						BlockMaterial m = materials[index(x, y, z)];
+						int level = m.getLightLevel((short) 0);
+						int attenuation = Math.max(1, m.getOpacity());
+						level = Math.max(level, getLevel(expected, x + 1, y, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x - 1, y, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y + 1, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y - 1, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y, z + 1) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y, z - 1) - attenuation);
+						if (level != expected[index(x, y, z)]) {
+							expected[index(x, y, z)] = (byte) level;
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+		return expected;
+	}
+
+	@Test
+	public void testGeneratedCuboids() {
+		Random random = new Random(5);
+		for (int i = 0; i < materials.length; i++) {
+			materials[i] = random.nextInt(8) == 0 ? stone : random.nextInt(200) == 0 ? torch : air;
+		}
+		VanillaBlocklightLightingManager manager = new VanillaBlocklightLightingManager("block");
+		ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light = mockLight();
+		ImmutableCuboidBlockMaterialBuffer buffer = mockMaterials();
+
+		// Neighbouring cuboids generated one after another spread their light into each other
+		int half = SIZE / 2;
+		for (int x = 0; x < SIZE; x += half) {
+			for (int z = 0; z < SIZE; z += half) {
+				manager.resolve(light, buffer, new int[]{x}, new int[]{0}, new int[]{z}, new int[]{x + half}, new int[]{SIZE}, new int[]{z + half}, 1);
+			}
+		}
+		assertArrayEquals(getExpected(), levels);
+	}
+
+	@Test
+	public void testTorchStorm() {
+		Random random = new Random(42);
+		for (int i = 0; i < materials.length; i++) {
+			materials[i] = random.nextInt(8) == 0 ? stone : air;
+		}
+		VanillaBlocklightLightingManager manager = new VanillaBlocklightLightingManager("block");
+		ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light = mockLight();
+		ImmutableCuboidBlockMaterialBuffer buffer = mockMaterials();
+
+		int[] x = new int[TORCHES];
+		int[] y = new int[TORCHES];
+		int[] z = new int[TORCHES];
+		for (int i = 0; i < TORCHES; i++) {
+			x[i] = random.nextInt(SIZE);
+			y[i] = random.nextInt(SIZE);
+			z[i] = random.nextInt(SIZE);
+			materials[index(x[i], y[i], z[i])] = torch;
+		}
+		manager.resolve(light, buffer, x, y, z, TORCHES);
+		assertArrayEquals(getExpected(), levels);
+
+		// Remove half of the torches and place stone next to some of the others in the same tick
+		int[] cx = new int[TORCHES];
+		int[] cy = new int[TORCHES];
+		int[] cz = new int[TORCHES];
+		int changed = 0;
+		for (int i = 0; i < TORCHES; i++) {
+			if ((i & 1) == 0) {
+				materials[index(x[i], y[i], z[i])] = air;
+				cx[changed] = x[i];
+			} else if ((i & 3) == 1) {
+				cx[changed] = Math.min(SIZE - 1, x[i] + 1);
+				materials[index(cx[changed], y[i], z[i])] = stone;
+			} else {
+				continue;
+			}
+			cy[changed] = y[i];
+			cz[changed] = z[i];
+			changed++;
+		}
+		manager.resolve(light, buffer, cx, cy, cz, changed);
+		assertArrayEquals(getExpected(), levels);
+	}
+}
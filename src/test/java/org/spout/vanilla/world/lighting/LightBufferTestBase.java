@@ -0,0 +1,104 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.math.Vector3;
+import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
+import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
+
+import static org.mockito.Matchers.anyByte;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyShort;
+
+/**
+ * Backs the light and material buffers of a cube with arrays
+ */
+public abstract class LightBufferTestBase {
+	protected static final int SIZE = 32;
+	protected final BlockMaterial[] materials = new BlockMaterial[SIZE * SIZE * SIZE];
+	protected final byte[] levels = new byte[SIZE * SIZE * SIZE];
+	protected final BlockMaterial air = mockMaterial(0, 0);
+	protected final BlockMaterial stone = mockMaterial(15, 0);
+
+	protected static BlockMaterial mockMaterial(int opacity, int light) {
+		BlockMaterial material = Mockito.mock(BlockMaterial.class);
+		Mockito.when(material.getOpacity()).thenReturn((byte) opacity);
+		Mockito.when(material.getLightLevel(anyShort())).thenReturn((byte) light);
+		return material;
+	}
+
+	protected static int index(int x, int y, int z) {
+		return (x * SIZE + y) * SIZE + z;
+	}
+
+	protected static int getLevel(byte[] levels, int x, int y, int z) {
+		if (x < 0 || y < 0 || z < 0 || x >= SIZE || y >= SIZE || z >= SIZE) {
+			return 0;
+		}
+		return levels[index(x, y, z)];
+	}
+
+	@SuppressWarnings("unchecked")
+	protected ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> mockLight() {
+		ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light = Mockito.mock(ChunkCuboidLightBufferWrapper.class);
+		Mockito.when(light.get(anyInt(), anyInt(), anyInt())).thenAnswer(new Answer<Byte>() {
+			@Override
+			public Byte answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				return levels[index((Integer) args[0], (Integer) args[1], (Integer) args[2])];
+			}
+		});
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				levels[index((Integer) args[0], (Integer) args[1], (Integer) args[2])] = (Byte) args[3];
+				return null;
+			}
+		}).when(light).set(anyInt(), anyInt(), anyInt(), anyByte());
+		return light;
+	}
+
+	protected ImmutableCuboidBlockMaterialBuffer mockMaterials() {
+		ImmutableCuboidBlockMaterialBuffer buffer = Mockito.mock(ImmutableCuboidBlockMaterialBuffer.class);
+		Mockito.when(buffer.getBase()).thenReturn(new Vector3(0, 0, 0));
+		Mockito.when(buffer.getTop()).thenReturn(new Vector3(SIZE, SIZE, SIZE));
+		Mockito.when(buffer.get(anyInt(), anyInt(), anyInt())).thenAnswer(new Answer<BlockMaterial>() {
+			@Override
+			public BlockMaterial answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				return materials[index((Integer) args[0], (Integer) args[1], (Integer) args[2])];
+			}
+		});
+		return buffer;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import gnu.trove.list.array.TIntArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.spout.api.material.BlockMaterial;
+import org.spout.api.util.cuboid.ChunkCuboidLightBufferWrapper;
+import org.spout.api.util.cuboid.ImmutableCuboidBlockMaterialBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class SkylightPropagationTest extends LightBufferTestBase {
+	private static final int SKY = 15;
+	private final BlockMaterial water = mockMaterial(3, 0);
+	private final BlockMaterial leaves = mockMaterial(1, 0);
+
+	/**
+	 * Computes the sky light of the whole cuboid by relaxing every block until nothing changes, the sky is above the cuboid
+	 */
+	private byte[] getExpected() {
+		byte[] expected = new byte[levels.length];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int x = 0; x < SIZE; x++) {
+				for (int y = SIZE - 1; y >= 0; y--) {
+					for (int z = 0; z < SIZE; z++) {
+						int opacity = materials[index(x, y, z)].getOpacity();
+						int attenuation = Math.max(1, opacity);
+						int above = y == SIZE - 1 ? SKY : expected[index(x, y + 1, z)];
+						int level = above == SKY ? SKY - opacity : above - attenuation;
+						level = Math.max(level, getLevel(expected, x + 1, y, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x - 1, y, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y - 1, z) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y, z + 1) - attenuation);
+						level = Math.max(level, getLevel(expected, x, y, z - 1) - attenuation);
+						level = Math.max(0, level);
+						if (level != expected[index(x, y, z)]) {
+							expected[index(x, y, z)] = (byte) level;
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+		return expected;
+	}
+
+	private int getHeight(int x, int z) {
+		for (int y = SIZE - 1; y >= 0; y--) {
+			if (materials[index(x, y, z)] != air) {
+				return y;
+			}
+		}
+		return -1;
+	}
+
+	private void generate(Random random) {
+		for (int x = 0; x < SIZE; x++) {
+			for (int z = 0; z < SIZE; z++) {
+				int height = 8 + random.nextInt(12);
+				for (int y = 0; y < SIZE; y++) {
+					materials[index(x, y, z)] = y <= height ? stone : air;
+				}
+				if (random.nextInt(4) == 0) {
+					materials[index(x, height + 1, z)] = water;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testGeneratedCuboids() {
+		generate(new Random(3));
+		VanillaSkylightLightingManager manager = new VanillaSkylightLightingManager("skylight");
+		ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light = mockLight();
+		ImmutableCuboidBlockMaterialBuffer buffer = mockMaterials();
+
+		// The top half is generated first, then the bottom half below it
+		int half = SIZE / 2;
+		manager.resolve(light, buffer, new int[]{0}, new int[]{half}, new int[]{0}, new int[]{SIZE}, new int[]{SIZE}, new int[]{SIZE}, 1);
+		manager.resolve(light, buffer, new int[]{0}, new int[]{0}, new int[]{0}, new int[]{SIZE}, new int[]{half}, new int[]{SIZE}, 1);
+		assertArrayEquals(getExpected(), levels);
+	}
+
+	@Test
+	public void testTerrainEdits() {
+		generate(new Random(7));
+		VanillaSkylightLightingManager manager = new VanillaSkylightLightingManager("skylight");
+		ChunkCuboidLightBufferWrapper<VanillaCuboidLightBuffer> light = mockLight();
+		ImmutableCuboidBlockMaterialBuffer buffer = mockMaterials();
+		System.arraycopy(getExpected(), 0, levels, 0, levels.length);
+
+		int[] oldHeights = new int[SIZE * SIZE];
+		for (int x = 0; x < SIZE; x++) {
+			for (int z = 0; z < SIZE; z++) {
+				oldHeights[x * SIZE + z] = getHeight(x, z);
+			}
+		}
+
+		TIntArrayList bx = new TIntArrayList();
+		TIntArrayList by = new TIntArrayList();
+		TIntArrayList bz = new TIntArrayList();
+		// A roof, a tree crown, a pool and a shaft with a tunnel, all in the same tick
+		for (int x = 2; x < 9; x++) {
+			for (int z = 2; z < 9; z++) {
+				set(bx, by, bz, x, SIZE - 4, z, stone);
+				set(bx, by, bz, x + 12, SIZE - 6, z, leaves);
+				set(bx, by, bz, x, 20, z + 14, water);
+			}
+		}
+		for (int y = 0; y < 22; y++) {
+			set(bx, by, bz, 24, y, 24, air);
+		}
+		for (int x = 10; x < 24; x++) {
+			set(bx, by, bz, x, 3, 24, air);
+		}
+
+		TIntArrayList hx = new TIntArrayList();
+		TIntArrayList hz = new TIntArrayList();
+		TIntArrayList oldHy = new TIntArrayList();
+		TIntArrayList newHy = new TIntArrayList();
+		for (int x = 0; x < SIZE; x++) {
+			for (int z = 0; z < SIZE; z++) {
+				int height = getHeight(x, z);
+				if (height != oldHeights[x * SIZE + z]) {
+					hx.add(x);
+					hz.add(z);
+					oldHy.add(oldHeights[x * SIZE + z]);
+					newHy.add(height);
+				}
+			}
+		}
+
+		manager.resolve(light, buffer, bx.toArray(), by.toArray(), bz.toArray(), bx.size());
+		manager.resolve(light, buffer, hx.toArray(), hz.toArray(), oldHy.toArray(), newHy.toArray(), hx.size());
+		assertArrayEquals(getExpected(), levels);
+	}
+
+	private void set(TIntArrayList bx, TIntArrayList by, TIntArrayList bz, int x, int y, int z, BlockMaterial material) {
+		materials[index(x, y, z)] = material;
+		bx.add(x);
+		by.add(y);
+		bz.add(z);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Vanilla.
+ *
+ * Copyright (c) 2011-2012, Spout LLC <http://www.spout.org/>
+ * Vanilla is licensed under the Spout License Version 1.
+ *
+ * Vanilla is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * In addition, 180 days after any changes are published, you can use the
+ * software, incorporating those changes, under the terms of the MIT license,
+ * as described in the Spout License Version 1.
+ *
+ * Vanilla is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License,
+ * the MIT license and the Spout License Version 1 along with this program.
+ * If not, see <http://www.gnu.org/licenses/> for the GNU Lesser General Public
+ * License and see <http://spout.in/licensev1> for the full license, including
+ * the MIT license.
+ */
+package org.spout.vanilla.world.lighting;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.spout.api.geo.World;
+import org.spout.api.geo.cuboid.Chunk;
+import org.spout.api.lighting.Modifiable;
+
+import org.spout.vanilla.protocol.chunk.ChunkPayloadCache;
+import org.spout.vanilla.protocol.chunk.SectionPayload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class VanillaCuboidLightBufferTest {
+	private static Chunk createChunk(World world) {
+		Chunk chunk = Mockito.mock(Chunk.class, Mockito.withSettings().extraInterfaces(Modifiable.class));
+		Mockito.when(chunk.getWorld()).thenReturn(world);
+		Mockito.when(chunk.getX()).thenReturn(1);
+		Mockito.when(chunk.getY()).thenReturn(2);
+		Mockito.when(chunk.getZ()).thenReturn(3);
+		return chunk;
+	}
+
+	@Test
+	public void testLightChangeInvalidatesPayload() {
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getName()).thenReturn("light");
+		Chunk chunk = createChunk(world);
+
+		ChunkPayloadCache cache = ChunkPayloadCache.getInstance();
+		cache.retain(world, 1, 3);
+		try {
+			VanillaCuboidLightBuffer light = new VanillaCuboidLightBuffer((Modifiable) chunk, 0, 16, 32, 48, Chunk.BLOCKS.SIZE, Chunk.BLOCKS.SIZE, Chunk.BLOCKS.SIZE);
+			SectionPayload payload = new SectionPayload(cache.getVersion(chunk), new byte[Chunk.BLOCKS.HALF_VOLUME * 5], new int[0], new int[0], new int[0]);
+			cache.putSection(chunk, payload);
+
+			// Writing the light level a block already has leaves the payload valid
+			light.set(16, 32, 48, light.get(16, 32, 48));
+			assertSame(payload, cache.getSection(chunk));
+
+			light.set(16, 32, 48, (byte) 15);
+			assertNull(cache.getSection(chunk));
+		} finally {
+			cache.release(world, 1, 3);
+		}
+	}
+
+	@Test
+	public void testPassInvalidatesOnce() {
+		World world = Mockito.mock(World.class);
+		Mockito.when(world.getName()).thenReturn("lightpass");
+		Chunk chunk = createChunk(world);
+
+		ChunkPayloadCache cache = ChunkPayloadCache.getInstance();
+		cache.retain(world, 1, 3);
+		try {
+			VanillaCuboidLightBuffer light = new VanillaCuboidLightBuffer((Modifiable) chunk, 0, 16, 32, 48, Chunk.BLOCKS.SIZE, Chunk.BLOCKS.SIZE, Chunk.BLOCKS.SIZE);
+			int version = cache.getVersion(chunk);
+			cache.putSection(chunk, new SectionPayload(version, new byte[Chunk.BLOCKS.HALF_VOLUME * 5], new int[0], new int[0], new int[0]));
+
+			// Changes during a pass keep the payload until the pass ends, then invalidate it once
+			VanillaCuboidLightBuffer.beginPass();
+			for (int x = 16; x < 32; x++) {
+				light.set(x, 32, 48, (byte) 15);
+			}
+			assertEquals(version, cache.getVersion(chunk));
+			VanillaCuboidLightBuffer.endPass();
+			assertEquals(version + 1, cache.getVersion(chunk));
+			assertNull(cache.getSection(chunk));
+		} finally {
+			VanillaCuboidLightBuffer.endPass();
+			cache.release(world, 1, 3);
+		}
+	}
+}